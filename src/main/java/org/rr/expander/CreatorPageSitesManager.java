@@ -2,11 +2,13 @@ package org.rr.expander;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -158,6 +160,35 @@ public class CreatorPageSitesManager {
 		return getEntries().keySet();
 	}
 
+	/**
+	 * Get a fingerprint of all settings of the given alias which changes as soon as one of the
+	 * settings has been changed.
+	 * 
+	 * @param alias The alias of the desired fingerprint.
+	 * @return The fingerprint or <code>null</code> if the alias is not configured.
+	 */
+	@Nullable
+	public String getFingerprint(@Nullable String alias) throws IOException {
+		Entry entry = getEntries().get(alias);
+		if(entry == null) {
+			return null;
+		}
+		return Fingerprints.create(Arrays.asList(entry.getAlias(), entry.getDescription(), entry.getTitle(),
+				entry.getPageUrl(), entry.getItemSelector(), entry.getTitleSelector(), entry.getLinkSelector(),
+				entry.getAuthorSelector()));
+	}
+
+	/**
+	 * @return The page urls of all configured aliases.
+	 */
+	@Nonnull
+	public Set<String> getPageUrls() throws IOException {
+		return getEntries().values().stream()
+				.map(entry -> entry.getPageUrl())
+				.filter(url -> isNotBlank(url))
+				.collect(toSet());
+	}
+
 	@Nonnull
 	private Map<String, Entry>  getEntries() throws IOException {
 		if(feedSiteEntries == null || isReReadFeedSitesFileNecessary()) {
@@ -2,6 +2,8 @@ package org.rr.expander;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -11,6 +13,9 @@ import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
+import org.apache.commons.lang3.StringUtils;
+import org.rr.expander.cache.RenderedFeedCache;
+import org.rr.expander.cache.RenderedFeedCache.RenderedFeed;
 import org.rr.expander.feed.FeedCreator;
 import org.rr.expander.feed.FeedCreatorFactory;
 import org.slf4j.Logger;
@@ -27,6 +32,8 @@ public class CreatorResource {
 	@Nonnull
 	private final static Logger logger = LoggerFactory.getLogger(ExpanderResource.class);
 
+	private static final String RESOURCE_NAME = "create";
+
 	@Nonnull
 	@Inject(optional = false)
 	private CreatorPageSitesManager creatorSitesManager;
@@ -35,6 +42,11 @@ public class CreatorResource {
 	@Inject(optional = false)
 	private FeedCreatorFactory feedCreatorFactory;
 	
+	/** keeps the rendered feeds for a short time if enabled in the configuration. */
+	@Nullable
+	@Inject(optional = true)
+	private RenderedFeedCache renderedFeedCache;
+	
 	@PermitAll
 	@GET
 	public Response expand(@QueryParam("alias") Optional<String> alias) {
@@ -51,8 +63,7 @@ public class CreatorResource {
 			public Response apply(@Nullable String alias) {
 				try {
 					if(alias != null && creatorSitesManager.containsAlias(alias)) {
-						FeedCreator pageHandlerForAlias = createFeedHandlerForAlias(alias);
-						return getSuccessResponse(pageHandlerForAlias);
+						return getSuccessResponse(renderFeedForAlias(alias));
 					}
 					return getForbiddenResponse();
 				} catch (Exception e) {
@@ -63,6 +74,31 @@ public class CreatorResource {
 		}).or(getBadRequestResponse()); // (no alias)
 	}
 	
+	/**
+	 * Get the rendered feed of the given alias from the {@link RenderedFeedCache} if it is available.
+	 * The feed is only rendered if it is not cached or the alias configuration has been changed.
+	 */
+	@Nonnull
+	private RenderedFeed renderFeedForAlias(@Nonnull String alias) throws FeedException, IOException {
+		if(renderedFeedCache != null) {
+			return renderedFeedCache.get(RESOURCE_NAME, alias, StringUtils.defaultString(creatorSitesManager.getFingerprint(alias)),
+					() -> {
+						try {
+							return CompletableFuture.completedFuture(renderFeed(alias));
+						} catch (FeedException | IOException e) {
+							throw new CompletionException(e);
+						}
+					}).join();
+		}
+		return renderFeed(alias);
+	}
+
+	@Nonnull
+	private RenderedFeed renderFeed(@Nonnull String alias) throws FeedException, IOException {
+		FeedCreator feedCreator = createFeedHandlerForAlias(alias);
+		return new RenderedFeed(feedCreator.build(), feedCreator.getMediaType());
+	}
+
 	@Nonnull
 	private FeedCreator createFeedHandlerForAlias(@Nonnull String alias)
 			throws MalformedURLException, FeedException, IOException {
@@ -75,8 +111,8 @@ public class CreatorResource {
 	}
 	
 	@Nonnull
-	private Response getSuccessResponse(FeedCreator feedCreator) throws FeedException {
-		return Response.ok(feedCreator.build(), feedCreator.getMediaType())
+	private Response getSuccessResponse(@Nonnull RenderedFeed feed) {
+		return Response.ok(feed.getContent(), feed.getMediaType())
 				.header("X-Robots-Tag", "noindex, nofollow")
 				.build();
 	}
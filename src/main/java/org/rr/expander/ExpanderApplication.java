@@ -4,16 +4,27 @@ package org.rr.expander;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Paths;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.apache.http.auth.BasicUserPrincipal;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.rr.expander.cache.ExtractedContentCache;
+import org.rr.expander.cache.FailedLinkCache;
 import org.rr.expander.cache.PageCache;
+import org.rr.expander.cache.PageCacheCodec;
 import org.rr.expander.cache.PageCacheFactory;
+import org.rr.expander.cache.PageCacheMetrics;
+import org.rr.expander.cache.PageRefreshScheduler;
 import org.rr.expander.cache.PageCacheFactory.CACHE_TYPE;
+import org.rr.expander.cache.RenderedFeedCache;
 import org.rr.expander.feed.FeedBuilder;
 import org.rr.expander.feed.FeedBuilderFactory;
 import org.rr.expander.feed.FeedBuilderImpl;
@@ -23,15 +34,30 @@ import org.rr.expander.feed.FeedContentExchangerImpl;
 import org.rr.expander.feed.FeedContentFilter;
 import org.rr.expander.feed.FeedContentFilterFactory;
 import org.rr.expander.feed.FeedContentFilterImpl;
+import org.rr.expander.feed.FeedExchangeExecutor;
+import org.rr.expander.feed.FeedExchangeExecutor.THREAD_MODE;
 import org.rr.expander.feed.FeedCreator;
 import org.rr.expander.feed.FeedCreatorFactory;
 import org.rr.expander.feed.FeedCreatorImpl;
+import org.rr.expander.feed.VirtualThreads;
+import org.rr.expander.health.CircuitBreakerHealthCheck;
 import org.rr.expander.health.HtUserHealthCheck;
 import org.rr.expander.health.PageCacheHealthCheck;
+import org.rr.expander.loader.AsyncUrlLoaderFactory;
+import org.rr.expander.loader.ConnectionWarmer;
+import org.rr.expander.loader.HostCircuitBreaker;
+import org.rr.expander.loader.HostRequestScheduler;
+import org.rr.expander.loader.PooledHttpClientFactory;
+import org.rr.expander.loader.RequestCoalescer;
+import org.rr.expander.loader.ResponseArchive;
+import org.rr.expander.loader.UrlCanonicalizer;
 import org.rr.expander.loader.UrlLoaderFactory;
+import org.rr.expander.loader.UrlLoaderFactory.LOADER_TYPE;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -45,12 +71,14 @@ import io.dropwizard.auth.basic.BasicCredentialAuthFilter;
 import io.dropwizard.jetty.ConnectorFactory;
 import io.dropwizard.jetty.HttpConnectorFactory;
 import io.dropwizard.jetty.HttpsConnectorFactory;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.server.DefaultServerFactory;
 import io.dropwizard.server.ServerFactory;
 import io.dropwizard.server.SimpleServerFactory;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import io.dropwizard.views.ViewBundle;
+import okhttp3.OkHttpClient;
 
 public class ExpanderApplication extends Application<ExpanderConfiguration> {
 	
@@ -69,7 +97,10 @@ public class ExpanderApplication extends Application<ExpanderConfiguration> {
 
 	@Override
 	public void run(ExpanderConfiguration config, Environment environment) throws ClassNotFoundException {
-		Injector injector = createInjector(config);
+		ConnectionWarmer connectionWarmer = config.getWarmUp().isEnabled() && getArchiveMode(config) != ResponseArchive.MODE.REPLAY
+				? new ConnectionWarmer(config.getWarmUp()) : null;
+		Injector injector = createInjector(config, environment, connectionWarmer);
+		registerSitesWarmUp(config, environment, injector, connectionWarmer);
 		registerExpanderResource(environment, injector);
 		registerExtractorResource(environment, injector);
 		registerShowFeedsResource(environment, injector);
@@ -77,6 +108,10 @@ public class ExpanderApplication extends Application<ExpanderConfiguration> {
 		registerConfigurationHealthCheck(config, environment, injector);
 	}
 	
+	private ResponseArchive.MODE getArchiveMode(ExpanderConfiguration config) {
+		return ResponseArchive.MODE.valueOf(config.getResponseArchive().getMode());
+	}
+
 	private String evaluateHostName() {
 		try {
 			return InetAddress.getLocalHost().getHostName();
@@ -128,9 +163,39 @@ public class ExpanderApplication extends Application<ExpanderConfiguration> {
 				serverFactory.getClass().getName()));
 	}
 
+	/**
+	 * Closes the given resource when the server stops.
+	 */
+	private static void manageCloseable(@Nonnull Environment environment, @Nonnull Closeable closeable) {
+		environment.lifecycle().manage(new Managed() {
+			@Override
+			public void start() throws Exception {
+			}
+
+			@Override
+			public void stop() throws Exception {
+				closeable.close();
+			}
+		});
+	}
+
 	private void registerConfigurationHealthCheck(ExpanderConfiguration config, Environment environment, Injector injector) {
     environment.healthChecks().register("htuser", new HtUserHealthCheck(config.getHtusers()));
     environment.healthChecks().register("page-cache", new PageCacheHealthCheck(injector.getInstance(PageCache.class)));
+    environment.healthChecks().register("circuit-breaker",
+    		new CircuitBreakerHealthCheck(injector.getInstance(HostCircuitBreaker.class)));
+	}
+
+	/**
+	 * The managed warm-up is started before the connectors, so the server did not accept requests
+	 * before the configured hosts are warmed up.
+	 */
+	private void registerSitesWarmUp(ExpanderConfiguration config, Environment environment, Injector injector,
+			@Nullable ConnectionWarmer connectionWarmer) {
+		if(connectionWarmer != null) {
+			environment.lifecycle().manage(new SitesWarmUp(config.getWarmUp(), connectionWarmer,
+					injector.getInstance(ExpanderFeedSitesManager.class), injector.getInstance(CreatorPageSitesManager.class)));
+		}
 	}
 
 	private void registerExpanderResource(Environment environment, Injector injector) {
@@ -145,15 +210,22 @@ public class ExpanderApplication extends Application<ExpanderConfiguration> {
 		environment.jersey().register(injector.getInstance(ExpanderShowFeedsResource.class));
 	}
 	
-	private Injector createInjector(ExpanderConfiguration config) {
+	private Injector createInjector(ExpanderConfiguration config, Environment environment,
+			@Nullable ConnectionWarmer connectionWarmer) {
     return Guice.createInjector(new AbstractModule() {
         @Override
         protected void configure() {
         	bindFeedSitesManager(config);
         	bindPageSitesManager(config);
         	bindExpandServiceUrl(config);
-        	bindUrlLoaderFactory();
-        	bindPageCache(config);
+        	bindUrlLoaderFactory(config, environment);
+        	bindPageCache(config, environment);
+        	bindExtractedContentCache(config, environment);
+        	bindRenderedFeedCache(config, environment);
+        	bindFailedLinkCache(config, environment);
+        	FeedExchangeExecutor feedExchangeExecutor = bindFeedExchangeExecutor(config, environment);
+        	bindPageRefreshScheduler(config, environment, feedExchangeExecutor);
+        	bindUrlCanonicalizer(config, environment);
         	bindFeedBuilder();
         	bindFeedCreator();
         	bindFeedContentExchanger();
@@ -185,13 +257,187 @@ public class ExpanderApplication extends Application<ExpanderConfiguration> {
 				}
 
 
-				private void bindPageCache(ExpanderConfiguration config) {
-					bind(PageCache.class).toInstance(PageCacheFactory.createPageCacheFactory(
-        			CACHE_TYPE.valueOf(config.getPageCacheType())).getPageCache(config.getPageCacheConfigurationFileName()));
+				private void bindPageCache(ExpanderConfiguration config, Environment environment) {
+					PageCache pageCache = PageCacheFactory.createPageCacheFactory(
+        			CACHE_TYPE.valueOf(config.getPageCacheType())).getPageCache(config.getPageCacheConfigurationFileName(),
+        					config.getPageCacheMaxAgeSeconds(), PageCacheCodec.valueOf(config.getPageCacheCodec()),
+        					config.getPageCacheMaxBytes());
+					PageCacheMetrics pageCacheMetrics = new PageCacheMetrics(environment.metrics());
+					pageCacheMetrics.register(pageCache);
+					bind(PageCacheMetrics.class).toInstance(pageCacheMetrics);
+					if(pageCache instanceof Closeable) {
+						manageCloseable(environment, (Closeable) pageCache);
+					}
+					bind(PageCache.class).toInstance(pageCache);
+				}
+
+				private void bindExtractedContentCache(ExpanderConfiguration config, Environment environment) {
+					if(config.getExtractedContentCacheMaxBytes() > 0) {
+						ExtractedContentCache extractedContentCache = new ExtractedContentCache(
+								config.getExtractedContentCacheMaxBytes());
+						environment.metrics().register(MetricRegistry.name(ExtractedContentCache.class, "hits"),
+								(Gauge<Long>) () -> extractedContentCache.getCacheHitCount());
+						environment.metrics().register(MetricRegistry.name(ExtractedContentCache.class, "misses"),
+								(Gauge<Long>) () -> extractedContentCache.getCacheMissCount());
+						environment.metrics().register(MetricRegistry.name(ExtractedContentCache.class, "duplicate-hits"),
+								(Gauge<Long>) () -> extractedContentCache.getDuplicateHitCount());
+						environment.metrics().register(MetricRegistry.name(ExtractedContentCache.class, "shared-pages"),
+								(Gauge<Long>) () -> extractedContentCache.getSharedPageCount());
+						bind(ExtractedContentCache.class).toInstance(extractedContentCache);
+					}
+				}
+
+				private void bindRenderedFeedCache(ExpanderConfiguration config, Environment environment) {
+					if(config.getRenderedFeedCacheSeconds() > 0) {
+						RenderedFeedCache renderedFeedCache = new RenderedFeedCache(config.getRenderedFeedCacheSeconds());
+						environment.metrics().register(MetricRegistry.name(RenderedFeedCache.class, "hits"),
+								(Gauge<Long>) () -> renderedFeedCache.getCacheHitCount());
+						environment.metrics().register(MetricRegistry.name(RenderedFeedCache.class, "misses"),
+								(Gauge<Long>) () -> renderedFeedCache.getCacheMissCount());
+						bind(RenderedFeedCache.class).toInstance(renderedFeedCache);
+					}
+				}
+
+				private void bindPageRefreshScheduler(ExpanderConfiguration config, Environment environment,
+						FeedExchangeExecutor feedExchangeExecutor) {
+					if(config.getPageCacheStaleWhileRevalidateSeconds() > 0) {
+						PageRefreshScheduler pageRefreshScheduler = feedExchangeExecutor.getThreadMode() == THREAD_MODE.VIRTUAL
+								? new PageRefreshScheduler(config.getPageCacheStaleWhileRevalidateSeconds(),
+										VirtualThreads.newVirtualThreadPerTaskExecutor("page-refresh-"))
+								: new PageRefreshScheduler(config.getPageCacheStaleWhileRevalidateSeconds());
+						manageCloseable(environment, pageRefreshScheduler);
+						environment.metrics().register(MetricRegistry.name(PageRefreshScheduler.class, "pending"),
+								(Gauge<Integer>) () -> pageRefreshScheduler.getPendingCount());
+						environment.metrics().register(MetricRegistry.name(PageRefreshScheduler.class, "refreshes"),
+								(Gauge<Long>) () -> pageRefreshScheduler.getRefreshCount());
+						bind(PageRefreshScheduler.class).toInstance(pageRefreshScheduler);
+					}
+				}
+
+				private FeedExchangeExecutor bindFeedExchangeExecutor(ExpanderConfiguration config, Environment environment) {
+					FeedExchangeExecutor feedExchangeExecutor = new FeedExchangeExecutor(config.getFeedExchange());
+					manageCloseable(environment, feedExchangeExecutor);
+					environment.metrics().register(MetricRegistry.name(FeedExchangeExecutor.class, "queue-size"),
+							(Gauge<Integer>) () -> feedExchangeExecutor.getQueueSize());
+					environment.metrics().register(MetricRegistry.name(FeedExchangeExecutor.class, "active"),
+							(Gauge<Integer>) () -> feedExchangeExecutor.getActiveCount());
+					environment.metrics().register(MetricRegistry.name(FeedExchangeExecutor.class, "rejected"),
+							(Gauge<Long>) () -> feedExchangeExecutor.getRejectedCount());
+					bind(FeedExchangeExecutor.class).toInstance(feedExchangeExecutor);
+					return feedExchangeExecutor;
+				}
+
+				private void bindUrlCanonicalizer(ExpanderConfiguration config, Environment environment) {
+					if(config.getUrlCanonicalizer().isEnabled()) {
+						UrlCanonicalizer urlCanonicalizer = new UrlCanonicalizer(config.getUrlCanonicalizer());
+						environment.metrics().register(MetricRegistry.name(UrlCanonicalizer.class, "redirect-hits"),
+								(Gauge<Long>) () -> urlCanonicalizer.getRedirectHitCount());
+						environment.metrics().register(MetricRegistry.name(UrlCanonicalizer.class, "redirects"),
+								(Gauge<Long>) () -> urlCanonicalizer.getRedirectCount());
+						bind(UrlCanonicalizer.class).toInstance(urlCanonicalizer);
+					}
+				}
+
+				private void bindFailedLinkCache(ExpanderConfiguration config, Environment environment) {
+					if(config.getFailedLinkCache().getMaxEntries() > 0) {
+						FailedLinkCache failedLinkCache = new FailedLinkCache(config.getFailedLinkCache());
+						environment.metrics().register(MetricRegistry.name(FailedLinkCache.class, "hits"),
+								(Gauge<Long>) () -> failedLinkCache.getCacheHitCount());
+						environment.metrics().register(MetricRegistry.name(FailedLinkCache.class, "size"),
+								(Gauge<Long>) () -> failedLinkCache.size());
+						bind(FailedLinkCache.class).toInstance(failedLinkCache);
+					}
+				}
+
+				private void bindUrlLoaderFactory(ExpanderConfiguration config, Environment environment) {
+					UrlLoaderFactory urlLoaderFactory = createHttpUrlLoaderFactory(config, environment);
+					HostRequestScheduler scheduler = new HostRequestScheduler(config.getPoliteness(), urlLoaderFactory);
+					manageCloseable(environment, scheduler);
+					environment.metrics().register(MetricRegistry.name(HostRequestScheduler.class, "hosts"),
+							(Gauge<Integer>) () -> scheduler.getHostCount());
+					HostCircuitBreaker circuitBreaker = new HostCircuitBreaker(config.getCircuitBreaker(), environment.metrics());
+					manageCloseable(environment, circuitBreaker);
+					bind(HostCircuitBreaker.class).toInstance(circuitBreaker);
+					RequestCoalescer coalescer = new RequestCoalescer();
+					environment.metrics().register(MetricRegistry.name(RequestCoalescer.class, "in-flight"),
+							(Gauge<Integer>) () -> coalescer.getInFlightCount());
+					bind(UrlLoaderFactory.class).toInstance(UrlLoaderFactory.createCoalescingUrlLoaderFactory(
+							UrlLoaderFactory.createCircuitBreakerUrlLoaderFactory(
+									UrlLoaderFactory.createScheduledUrlLoaderFactory(urlLoaderFactory, scheduler), circuitBreaker),
+							coalescer));
+					if(config.getHttpClient().isAsynchronous()) {
+						if(getArchiveMode(config) != ResponseArchive.MODE.OFF) {
+							logger.warn(String.format("The asynchronous http client is not available in the response archive mode %s.",
+									getArchiveMode(config)));
+						} else if(getLoaderType(config) == LOADER_TYPE.HTTP_CLIENT) {
+							bindAsyncUrlLoaderFactory(config, environment, scheduler, circuitBreaker, coalescer);
+						} else {
+							logger.warn(String.format("The asynchronous http client is not available for the loader type %s.",
+									getLoaderType(config)));
+						}
+					}
+				}
+
+				private UrlLoaderFactory createHttpUrlLoaderFactory(ExpanderConfiguration config, Environment environment) {
+					switch (getArchiveMode(config)) {
+					case REPLAY:
+						logger.info(String.format("Replaying the responses from '%s'.", config.getResponseArchive().getDirectory()));
+						return UrlLoaderFactory.createReplayUrlLoaderFactory(createResponseArchive(config),
+								config.getHttpClient().getMaxResponseBytes(), config.getResponseArchive().getLatencyFactor());
+					case RECORD:
+						logger.info(String.format("Recording the responses to '%s'.", config.getResponseArchive().getDirectory()));
+						return UrlLoaderFactory.createRecordingUrlLoaderFactory(createClientUrlLoaderFactory(config, environment),
+								createResponseArchive(config));
+					default:
+						return createClientUrlLoaderFactory(config, environment);
+					}
+				}
+
+				private ResponseArchive createResponseArchive(ExpanderConfiguration config) {
+					try {
+						return new ResponseArchive(Paths.get(config.getResponseArchive().getDirectory()));
+					} catch (IOException e) {
+						throw new IllegalStateException(String.format("Failed to open the response archive '%s'.",
+								config.getResponseArchive().getDirectory()), e);
+					}
+				}
+
+				private UrlLoaderFactory createClientUrlLoaderFactory(ExpanderConfiguration config, Environment environment) {
+					switch (getLoaderType(config)) {
+					case OK_HTTP:
+						OkHttpClient okHttpClient = PooledHttpClientFactory.createOkHttpClient(config.getHttpClient(),
+								environment.metrics(), connectionWarmer);
+						manageCloseable(environment, () -> PooledHttpClientFactory.close(okHttpClient));
+						return UrlLoaderFactory.createOkHttpUrlLoaderFactory(okHttpClient,
+								config.getHttpClient().getMaxResponseBytes());
+					default:
+						CloseableHttpClient httpClient = PooledHttpClientFactory.createHttpClient(config.getHttpClient(),
+								environment.metrics(), connectionWarmer);
+						manageCloseable(environment, httpClient);
+						return UrlLoaderFactory.createURLLoaderFactory(httpClient,
+								config.getHttpClient().getMaxResponseBytes());
+					}
+				}
+
+				private LOADER_TYPE getLoaderType(ExpanderConfiguration config) {
+					return LOADER_TYPE.valueOf(config.getHttpClient().getLoaderType());
 				}
 
-				private void bindUrlLoaderFactory() {
-					bind(UrlLoaderFactory.class).toInstance(UrlLoaderFactory.createURLLoaderFactory());
+				private void bindAsyncUrlLoaderFactory(ExpanderConfiguration config, Environment environment,
+						HostRequestScheduler scheduler, HostCircuitBreaker circuitBreaker, RequestCoalescer coalescer) {
+					CloseableHttpAsyncClient httpAsyncClient;
+					try {
+						httpAsyncClient = PooledHttpClientFactory.createHttpAsyncClient(config.getHttpClient(),
+								environment.metrics(), connectionWarmer);
+					} catch (IOException e) {
+						throw new IllegalStateException("Failed to create the asynchronous http client.", e);
+					}
+					manageCloseable(environment, httpAsyncClient);
+					bind(AsyncUrlLoaderFactory.class).toInstance(AsyncUrlLoaderFactory.createCoalescingAsyncUrlLoaderFactory(
+							AsyncUrlLoaderFactory.createCircuitBreakerAsyncUrlLoaderFactory(
+									AsyncUrlLoaderFactory.createScheduledAsyncUrlLoaderFactory(
+											AsyncUrlLoaderFactory.createAsyncUrlLoaderFactory(httpAsyncClient,
+													config.getHttpClient().getMaxResponseBytes()), scheduler), circuitBreaker), coalescer));
 				}
 
 				private void bindExpandServiceUrl(ExpanderConfiguration config) {
@@ -1,5 +1,15 @@
 package org.rr.expander;
 
+import org.rr.expander.cache.FailedLinkCacheConfiguration;
+import org.rr.expander.cache.PageCacheFactory;
+import org.rr.expander.feed.FeedExchangeConfiguration;
+import org.rr.expander.loader.CircuitBreakerConfiguration;
+import org.rr.expander.loader.HostPolitenessConfiguration;
+import org.rr.expander.loader.HttpClientConfiguration;
+import org.rr.expander.loader.ResponseArchiveConfiguration;
+import org.rr.expander.loader.UrlCanonicalizerConfiguration;
+import org.rr.expander.loader.WarmUpConfiguration;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import io.dropwizard.Configuration;
@@ -18,6 +28,34 @@ public class ExpanderConfiguration extends Configuration {
 	
 	private String pageCacheConfigurationFileName;
 	
+	private long pageCacheMaxAgeSeconds = 86400;
+
+	private String pageCacheCodec = "LZ4";
+
+	private long pageCacheMaxBytes = PageCacheFactory.DEFAULT_MAX_BYTES;
+
+	private long pageCacheStaleWhileRevalidateSeconds = 86400;
+
+	private long extractedContentCacheMaxBytes = 64 * 1024 * 1024;
+
+	private long renderedFeedCacheSeconds = 60;
+	
+	private FailedLinkCacheConfiguration failedLinkCache = new FailedLinkCacheConfiguration();
+	
+	private UrlCanonicalizerConfiguration urlCanonicalizer = new UrlCanonicalizerConfiguration();
+	
+	private FeedExchangeConfiguration feedExchange = new FeedExchangeConfiguration();
+	
+	private HttpClientConfiguration httpClient = new HttpClientConfiguration();
+	
+	private HostPolitenessConfiguration politeness = new HostPolitenessConfiguration();
+	
+	private WarmUpConfiguration warmUp = new WarmUpConfiguration();
+	
+	private CircuitBreakerConfiguration circuitBreaker = new CircuitBreakerConfiguration();
+
+	private ResponseArchiveConfiguration responseArchive = new ResponseArchiveConfiguration();
+
 	@JsonProperty
   public String getHtusers() {
       return htUsers;
@@ -63,6 +101,96 @@ public class ExpanderConfiguration extends Configuration {
 		this.pageCacheConfigurationFileName = pageCacheConfigurationFileName;
 	}
 
+  @JsonProperty
+	public long getPageCacheMaxAgeSeconds() {
+		return pageCacheMaxAgeSeconds;
+	}
+
+  @JsonProperty
+	public void setPageCacheMaxAgeSeconds(long pageCacheMaxAgeSeconds) {
+		this.pageCacheMaxAgeSeconds = pageCacheMaxAgeSeconds;
+	}
+
+  @JsonProperty
+	public String getPageCacheCodec() {
+		return pageCacheCodec;
+	}
+
+  @JsonProperty
+	public void setPageCacheCodec(String pageCacheCodec) {
+		this.pageCacheCodec = pageCacheCodec;
+	}
+
+  @JsonProperty
+	public long getPageCacheMaxBytes() {
+		return pageCacheMaxBytes;
+	}
+
+  @JsonProperty
+	public void setPageCacheMaxBytes(long pageCacheMaxBytes) {
+		this.pageCacheMaxBytes = pageCacheMaxBytes;
+	}
+
+  @JsonProperty
+	public long getPageCacheStaleWhileRevalidateSeconds() {
+		return pageCacheStaleWhileRevalidateSeconds;
+	}
+
+  @JsonProperty
+	public void setPageCacheStaleWhileRevalidateSeconds(long pageCacheStaleWhileRevalidateSeconds) {
+		this.pageCacheStaleWhileRevalidateSeconds = pageCacheStaleWhileRevalidateSeconds;
+	}
+
+  @JsonProperty
+	public long getExtractedContentCacheMaxBytes() {
+		return extractedContentCacheMaxBytes;
+	}
+
+  @JsonProperty
+	public void setExtractedContentCacheMaxBytes(long extractedContentCacheMaxBytes) {
+		this.extractedContentCacheMaxBytes = extractedContentCacheMaxBytes;
+	}
+
+  @JsonProperty
+	public long getRenderedFeedCacheSeconds() {
+		return renderedFeedCacheSeconds;
+	}
+
+  @JsonProperty
+	public void setRenderedFeedCacheSeconds(long renderedFeedCacheSeconds) {
+		this.renderedFeedCacheSeconds = renderedFeedCacheSeconds;
+	}
+
+  @JsonProperty
+	public FailedLinkCacheConfiguration getFailedLinkCache() {
+		return failedLinkCache;
+	}
+
+  @JsonProperty
+	public void setFailedLinkCache(FailedLinkCacheConfiguration failedLinkCache) {
+		this.failedLinkCache = failedLinkCache;
+	}
+
+  @JsonProperty
+	public UrlCanonicalizerConfiguration getUrlCanonicalizer() {
+		return urlCanonicalizer;
+	}
+
+  @JsonProperty
+	public void setUrlCanonicalizer(UrlCanonicalizerConfiguration urlCanonicalizer) {
+		this.urlCanonicalizer = urlCanonicalizer;
+	}
+
+  @JsonProperty
+	public FeedExchangeConfiguration getFeedExchange() {
+		return feedExchange;
+	}
+
+  @JsonProperty
+	public void setFeedExchange(FeedExchangeConfiguration feedExchange) {
+		this.feedExchange = feedExchange;
+	}
+
   @JsonProperty
 	public String getServerName() {
 		return serverName;
@@ -73,4 +201,54 @@ public class ExpanderConfiguration extends Configuration {
 		this.serverName = serverName;
 	}
 
+  @JsonProperty
+	public HttpClientConfiguration getHttpClient() {
+		return httpClient;
+	}
+
+  @JsonProperty
+	public void setHttpClient(HttpClientConfiguration httpClient) {
+		this.httpClient = httpClient;
+	}
+
+  @JsonProperty
+	public HostPolitenessConfiguration getPoliteness() {
+		return politeness;
+	}
+
+  @JsonProperty
+	public void setPoliteness(HostPolitenessConfiguration politeness) {
+		this.politeness = politeness;
+	}
+
+  @JsonProperty
+	public WarmUpConfiguration getWarmUp() {
+		return warmUp;
+	}
+
+  @JsonProperty
+	public void setWarmUp(WarmUpConfiguration warmUp) {
+		this.warmUp = warmUp;
+	}
+
+  @JsonProperty
+	public CircuitBreakerConfiguration getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+  @JsonProperty
+	public void setCircuitBreaker(CircuitBreakerConfiguration circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+  @JsonProperty
+	public ResponseArchiveConfiguration getResponseArchive() {
+		return responseArchive;
+	}
+
+  @JsonProperty
+	public void setResponseArchive(ResponseArchiveConfiguration responseArchive) {
+		this.responseArchive = responseArchive;
+	}
+
 }
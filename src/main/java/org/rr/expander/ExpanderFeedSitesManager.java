@@ -3,11 +3,13 @@ package org.rr.expander;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +62,10 @@ public class ExpanderFeedSitesManager {
 			private String selector;
 			@JsonProperty("limit")
 			private int limit;
+			@JsonProperty("maxPageBytes")
+			private Long maxPageBytes;
+			@JsonProperty("stripParameters")
+			private List<String> stripParameters;
 			@JsonProperty("filter")
 			private List<Filter> filter;
 			
@@ -79,10 +85,18 @@ public class ExpanderFeedSitesManager {
 				return limit;
 			}
 
+			public Long getMaxPageBytes() {
+				return maxPageBytes;
+			}
+
 			public String getAlias() {
 				return alias;
 			}
 
+			public Optional<List<String>> getStripParameters() {
+				return Optional.ofNullable(stripParameters);
+			}
+
 			public Optional<List<Filter>> getFilter() {
 				return Optional.ofNullable(filter);
 			}
@@ -175,11 +189,51 @@ public class ExpanderFeedSitesManager {
 		return Optional.ofNullable(getEntries().get(alias)).orElse(new Entry()).getLimit();
 	}	
 	
+	@Nullable
+	public Long getMaxPageBytes(@Nullable String alias) throws IOException {
+		return Optional.ofNullable(getEntries().get(alias)).orElse(new Entry()).getMaxPageBytes();
+	}
+	
+	@Nonnull
+	public List<String> getStripParameters(@Nullable String alias) throws IOException {
+		return Optional.ofNullable(getEntries().get(alias)).orElse(new Entry()).getStripParameters()
+				.orElse(Collections.emptyList());
+	}
+	
 	@Nonnull
 	public Set<String> getAliases() throws IOException {
 		return getEntries().keySet();
 	}
 
+	/**
+	 * Get a fingerprint of all settings of the given alias which changes as soon as one of the
+	 * settings has been changed.
+	 * 
+	 * @param alias The alias of the desired fingerprint.
+	 * @return The fingerprint or <code>null</code> if the alias is not configured.
+	 */
+	@Nullable
+	public String getFingerprint(@Nullable String alias) throws IOException {
+		Entry entry = getEntries().get(alias);
+		if(entry == null) {
+			return null;
+		}
+		return Fingerprints.create(Arrays.asList(entry.getAlias(), entry.getDescription(), entry.getFeedUrl(),
+				entry.getSelector(), entry.getLimit(), entry.getMaxPageBytes(), getIncludeFilter(alias),
+				getExcludeFilter(alias), getStripParameters(alias)));
+	}
+
+	/**
+	 * @return The feed urls of all configured aliases.
+	 */
+	@Nonnull
+	public Set<String> getFeedUrls() throws IOException {
+		return getEntries().values().stream()
+				.map(entry -> entry.getFeedUrl())
+				.filter(url -> isNotBlank(url))
+				.collect(toSet());
+	}
+
 	@Nonnull
 	private Map<String, Entry>  getEntries() throws IOException {
 		if(feedSiteEntries == null || isReReadFeedSitesFileNecessary()) {
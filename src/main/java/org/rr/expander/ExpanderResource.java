@@ -1,7 +1,9 @@
 package org.rr.expander;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -9,14 +11,22 @@ import javax.annotation.security.PermitAll;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ConnectionCallback;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Response;
 
+import org.apache.commons.lang3.StringUtils;
+import org.rr.expander.cache.RenderedFeedCache;
+import org.rr.expander.cache.RenderedFeedCache.RenderedFeed;
 import org.rr.expander.feed.FeedBuilder;
 import org.rr.expander.feed.FeedBuilderFactory;
+import org.rr.expander.feed.FeedExchangeExecutor;
+import org.rr.expander.feed.FeedRequestContext;
+import org.rr.expander.feed.TaskScope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.inject.Inject;
 import com.sun.syndication.io.FeedException;
@@ -27,6 +37,8 @@ public class ExpanderResource {
 	@Nonnull
 	private final static Logger logger = LoggerFactory.getLogger(ExpanderResource.class);
 
+	private static final String RESOURCE_NAME = "expand";
+
 	@Nonnull
 	@Inject(optional = false)
 	private ExpanderFeedSitesManager feedSitesManager;
@@ -35,50 +47,121 @@ public class ExpanderResource {
 	@Inject(optional = false)
 	private FeedBuilderFactory feedBuilderFactory;
 	
+	/** keeps the rendered feeds for a short time if enabled in the configuration. */
+	@Nullable
+	@Inject(optional = true)
+	private RenderedFeedCache renderedFeedCache;
+	
+	/** creates the scope each request forks its blocking work into. */
+	@Nullable
+	@Inject(optional = true)
+	private FeedExchangeExecutor feedExchangeExecutor;
+	
 	@PermitAll
 	@GET
-	public Response expand(@QueryParam("alias") Optional<String> alias) {
+	public void expand(@QueryParam("alias") Optional<String> alias, @Suspended AsyncResponse asyncResponse) {
 		if(alias.isPresent()) {
-			return expandByAlias(alias);
+			expandByAlias(alias.get(), asyncResponse);
+		} else {
+			asyncResponse.resume(getBadRequestResponse());
 		}
-		return getBadRequestResponse();
 	}
 	
-	@Nonnull
-	private Response expandByAlias(@Nonnull Optional<String> alias) {
-		return alias.transform(new Function<String, Response>() {
-			@Override
-			public Response apply(@Nullable String alias) {
-				try {
-					if(alias != null && feedSitesManager.containsAlias(alias)) {
-						FeedBuilder feedHandler = createFeedHandlerForAlias(alias);
-						return getSuccessResponse(feedHandler);
-					} 
-					logger.warn(String.format("Fetching feed for alias '%s' is not allowed.", alias));
-					return getForbiddenResponse();
-				} catch (Exception e) {
-					logger.warn(String.format("Fetching feed for alias '%s' has failed.", alias), e);
-					return getInternalServerErrorResponse();
-				}
+	/**
+	 * Expands the feed for the given alias without blocking the request thread. The response is
+	 * resumed as soon as the feed and all linked pages are loaded.
+	 */
+	private void expandByAlias(@Nonnull String alias, @Nonnull AsyncResponse asyncResponse) {
+		try {
+			if(feedSitesManager.containsAlias(alias)) {
+				renderFeedForAlias(alias, asyncResponse)
+					.thenApply(feed -> getSuccessResponse(feed))
+					.exceptionally(e -> {
+						logger.warn(String.format("Fetching feed for alias '%s' has failed.", alias), e);
+						return getInternalServerErrorResponse();
+					})
+					.thenAccept(response -> asyncResponse.resume(response));
+				return;
 			}
-		}).or(getBadRequestResponse()); // (no alias)
+			logger.warn(String.format("Fetching feed for alias '%s' is not allowed.", alias));
+			asyncResponse.resume(getForbiddenResponse());
+		} catch (Exception e) {
+			logger.warn(String.format("Fetching feed for alias '%s' has failed.", alias), e);
+			asyncResponse.resume(getInternalServerErrorResponse());
+		}
+	}
+
+	/**
+	 * Get the rendered feed of the given alias from the {@link RenderedFeedCache} if it is available.
+	 * The feed is only rendered if it is not cached or the alias configuration has been changed.
+	 * <p>
+	 * A feed which is not shared by the cache is rendered in the scope of the request, so its
+	 * remaining work gets cancelled if the client disconnects before the feed is complete.
+	 */
+	@Nonnull
+	private CompletableFuture<RenderedFeed> renderFeedForAlias(@Nonnull String alias,
+			@Nonnull AsyncResponse asyncResponse) throws IOException {
+		if(renderedFeedCache != null) {
+			return renderedFeedCache.get(RESOURCE_NAME, alias, StringUtils.defaultString(feedSitesManager.getFingerprint(alias)),
+					() -> {
+						try {
+							return renderFeed(alias, createTaskScope());
+						} catch (IOException e) {
+							throw new CompletionException(e);
+						}
+					});
+		}
+		TaskScope taskScope = createTaskScope();
+		if(taskScope != null) {
+			asyncResponse.register((ConnectionCallback) disconnected -> taskScope.cancel());
+		}
+		return renderFeed(alias, taskScope);
+	}
+
+	@Nullable
+	private TaskScope createTaskScope() {
+		return feedExchangeExecutor != null ? feedExchangeExecutor.newTaskScope() : null;
+	}
+
+	@Nonnull
+	private CompletableFuture<RenderedFeed> renderFeed(@Nonnull String alias, @Nullable TaskScope taskScope)
+			throws IOException {
+		return createFeedHandlerForAlias(alias, taskScope)
+				.thenApply(feedBuilder -> {
+					try {
+						return new RenderedFeed(feedBuilder.build(), feedBuilder.getMediaType());
+					} catch (FeedException e) {
+						throw new CompletionException(e);
+					}
+				});
 	}
 
+	/**
+	 * Chains the load, filter and expand steps for the feed of the given alias. The alias
+	 * configuration is read upfront so the chained steps did not need to access the feed sites file.
+	 */
 	@Nonnull
-	private FeedBuilder createFeedHandlerForAlias(@Nonnull String alias)
-			throws MalformedURLException, FeedException, IOException {
-		FeedBuilder feedHandler = feedBuilderFactory.createFeedBuilder(feedSitesManager.getFeedUrl(alias))
-				.loadFeed()
-				.applyLimit(feedSitesManager.getLimit(alias))
-				.filter(feedSitesManager.getIncludeFilter(alias), feedSitesManager.getExcludeFilter(alias))
-				.expand(feedSitesManager.getSelector(alias))
-				.filter(feedSitesManager.getIncludeFilter(alias), feedSitesManager.getExcludeFilter(alias));
-		return feedHandler;
+	private CompletableFuture<FeedBuilder> createFeedHandlerForAlias(@Nonnull String alias,
+			@Nullable TaskScope taskScope) throws IOException {
+		Integer limit = feedSitesManager.getLimit(alias);
+		Long maxPageBytes = feedSitesManager.getMaxPageBytes(alias);
+		List<String> stripParameters = feedSitesManager.getStripParameters(alias);
+		String selector = feedSitesManager.getSelector(alias);
+		List<String> includeFilter = feedSitesManager.getIncludeFilter(alias);
+		List<String> excludeFilter = feedSitesManager.getExcludeFilter(alias);
+		FeedRequestContext context = new FeedRequestContext(alias, maxPageBytes, stripParameters, taskScope);
+		return feedBuilderFactory.createFeedBuilder(feedSitesManager.getFeedUrl(alias), context)
+				.loadFeedAsync()
+				.thenApply(feedHandler -> feedHandler
+						.applyLimit(limit)
+						.filter(includeFilter, excludeFilter))
+				.thenCompose(feedHandler -> feedHandler.expandAsync(selector))
+				.thenApply(feedHandler -> feedHandler.filter(includeFilter, excludeFilter));
 	}
 	
 	@Nonnull
-	private Response getSuccessResponse(FeedBuilder feedBuilder) throws FeedException {
-		return Response.ok(feedBuilder.build(), feedBuilder.getMediaType())
+	private Response getSuccessResponse(@Nonnull RenderedFeed feed) {
+		return Response.ok(feed.getContent(), feed.getMediaType())
 				.header("X-Robots-Tag", "noindex, nofollow")
 				.build();
 	}
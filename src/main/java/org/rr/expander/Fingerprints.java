@@ -0,0 +1,27 @@
+package org.rr.expander;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Creates the fingerprints of the site settings which are used by the
+ * {@link ExpanderFeedSitesManager} and the {@link CreatorPageSitesManager}.
+ */
+final class Fingerprints {
+
+	private Fingerprints() {
+	}
+
+	/**
+	 * @param settings All settings of a single site in a fixed order.
+	 * @return A fingerprint which changes as soon as one of the settings has been changed.
+	 */
+	static @Nonnull String create(@Nonnull List<?> settings) {
+		return Hashing.murmur3_128().hashString(settings.toString(), UTF_8).toString();
+	}
+}
@@ -0,0 +1,102 @@
+package org.rr.expander;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.rr.expander.loader.ConnectionWarmer;
+import org.rr.expander.loader.WarmUpConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * Warms up the hosts of all configured feeds and pages. The first warm-up is done while the server
+ * starts, before the connectors accept requests. After that the site config files are checked
+ * periodically and all hosts are warmed up again if the configured urls have been changed.
+ */
+public class SitesWarmUp implements Managed {
+
+	@Nonnull
+	private final static Logger logger = LoggerFactory.getLogger(SitesWarmUp.class);
+
+	@Nonnull
+	private final WarmUpConfiguration config;
+
+	@Nonnull
+	private final ConnectionWarmer connectionWarmer;
+
+	@Nonnull
+	private final ExpanderFeedSitesManager feedSitesManager;
+
+	@Nonnull
+	private final CreatorPageSitesManager pageSitesManager;
+
+	@Nonnull
+	private final ScheduledExecutorService configChecker = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactoryBuilder().setNameFormat("sites-warm-up").setDaemon(true).build());
+
+	/** the urls which have been warmed up the last time. */
+	@Nonnull
+	private Set<String> warmedUpUrls = Collections.emptySet();
+
+	public SitesWarmUp(@Nonnull WarmUpConfiguration config, @Nonnull ConnectionWarmer connectionWarmer,
+			@Nonnull ExpanderFeedSitesManager feedSitesManager, @Nonnull CreatorPageSitesManager pageSitesManager) {
+		this.config = Preconditions.checkNotNull(config);
+		this.connectionWarmer = Preconditions.checkNotNull(connectionWarmer);
+		this.feedSitesManager = Preconditions.checkNotNull(feedSitesManager);
+		this.pageSitesManager = Preconditions.checkNotNull(pageSitesManager);
+	}
+
+	@Override
+	public void start() throws Exception {
+		warmUpIfChanged();
+		configChecker.scheduleWithFixedDelay(() -> warmUpIfChanged(), config.getConfigCheckSeconds(),
+				config.getConfigCheckSeconds(), TimeUnit.SECONDS);
+	}
+
+	@Override
+	public void stop() throws Exception {
+		configChecker.shutdownNow();
+		connectionWarmer.close();
+	}
+
+	/**
+	 * Warm up all configured hosts if the urls in the site config files differs from the urls which
+	 * were warmed up the last time.
+	 *
+	 * @return <code>true</code> if a warm-up was done.
+	 */
+	@VisibleForTesting
+	synchronized boolean warmUpIfChanged() {
+		Set<String> urls;
+		try {
+			urls = new HashSet<>(feedSitesManager.getFeedUrls());
+			urls.addAll(pageSitesManager.getPageUrls());
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Failed to read the site configuration for the warm-up.", e);
+			return false;
+		}
+		if(urls.equals(warmedUpUrls)) {
+			return false;
+		}
+
+		long start = System.currentTimeMillis();
+		int warmedUp = connectionWarmer.warmUp(urls, config.getStartupTimeoutSeconds(), TimeUnit.SECONDS);
+		logger.info(String.format("Warmed up %d hosts of %d configured urls in %d ms.", warmedUp, urls.size(),
+				System.currentTimeMillis() - start));
+		warmedUpUrls = urls;
+		return true;
+	}
+}
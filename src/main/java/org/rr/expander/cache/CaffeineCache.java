@@ -0,0 +1,110 @@
+package org.rr.expander.cache;
+
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link PageCache} implementation which keeps the pages in the heap using the W-TinyLFU policy of
+ * the caffeine framework. The cache is bound by the number of bytes the encoded pages take, so a
+ * few large pages can't push out many small ones and the heap use is predictable. A page which was
+ * requested once is only admitted if it is expected to be requested more often than the page it
+ * would evict. Pages are kept after their <code>maxAgeSeconds</code> to be revalidated until they
+ * get evicted.
+ */
+public class CaffeineCache implements PageCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(CaffeineCache.class);
+
+	/** the estimated heap use of an entry without the encoded page and the url. */
+	private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+	private final long maxAgeSeconds;
+
+	@Nonnull
+	private final PageCacheCodec codec;
+
+	@Nonnull
+	private final Cache<String, EncodedPageCacheEntry> cache;
+
+	public CaffeineCache(long maxBytes, long maxAgeSeconds, @Nonnull PageCacheCodec codec) {
+		Preconditions.checkArgument(maxBytes > 0, "The max bytes of the cache must be positive.");
+		this.maxAgeSeconds = maxAgeSeconds;
+		this.codec = Preconditions.checkNotNull(codec);
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(maxBytes)
+				.weigher((String url, EncodedPageCacheEntry entry) -> getWeight(url, entry))
+				.recordStats()
+				.build();
+	}
+
+	private static int getWeight(@Nonnull String url, @Nonnull EncodedPageCacheEntry entry) {
+		return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD_BYTES + 2L * url.length() + entry.getEncodedLength());
+	}
+
+	@Override
+	public PageCacheEntry store(String url, PageCacheEntry entry) {
+		PageCacheEntry freshEntry = entry.withMaxAge(maxAgeSeconds);
+		cache.put(url, EncodedPageCacheEntry.encode(freshEntry, codec));
+		return freshEntry;
+	}
+
+	@Override
+	public PageCacheEntry restore(String url) {
+		EncodedPageCacheEntry entry = cache.getIfPresent(url);
+		if(entry != null) {
+			try {
+				return entry.decode();
+			} catch (IllegalArgumentException e) {
+				logger.warn(String.format("Dropped the broken cache entry of '%s'.", url), e);
+				cache.invalidate(url);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public double getCacheHitCount() {
+		return cache.stats().hitCount();
+	}
+
+	@Override
+	public double getCacheMissCount() {
+		return cache.stats().missCount();
+	}
+
+	@Override
+	public double getCacheEvictionCount() {
+		return cache.stats().evictionCount();
+	}
+
+	@Override
+	public PageCacheStatistics getStatistics() {
+		CacheStats stats = cache.stats();
+		return new PageCacheStatistics(stats.hitCount(), stats.missCount(), stats.evictionCount(), cache.estimatedSize(),
+				getWeightedSize(), 0);
+	}
+
+	/**
+	 * Get the estimated number of bytes taken by all entries in the cache.
+	 *
+	 * @return The sum of the weights of all cached pages.
+	 */
+	public long getWeightedSize() {
+		return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+	}
+
+	/**
+	 * Perform the pending maintenance of the cache, for example the eviction of entries which exceed
+	 * the max bytes. This is usually done asynchronously.
+	 */
+	void cleanUp() {
+		cache.cleanUp();
+	}
+}
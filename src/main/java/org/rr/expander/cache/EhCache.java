@@ -1,48 +1,95 @@
 package org.rr.expander.cache;
 
+import javax.annotation.Nonnull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Element;
+import net.sf.ehcache.statistics.StatisticsGateway;
 
 /**
- * {@link PageCache} implementation which uses the ehcache framework for caching.
+ * {@link PageCache} implementation which uses the ehcache framework for caching. The time to live
+ * of the ehcache configuration defines how long an entry is kept for revalidation while the
+ * <code>maxAgeSeconds</code> defines how long an entry is fresh. The page contents are kept encoded
+ * by the configured {@link PageCacheCodec}.
  */
 public class EhCache implements PageCache {
 
+	private static final Logger logger = LoggerFactory.getLogger(EhCache.class);
+
 	private String configurationFileName;
-	
+
+	private long maxAgeSeconds;
+
+	private PageCacheCodec codec;
+
 	private Cache cache;
-	
-	public EhCache(String configurationFileName) {
+
+	public EhCache(String configurationFileName, long maxAgeSeconds) {
+		this(configurationFileName, maxAgeSeconds, PageCacheCodec.NONE);
+	}
+
+	public EhCache(String configurationFileName, long maxAgeSeconds, @Nonnull PageCacheCodec codec) {
 		this.configurationFileName = configurationFileName;
+		this.maxAgeSeconds = maxAgeSeconds;
+		this.codec = codec;
 		init();
 	}
-	
+
 	private void init() {
 		CacheManager cacheManager = CacheManager.create(configurationFileName);
 		cache = cacheManager.getCache("pageContentCache");
 	}
 
 	@Override
-	public String store(String url, String pageContent) {
-		cache.put(new Element(url, pageContent));
-		return pageContent;
+	public PageCacheEntry store(String url, PageCacheEntry entry) {
+		PageCacheEntry freshEntry = entry.withMaxAge(maxAgeSeconds);
+		cache.put(new Element(url, EncodedPageCacheEntry.encode(freshEntry, codec)));
+		return freshEntry;
 	}
 
 	@Override
-	public String restore(String url) {
+	public PageCacheEntry restore(String url) {
 		Element element = cache.get(url);
-		return element != null ? (String) element.getObjectValue() : null;
+		if(element == null) {
+			return null;
+		} else if(element.getObjectValue() instanceof EncodedPageCacheEntry) {
+			try {
+				return ((EncodedPageCacheEntry) element.getObjectValue()).decode();
+			} catch (IllegalArgumentException e) {
+				logger.warn(String.format("Dropped the broken cache entry of '%s'.", url), e);
+				cache.remove(url);
+				return null;
+			}
+		}
+		// entries which have been spooled to disk before the contents were encoded.
+		return element.getObjectValue() instanceof PageCacheEntry ? (PageCacheEntry) element.getObjectValue() : null;
 	}
-	
+
 	@Override
 	public double getCacheHitCount() {
 		return cache.getStatistics().cacheHitCount();
 	}
-	
+
 	@Override
 	public double getCacheMissCount() {
 		return cache.getStatistics().cacheMissCount();
 	}
 
+	@Override
+	public double getCacheEvictionCount() {
+		return cache.getStatistics().cacheEvictedCount();
+	}
+
+	@Override
+	public PageCacheStatistics getStatistics() {
+		StatisticsGateway statistics = cache.getStatistics();
+		return new PageCacheStatistics(statistics.cacheHitCount(), statistics.cacheMissCount(),
+				statistics.cacheEvictedCount(), statistics.getSize(), statistics.getLocalHeapSizeInBytes(),
+				statistics.getLocalDiskSizeInBytes());
+	}
+
 }
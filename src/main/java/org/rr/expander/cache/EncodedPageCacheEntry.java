@@ -0,0 +1,52 @@
+package org.rr.expander.cache;
+
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The form of a {@link PageCacheEntry} which is kept by a {@link PageCache}. The content is held as
+ * bytes encoded by a {@link PageCacheCodec} which takes less heap and less disk spool than the
+ * serialized java string.
+ */
+class EncodedPageCacheEntry implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Nonnull
+	private final byte[] content;
+
+	@Nullable
+	private final String eTag;
+
+	@Nullable
+	private final String lastModified;
+
+	private final long staleAt;
+
+	/** the digest of the decoded content, 0 for entries which have been stored without. */
+	private final long digest;
+
+	private EncodedPageCacheEntry(@Nonnull byte[] content, @Nullable String eTag, @Nullable String lastModified,
+			long staleAt, long digest) {
+		this.content = content;
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+		this.staleAt = staleAt;
+		this.digest = digest;
+	}
+
+	static @Nonnull EncodedPageCacheEntry encode(@Nonnull PageCacheEntry entry, @Nonnull PageCacheCodec codec) {
+		return new EncodedPageCacheEntry(codec.encode(entry.getContent()), entry.getETag(), entry.getLastModified(),
+				entry.getStaleAt(), entry.getDigest());
+	}
+
+	@Nonnull PageCacheEntry decode() {
+		return new PageCacheEntry(PageCacheCodec.decode(content), eTag, lastModified, staleAt, digest);
+	}
+
+	int getEncodedLength() {
+		return content.length;
+	}
+}
@@ -0,0 +1,230 @@
+package org.rr.expander.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Keeps the content which has been extracted from a page with a css selector, so a page which has
+ * been extracted before did not need to be parsed and cleaned again.
+ * <p>
+ * The entries are stored by the digest of the page, a fingerprint of the selector and the base of
+ * the url which is used to make the image urls absolute. A page which is syndicated under several
+ * urls of a site, or the same consent or paywall page which is served for many links, is only
+ * extracted once. The entries of an alias are no longer used as soon as its selector gets changed
+ * and the entries of a page as soon as the page has been changed. The cache is limited by the
+ * approximate memory size of its entries.
+ */
+public class ExtractedContentCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(ExtractedContentCache.class);
+
+	private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+	/** number of different urls serving the same page after which the page is reported as shared. */
+	static final int SHARED_PAGE_URLS = 10;
+
+	@Nonnull
+	private final Cache<Key, Entry> cache;
+
+	@Nonnull
+	private final LongAdder hits = new LongAdder();
+
+	@Nonnull
+	private final LongAdder misses = new LongAdder();
+
+	@Nonnull
+	private final LongAdder duplicateHits = new LongAdder();
+
+	@Nonnull
+	private final LongAdder sharedPages = new LongAdder();
+
+	/**
+	 * @param maxBytes The approximate max number of bytes used by the cached entries.
+	 */
+	public ExtractedContentCache(long maxBytes) {
+		this.cache = CacheBuilder.newBuilder()
+				.maximumWeight(maxBytes)
+				.weigher((Key key, Entry entry) -> key.getWeight() + entry.getWeight())
+				.build();
+	}
+
+	/**
+	 * Same as {@link #get(String, String, long, Supplier)} for a page whose digest is not known.
+	 */
+	public @Nonnull String get(@Nonnull String url, @Nonnull String selector, @Nonnull String pageContent,
+			@Nonnull Supplier<String> extractor) {
+		return get(url, selector, HASH_FUNCTION.hashUnencodedChars(pageContent).asLong(), extractor);
+	}
+
+	/**
+	 * Get the content extracted from the page with the given <code>pageDigest</code> with the given
+	 * <code>selector</code>. The content is only extracted if it is not already cached.
+	 *
+	 * @param url The url of the page.
+	 * @param selector The css selector which is used to extract the content.
+	 * @param pageDigest The digest of the current content of the page, see
+	 *        {@link PageCacheEntry#getDigest()}.
+	 * @param extractor Extracts the content if it is not cached.
+	 * @return The extracted content.
+	 */
+	public @Nonnull String get(@Nonnull String url, @Nonnull String selector, long pageDigest,
+			@Nonnull Supplier<String> extractor) {
+		Key key = new Key(pageDigest, HASH_FUNCTION.hashString(selector, StandardCharsets.UTF_8).asLong(), getBase(url));
+		Entry entry = cache.getIfPresent(key);
+		if(entry != null) {
+			hits.increment();
+			if(!entry.url.equals(url)) {
+				duplicateHits.increment();
+				addUrl(entry, url);
+			}
+			return entry.content;
+		}
+		misses.increment();
+		String content = extractor.get();
+		cache.put(key, new Entry(url, content));
+		return content;
+	}
+
+	/**
+	 * A page which is served for many different urls is most likely a consent or paywall page
+	 * instead of an article. It is reported once, when the number of urls reaches
+	 * {@link #SHARED_PAGE_URLS}.
+	 */
+	private void addUrl(@Nonnull Entry entry, @Nonnull String url) {
+		if(entry.urls.size() < SHARED_PAGE_URLS && entry.urls.add(url.hashCode())
+				&& entry.urls.size() == SHARED_PAGE_URLS) {
+			sharedPages.increment();
+			logger.warn(String.format("The same page has been served for %d links like '%s' and '%s'. It may be a "
+					+ "consent or paywall page.", SHARED_PAGE_URLS, entry.url, url));
+		}
+	}
+
+	/**
+	 * The image urls are made absolute against the url of the page, so the extracted content can
+	 * only be shared by pages in the same directory of the same host.
+	 */
+	private static @Nonnull String getBase(@Nonnull String url) {
+		String base = StringUtils.substringBefore(StringUtils.substringBefore(url, "#"), "?");
+		int pathEnd = base.lastIndexOf('/');
+		return pathEnd >= 0 && pathEnd > base.indexOf("//") + 1 ? base.substring(0, pathEnd + 1) : base;
+	}
+
+	/**
+	 * Get the count of requests which could be satisfied by the cache.
+	 *
+	 * @return number of cache hits.
+	 */
+	public long getCacheHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the count of requests which could not be satisfied by the cache, because the page was not
+	 * extracted before or has been changed since.
+	 *
+	 * @return number of cache misses.
+	 */
+	public long getCacheMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Get the count of cache hits for a page which has been extracted for another url.
+	 *
+	 * @return number of cache hits for duplicate pages.
+	 */
+	public long getDuplicateHitCount() {
+		return duplicateHits.sum();
+	}
+
+	/**
+	 * Get the count of pages which have been served for many different urls, see
+	 * {@link #SHARED_PAGE_URLS}.
+	 *
+	 * @return number of shared pages.
+	 */
+	public long getSharedPageCount() {
+		return sharedPages.sum();
+	}
+
+	/**
+	 * @return The number of cached entries.
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+	private static class Key {
+
+		private final long pageDigest;
+
+		private final long selectorFingerprint;
+
+		@Nonnull
+		private final String base;
+
+		Key(long pageDigest, long selectorFingerprint, @Nonnull String base) {
+			this.pageDigest = pageDigest;
+			this.selectorFingerprint = selectorFingerprint;
+			this.base = base;
+		}
+
+		int getWeight() {
+			return 56 + base.length() * 2;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(pageDigest, selectorFingerprint, base);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return pageDigest == other.pageDigest && selectorFingerprint == other.selectorFingerprint
+					&& base.equals(other.base);
+		}
+	}
+
+	private static class Entry {
+
+		/** the url the content has been extracted for. */
+		@Nonnull
+		private final String url;
+
+		@Nonnull
+		private final String content;
+
+		/** the hashes of the other urls which have served the page, up to {@link #SHARED_PAGE_URLS}. */
+		@Nonnull
+		private final Set<Integer> urls = ConcurrentHashMap.newKeySet();
+
+		Entry(@Nonnull String url, @Nonnull String content) {
+			this.url = url;
+			this.content = content;
+		}
+
+		int getWeight() {
+			return 48 + url.length() * 2 + content.length() * 2 + SHARED_PAGE_URLS * 32;
+		}
+	}
+
+}
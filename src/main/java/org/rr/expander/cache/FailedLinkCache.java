@@ -0,0 +1,146 @@
+package org.rr.expander.cache;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.rr.expander.loader.CircuitOpenException;
+import org.rr.expander.loader.HostCircuitBreaker;
+import org.rr.expander.loader.HttpStatusException;
+import org.rr.expander.loader.QueueTimeoutException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.common.base.Preconditions;
+
+/**
+ * Keeps the links whose pages could not be loaded or processed for a while, so a broken link did
+ * not cost a request and its timeout on each poll of the feed. How long a link is kept depends on
+ * the failure. A missing page is not expected to come back soon while a timeout may be gone with
+ * the next poll.
+ */
+public class FailedLinkCache {
+
+	@Nonnull
+	private final FailedLinkCacheConfiguration config;
+
+	/** the time to live in nanoseconds of each failed link. */
+	@Nonnull
+	private final Cache<String, Long> failures;
+
+	public FailedLinkCache(@Nonnull FailedLinkCacheConfiguration config) {
+		this(config, Ticker.systemTicker());
+	}
+
+	FailedLinkCache(@Nonnull FailedLinkCacheConfiguration config, @Nonnull Ticker ticker) {
+		this.config = Preconditions.checkNotNull(config);
+		this.failures = Caffeine.newBuilder()
+				.maximumSize(config.getMaxEntries())
+				.expireAfter(new Expiry<String, Long>() {
+					@Override
+					public long expireAfterCreate(String link, Long timeToLive, long currentTime) {
+						return timeToLive;
+					}
+
+					@Override
+					public long expireAfterUpdate(String link, Long timeToLive, long currentTime, long currentDuration) {
+						return timeToLive;
+					}
+
+					@Override
+					public long expireAfterRead(String link, Long timeToLive, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.ticker(ticker)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Tells if loading the given link has recently failed and should not be tried again yet.
+	 *
+	 * @param link The link to be tested.
+	 * @return <code>true</code> if the link has failed and <code>false</code> otherwise.
+	 */
+	public boolean isFailed(@Nonnull String link) {
+		return failures.getIfPresent(link) != null;
+	}
+
+	/**
+	 * Remember that loading or processing the given link has failed. Failures which are not caused
+	 * by the link itself, for example an open circuit of the host, a request which has waited too
+	 * long in the local queues or an abandoned request, are not recorded.
+	 *
+	 * @param link The link which has failed.
+	 * @param e The failure.
+	 */
+	public void recordFailure(@Nonnull String link, @Nonnull Throwable e) {
+		long timeToLiveSeconds = getTimeToLiveSeconds(e);
+		if(timeToLiveSeconds > 0) {
+			failures.put(link, TimeUnit.SECONDS.toNanos(timeToLiveSeconds));
+		}
+	}
+
+	/**
+	 * @return The number of loads which have been skipped because the link has failed.
+	 */
+	public long getCacheHitCount() {
+		return failures.stats().hitCount();
+	}
+
+	/**
+	 * @return The number of links which have been tested but did not fail recently.
+	 */
+	public long getCacheMissCount() {
+		return failures.stats().missCount();
+	}
+
+	/**
+	 * @return The estimated number of failed links in the cache.
+	 */
+	public long size() {
+		return failures.estimatedSize();
+	}
+
+	long getTimeToLiveSeconds(@Nullable Throwable e) {
+		while((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+			e = e.getCause();
+		}
+		if(e == null || isLocalFailure(e)) {
+			return 0;
+		} else if(e instanceof HttpStatusException && isNotFound(((HttpStatusException) e).getStatusCode())) {
+			return config.getNotFoundSeconds();
+		} else if(HostCircuitBreaker.isTransient(e)) {
+			return config.getTransientErrorSeconds();
+		}
+		return config.getClientErrorSeconds();
+	}
+
+	/**
+	 * @return <code>true</code> if the request was not sent or got interrupted or cancelled by this
+	 *         application. A socket or connect timeout is an {@link InterruptedIOException} too but
+	 *         it is caused by the host.
+	 */
+	private static boolean isLocalFailure(@Nonnull Throwable e) {
+		if(e instanceof CircuitOpenException || e instanceof QueueTimeoutException
+				|| e instanceof ConnectionPoolTimeoutException || e instanceof CancellationException
+				|| e instanceof InterruptedException || e instanceof ClosedByInterruptException) {
+			return true;
+		}
+		return e instanceof InterruptedIOException && !HostCircuitBreaker.isTransient(e);
+	}
+
+	private static boolean isNotFound(int statusCode) {
+		return statusCode == 404 || statusCode == 410;
+	}
+}
@@ -0,0 +1,62 @@
+package org.rr.expander.cache;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the {@link FailedLinkCache}. A time of 0 seconds disables the caching of the
+ * related failures.
+ */
+public class FailedLinkCacheConfiguration {
+
+	/** max number of failed links which are kept. 0 disables the cache. */
+	private long maxEntries = 10000;
+
+	/** time in seconds a link which answered with 404 Not Found or 410 Gone is not loaded again. */
+	private long notFoundSeconds = 21600;
+
+	/** time in seconds a link which failed with another client error or an unusable content is not loaded again. */
+	private long clientErrorSeconds = 3600;
+
+	/** time in seconds a link which failed with a timeout, a connection or a server error is not loaded again. */
+	private long transientErrorSeconds = 300;
+
+	@JsonProperty
+	public long getMaxEntries() {
+		return maxEntries;
+	}
+
+	@JsonProperty
+	public void setMaxEntries(long maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	@JsonProperty
+	public long getNotFoundSeconds() {
+		return notFoundSeconds;
+	}
+
+	@JsonProperty
+	public void setNotFoundSeconds(long notFoundSeconds) {
+		this.notFoundSeconds = notFoundSeconds;
+	}
+
+	@JsonProperty
+	public long getClientErrorSeconds() {
+		return clientErrorSeconds;
+	}
+
+	@JsonProperty
+	public void setClientErrorSeconds(long clientErrorSeconds) {
+		this.clientErrorSeconds = clientErrorSeconds;
+	}
+
+	@JsonProperty
+	public long getTransientErrorSeconds() {
+		return transientErrorSeconds;
+	}
+
+	@JsonProperty
+	public void setTransientErrorSeconds(long transientErrorSeconds) {
+		this.transientErrorSeconds = transientErrorSeconds;
+	}
+}
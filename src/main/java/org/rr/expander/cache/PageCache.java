@@ -9,36 +9,56 @@ import javax.annotation.Nullable;
 public interface PageCache {
 
 	/**
-	 * Store the given <code>pageContent</code> with the given <code>url</code> as key.
-	 * 
+	 * Store the given <code>entry</code> with the given <code>url</code> as key. The entry will be
+	 * fresh for the max age configured for the cache. Storing an entry again after it was
+	 * revalidated refreshes its max age.
+	 *
 	 * @param url The url string which is used as key. The same string must be used with the
-	 *        {@link #restore(String)} method to access the stored <code>pageContent</code> with the
+	 *        {@link #restore(String)} method to access the stored <code>entry</code> with the
 	 *        {@link #restore(String)} method.
-	 * @param pageContent The page content / html page which should be stored.
-	 * @return The stored pageContent given with the <code>pageContent</code> parameter.
+	 * @param entry The page content / html page and its validators which should be stored.
+	 * @return The stored entry.
 	 */
-	String store(@Nonnull String url, @Nonnull String pageContent);
+	@Nonnull
+	PageCacheEntry store(@Nonnull String url, @Nonnull PageCacheEntry entry);
 
 	/**
-	 * Gets the page content which was previously stored usind the given <code>url</code> as key.
-	 * 
+	 * Gets the entry which was previously stored usind the given <code>url</code> as key. The
+	 * returned entry can be stale which means that it must be revalidated before it can be used.
+	 *
 	 * @param url The url string which is used as key to access the page content.
-	 * @return The desired page content or <code>null</code> if no matching page content exists.
+	 * @return The desired entry or <code>null</code> if no matching entry exists.
+	 * @see PageCacheEntry#isStale()
 	 */
 	@Nullable
-	String restore(@Nonnull String url);
+	PageCacheEntry restore(@Nonnull String url);
 
 	/**
 	 * Get the count of requests which could be satisfied by the cache.
-	 * 
+	 *
 	 * @return number of cache hits.
 	 */
 	double getCacheHitCount();
 
 	/**
 	 * Get the count of requests which could not be satisfied by the cache.
-	 * 
+	 *
 	 * @return number of cache misses.
 	 */
 	double getCacheMissCount();
+
+	/**
+	 * Get the count of entries which have been removed to make room for other entries.
+	 *
+	 * @return number of cache evictions.
+	 */
+	double getCacheEvictionCount();
+
+	/**
+	 * Get the current statistics of the cache which are used for the metrics and health checks.
+	 *
+	 * @return A snapshot of the statistics.
+	 */
+	@Nonnull
+	PageCacheStatistics getStatistics();
 }
@@ -0,0 +1,165 @@
+package org.rr.expander.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+
+/**
+ * The codecs which can be used by a {@link PageCache} to keep the page contents as compressed UTF-8
+ * bytes instead of a java string with two bytes per char. The encoded bytes start with the id of the
+ * codec and the length of the UTF-8 bytes, so each entry can be decoded no matter which codec is
+ * configured at the moment.
+ */
+public enum PageCacheCodec {
+
+	/** keeps the plain UTF-8 bytes. */
+	NONE((byte) 0) {
+		@Override
+		byte[] compress(@Nonnull byte[] data) {
+			return data;
+		}
+
+		@Override
+		byte[] decompress(@Nonnull byte[] data, int offset, int length) {
+			return Arrays.copyOfRange(data, offset, offset + length);
+		}
+	},
+
+	/** a small and fast compression which decompresses several GB per second. */
+	LZ4((byte) 1) {
+		@Override
+		byte[] compress(@Nonnull byte[] data) {
+			return LZ4_FACTORY.fastCompressor().compress(data);
+		}
+
+		@Override
+		byte[] decompress(@Nonnull byte[] data, int offset, int length) {
+			byte[] result = new byte[length];
+			try {
+				LZ4_FACTORY.safeDecompressor().decompress(data, offset, data.length - offset, result, 0, length);
+			} catch (LZ4Exception e) {
+				throw new IllegalArgumentException("Invalid LZ4 encoded page content.", e);
+			}
+			return result;
+		}
+	},
+
+	/** a stronger compression than {@link #LZ4} which costs more cpu time for each store and restore. */
+	DEFLATE((byte) 2) {
+		@Override
+		byte[] compress(@Nonnull byte[] data) {
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				deflater.setInput(data);
+				deflater.finish();
+				ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+				byte[] buffer = new byte[8192];
+				while (!deflater.finished()) {
+					out.write(buffer, 0, deflater.deflate(buffer));
+				}
+				return out.toByteArray();
+			} finally {
+				deflater.end();
+			}
+		}
+
+		@Override
+		byte[] decompress(@Nonnull byte[] data, int offset, int length) {
+			Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(data, offset, data.length - offset);
+				byte[] result = new byte[length];
+				int read = 0;
+				while (read < length && !inflater.finished()) {
+					int inflated = inflater.inflate(result, read, length - read);
+					if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						break;
+					}
+					read += inflated;
+				}
+				if(read != length) {
+					throw new IllegalArgumentException("Truncated deflate encoded page content.");
+				}
+				return result;
+			} catch (DataFormatException e) {
+				throw new IllegalArgumentException("Invalid deflate encoded page content.", e);
+			} finally {
+				inflater.end();
+			}
+		}
+	};
+
+	/**
+	 * Contents with less UTF-8 bytes are not compressed because the saving did not pay off the time
+	 * needed to compress and decompress them.
+	 */
+	static final int MIN_COMPRESS_BYTES = 512;
+
+	/** the length of the codec id and the length of the UTF-8 bytes in front of the payload. */
+	private static final int HEADER_BYTES = 5;
+
+	private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+	private final byte id;
+
+	private PageCacheCodec(byte id) {
+		this.id = id;
+	}
+
+	/**
+	 * Encode the given content with this codec. The content is kept uncompressed if it is smaller
+	 * than {@link #MIN_COMPRESS_BYTES} or did not get smaller by the compression.
+	 *
+	 * @param content The content to be encoded.
+	 * @return The encoded bytes which can be decoded with {@link #decode(byte[])}.
+	 */
+	public @Nonnull byte[] encode(@Nonnull String content) {
+		byte[] data = content.getBytes(StandardCharsets.UTF_8);
+		PageCacheCodec codec = data.length < MIN_COMPRESS_BYTES ? NONE : this;
+		byte[] payload = codec.compress(data);
+		if(payload.length >= data.length) {
+			codec = NONE;
+			payload = data;
+		}
+		return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+				.put(codec.id)
+				.putInt(data.length)
+				.put(payload)
+				.array();
+	}
+
+	/**
+	 * Decode bytes which have been encoded by any of the {@link PageCacheCodec}s.
+	 *
+	 * @param encoded The bytes created by {@link #encode(String)}.
+	 * @return The decoded content.
+	 * @throws IllegalArgumentException if the bytes are not a valid encoded content.
+	 */
+	public static @Nonnull String decode(@Nonnull byte[] encoded) {
+		if(encoded.length < HEADER_BYTES) {
+			throw new IllegalArgumentException("Encoded page content is too short.");
+		}
+		ByteBuffer header = ByteBuffer.wrap(encoded, 0, HEADER_BYTES);
+		byte id = header.get();
+		int length = header.getInt();
+		for (PageCacheCodec codec : values()) {
+			if(codec.id == id) {
+				return new String(codec.decompress(encoded, HEADER_BYTES, length), StandardCharsets.UTF_8);
+			}
+		}
+		throw new IllegalArgumentException(String.format("Unknown page cache codec %d.", id));
+	}
+
+	abstract byte[] compress(@Nonnull byte[] data);
+
+	abstract byte[] decompress(@Nonnull byte[] data, int offset, int length);
+}
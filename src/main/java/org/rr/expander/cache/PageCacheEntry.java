@@ -0,0 +1,125 @@
+package org.rr.expander.cache;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * A cached page together with the http validators which allows to revalidate the page with a
+ * conditional request once it gets stale.
+ */
+public class PageCacheEntry implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Nonnull
+	private final String content;
+
+	/** the value of the ETag response header or <code>null</code> if the server did not send one. */
+	@Nullable
+	private final String eTag;
+
+	/** the value of the Last-Modified response header or <code>null</code> if the server did not send one. */
+	@Nullable
+	private final String lastModified;
+
+	/** the time in milliseconds when the entry must be revalidated. */
+	private final long staleAt;
+
+	/** the digest of the content or 0 if not yet computed. */
+	private long digest;
+
+	public PageCacheEntry(@Nonnull String content, @Nullable String eTag, @Nullable String lastModified) {
+		this(content, eTag, lastModified, 0);
+	}
+
+	PageCacheEntry(@Nonnull String content, @Nullable String eTag, @Nullable String lastModified, long staleAt) {
+		this(content, eTag, lastModified, staleAt, 0);
+	}
+
+	PageCacheEntry(@Nonnull String content, @Nullable String eTag, @Nullable String lastModified, long staleAt,
+			long digest) {
+		this.content = content;
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+		this.staleAt = staleAt;
+		this.digest = digest;
+	}
+
+	/**
+	 * Create a copy of this entry which is fresh for the given time from now on. This is used by
+	 * {@link PageCache} implementations if the entry gets stored or was successfully revalidated.
+	 *
+	 * @param maxAgeSeconds The time in seconds the new entry is fresh.
+	 * @return The new entry.
+	 */
+	public @Nonnull PageCacheEntry withMaxAge(long maxAgeSeconds) {
+		return new PageCacheEntry(content, eTag, lastModified,
+				System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(maxAgeSeconds), digest);
+	}
+
+	/**
+	 * Tells if the entry must be revalidated before it can be used.
+	 *
+	 * @return <code>true</code> if the entry is stale and <code>false</code> otherwise.
+	 */
+	public boolean isStale() {
+		return System.currentTimeMillis() >= staleAt;
+	}
+
+	/**
+	 * Tells if the entry is stale for longer than the given time, so it should no longer be served
+	 * while it gets revalidated in the background.
+	 *
+	 * @param staleWhileRevalidateSeconds The time in seconds a stale entry may be served.
+	 * @return <code>true</code> if the entry must be revalidated before it can be used again.
+	 */
+	public boolean isExpired(long staleWhileRevalidateSeconds) {
+		return System.currentTimeMillis() >= staleAt + TimeUnit.SECONDS.toMillis(staleWhileRevalidateSeconds);
+	}
+
+	/**
+	 * Tells if the entry has some validators which can be used for a conditional request.
+	 *
+	 * @return <code>true</code> if an ETag or Last-Modified value is available.
+	 */
+	public boolean hasValidators() {
+		return eTag != null || lastModified != null;
+	}
+
+	public @Nonnull String getContent() {
+		return content;
+	}
+
+	public @Nullable String getETag() {
+		return eTag;
+	}
+
+	public @Nullable String getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Get a 64 bit murmur3 digest of the content. Pages with the same digest have the same content,
+	 * whatever url they have been loaded from. The digest is computed once and kept together with
+	 * the encoded content by the cache implementations.
+	 *
+	 * @return The digest of the content.
+	 */
+	public long getDigest() {
+		long result = digest;
+		if(result == 0) {
+			digest = result = Hashing.murmur3_128().hashUnencodedChars(content).asLong();
+		}
+		return result;
+	}
+
+	long getStaleAt() {
+		return staleAt;
+	}
+
+}
@@ -1,5 +1,8 @@
 package org.rr.expander.cache;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 import javax.annotation.Nonnull;
 
 import jersey.repackaged.com.google.common.base.Preconditions;
@@ -9,21 +12,53 @@ import jersey.repackaged.com.google.common.base.Preconditions;
  */
 public abstract class PageCacheFactory {
 
+	/** the max number of bytes of a {@link CACHE_TYPE#CAFFEINE} cache if no other value is configured. */
+	public static final long DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+
 	public static enum CACHE_TYPE {
+		/** bound by the number of entries given in the ehcache configuration file, may overflow to disk. */
 		EH_CACHE {
-			
+
 			private EhCache singleton;
-			
+
 			@Override
-			public PageCache createPageCache(String configurationFileName) {
+			public PageCache createPageCache(String configurationFileName, long maxAgeSeconds, PageCacheCodec codec,
+					long maxBytes) {
 				if(singleton == null) {
-					singleton = new EhCache(configurationFileName);
+					singleton = new EhCache(configurationFileName, maxAgeSeconds, codec);
 				}
 				return singleton;
 			}
+		},
+		/** kept in the heap and bound by the number of bytes of the encoded pages. */
+		CAFFEINE {
+
+			@Override
+			public PageCache createPageCache(String configurationFileName, long maxAgeSeconds, PageCacheCodec codec,
+					long maxBytes) {
+				return new CaffeineCache(maxBytes, maxAgeSeconds, codec);
+			}
+		},
+		/**
+		 * kept in memory mapped segment files which survive restarts and bound by the number of bytes of
+		 * the segments. The configuration file name is the directory of the segment files.
+		 */
+		SEGMENT_STORE {
+
+			@Override
+			public PageCache createPageCache(String configurationFileName, long maxAgeSeconds, PageCacheCodec codec,
+					long maxBytes) {
+				try {
+					return new SegmentPageCache(Paths.get(configurationFileName), maxBytes, maxAgeSeconds, codec);
+				} catch (IOException e) {
+					throw new IllegalStateException(String.format("Failed to open the segment page cache '%s'.",
+							configurationFileName), e);
+				}
+			}
 		};
 
-		public abstract PageCache createPageCache(String configurationFileName);
+		public abstract PageCache createPageCache(String configurationFileName, long maxAgeSeconds, PageCacheCodec codec,
+				long maxBytes);
 	}
 
 	public static final PageCacheFactory createPageCacheFactory(@Nonnull CACHE_TYPE type) {
@@ -31,13 +66,39 @@ public abstract class PageCacheFactory {
 		return new PageCacheFactory() {
 
 			@Override
-			public PageCache getPageCache(String configurationFileName) {
-				return type.createPageCache(configurationFileName);
+			public PageCache getPageCache(String configurationFileName, long maxAgeSeconds, PageCacheCodec codec,
+					long maxBytes) {
+				return type.createPageCache(configurationFileName, maxAgeSeconds, codec, maxBytes);
 			}
 		};
 	}
 
+	/**
+	 * Get the {@link PageCache} implementation.
+	 *
+	 * @param configurationFileName The configuration file of the cache implementation.
+	 * @param maxAgeSeconds The time in seconds a stored entry is fresh and did not need to be revalidated.
+	 * @return The desired {@link PageCache} instance.
+	 */
+	@Nonnull
+	public PageCache getPageCache(String configurationFileName, long maxAgeSeconds) {
+		return getPageCache(configurationFileName, maxAgeSeconds, PageCacheCodec.NONE, DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Get the {@link PageCache} implementation which keeps the page contents encoded with the given
+	 * codec.
+	 *
+	 * @param configurationFileName The configuration file of the cache implementation. Not used by
+	 *        cache types which are configured by the max bytes only.
+	 * @param maxAgeSeconds The time in seconds a stored entry is fresh and did not need to be revalidated.
+	 * @param codec The codec which is used to encode the page contents.
+	 * @param maxBytes The max number of bytes the encoded pages may take. Not used by cache types
+	 *        which are bound by their configuration file.
+	 * @return The desired {@link PageCache} instance.
+	 */
 	@Nonnull
-	public abstract PageCache getPageCache(String configurationFileName);
+	public abstract PageCache getPageCache(String configurationFileName, long maxAgeSeconds, @Nonnull PageCacheCodec codec,
+			long maxBytes);
 
 }
@@ -0,0 +1,121 @@
+package org.rr.expander.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.base.Preconditions;
+
+/**
+ * Publishes the behaviour of the {@link PageCache} in a {@link MetricRegistry}. The statistics of
+ * the cache are published as gauges. The hits, stale hits, revalidations, misses and load times
+ * seen by the feeds are published as meters and timers, in total and for each alias.
+ */
+public class PageCacheMetrics {
+
+	private static final String ALIAS = "alias";
+
+	private static final String HITS = "hits";
+
+	private static final String STALE_HITS = "stale-hits";
+
+	private static final String REVALIDATIONS = "revalidations";
+
+	private static final String MISSES = "misses";
+
+	private static final String LOAD = "load";
+
+	@Nonnull
+	private final MetricRegistry registry;
+
+	public PageCacheMetrics(@Nonnull MetricRegistry registry) {
+		this.registry = Preconditions.checkNotNull(registry);
+	}
+
+	/**
+	 * Register the gauges for the statistics of the given cache.
+	 *
+	 * @param pageCache The cache whose statistics should be published.
+	 */
+	public void register(@Nonnull PageCache pageCache) {
+		registry.register(MetricRegistry.name(PageCache.class, "hit-count"),
+				(Gauge<Long>) () -> pageCache.getStatistics().getHitCount());
+		registry.register(MetricRegistry.name(PageCache.class, "miss-count"),
+				(Gauge<Long>) () -> pageCache.getStatistics().getMissCount());
+		registry.register(MetricRegistry.name(PageCache.class, "eviction-count"),
+				(Gauge<Long>) () -> pageCache.getStatistics().getEvictionCount());
+		registry.register(MetricRegistry.name(PageCache.class, "entries"),
+				(Gauge<Long>) () -> pageCache.getStatistics().getEntryCount());
+		registry.register(MetricRegistry.name(PageCache.class, "heap-bytes"),
+				(Gauge<Long>) () -> pageCache.getStatistics().getHeapBytes());
+		registry.register(MetricRegistry.name(PageCache.class, "disk-bytes"),
+				(Gauge<Long>) () -> pageCache.getStatistics().getDiskBytes());
+		registry.register(MetricRegistry.name(PageCache.class, "hit-ratio"), new RatioGauge() {
+			@Override
+			protected Ratio getRatio() {
+				PageCacheStatistics statistics = pageCache.getStatistics();
+				return Ratio.of(statistics.getHitCount(), statistics.getHitCount() + statistics.getMissCount());
+			}
+		});
+	}
+
+	/**
+	 * A fresh page was taken from the cache.
+	 *
+	 * @param alias The alias of the feed the page was requested for or <code>null</code> if unknown.
+	 */
+	public void markHit(@Nullable String alias) {
+		mark(alias, HITS);
+	}
+
+	/**
+	 * A stale page was taken from the cache and gets refreshed in the background.
+	 *
+	 * @param alias The alias of the feed the page was requested for or <code>null</code> if unknown.
+	 */
+	public void markStaleHit(@Nullable String alias) {
+		mark(alias, STALE_HITS);
+	}
+
+	/**
+	 * A stale page was found in the cache and gets revalidated.
+	 *
+	 * @param alias The alias of the feed the page was requested for or <code>null</code> if unknown.
+	 */
+	public void markRevalidation(@Nullable String alias) {
+		mark(alias, REVALIDATIONS);
+	}
+
+	/**
+	 * The page was not found in the cache and gets loaded.
+	 *
+	 * @param alias The alias of the feed the page was requested for or <code>null</code> if unknown.
+	 */
+	public void markMiss(@Nullable String alias) {
+		mark(alias, MISSES);
+	}
+
+	/**
+	 * Record the time needed to load or revalidate a page which could not be taken from the cache.
+	 *
+	 * @param alias The alias of the feed the page was requested for or <code>null</code> if unknown.
+	 * @param nanos The load time in nanoseconds.
+	 */
+	public void updateLoadTime(@Nullable String alias, long nanos) {
+		registry.timer(MetricRegistry.name(PageCache.class, LOAD)).update(nanos, TimeUnit.NANOSECONDS);
+		if(alias != null) {
+			registry.timer(MetricRegistry.name(PageCache.class, ALIAS, alias, LOAD)).update(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void mark(@Nullable String alias, @Nonnull String metric) {
+		registry.meter(MetricRegistry.name(PageCache.class, metric)).mark();
+		if(alias != null) {
+			registry.meter(MetricRegistry.name(PageCache.class, ALIAS, alias, metric)).mark();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package org.rr.expander.cache;
+
+/**
+ * A snapshot of the statistics of a {@link PageCache}. Values which are not supported by an
+ * implementation are 0.
+ */
+public class PageCacheStatistics {
+
+	private final long hitCount;
+
+	private final long missCount;
+
+	private final long evictionCount;
+
+	private final long entryCount;
+
+	private final long heapBytes;
+
+	private final long diskBytes;
+
+	public PageCacheStatistics(long hitCount, long missCount, long evictionCount, long entryCount, long heapBytes,
+			long diskBytes) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.entryCount = entryCount;
+		this.heapBytes = heapBytes;
+		this.diskBytes = diskBytes;
+	}
+
+	/** @return The number of restored entries. */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/** @return The number of requested entries which have not been in the cache. */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/** @return The number of entries which have been removed to make room for other entries. */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/** @return The number of entries in the cache. */
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	/** @return The number of bytes the cache takes in the heap. */
+	public long getHeapBytes() {
+		return heapBytes;
+	}
+
+	/** @return The number of bytes the cache takes on the disk. */
+	public long getDiskBytes() {
+		return diskBytes;
+	}
+
+	/** @return The ratio of the hits to all requests or 0 if there was no request. */
+	public double getHitRatio() {
+		long requestCount = hitCount + missCount;
+		return requestCount > 0 ? (double) hitCount / requestCount : 0;
+	}
+}
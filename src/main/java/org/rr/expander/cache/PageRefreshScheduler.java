@@ -0,0 +1,130 @@
+package org.rr.expander.cache;
+
+import java.io.Closeable;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Allows to serve a stale {@link PageCacheEntry} for a while and refreshes it in the background, so
+ * a reader did not wait for the origin just because the cached page is a bit old. Only one refresh
+ * for each url runs at the same time. Refreshes which did not fit into the queue are dropped, the
+ * next request for the page schedules them again. The refreshes can run on any executor, for
+ * example one with a virtual thread for each refresh.
+ */
+public class PageRefreshScheduler implements Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PageRefreshScheduler.class);
+
+	private static final int REFRESH_THREADS = 4;
+
+	private static final int MAX_QUEUED_REFRESHES = 1000;
+
+	private final long staleWhileRevalidateSeconds;
+
+	/** the urls whose refresh is queued or running. */
+	@Nonnull
+	private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+	@Nonnull
+	private final ExecutorService executor;
+
+	private final LongAdder refreshes = new LongAdder();
+
+	/**
+	 * @param staleWhileRevalidateSeconds The time in seconds a stale entry is served while it gets
+	 *        refreshed in the background.
+	 */
+	public PageRefreshScheduler(long staleWhileRevalidateSeconds) {
+		this(staleWhileRevalidateSeconds, createExecutor());
+	}
+
+	/**
+	 * @param staleWhileRevalidateSeconds The time in seconds a stale entry is served while it gets
+	 *        refreshed in the background.
+	 * @param executor Runs the refreshes, for example on virtual threads. It is shut down when the
+	 *        scheduler gets closed.
+	 */
+	public PageRefreshScheduler(long staleWhileRevalidateSeconds, @Nonnull ExecutorService executor) {
+		this.staleWhileRevalidateSeconds = staleWhileRevalidateSeconds;
+		this.executor = Preconditions.checkNotNull(executor);
+	}
+
+	private static @Nonnull ExecutorService createExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(MAX_QUEUED_REFRESHES),
+				new ThreadFactoryBuilder().setNameFormat("page-refresh-%d").setDaemon(true).build());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Tells if the given stale entry may still be served while it gets refreshed.
+	 *
+	 * @param entry The cached entry.
+	 * @return <code>true</code> if the entry is stale but not expired.
+	 */
+	public boolean canServeStale(@Nullable PageCacheEntry entry) {
+		return entry != null && entry.isStale() && !entry.isExpired(staleWhileRevalidateSeconds);
+	}
+
+	/**
+	 * Run the given refresh of the given url in the background unless a refresh of the url is
+	 * already pending.
+	 *
+	 * @param url The url of the page to be refreshed.
+	 * @param refresh The refresh which loads the page and stores it in the cache.
+	 */
+	public void refresh(@Nonnull String url, @Nonnull Runnable refresh) {
+		if(pending.size() >= MAX_QUEUED_REFRESHES || !pending.add(url)) {
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					refresh.run();
+					refreshes.increment();
+				} catch (RuntimeException e) {
+					logger.warn(String.format("Failed to refresh '%s'.", url), e);
+				} finally {
+					pending.remove(url);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			pending.remove(url);
+		}
+	}
+
+	/**
+	 * @return The number of refreshes which are queued or running.
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * @return The number of refreshes which have been completed.
+	 */
+	public long getRefreshCount() {
+		return refreshes.sum();
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
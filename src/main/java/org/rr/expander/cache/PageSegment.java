@@ -0,0 +1,230 @@
+package org.rr.expander.cache;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+/**
+ * One append-only file of a {@link SegmentPageCache}. Records are only appended to the active
+ * segment. Once a segment is sealed it never changes again and is read through a memory mapping.
+ * <p>
+ * A {@link FileChannel} is closed for all threads as soon as a thread which uses it gets
+ * interrupted. The channel of the segment is therefore reopened and the operation repeated, so an
+ * abandoned request can't break the segment for all others.
+ */
+class PageSegment implements Closeable {
+
+	/**
+	 * An operation on the channel of the segment.
+	 */
+	private interface ChannelOperation<T> {
+		T apply(@Nonnull FileChannel channel) throws IOException;
+	}
+
+	private final long id;
+
+	@Nonnull
+	private final Path file;
+
+	@Nonnull
+	private volatile FileChannel channel;
+
+	/** tells if the segment has been closed on purpose, so the channel must not be reopened. */
+	private volatile boolean closed;
+
+	/** the number of bytes of all records which are still referenced by the index. */
+	private final AtomicLong liveBytes = new AtomicLong();
+
+	private volatile long length;
+
+	private volatile boolean sealed;
+
+	private volatile MappedByteBuffer mapped;
+
+	private PageSegment(long id, @Nonnull Path file, @Nonnull FileChannel channel) throws IOException {
+		this.id = id;
+		this.file = file;
+		this.channel = channel;
+		this.length = channel.size();
+	}
+
+	static @Nonnull PageSegment open(long id, @Nonnull Path file) throws IOException {
+		return new PageSegment(id, file, FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE));
+	}
+
+	/**
+	 * Append the given record at the end of the segment. Must not be called concurrently.
+	 *
+	 * @param record The record to be appended.
+	 * @return The offset of the appended record.
+	 * @throws IOException if the record could not be written.
+	 */
+	long append(@Nonnull ByteBuffer record) throws IOException {
+		if(sealed) {
+			throw new IOException(String.format("The segment %s is sealed.", file));
+		}
+		long offset = length;
+		length = withChannel(channel -> {
+			// a repeated write starts at the beginning of the record again.
+			ByteBuffer data = record.duplicate();
+			long position = offset;
+			while (data.hasRemaining()) {
+				position += channel.write(data, position);
+			}
+			return position;
+		});
+		record.position(record.limit());
+		return offset;
+	}
+
+	/**
+	 * Read the given number of bytes from the given offset.
+	 *
+	 * @throws IOException if the bytes could not be read, for example because the segment has been
+	 *         deleted in the meantime.
+	 */
+	@Nonnull
+	byte[] read(long offset, int count) throws IOException {
+		if(offset < 0 || count < 0 || offset + count > length) {
+			throw new EOFException(String.format("Failed to read %d bytes at %d from %s.", count, offset, file));
+		}
+		byte[] result = new byte[count];
+		if(sealed && length <= Integer.MAX_VALUE) {
+			ByteBuffer buffer = getMapping().duplicate();
+			buffer.position((int) offset);
+			buffer.get(result);
+		} else {
+			withChannel(channel -> {
+				ByteBuffer buffer = ByteBuffer.wrap(result);
+				while (buffer.hasRemaining()) {
+					if(channel.read(buffer, offset + buffer.position()) < 0) {
+						throw new EOFException(String.format("Failed to read %d bytes at %d from %s.", count, offset, file));
+					}
+				}
+				return null;
+			});
+		}
+		return result;
+	}
+
+	private @Nonnull MappedByteBuffer getMapping() throws IOException {
+		MappedByteBuffer result = mapped;
+		if(result == null) {
+			synchronized (this) {
+				result = mapped;
+				if(result == null) {
+					mapped = result = withChannel(channel -> channel.map(MapMode.READ_ONLY, 0, length));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Flush the segment to the disk and deny further appends. A segment which exceeds the size of a
+	 * memory mapping is still read with positional reads.
+	 */
+	void seal() throws IOException {
+		force();
+		sealed = true;
+	}
+
+	/**
+	 * Cut off a broken tail, for example a record which was only partly written during a crash.
+	 */
+	void truncate(long newLength) throws IOException {
+		withChannel(channel -> channel.truncate(newLength));
+		length = newLength;
+	}
+
+	void force() throws IOException {
+		withChannel(channel -> {
+			channel.force(false);
+			return null;
+		});
+	}
+
+	/**
+	 * Run the given operation on the channel. If the channel has been closed by the interrupt of
+	 * this or another thread, it is reopened and the operation is repeated once. The interrupt status
+	 * must be cleared for the repetition, because an interrupted thread closes the channel again. It
+	 * is restored afterwards.
+	 */
+	private <T> T withChannel(@Nonnull ChannelOperation<T> operation) throws IOException {
+		FileChannel current = channel;
+		try {
+			return operation.apply(current);
+		} catch (ClosedChannelException e) {
+			if(closed) {
+				throw e;
+			}
+			boolean interrupted = Thread.interrupted();
+			try {
+				return operation.apply(reopen(current));
+			} finally {
+				if(interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	private synchronized @Nonnull FileChannel reopen(@Nonnull FileChannel closedChannel) throws IOException {
+		if(closed) {
+			throw new ClosedChannelException();
+		}
+		if(channel == closedChannel) {
+			channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		}
+		return channel;
+	}
+
+	/**
+	 * Close and delete the segment. A mapping which is still in use stays readable until it is
+	 * garbage collected.
+	 */
+	void delete() throws IOException {
+		close();
+		Files.deleteIfExists(file);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		channel.close();
+	}
+
+	long getId() {
+		return id;
+	}
+
+	long getLength() {
+		return length;
+	}
+
+	boolean isSealed() {
+		return sealed;
+	}
+
+	@Nonnull
+	AtomicLong getLiveBytes() {
+		return liveBytes;
+	}
+
+	@Nonnull
+	Path getFile() {
+		return file;
+	}
+}
@@ -0,0 +1,160 @@
+package org.rr.expander.cache;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Keeps the rendered feeds of the aliases for a short time, so the clients which poll the same
+ * alias get the same output instead of loading, filtering and serializing the feed again.
+ * <p>
+ * The entries are stored by the resource and the alias together with a fingerprint of the alias
+ * configuration. An entry is no longer used as soon as the configuration of its alias has been
+ * changed. Concurrent requests for an alias which is not cached share the same rendering and a
+ * failed rendering is not cached.
+ */
+public class RenderedFeedCache {
+
+	/**
+	 * The output of a rendered feed.
+	 */
+	public static class RenderedFeed {
+
+		@Nonnull
+		private final byte[] content;
+
+		@Nonnull
+		private final MediaType mediaType;
+
+		public RenderedFeed(@Nonnull byte[] content, @Nonnull MediaType mediaType) {
+			this.content = content;
+			this.mediaType = mediaType;
+		}
+
+		public @Nonnull byte[] getContent() {
+			return content;
+		}
+
+		public @Nonnull MediaType getMediaType() {
+			return mediaType;
+		}
+	}
+
+	/** the time in milliseconds a rendered feed is used. */
+	private final long maxAgeMillis;
+
+	/** the entries by resource and alias. The number of entries is limited by the configured aliases. */
+	@Nonnull
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	@Nonnull
+	private final LongAdder hits = new LongAdder();
+
+	@Nonnull
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param maxAgeSeconds The time in seconds a rendered feed is used.
+	 */
+	public RenderedFeedCache(long maxAgeSeconds) {
+		this.maxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+	}
+
+	/**
+	 * Get the rendered feed of the given alias. The feed is only rendered if it is not cached, it
+	 * has expired or the configuration of the alias has been changed.
+	 *
+	 * @param resource The name of the resource which renders the feed.
+	 * @param alias The alias of the feed.
+	 * @param fingerprint The fingerprint of the current alias configuration.
+	 * @param renderer Renders the feed if it is not cached.
+	 * @return The future rendered feed.
+	 */
+	public @Nonnull CompletableFuture<RenderedFeed> get(@Nonnull String resource, @Nonnull String alias,
+			@Nonnull String fingerprint, @Nonnull Supplier<CompletableFuture<RenderedFeed>> renderer) {
+		String key = resource + '/' + alias;
+		Entry created = new Entry(fingerprint);
+		Entry entry = entries.compute(key, (k, current) -> isValid(current, fingerprint) ? current : created);
+		if(entry != created) {
+			hits.increment();
+			return entry.feed;
+		}
+
+		misses.increment();
+		removeExpiredEntries();
+		CompletableFuture<RenderedFeed> rendered;
+		try {
+			rendered = renderer.get();
+		} catch (RuntimeException e) {
+			rendered = new CompletableFuture<>();
+			rendered.completeExceptionally(e);
+		}
+		rendered.whenComplete((feed, e) -> {
+			if(e != null) {
+				entries.remove(key, created);
+				created.feed.completeExceptionally(e);
+			} else {
+				created.expiresAt = System.currentTimeMillis() + maxAgeMillis;
+				created.feed.complete(feed);
+			}
+		});
+		return created.feed;
+	}
+
+	/**
+	 * Get the count of requests which could be satisfied by the cache.
+	 *
+	 * @return number of cache hits.
+	 */
+	public long getCacheHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the count of requests which could not be satisfied by the cache.
+	 *
+	 * @return number of cache misses.
+	 */
+	public long getCacheMissCount() {
+		return misses.sum();
+	}
+
+	private boolean isValid(Entry entry, @Nonnull String fingerprint) {
+		return entry != null && Objects.equals(entry.fingerprint, fingerprint) && !entry.isExpired();
+	}
+
+	/**
+	 * Entries of removed aliases are never requested again, so they are removed as soon as they expire.
+	 */
+	private void removeExpiredEntries() {
+		entries.values().removeIf(entry -> entry.isExpired());
+	}
+
+	private static class Entry {
+
+		@Nonnull
+		private final String fingerprint;
+
+		@Nonnull
+		private final CompletableFuture<RenderedFeed> feed = new CompletableFuture<>();
+
+		/** the time in milliseconds the entry expires. Rendering entries did not expire. */
+		private volatile long expiresAt = Long.MAX_VALUE;
+
+		Entry(@Nonnull String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+
+		boolean isExpired() {
+			return System.currentTimeMillis() >= expiresAt;
+		}
+	}
+
+}
@@ -0,0 +1,571 @@
+package org.rr.expander.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * {@link PageCache} implementation which keeps the pages in append-only segment files, so the cache
+ * survives restarts. Each page is a record with a checksum which is appended to the active segment.
+ * Full segments are sealed and read through a memory mapping. The position of each page is kept in
+ * an index in the heap which is written to a compact index file from time to time and on close. At
+ * startup the index file is loaded and only the segment tails written after it are scanned. A
+ * broken tail, left by a crash while a record was written, is cut off.
+ * <p>
+ * A background task drops the oldest segments if the segments take more than
+ * <code>maxBytes</code> and compacts segments whose records have mostly been replaced.
+ */
+public class SegmentPageCache implements PageCache, Closeable {
+
+	private static final Logger logger = LoggerFactory.getLogger(SegmentPageCache.class);
+
+	/** the size a segment is sealed at if no other value is given. */
+	private static final long DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+	/** sealed segments with less live bytes than this ratio are compacted. */
+	private static final double MIN_LIVE_RATIO = 0.5;
+
+	private static final long MAINTENANCE_INTERVAL_SECONDS = 60;
+
+	private static final String SEGMENT_FILE_FORMAT = "%016d.segment";
+
+	private static final String SEGMENT_FILE_GLOB = "*.segment";
+
+	private static final String INDEX_FILE_NAME = "index";
+
+	private static final int INDEX_MAGIC = 0x50434958;
+
+	private static final int INDEX_VERSION = 1;
+
+	/** the length of the body and its checksum in front of each record body. */
+	private static final int RECORD_HEADER_BYTES = 8;
+
+	/**
+	 * The position of the record of a page.
+	 */
+	private static class Location {
+
+		@Nonnull
+		private final PageSegment segment;
+
+		private final long offset;
+
+		private final int length;
+
+		Location(@Nonnull PageSegment segment, long offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	@Nonnull
+	private final Path directory;
+
+	private final long maxBytes;
+
+	private final long maxAgeSeconds;
+
+	private final long segmentBytes;
+
+	@Nonnull
+	private final PageCacheCodec codec;
+
+	@Nonnull
+	private final ConcurrentSkipListMap<Long, PageSegment> segments = new ConcurrentSkipListMap<>();
+
+	@Nonnull
+	private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+
+	@Nonnull
+	private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactoryBuilder().setNameFormat("segment-page-cache").setDaemon(true).build());
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/** the segment the records are appended to, guarded by <code>this</code>. */
+	private PageSegment activeSegment;
+
+	/** tells if the index has been changed since it was written, guarded by <code>this</code>. */
+	private boolean indexChanged;
+
+	/**
+	 * @param directory The directory of the segment and index files. It is created if it did not exist.
+	 * @param maxBytes The max number of bytes of all segments.
+	 * @param maxAgeSeconds The time in seconds a stored entry is fresh.
+	 * @param codec The codec the page contents are encoded with.
+	 * @throws IOException if the directory or the segments could not be opened.
+	 */
+	public SegmentPageCache(@Nonnull Path directory, long maxBytes, long maxAgeSeconds, @Nonnull PageCacheCodec codec)
+			throws IOException {
+		this(directory, maxBytes, maxAgeSeconds, codec, DEFAULT_SEGMENT_BYTES);
+	}
+
+	SegmentPageCache(@Nonnull Path directory, long maxBytes, long maxAgeSeconds, @Nonnull PageCacheCodec codec,
+			long segmentBytes) throws IOException {
+		Preconditions.checkArgument(maxBytes > 0, "The max bytes of the cache must be positive.");
+		this.directory = Files.createDirectories(Preconditions.checkNotNull(directory));
+		this.maxBytes = maxBytes;
+		this.maxAgeSeconds = maxAgeSeconds;
+		this.segmentBytes = segmentBytes;
+		this.codec = Preconditions.checkNotNull(codec);
+		load();
+		maintenance.scheduleWithFixedDelay(this::maintain, MAINTENANCE_INTERVAL_SECONDS, MAINTENANCE_INTERVAL_SECONDS,
+				TimeUnit.SECONDS);
+	}
+
+	@Override
+	public PageCacheEntry store(String url, PageCacheEntry entry) {
+		PageCacheEntry freshEntry = entry.withMaxAge(maxAgeSeconds);
+		ByteBuffer record = createRecord(url, freshEntry);
+		try {
+			append(url, record, null);
+		} catch (IOException e) {
+			logger.warn(String.format("Failed to store '%s' in the segment page cache.", url), e);
+		}
+		return freshEntry;
+	}
+
+	@Override
+	public PageCacheEntry restore(String url) {
+		Location location = index.get(url);
+		while (location != null) {
+			try {
+				PageCacheEntry entry = readRecord(url, location.segment.read(location.offset, location.length));
+				hits.increment();
+				return entry;
+			} catch (IOException | IllegalArgumentException e) {
+				if(index.remove(url, location)) {
+					location.segment.getLiveBytes().addAndGet(-location.length);
+					logger.warn(String.format("Dropped the broken cache entry of '%s'.", url), e);
+					break;
+				}
+				// the record has been moved by the compaction in the meantime.
+				location = index.get(url);
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	@Override
+	public double getCacheHitCount() {
+		return hits.sum();
+	}
+
+	@Override
+	public double getCacheMissCount() {
+		return misses.sum();
+	}
+
+	@Override
+	public double getCacheEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * The pages are read through memory mappings outside of the heap, so only the disk bytes are
+	 * reported.
+	 */
+	@Override
+	public PageCacheStatistics getStatistics() {
+		return new PageCacheStatistics(hits.sum(), misses.sum(), evictions.sum(), index.size(), 0, getSize());
+	}
+
+	/**
+	 * @return The number of bytes of all segment files.
+	 */
+	public long getSize() {
+		long size = 0;
+		for (PageSegment segment : segments.values()) {
+			size += segment.getLength();
+		}
+		return size;
+	}
+
+	/**
+	 * @return The number of segment files.
+	 */
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * Stop the background maintenance and write the index, so the next start did not need to scan the
+	 * segments.
+	 */
+	@Override
+	public void close() throws IOException {
+		maintenance.shutdownNow();
+		synchronized (this) {
+			try {
+				activeSegment.force();
+				writeIndex();
+			} finally {
+				for (PageSegment segment : segments.values()) {
+					segment.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Append the given record and let the index point to it. If an <code>expected</code> location is
+	 * given, the record is only appended if the index still points to that location.
+	 */
+	private synchronized void append(@Nonnull String url, @Nonnull ByteBuffer record, @Nullable Location expected)
+			throws IOException {
+		if(expected != null && index.get(url) != expected) {
+			return;
+		}
+		int length = record.remaining();
+		Location location = new Location(activeSegment, activeSegment.append(record), length);
+		activeSegment.getLiveBytes().addAndGet(length);
+		Location previous = index.put(url, location);
+		if(previous != null) {
+			previous.segment.getLiveBytes().addAndGet(-previous.length);
+		}
+		indexChanged = true;
+		if(activeSegment.getLength() >= segmentBytes) {
+			rollSegment();
+		}
+	}
+
+	/**
+	 * Seal the active segment and continue with a new one.
+	 */
+	private void rollSegment() throws IOException {
+		activeSegment.seal();
+		activeSegment = openSegment(activeSegment.getId() + 1);
+		if(getSize() > maxBytes) {
+			maintenance.execute(this::maintain);
+		}
+	}
+
+	private @Nonnull PageSegment openSegment(long id) throws IOException {
+		PageSegment segment = PageSegment.open(id, directory.resolve(String.format(SEGMENT_FILE_FORMAT, id)));
+		segments.put(id, segment);
+		return segment;
+	}
+
+	/**
+	 * Drop the oldest segments while the cache takes too much space, compact the segments which have
+	 * mostly been replaced and write the index.
+	 */
+	void maintain() {
+		try {
+			evict();
+			compact();
+			synchronized (this) {
+				if(indexChanged) {
+					activeSegment.force();
+					writeIndex();
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			logger.warn(String.format("The maintenance of the segment page cache '%s' failed.", directory), e);
+		}
+	}
+
+	private void evict() throws IOException {
+		while (getSize() > maxBytes) {
+			PageSegment oldest = segments.firstEntry().getValue();
+			synchronized (this) {
+				if(oldest == activeSegment) {
+					return;
+				}
+				for (Map.Entry<String, Location> entry : index.entrySet()) {
+					if(entry.getValue().segment == oldest && index.remove(entry.getKey(), entry.getValue())) {
+						evictions.increment();
+					}
+				}
+				segments.remove(oldest.getId());
+				indexChanged = true;
+			}
+			oldest.delete();
+		}
+	}
+
+	private void compact() throws IOException {
+		for (PageSegment segment : segments.values()) {
+			if(segment.isSealed() && segment.getLiveBytes().get() < segment.getLength() * MIN_LIVE_RATIO) {
+				for (Map.Entry<String, Location> entry : index.entrySet()) {
+					Location location = entry.getValue();
+					if(location.segment == segment) {
+						try {
+							append(entry.getKey(), ByteBuffer.wrap(segment.read(location.offset, location.length)), location);
+						} catch (IOException e) {
+							if(index.remove(entry.getKey(), location)) {
+								logger.warn(String.format("Dropped the unreadable cache entry of '%s'.", entry.getKey()), e);
+							}
+						}
+					}
+				}
+				synchronized (this) {
+					segments.remove(segment.getId());
+					indexChanged = true;
+				}
+				segment.delete();
+			}
+		}
+	}
+
+	private @Nonnull ByteBuffer createRecord(@Nonnull String url, @Nonnull PageCacheEntry entry) {
+		byte[] urlBytes = url.getBytes(StandardCharsets.UTF_8);
+		byte[] eTag = getBytes(entry.getETag());
+		byte[] lastModified = getBytes(entry.getLastModified());
+		byte[] content = codec.encode(entry.getContent());
+		int bodyLength = 4 + urlBytes.length + 4 + (eTag != null ? eTag.length : 0) + 4
+				+ (lastModified != null ? lastModified.length : 0) + 8 + content.length;
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + bodyLength);
+		record.putInt(bodyLength).putInt(0);
+		putBytes(record, urlBytes);
+		putBytes(record, eTag);
+		putBytes(record, lastModified);
+		record.putLong(entry.getStaleAt()).put(content);
+		record.putInt(4, getChecksum(record.array(), RECORD_HEADER_BYTES, bodyLength));
+		record.flip();
+		return record;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the record is broken or belongs to another url.
+	 */
+	private @Nonnull PageCacheEntry readRecord(@Nonnull String url, @Nonnull byte[] record) {
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		try {
+			int bodyLength = buffer.getInt();
+			if(bodyLength != record.length - RECORD_HEADER_BYTES
+					|| buffer.getInt() != getChecksum(record, RECORD_HEADER_BYTES, bodyLength)) {
+				throw new IllegalArgumentException("Checksum mismatch.");
+			}
+			if(!url.equals(getString(buffer))) {
+				throw new IllegalArgumentException("The record belongs to another url.");
+			}
+			String eTag = getString(buffer);
+			String lastModified = getString(buffer);
+			long staleAt = buffer.getLong();
+			byte[] content = new byte[buffer.remaining()];
+			buffer.get(content);
+			return new PageCacheEntry(PageCacheCodec.decode(content), eTag, lastModified, staleAt);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Truncated record.", e);
+		}
+	}
+
+	private static @Nullable byte[] getBytes(@Nullable String value) {
+		return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+	}
+
+	private static void putBytes(@Nonnull ByteBuffer buffer, @Nullable byte[] value) {
+		if(value == null) {
+			buffer.putInt(-1);
+		} else {
+			buffer.putInt(value.length).put(value);
+		}
+	}
+
+	private static @Nullable String getString(@Nonnull ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if(length < 0) {
+			return null;
+		}
+		String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+				StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+
+	private static int getChecksum(@Nonnull byte[] data, int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(data, offset, length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Open all segments, load the index file and scan the segment tails which are not covered by the
+	 * index file.
+	 */
+	private synchronized void load() throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_FILE_GLOB)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				try {
+					long id = Long.parseLong(name.substring(0, name.indexOf('.')));
+					segments.put(id, PageSegment.open(id, file));
+				} catch (NumberFormatException e) {
+					logger.warn(String.format("Ignored the unknown file '%s' in the segment page cache.", file));
+				}
+			}
+		}
+
+		Map<Long, Long> indexedLengths = readIndex();
+		for (PageSegment segment : segments.values()) {
+			Long indexedLength = indexedLengths.get(segment.getId());
+			scan(segment, indexedLength != null ? indexedLength : 0);
+		}
+		for (Location location : index.values()) {
+			location.segment.getLiveBytes().addAndGet(location.length);
+		}
+
+		if(segments.isEmpty()) {
+			activeSegment = openSegment(0);
+		} else {
+			PageSegment last = segments.lastEntry().getValue();
+			for (PageSegment segment : segments.headMap(last.getId()).values()) {
+				segment.seal();
+			}
+			activeSegment = last;
+			if(last.getLength() >= segmentBytes) {
+				rollSegment();
+			}
+		}
+		logger.info(String.format("Loaded %d pages from %d segments of the page cache '%s'.", index.size(),
+				segments.size(), directory));
+	}
+
+	/**
+	 * Read the records of the given segment starting at the given offset and cut off the segment at
+	 * the first broken record.
+	 */
+	private void scan(@Nonnull PageSegment segment, long offset) throws IOException {
+		long length = segment.getLength();
+		while (offset + RECORD_HEADER_BYTES <= length) {
+			ByteBuffer header = ByteBuffer.wrap(segment.read(offset, RECORD_HEADER_BYTES));
+			int bodyLength = header.getInt();
+			if(bodyLength < 0 || offset + RECORD_HEADER_BYTES + bodyLength > length) {
+				break;
+			}
+			byte[] record = segment.read(offset, RECORD_HEADER_BYTES + bodyLength);
+			if(header.getInt() != getChecksum(record, RECORD_HEADER_BYTES, bodyLength)) {
+				break;
+			}
+			ByteBuffer body = ByteBuffer.wrap(record, RECORD_HEADER_BYTES, bodyLength);
+			index.put(getString(body), new Location(segment, offset, record.length));
+			offset += record.length;
+		}
+		if(offset < length) {
+			logger.warn(String.format("Cut off %d broken bytes at the end of '%s'.", length - offset, segment.getFile()));
+			segment.truncate(offset);
+		}
+	}
+
+	/**
+	 * Load the locations from the index file into the index.
+	 *
+	 * @return The length of each segment which is covered by the index file. Empty if the index file
+	 *         did not exist or is broken.
+	 */
+	private @Nonnull Map<Long, Long> readIndex() throws IOException {
+		Map<Long, Long> indexedLengths = new HashMap<>();
+		byte[] data;
+		try {
+			data = Files.readAllBytes(directory.resolve(INDEX_FILE_NAME));
+		} catch (NoSuchFileException e) {
+			return indexedLengths;
+		}
+		if(data.length < 4 || ByteBuffer.wrap(data, data.length - 4, 4).getInt() != getChecksum(data, 0, data.length - 4)) {
+			logger.warn(String.format("Ignored the broken index of the page cache '%s'.", directory));
+			return indexedLengths;
+		}
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 4))) {
+			if(in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+				logger.warn(String.format("Ignored the unknown index of the page cache '%s'.", directory));
+				return indexedLengths;
+			}
+			for (int i = in.readInt(); i > 0; i--) {
+				long id = in.readLong();
+				long length = in.readLong();
+				PageSegment segment = segments.get(id);
+				if(segment != null && segment.getLength() >= length) {
+					indexedLengths.put(id, length);
+				}
+			}
+			for (int i = in.readInt(); i > 0; i--) {
+				byte[] url = new byte[in.readInt()];
+				in.readFully(url);
+				long id = in.readLong();
+				long offset = in.readLong();
+				int length = in.readInt();
+				Long indexedLength = indexedLengths.get(id);
+				if(indexedLength != null && offset + length <= indexedLength) {
+					index.put(new String(url, StandardCharsets.UTF_8), new Location(segments.get(id), offset, length));
+				}
+			}
+		}
+		return indexedLengths;
+	}
+
+	/**
+	 * Write the index file. The file is replaced atomically, so a crash leaves the previous index
+	 * file which is completed by scanning the segment tails at the next start.
+	 */
+	private void writeIndex() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(INDEX_VERSION);
+			List<PageSegment> indexedSegments = new ArrayList<>(segments.values());
+			out.writeInt(indexedSegments.size());
+			for (PageSegment segment : indexedSegments) {
+				out.writeLong(segment.getId());
+				out.writeLong(segment.getLength());
+			}
+			List<Map.Entry<String, Location>> entries = new ArrayList<>(index.entrySet());
+			out.writeInt(entries.size());
+			for (Map.Entry<String, Location> entry : entries) {
+				byte[] url = entry.getKey().getBytes(StandardCharsets.UTF_8);
+				out.writeInt(url.length);
+				out.write(url);
+				out.writeLong(entry.getValue().segment.getId());
+				out.writeLong(entry.getValue().offset);
+				out.writeInt(entry.getValue().length);
+			}
+			out.writeInt(getChecksum(bytes.toByteArray(), 0, bytes.size()));
+		}
+
+		Path temp = directory.resolve(INDEX_FILE_NAME + ".tmp");
+		Files.write(temp, bytes.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+		Files.move(temp, directory.resolve(INDEX_FILE_NAME), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		indexChanged = false;
+	}
+}
@@ -3,6 +3,7 @@ package org.rr.expander.feed;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -19,6 +20,13 @@ public interface FeedBuilder {
 	 */
 	public @Nonnull FeedBuilder loadFeed() throws MalformedURLException, FeedException, IOException;
 
+	/**
+	 * Same as {@link #loadFeed()} but the feed is fetched without blocking the calling thread.
+	 * 
+	 * @return A future which completes with this {@link FeedBuilder} instance if the feed was loaded.
+	 */
+	public @Nonnull CompletableFuture<FeedBuilder> loadFeedAsync();
+
 	/**
 	 * Get the mime type of the feed which is handled by this {@link FeedBuilder} instance. The method
 	 * {@link #loadFeed()} must be invoked before this method can be used.
@@ -39,6 +47,16 @@ public interface FeedBuilder {
 	 */
 	public @Nonnull FeedBuilder expand(@Nullable String includeCssSelector);
 
+	/**
+	 * Same as {@link #expand(String)} but the linked pages are fetched without blocking the calling
+	 * thread.
+	 * 
+	 * @param includeCssSelector The include expression which is used to filter the page content of the
+	 *        linked web page.
+	 * @return A future which completes with this {@link FeedBuilder} instance if all entries are expanded.
+	 */
+	public @Nonnull CompletableFuture<FeedBuilder> expandAsync(@Nullable String includeCssSelector);
+
 	/**
 	 * Filter feed entries using regular expressions.
 	 * 
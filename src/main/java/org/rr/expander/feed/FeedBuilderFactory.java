@@ -1,5 +1,6 @@
 package org.rr.expander.feed;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
@@ -8,5 +9,11 @@ import javax.annotation.Nullable;
 public interface FeedBuilderFactory {
 	
 	public FeedBuilder createFeedBuilder(@Nullable String feedUrl);
+
+	/**
+	 * @param feedUrl The url of the feed.
+	 * @param context The settings of the request the feed is built for.
+	 */
+	public FeedBuilder createFeedBuilder(@Nullable String feedUrl, @Nonnull FeedRequestContext context);
 	
 }
@@ -2,25 +2,30 @@ package org.rr.expander.feed;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.StringUtils.containsIgnoreCase;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.ws.rs.core.MediaType;
 
+import org.rr.expander.loader.AsyncUrlLoaderFactory;
+import org.rr.expander.loader.UrlContentStream;
 import org.rr.expander.loader.UrlLoaderFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
 import com.sun.syndication.feed.synd.SyndEntry;
 import com.sun.syndication.feed.synd.SyndFeed;
 import com.sun.syndication.io.FeedException;
@@ -40,6 +45,9 @@ public class FeedBuilderImpl implements FeedBuilder {
 	@Nonnull
 	private static final String APPLICATION = "application";
 
+	@Nonnull
+	private static final String CHARSET_PARAMETER = "charset=";
+
 	/** contains the http url to the feed that should be expanded. */
 	@Nonnull
 	private final String feedUrl;
@@ -48,6 +56,24 @@ public class FeedBuilderImpl implements FeedBuilder {
 	@Nonnull
 	private UrlLoaderFactory urlLoaderFactory;
 
+	/** the non blocking loader which is only available if enabled in the configuration. */
+	@Inject(optional = true)
+	@Nullable
+	private AsyncUrlLoaderFactory asyncUrlLoaderFactory;
+
+	/** The settings of the request the feed is built for. */
+	@Nonnull
+	private final FeedRequestContext context;
+
+	/** The scope the blocking work is forked into or <code>null</code> if not yet created. */
+	@Nullable
+	private TaskScope taskScope;
+
+	/** runs the blocking work if no scope has been applied. */
+	@Inject(optional = true)
+	@Nullable
+	private FeedExchangeExecutor feedExchangeExecutor;
+
 	/** The loaded rss or atom feed. */
 	@Nullable
 	private SyndFeed loadedFeed;
@@ -61,22 +87,67 @@ public class FeedBuilderImpl implements FeedBuilder {
 	private FeedContentFilterFactory feedContentFilterFactory;
 
 
-	@Inject
+	@AssistedInject
 	public FeedBuilderImpl(
 			@Assisted @Nullable String feedUrl) {
+		this(feedUrl, FeedRequestContext.NONE);
+	}
+
+	@AssistedInject
+	public FeedBuilderImpl(
+			@Assisted @Nullable String feedUrl, @Assisted @Nonnull FeedRequestContext context) {
 		if(feedUrl == null) {
 			throw new IllegalArgumentException("The feed url must not be null.");
 		}
 		this.feedUrl = feedUrl;
+		this.context = context;
+		this.taskScope = context.getTaskScope();
 	}
 
 	@Override
 	public @Nonnull FeedBuilderImpl loadFeed() throws MalformedURLException, FeedException, IOException {
-		InputStream feedContentStream = urlLoaderFactory.getUrlLoader(feedUrl).getContentAsStream(StandardCharsets.UTF_8);
-		loadedFeed = new SyndFeedInput().build(new XmlReader(feedContentStream));
+		try (UrlContentStream feedContentStream = urlLoaderFactory.getUrlLoader(feedUrl).getContentAsRawStream()) {
+			loadedFeed = new SyndFeedInput().build(createXmlReader(feedContentStream));
+		}
 		return this;
 	}
 
+	@Override
+	public @Nonnull CompletableFuture<FeedBuilder> loadFeedAsync() {
+		if(asyncUrlLoaderFactory == null) {
+			Supplier<FeedBuilder> load = () -> {
+				try {
+					return loadFeed();
+				} catch (FeedException | IOException e) {
+					throw new CompletionException(e);
+				}
+			};
+			return getTaskScope().fork(load);
+		}
+		return asyncUrlLoaderFactory.getAsyncUrlLoader(feedUrl).getContentAsRawStream()
+				.thenCompose(feedContentStream -> getTaskScope().fork(() -> {
+					try (UrlContentStream stream = feedContentStream) {
+						loadedFeed = new SyndFeedInput().build(createXmlReader(stream));
+						return this;
+					} catch (FeedException | IOException e) {
+						throw new CompletionException(e);
+					}
+				}));
+	}
+
+	/**
+	 * Create a reader which evaluates the feed encoding from the declared content type and the xml
+	 * prolog while reading the raw stream. The content type is only used if it declares a charset,
+	 * because a bare <code>text/xml</code> or <code>text/html</code> makes the reader fall back to
+	 * US-ASCII instead of the BOM and the prolog, which default to UTF-8.
+	 */
+	private @Nonnull XmlReader createXmlReader(@Nonnull UrlContentStream feedContentStream) throws IOException {
+		if(containsIgnoreCase(feedContentStream.getContentType(), CHARSET_PARAMETER)) {
+			return new XmlReader(feedContentStream.getInputStream(), feedContentStream.getContentType(), true);
+		}
+		return new XmlReader(feedContentStream.getInputStream(), true);
+	}
+
 	@Override
 	public @Nonnull MediaType getMediaType() {
 		return Optional.ofNullable(loadedFeed)
@@ -97,12 +168,32 @@ public class FeedBuilderImpl implements FeedBuilder {
 	public @Nonnull FeedBuilderImpl expand(@Nullable String includeCssSelector) {
 		if(isNotBlank(includeCssSelector)) {
 			Optional.<String> of(includeCssSelector)
-					.ifPresent(selector -> feedContentExchangerFactory.createFeedContentExchanger(selector).exchangeAll(getEntries()));
+					.ifPresent(selector -> createFeedContentExchanger(selector).exchangeAll(getEntries()));
 		}
 		return this;
 	}
 	
 
+	@Override
+	public @Nonnull CompletableFuture<FeedBuilder> expandAsync(@Nullable String includeCssSelector) {
+		if(isNotBlank(includeCssSelector)) {
+			return createFeedContentExchanger(includeCssSelector)
+					.exchangeAllAsync(getEntries())
+					.thenApply(result -> this);
+		}
+		return CompletableFuture.completedFuture(this);
+	}
+
+	/**
+	 * The exchanger gets the scope of this builder, so a scope which has been created for a request
+	 * without one is shared by the load and the expand step.
+	 */
+	private @Nonnull FeedContentExchanger createFeedContentExchanger(@Nonnull String includeCssSelector) {
+		return feedContentExchangerFactory.createFeedContentExchanger(includeCssSelector,
+				new FeedRequestContext(context.getAlias(), context.getMaxPageBytes(), context.getStripParameters(),
+						getTaskScope()));
+	}
+
 	@Override
 	public @Nonnull FeedBuilderImpl filter(@Nonnull List<String> includeFilter, @Nonnull List<String> excludeFilter) {
 		includeFilter.stream().forEach(filter -> 
@@ -127,6 +218,17 @@ public class FeedBuilderImpl implements FeedBuilder {
 		return this;
 	}
 
+	/**
+	 * The blocking work runs on the bounded threads of the {@link FeedExchangeExecutor} if the
+	 * request has no scope, and in the calling thread if there is no executor.
+	 */
+	private @Nonnull TaskScope getTaskScope() {
+		if(taskScope == null) {
+			taskScope = feedExchangeExecutor != null ? feedExchangeExecutor.newTaskScope() : TaskScope.inCallingThread();
+		}
+		return taskScope;
+	}
+
 	private @Nullable byte[] buildFeed(@Nonnull SyndFeed feed) {
 		try {
 			SyndFeedOutput output = new SyndFeedOutput();
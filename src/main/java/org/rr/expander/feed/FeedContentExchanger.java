@@ -1,6 +1,7 @@
 package org.rr.expander.feed;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.annotation.Nonnull;
 
@@ -18,4 +19,14 @@ public interface FeedContentExchanger {
 	 */
 	public void exchangeAll(@Nonnull List<SyndEntry> feedEntries);
 	
+	/**
+	 * Exchanges the content from each feed entry with the selected part of the linked web page
+	 * without blocking the calling thread. Entries which are not yet exchanged are skipped as soon
+	 * as the {@link TaskScope} of the {@link FeedRequestContext} gets cancelled.
+	 * 
+	 * @param feedEntries All entries which content should be exchanged.
+	 * @return A future which completes if the content of all entries was exchanged.
+	 */
+	public @Nonnull CompletableFuture<Void> exchangeAllAsync(@Nonnull List<SyndEntry> feedEntries);
+	
 }
@@ -8,5 +8,12 @@ import javax.annotation.Nonnull;
 public interface FeedContentExchangerFactory {
 
 	public FeedContentExchanger createFeedContentExchanger(@Nonnull String includeCssSelector);
+
+	/**
+	 * @param includeCssSelector The selector of the content which replaces the entry descriptions.
+	 * @param context The settings of the request the entries are exchanged for.
+	 */
+	public FeedContentExchanger createFeedContentExchanger(@Nonnull String includeCssSelector,
+			@Nonnull FeedRequestContext context);
 	
 }
@@ -1,25 +1,39 @@
 package org.rr.expander.feed;
 
+import static org.apache.commons.lang3.BooleanUtils.negate;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
 
 import org.apache.commons.lang3.StringUtils;
+import org.rr.expander.cache.ExtractedContentCache;
+import org.rr.expander.cache.FailedLinkCache;
 import org.rr.expander.cache.PageCache;
+import org.rr.expander.cache.PageCacheEntry;
+import org.rr.expander.cache.PageCacheMetrics;
+import org.rr.expander.cache.PageRefreshScheduler;
+import org.rr.expander.loader.AsyncUrlLoader;
+import org.rr.expander.loader.AsyncUrlLoaderFactory;
+import org.rr.expander.loader.UrlCanonicalizer;
+import org.rr.expander.loader.UrlContent;
+import org.rr.expander.loader.UrlLoader;
 import org.rr.expander.loader.UrlLoaderFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
 import com.sun.syndication.feed.synd.SyndContent;
 import com.sun.syndication.feed.synd.SyndEntry;
 
@@ -39,42 +53,227 @@ public class FeedContentExchangerImpl implements FeedContentExchanger {
 	@Nonnull
 	private PageCache pageCache;
 	
-	@Inject
+	/** max number of bytes loaded from each linked page or <code>null</code> for the loader default. */
+	@Nullable
+	private final Long maxPageBytes;
+	
+	/** the alias of the feed whose entries are exchanged or <code>null</code> if unknown. */
+	@Nullable
+	private final String alias;
+	
+	/** the parameters which are stripped from the links of this feed in addition to the configured ones. */
+	@Nonnull
+	private final List<String> stripParameters;
+	
+	/** the scope the blocking work is forked into or <code>null</code> if not yet created. */
+	@Nullable
+	private TaskScope taskScope;
+	
+	/** rewrites the links to their canonical form before they are cached and loaded. */
+	@Inject(optional = true)
+	@Nullable
+	private UrlCanonicalizer urlCanonicalizer;
+	
+	/** refreshes stale pages in the background, stale pages are only served if available. */
+	@Inject(optional = true)
+	@Nullable
+	private PageRefreshScheduler pageRefreshScheduler;
+	
+	/** publishes the cache hits and load times of the linked pages. */
+	@Inject(optional = true)
+	@Nullable
+	private PageCacheMetrics pageCacheMetrics;
+	
+	/** keeps the extracted page contents, so a cached page did not need to be parsed again. */
+	@Inject(optional = true)
+	@Nullable
+	private ExtractedContentCache extractedContentCache;
+	
+	/** keeps the links which recently failed, so they are not loaded on each poll. */
+	@Inject(optional = true)
+	@Nullable
+	private FailedLinkCache failedLinkCache;
+	
+	/** the non blocking loader which is only available if enabled in the configuration. */
+	@Inject(optional = true)
+	@Nullable
+	private AsyncUrlLoaderFactory asyncUrlLoaderFactory;
+	
+	/** exchanges the entries in parallel, they are exchanged one after another if not available. */
+	@Inject(optional = true)
+	@Nullable
+	private FeedExchangeExecutor feedExchangeExecutor;
+	
+	@AssistedInject
 	public FeedContentExchangerImpl(
 			@Assisted @Nonnull String includeCssSelector) {
+		this(includeCssSelector, FeedRequestContext.NONE);
+	}
+
+	@AssistedInject
+	public FeedContentExchangerImpl(
+			@Assisted @Nonnull String includeCssSelector, @Assisted @Nonnull FeedRequestContext context) {
 		this.includeCssSelector = StringUtils.defaultString(includeCssSelector);
+		this.maxPageBytes = context.getMaxPageBytes();
+		this.alias = context.getAlias();
+		this.stripParameters = context.getStripParameters();
+		this.taskScope = context.getTaskScope();
 	}
 
 	@Override
 	public void exchangeAll(@Nonnull List<SyndEntry> feedEntries) {
-		ForkJoinPool executor = new ForkJoinPool(10);
+		if(asyncUrlLoaderFactory != null) {
+			try {
+				exchangeAllAsync(feedEntries).join();
+			} catch (RuntimeException e) {
+				logger.error("Failed to fetch rss entries", e);
+			}
+			return;
+		}
+		
 		try {
-			executor.submit(() ->
-				feedEntries.stream()
-				.filter(feedEntry -> feedEntry != null)
-				.forEach(feedEntry -> exchange(feedEntry))
-			).get();
-		} catch (InterruptedException | ExecutionException e) {
+			if(feedExchangeExecutor != null) {
+				feedExchangeExecutor.invokeAll(feedEntries, feedEntry -> exchangeIfPresent(feedEntry));
+			} else {
+				feedEntries.forEach(feedEntry -> exchangeIfPresent(feedEntry));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Interrupted while fetching rss entries", e);
+		} catch (RuntimeException e) {
 			logger.error("Failed to fetch rss entries", e);
-		} finally {
-			executor.shutdown();
+		}
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<Void> exchangeAllAsync(@Nonnull List<SyndEntry> feedEntries) {
+		if(asyncUrlLoaderFactory == null) {
+			return getTaskScope().fork(() -> {
+				exchangeAll(feedEntries);
+				return null;
+			});
+		}
+		return CompletableFuture.allOf(feedEntries.stream()
+				.filter(feedEntry -> feedEntry != null)
+				.map(feedEntry -> exchangeAsync(feedEntry))
+				.toArray(CompletableFuture[]::new));
+	}
+
+	private void exchangeIfPresent(@Nullable SyndEntry feedEntry) {
+		if(feedEntry != null && !isCancelled()) {
+			exchange(feedEntry);
 		}
 	}
 
 	private void exchange(@NotNull SyndEntry feedEntry) {
+		String link = canonicalize(feedEntry.getLink());
 		try {
-			String link = feedEntry.getLink();
-			if (isNotBlank(link)) {
-				String pageContent = loadPageContent(link);
-				String extractedPageContent = new PageContentExtractor(includeCssSelector)
-						.extractPageElements(pageContent, link)
-						.cleanHtml()
-						.getMergedPageElements();
-				applyNewContentToEntry(feedEntry, extractedPageContent);
+			if (isNotBlank(link) && negate(isFailedLink(link))) {
+				applyNewContentToEntry(feedEntry, extractPageContent(loadPage(link), link));
 			}
 		} catch (IOException | IllegalStateException e) {
-			logger.warn(String.format("Failed to load link '%s'.", feedEntry.getLink()), e);
+			recordFailedLink(link, e);
+			logger.warn(String.format("Failed to load link '%s'.", link), e);
+		}
+	}
+
+	/**
+	 * Same as {@link #exchange(SyndEntry)} but the page is loaded with the non blocking loader. The
+	 * content is extracted in the {@link TaskScope}, so the parsing did not block the i/o thread of
+	 * the loader or the common pool. The returned future never completes exceptionally because a
+	 * failed entry should not affect the other entries.
+	 */
+	private @Nonnull CompletableFuture<Void> exchangeAsync(@Nonnull SyndEntry feedEntry) {
+		String link = canonicalize(feedEntry.getLink());
+		if (isNotBlank(link) && negate(isFailedLink(link)) && !isCancelled()) {
+			return loadPageAsync(link)
+					.thenCompose(page -> getTaskScope().fork(() -> {
+						applyNewContentToEntry(feedEntry, extractPageContent(page, link));
+						return (Void) null;
+					}))
+					.exceptionally(e -> {
+						if(!isCancelled()) {
+							recordFailedLink(link, e);
+							logger.warn(String.format("Failed to load link '%s'.", link), e);
+						}
+						return null;
+					});
+		}
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * The canonical link is used to load the page and as key of all caches if the
+	 * {@link UrlCanonicalizer} is available.
+	 */
+	private @Nullable String canonicalize(@Nullable String link) {
+		if(urlCanonicalizer != null && isNotBlank(link)) {
+			return urlCanonicalizer.canonicalize(link, stripParameters);
 		}
+		return link;
+	}
+
+	/**
+	 * Get the key of the page cache for the given canonical link. A redirect which has been
+	 * remembered while loading the link is taken into account, so the loaded page is stored under
+	 * the key of its redirect target.
+	 */
+	private @Nonnull String getPageCacheKey(@Nonnull String link) {
+		if(urlCanonicalizer != null) {
+			return urlCanonicalizer.getCacheKey(urlCanonicalizer.canonicalize(link));
+		}
+		return link;
+	}
+
+	/**
+	 * A link which recently failed keeps the original content of its entry until the failure
+	 * expires in the {@link FailedLinkCache}.
+	 */
+	private boolean isFailedLink(@Nonnull String link) {
+		return failedLinkCache != null && failedLinkCache.isFailed(link);
+	}
+
+	/**
+	 * The blocking work runs on the bounded threads of the {@link FeedExchangeExecutor} if no scope
+	 * has been applied, and in the calling thread if there is no executor.
+	 */
+	private @Nonnull TaskScope getTaskScope() {
+		if(taskScope == null) {
+			taskScope = feedExchangeExecutor != null ? feedExchangeExecutor.newTaskScope() : TaskScope.inCallingThread();
+		}
+		return taskScope;
+	}
+
+	/**
+	 * The entries of an abandoned request keep their original content, their pages are not loaded.
+	 */
+	private boolean isCancelled() {
+		return taskScope != null && taskScope.isCancelled();
+	}
+
+	private void recordFailedLink(@Nullable String link, @Nonnull Throwable e) {
+		if(failedLinkCache != null && link != null) {
+			failedLinkCache.recordFailure(link, e);
+		}
+	}
+
+	/**
+	 * The content is extracted only once for each version of the page and selector if the
+	 * {@link ExtractedContentCache} is available, even if the same page is served for other links.
+	 */
+	private @Nonnull String extractPageContent(@Nonnull PageCacheEntry page, @Nonnull String link) {
+		if(extractedContentCache != null) {
+			return extractedContentCache.get(link, includeCssSelector, page.getDigest(),
+					() -> extractPageContentUncached(page.getContent(), link));
+		}
+		return extractPageContentUncached(page.getContent(), link);
+	}
+
+	private @Nonnull String extractPageContentUncached(@Nonnull String pageContent, @Nonnull String link) {
+		return new PageContentExtractor(includeCssSelector)
+				.extractPageElements(pageContent, link)
+				.cleanHtml()
+				.getMergedPageElements();
 	}
 
 	/**
@@ -106,13 +305,143 @@ public class FeedContentExchangerImpl implements FeedContentExchanger {
 		description.setType("html");
 	}
 
-	private @Nonnull String loadPageContent(@Nonnull String link) throws IOException {
-		String pageContent;
-		if((pageContent = pageCache.restore(link)) == null) {
-			pageContent = pageCache.store(link, 
-					removeInvalidXMLCharacters(urlLoaderFactory.getUrlLoader(link).getContentAsString()));
+	private @Nonnull PageCacheEntry loadPage(@Nonnull String link) throws IOException {
+		PageCacheEntry cachedEntry = pageCache.restore(getPageCacheKey(link));
+		if(isUsable(link, cachedEntry)) {
+			return cachedEntry;
+		}
+		long start = System.nanoTime();
+		try {
+			PageCacheEntry loadedEntry = loadPageCacheEntry(link, cachedEntry);
+			return pageCache.store(getPageCacheKey(link), loadedEntry);
+		} finally {
+			updateLoadTime(start);
+		}
+	}
+
+	/**
+	 * Tells if the given entry can be used without waiting for a revalidation and publishes the
+	 * cache hit or miss. A stale entry is still used if the {@link PageRefreshScheduler} allows it,
+	 * it is refreshed in the background in that case.
+	 */
+	private boolean isUsable(@Nonnull String link, @Nullable PageCacheEntry cachedEntry) {
+		if(cachedEntry == null) {
+			markPageCache(metrics -> metrics.markMiss(alias));
+			return false;
+		} else if(negate(cachedEntry.isStale())) {
+			markPageCache(metrics -> metrics.markHit(alias));
+			return true;
+		} else if(pageRefreshScheduler != null && pageRefreshScheduler.canServeStale(cachedEntry)) {
+			markPageCache(metrics -> metrics.markStaleHit(alias));
+			pageRefreshScheduler.refresh(link, () -> refreshPageContent(link, cachedEntry));
+			return true;
+		}
+		markPageCache(metrics -> metrics.markRevalidation(alias));
+		return false;
+	}
+
+	private void markPageCache(@Nonnull Consumer<PageCacheMetrics> mark) {
+		if(pageCacheMetrics != null) {
+			mark.accept(pageCacheMetrics);
+		}
+	}
+
+	/**
+	 * Revalidate the given stale entry with the blocking loader. A failed refresh keeps the stale
+	 * entry, so it is served until it expires.
+	 */
+	private void refreshPageContent(@Nonnull String link, @Nonnull PageCacheEntry cachedEntry) {
+		long start = System.nanoTime();
+		try {
+			PageCacheEntry loadedEntry = loadPageCacheEntry(link, cachedEntry);
+			pageCache.store(getPageCacheKey(link), loadedEntry);
+		} catch (IOException | IllegalArgumentException e) {
+			logger.warn(String.format("Failed to refresh link '%s'.", link), e);
+		} finally {
+			updateLoadTime(start);
+		}
+	}
+
+	private void updateLoadTime(long start) {
+		if(pageCacheMetrics != null) {
+			pageCacheMetrics.updateLoadTime(alias, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Same as {@link #loadPage(String)} but the page is loaded with the non blocking loader.
+	 * The loaded page is stored in the {@link TaskScope} because the page cache may write to disk,
+	 * which must neither block the i/o thread of the loader nor the common pool.
+	 */
+	private @Nonnull CompletableFuture<PageCacheEntry> loadPageAsync(@Nonnull String link) {
+		PageCacheEntry cachedEntry = pageCache.restore(getPageCacheKey(link));
+		if(isUsable(link, cachedEntry)) {
+			return CompletableFuture.completedFuture(cachedEntry);
+		}
+		long start = System.nanoTime();
+		AsyncUrlLoader asyncUrlLoader;
+		try {
+			asyncUrlLoader = maxPageBytes != null ? asyncUrlLoaderFactory.getAsyncUrlLoader(link, maxPageBytes)
+					: asyncUrlLoaderFactory.getAsyncUrlLoader(link);
+		} catch (IllegalArgumentException e) {
+			CompletableFuture<PageCacheEntry> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+		return asyncUrlLoader
+				.getContentIfModified(cachedEntry != null ? cachedEntry.getETag() : null,
+						cachedEntry != null ? cachedEntry.getLastModified() : null)
+				.whenComplete((urlContent, e) -> updateLoadTime(start))
+				.thenCompose(urlContent -> getTaskScope().fork(() -> {
+					try {
+						PageCacheEntry loadedEntry = createPageCacheEntry(link, urlContent, cachedEntry);
+						return pageCache.store(getPageCacheKey(link), loadedEntry);
+					} catch (IOException e) {
+						throw new CompletionException(e);
+					}
+				}));
+	}
+
+	/**
+	 * Loads the page behind the given <code>link</code>. A stale <code>cachedEntry</code> gets
+	 * revalidated with a conditional request and is returned if the page was not modified.
+	 * 
+	 * @param link The link of the page to be loaded.
+	 * @param cachedEntry The stale, cached entry for the link or <code>null</code>.
+	 * @return The loaded or revalidated entry.
+	 */
+	private @Nonnull PageCacheEntry loadPageCacheEntry(@Nonnull String link, @Nullable PageCacheEntry cachedEntry)
+			throws IOException {
+		UrlLoader urlLoader = maxPageBytes != null ? urlLoaderFactory.getUrlLoader(link, maxPageBytes)
+				: urlLoaderFactory.getUrlLoader(link);
+		UrlContent urlContent = urlLoader.getContentIfModified(
+				cachedEntry != null ? cachedEntry.getETag() : null,
+				cachedEntry != null ? cachedEntry.getLastModified() : null);
+		return createPageCacheEntry(link, urlContent, cachedEntry);
+	}
+
+	/**
+	 * Create the entry to be cached from the loaded <code>urlContent</code>. The redirect target of
+	 * the link is remembered by the {@link UrlCanonicalizer} if the request was redirected permanently.
+	 * 
+	 * @param link The link of the loaded page.
+	 * @param urlContent The loaded content or <code>null</code> if the page was not modified.
+	 * @param cachedEntry The stale, cached entry for the link or <code>null</code>.
+	 * @return The new or revalidated entry.
+	 */
+	private @Nonnull PageCacheEntry createPageCacheEntry(@Nonnull String link, @Nullable UrlContent urlContent,
+			@Nullable PageCacheEntry cachedEntry) throws IOException {
+		if(urlContent == null) {
+			if(cachedEntry == null) {
+				throw new IOException(String.format("No content for link '%s' received.", link));
+			}
+			return cachedEntry; // not modified
+		}
+		if(urlCanonicalizer != null) {
+			urlCanonicalizer.rememberRedirect(link, urlContent, stripParameters);
 		}
-		return pageContent;
+		return new PageCacheEntry(removeInvalidXMLCharacters(urlContent.getContent()), urlContent.getETag(),
+				urlContent.getLastModified());
 	}
 
 	/**
@@ -0,0 +1,61 @@
+package org.rr.expander.feed;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the {@link FeedExchangeExecutor}.
+ */
+public class FeedExchangeConfiguration {
+
+	/** number of threads which load the feeds of the requests and the linked pages of all feeds. */
+	private int threads = 32;
+
+	/** max number of waiting tasks. Further entries are exchanged by the requesting thread. */
+	private int queueSize = 1000;
+
+	/** max number of entries of a single feed which are exchanged at the same time. */
+	private int maxParallelEntries = 10;
+
+	/** the kind of threads, see {@link FeedExchangeExecutor.THREAD_MODE}. */
+	private String threadMode = FeedExchangeExecutor.THREAD_MODE.PLATFORM.name();
+
+	@JsonProperty
+	public int getThreads() {
+		return threads;
+	}
+
+	@JsonProperty
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	@JsonProperty
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	@JsonProperty
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	@JsonProperty
+	public int getMaxParallelEntries() {
+		return maxParallelEntries;
+	}
+
+	@JsonProperty
+	public void setMaxParallelEntries(int maxParallelEntries) {
+		this.maxParallelEntries = maxParallelEntries;
+	}
+
+	@JsonProperty
+	public String getThreadMode() {
+		return threadMode;
+	}
+
+	@JsonProperty
+	public void setThreadMode(String threadMode) {
+		this.threadMode = threadMode;
+	}
+}
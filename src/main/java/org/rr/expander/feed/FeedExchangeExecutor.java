@@ -0,0 +1,212 @@
+package org.rr.expander.feed;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Application wide, bounded pool which exchanges the entries of the feeds in parallel, so a feed
+ * costs about the latency of its slowest page instead of the sum of all page latencies. The
+ * entries of a single feed are worked off by a limited number of lanes, so one large feed can't
+ * take all threads. The requesting thread always works off one lane itself, so a feed is still
+ * exchanged, only with less parallelism, if the pool is saturated.
+ * <p>
+ * With the {@link THREAD_MODE#VIRTUAL} mode each lane runs on its own virtual thread instead of a
+ * pooled thread, so blocked page loads did not hold any platform thread. The mode falls back to
+ * {@link THREAD_MODE#PLATFORM} on JDKs without virtual threads.
+ */
+public class FeedExchangeExecutor implements Closeable {
+
+	/**
+	 * The kinds of threads the blocking work of the feeds runs on.
+	 */
+	public static enum THREAD_MODE {
+		/** the entries are exchanged by a bounded pool of platform threads. */
+		PLATFORM,
+		/** each lane, request and page refresh runs on a new virtual thread. Needs Java 21 or later. */
+		VIRTUAL
+	}
+
+	private static final Logger logger = LoggerFactory.getLogger(FeedExchangeExecutor.class);
+
+	@Nonnull
+	private final THREAD_MODE threadMode;
+
+	@Nonnull
+	private final ExecutorService executor;
+
+	private final int maxParallelEntries;
+
+	@Nonnull
+	private final AtomicInteger activeLanes = new AtomicInteger();
+
+	@Nonnull
+	private final LongAdder rejected = new LongAdder();
+
+	public FeedExchangeExecutor(@Nonnull FeedExchangeConfiguration config) {
+		this.maxParallelEntries = Math.max(1, config.getMaxParallelEntries());
+		ExecutorService virtualThreadExecutor = THREAD_MODE.valueOf(config.getThreadMode()) == THREAD_MODE.VIRTUAL
+				? createVirtualThreadExecutor() : null;
+		this.threadMode = virtualThreadExecutor != null ? THREAD_MODE.VIRTUAL : THREAD_MODE.PLATFORM;
+		this.executor = virtualThreadExecutor != null ? virtualThreadExecutor : createThreadPool(config);
+	}
+
+	/**
+	 * @return The virtual thread executor or <code>null</code> if the JDK did not support virtual
+	 *         threads and the {@link THREAD_MODE#PLATFORM} mode should be used instead.
+	 */
+	private static @Nullable ExecutorService createVirtualThreadExecutor() {
+		if(VirtualThreads.isAvailable()) {
+			try {
+				return VirtualThreads.newVirtualThreadPerTaskExecutor("feed-exchange-");
+			} catch (UnsupportedOperationException e) {
+				logger.debug("Failed to create the virtual thread executor.", e);
+			}
+		}
+		logger.warn(String.format("Virtual threads are not supported by Java %s, the feeds are exchanged with the "
+				+ "%s thread mode.", System.getProperty("java.version"), THREAD_MODE.PLATFORM));
+		return null;
+	}
+
+	private static @Nonnull ThreadPoolExecutor createThreadPool(@Nonnull FeedExchangeConfiguration config) {
+		Preconditions.checkArgument(config.getThreads() > 0, "The number of threads must be positive.");
+		Preconditions.checkArgument(config.getQueueSize() > 0, "The queue size must be positive.");
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(config.getQueueSize()),
+				new ThreadFactoryBuilder().setNameFormat("feed-exchange-%d").setDaemon(true).build());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Run the given task for all given items in parallel and wait until all of them have finished.
+	 * A task which fails with a {@link RuntimeException} did not stop the tasks of the other items.
+	 *
+	 * @param items The items to be processed.
+	 * @param task The task which processes a single item.
+	 * @throws InterruptedException if the calling thread was interrupted while waiting. The tasks
+	 *         which are still running get interrupted too.
+	 * @throws RuntimeException The first failure of a task after all tasks have finished.
+	 */
+	public <T> void invokeAll(@Nonnull List<T> items, @Nonnull Consumer<? super T> task) throws InterruptedException {
+		AtomicInteger next = new AtomicInteger();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		CountDownLatch done = new CountDownLatch(items.size());
+		Runnable lane = () -> {
+			int index;
+			while(!Thread.currentThread().isInterrupted() && (index = next.getAndIncrement()) < items.size()) {
+				try {
+					task.accept(items.get(index));
+				} catch (RuntimeException | Error e) {
+					failure.compareAndSet(null, e);
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+		Runnable countedLane = () -> {
+			activeLanes.incrementAndGet();
+			try {
+				lane.run();
+			} finally {
+				activeLanes.decrementAndGet();
+			}
+		};
+
+		int lanes = Math.min(maxParallelEntries, items.size());
+		List<Future<?>> futures = new ArrayList<>(lanes);
+		try {
+			for (int i = 1; i < lanes; i++) {
+				futures.add(executor.submit(countedLane));
+			}
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+		}
+		boolean completed = false;
+		try {
+			// the own lane only ends if all items are taken, so only the items which are still processed
+			// by other lanes are awaited. Waiting for a queued lane could starve the pool if the caller is
+			// one of its threads.
+			lane.run();
+			done.await();
+			completed = true;
+		} finally {
+			// lanes which did not start yet find no items left. They are only interrupted if the caller
+			// gave up waiting.
+			boolean interrupt = !completed;
+			futures.forEach(future -> future.cancel(interrupt));
+		}
+		if(failure.get() instanceof Error) {
+			throw (Error) failure.get();
+		}
+		if(failure.get() != null) {
+			throw (RuntimeException) failure.get();
+		}
+	}
+
+	/**
+	 * Create a scope for the blocking tasks of a single request. The tasks run on the threads of this
+	 * executor, so they are bound by the pool and get interrupted when the scope is cancelled.
+	 *
+	 * @return The new scope.
+	 */
+	public @Nonnull TaskScope newTaskScope() {
+		return new TaskScope(executor);
+	}
+
+	/**
+	 * @return The thread mode which is used. It differs from the configured one if virtual threads are
+	 *         not supported by the JDK.
+	 */
+	public @Nonnull THREAD_MODE getThreadMode() {
+		return threadMode;
+	}
+
+	/**
+	 * @return The number of tasks which are waiting for a thread. Always 0 with the
+	 *         {@link THREAD_MODE#VIRTUAL} mode because each task gets its own thread.
+	 */
+	public int getQueueSize() {
+		return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+	}
+
+	/**
+	 * @return The number of threads which are exchanging entries.
+	 */
+	public int getActiveCount() {
+		return activeLanes.get();
+	}
+
+	/**
+	 * @return The number of feeds which have been exchanged with less parallelism because the pool
+	 *         was saturated.
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,67 @@
+package org.rr.expander.feed;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The settings of a single feed request which are passed to the {@link FeedBuilderFactory} and
+ * handed on to the {@link FeedContentExchangerFactory}, so they are fixed before the feed gets
+ * loaded and shared by all steps of the request.
+ */
+public final class FeedRequestContext {
+
+	/** the context of a request without an alias, limits or scope. */
+	@Nonnull
+	public static final FeedRequestContext NONE = new FeedRequestContext(null, null, null, null);
+
+	@Nullable
+	private final String alias;
+
+	@Nullable
+	private final Long maxPageBytes;
+
+	@Nonnull
+	private final List<String> stripParameters;
+
+	@Nullable
+	private final TaskScope taskScope;
+
+	/**
+	 * @param alias The alias of the feed which is used for the metrics or <code>null</code> if unknown.
+	 * @param maxPageBytes The max number of bytes loaded from each linked page or <code>null</code>
+	 *        for the loader default.
+	 * @param stripParameters The query and path parameters which are stripped from the links of the
+	 *        feed in addition to the parameters configured for all feeds. A name which ends with
+	 *        <code>*</code> matches all parameters starting with the name. <code>null</code> for none.
+	 * @param taskScope The scope the blocking work of the request is forked into, so it can be
+	 *        cancelled as soon as the feed is no longer needed, or <code>null</code> to run on the
+	 *        {@link FeedExchangeExecutor}.
+	 */
+	public FeedRequestContext(@Nullable String alias, @Nullable Long maxPageBytes,
+			@Nullable List<String> stripParameters, @Nullable TaskScope taskScope) {
+		this.alias = alias;
+		this.maxPageBytes = maxPageBytes;
+		this.stripParameters = stripParameters != null ? Collections.unmodifiableList(stripParameters)
+				: Collections.emptyList();
+		this.taskScope = taskScope;
+	}
+
+	public @Nullable String getAlias() {
+		return alias;
+	}
+
+	public @Nullable Long getMaxPageBytes() {
+		return maxPageBytes;
+	}
+
+	public @Nonnull List<String> getStripParameters() {
+		return stripParameters;
+	}
+
+	public @Nullable TaskScope getTaskScope() {
+		return taskScope;
+	}
+}
@@ -0,0 +1,106 @@
+package org.rr.expander.feed;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Groups the blocking tasks which are forked for a single request, so all of them can be
+ * cancelled together as soon as the request gets abandoned. Cancelled tasks are interrupted and
+ * tasks which are forked after the cancellation are not started at all. A task which is rejected
+ * by the saturated executor runs in the forking thread, like the lanes of the
+ * {@link FeedExchangeExecutor}.
+ */
+public class TaskScope {
+
+	@Nonnull
+	private final ExecutorService executor;
+
+	/** the running tasks together with the futures of their results. */
+	@Nonnull
+	private final Map<Future<?>, CompletableFuture<?>> tasks = new ConcurrentHashMap<>();
+
+	private volatile boolean cancelled;
+
+	TaskScope(@Nonnull ExecutorService executor) {
+		this.executor = Preconditions.checkNotNull(executor);
+	}
+
+	/**
+	 * Create a scope whose tasks run in the forking thread, for callers without a
+	 * {@link FeedExchangeExecutor}.
+	 *
+	 * @return The new scope.
+	 */
+	public static @Nonnull TaskScope inCallingThread() {
+		return new TaskScope(MoreExecutors.newDirectExecutorService());
+	}
+
+	/**
+	 * Run the given blocking task in the background, or in the calling thread if the executor is
+	 * saturated.
+	 *
+	 * @param task The task to be run.
+	 * @return The future of the task result. It is cancelled if the scope gets cancelled before the
+	 *         task has finished.
+	 */
+	public @Nonnull <T> CompletableFuture<T> fork(@Nonnull Supplier<T> task) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		if(cancelled) {
+			result.cancel(false);
+			return result;
+		}
+		Runnable run = () -> {
+			try {
+				result.complete(task.get());
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			}
+		};
+		try {
+			Future<?> future = executor.submit(run);
+			tasks.put(future, result);
+			result.whenComplete((value, e) -> tasks.remove(future));
+			if(cancelled) {
+				// the scope was cancelled while the task was forked.
+				cancel(future, result);
+			}
+		} catch (RejectedExecutionException e) {
+			run.run();
+		}
+		return result;
+	}
+
+	/**
+	 * Cancel all running tasks of the scope and all tasks which are forked later on.
+	 */
+	public void cancel() {
+		cancelled = true;
+		tasks.forEach((future, result) -> cancel(future, result));
+	}
+
+	/**
+	 * The result is cancelled before the task gets interrupted, so an interrupted task can't
+	 * complete it with a partial value.
+	 */
+	private static void cancel(@Nonnull Future<?> future, @Nonnull CompletableFuture<?> result) {
+		result.cancel(false);
+		future.cancel(true);
+	}
+
+	/**
+	 * @return <code>true</code> if the scope has been cancelled.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+}
@@ -0,0 +1,76 @@
+package org.rr.expander.feed;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Creates executors which run each task on a new virtual thread if the JDK supports them. The
+ * virtual thread api is accessed with reflection, so the application still compiles and runs on
+ * Java 8.
+ */
+public class VirtualThreads {
+
+	/** virtual threads are a preview feature of Java 19 and 20 which can't be used without --enable-preview. */
+	private static final int MIN_FEATURE_VERSION = 21;
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * Tells if the running JDK supports virtual threads.
+	 *
+	 * @return <code>true</code> if virtual threads can be created.
+	 */
+	public static boolean isAvailable() {
+		if(parseFeatureVersion(System.getProperty("java.specification.version")) < MIN_FEATURE_VERSION) {
+			return false;
+		}
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param specificationVersion The specification version of the JDK, for example <code>1.8</code>
+	 *        or <code>21</code>.
+	 * @return The feature version of the JDK or 0 if the version could not be parsed.
+	 */
+	static int parseFeatureVersion(@Nullable String specificationVersion) {
+		String version = StringUtils.removeStart(specificationVersion, "1.");
+		return NumberUtils.toInt(StringUtils.substringBefore(version, "."), 0);
+	}
+
+	/**
+	 * Create an executor which starts a new virtual thread for each task. The threads are named
+	 * with the given prefix and a counter.
+	 *
+	 * @param namePrefix The prefix of the thread names.
+	 * @return The new executor.
+	 * @throws UnsupportedOperationException if the JDK did not support virtual threads.
+	 */
+	public static @Nonnull ExecutorService newVirtualThreadPerTaskExecutor(@Nonnull String namePrefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+			ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+					.invoke(null, threadFactory);
+		} catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException e) {
+			throw new UnsupportedOperationException("Virtual threads are not supported by this JDK.", e);
+		} catch (InvocationTargetException e) {
+			throw new UnsupportedOperationException("Failed to create the virtual thread executor.", e.getCause());
+		}
+	}
+}
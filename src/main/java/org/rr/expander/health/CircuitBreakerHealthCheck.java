@@ -0,0 +1,43 @@
+package org.rr.expander.health;
+
+import static java.util.stream.Collectors.joining;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.rr.expander.loader.HostCircuitBreaker;
+import org.rr.expander.loader.HostCircuitBreaker.STATE;
+
+import com.codahale.metrics.health.HealthCheck;
+
+/**
+ * Lists the hosts whose circuit is open. A single broken site is expected from time to time, so the
+ * check only gets unhealthy if the circuits of all requested hosts are open which points to a
+ * problem with the network of this server.
+ */
+public class CircuitBreakerHealthCheck extends HealthCheck {
+
+	@Nonnull
+	private final HostCircuitBreaker circuitBreaker;
+
+	public CircuitBreakerHealthCheck(@Nonnull HostCircuitBreaker circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	@Override
+	protected Result check() throws Exception {
+		Map<String, STATE> states = circuitBreaker.getStates();
+		String openHosts = states.entrySet().stream()
+				.filter(entry -> entry.getValue() != STATE.CLOSED)
+				.map(entry -> entry.getKey() + " " + entry.getValue())
+				.sorted()
+				.collect(joining(", "));
+		long openCount = states.values().stream().filter(state -> state != STATE.CLOSED).count();
+		String message = String.format("Circuits open for %d of %d hosts. %s", openCount, states.size(), openHosts).trim();
+		if(openCount > 0 && openCount == states.size()) {
+			return Result.unhealthy(message);
+		}
+		return Result.healthy(message);
+	}
+}
@@ -3,6 +3,7 @@ package org.rr.expander.health;
 import javax.annotation.Nullable;
 
 import org.rr.expander.cache.PageCache;
+import org.rr.expander.cache.PageCacheStatistics;
 
 import com.codahale.metrics.health.HealthCheck;
 
@@ -18,9 +19,11 @@ public class PageCacheHealthCheck extends HealthCheck {
 	@Override
 	protected Result check() throws Exception {
 		if(pageCache != null) {
-			double cacheHitCount = pageCache.getCacheHitCount();
-			double cacheMissCount = pageCache.getCacheMissCount();
-			return Result.healthy(String.format("Cache hits %s and misses %s times.", cacheHitCount, cacheMissCount));
+			PageCacheStatistics statistics = pageCache.getStatistics();
+			return Result.healthy(String.format("Cache hits %d, misses %d and evictions %d times. %d entries take %d bytes "
+					+ "on the heap and %d bytes on the disk.", statistics.getHitCount(), statistics.getMissCount(),
+					statistics.getEvictionCount(), statistics.getEntryCount(), statistics.getHeapBytes(),
+					statistics.getDiskBytes()));
 		}
 		return Result.unhealthy("No page cache available.");
 	}
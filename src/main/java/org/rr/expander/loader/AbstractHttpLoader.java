@@ -0,0 +1,191 @@
+package org.rr.expander.loader;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.apache.commons.lang3.StringUtils.lowerCase;
+import static org.apache.commons.lang3.StringUtils.trim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.util.EntityUtils;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Request creation and response decoding which is shared by the blocking and the asynchronous
+ * http loader implementation.
+ */
+abstract class AbstractHttpLoader {
+
+	protected static final int DEFAULT_TIMEOUT = 10000;
+
+	/** responses which are larger than this number of bytes are not loaded by default. */
+	static final long DEFAULT_MAX_CONTENT_BYTES = 2 * 1024 * 1024;
+
+	/** the content types which are requested from the server. */
+	protected static final String ACCEPT = "text/html,application/rss+xml,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+
+	private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+	/** the subtypes of pages and feeds which are accepted beside all text types. */
+	private static final Set<String> SUPPORTED_SUBTYPES = ImmutableSet.of("html", "xhtml+xml", "xml", "rss+xml",
+			"atom+xml", "rdf+xml");
+
+	@Nonnull
+	protected final String url;
+
+	/** max number of bytes which are read from the response body. */
+	protected final long maxContentBytes;
+
+	/** evaluates the charset of responses which are read as string. */
+	@Nonnull
+	private final CharsetResolver charsetResolver;
+
+	protected AbstractHttpLoader(@Nonnull String url, long maxContentBytes, @Nonnull CharsetResolver charsetResolver) {
+		this.url = url;
+		this.maxContentBytes = maxContentBytes;
+		this.charsetResolver = charsetResolver;
+	}
+
+	protected @Nonnull HttpRequestBase createHttpGet() {
+		HttpGet httpGet = new HttpGet(url);
+		httpGet.setHeader(HttpHeaders.ACCEPT, ACCEPT);
+		return httpGet;
+	}
+
+	/**
+	 * Create a request which is answered with a 304 by the server if the content has not been
+	 * modified since it was loaded with the given validators.
+	 */
+	protected @Nonnull HttpRequestBase createConditionalHttpGet(@Nullable String eTag, @Nullable String lastModified) {
+		HttpRequestBase httpGet = createHttpGet();
+		if(isNotBlank(eTag)) {
+			httpGet.setHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+		}
+		if(isNotBlank(lastModified)) {
+			httpGet.setHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+		}
+		return httpGet;
+	}
+
+	protected @Nonnull UrlContent createUrlContent(@Nonnull HttpResponse response, @Nonnull String content) {
+		return createUrlContent(response, content, null, 0);
+	}
+
+	/**
+	 * @param location The url the response was received from if the request was redirected.
+	 * @param redirectStatusCode The status code of the redirect to the location or 0 if unknown.
+	 */
+	protected @Nonnull UrlContent createUrlContent(@Nonnull HttpResponse response, @Nonnull String content,
+			@Nullable String location, int redirectStatusCode) {
+		return new UrlContent(content, getHeaderValue(response, HttpHeaders.ETAG),
+				getHeaderValue(response, HttpHeaders.LAST_MODIFIED), location, redirectStatusCode);
+	}
+
+	protected @Nullable String getHeaderValue(@Nonnull HttpResponse response, @Nonnull String name) {
+		return Optional.ofNullable(response.getFirstHeader(name)).map(header -> header.getValue()).orElse(null);
+	}
+
+	protected @Nonnull HttpResponse validateStatusCode(@Nonnull HttpResponse response) throws IOException {
+		if (response.getStatusLine().getStatusCode() != 200) {
+			EntityUtils.consumeQuietly(response.getEntity()); // release the connection back to the pool
+			throw new HttpStatusException(response.getStatusLine().getStatusCode(),
+					String.format("%s. Failed loading '%s'.", response.getStatusLine().toString(), url));
+		}
+		return response;
+	}
+
+	/**
+	 * Only html, xml and text responses can be processed. Everything else, like linked pdf or video
+	 * files, is rejected before the body is read.
+	 */
+	protected @Nonnull HttpResponse validateContentType(@Nonnull HttpResponse response) throws IOException {
+		validateContentType(getHeaderValue(response, HttpHeaders.CONTENT_TYPE));
+		return response;
+	}
+
+	protected void validateContentType(@Nullable String contentType) throws IOException {
+		if(!isSupportedContentType(contentType)) {
+			throw new IOException(String.format("Unsupported content type '%s'. Failed loading '%s'.", contentType, url));
+		}
+	}
+
+	/**
+	 * Some servers send the parameters before the mime type, so the mime type is searched in all
+	 * parts of the header. Headers without a mime type are accepted and left to the parser. Only the
+	 * subtypes of pages and feeds are accepted, other xml based formats like office documents or svg
+	 * images are rejected.
+	 */
+	static boolean isSupportedContentType(@Nullable String contentType) {
+		return Stream.of(StringUtils.split(StringUtils.defaultString(contentType), ';'))
+				.map(part -> lowerCase(trim(part)))
+				.filter(part -> part.contains("/") && !part.contains("="))
+				.findFirst()
+				.map(mimeType -> mimeType.startsWith("text/")
+						|| SUPPORTED_SUBTYPES.contains(StringUtils.substringAfter(mimeType, "/")))
+				.orElse(true);
+	}
+
+	/**
+	 * Reads the given response body but not more than {@link #maxContentBytes}.
+	 *
+	 * @param content The response body.
+	 * @param contentLength The declared length of the body or a negative value if not known.
+	 * @return The whole response body.
+	 * @throws IOException if the body could not be read or is larger than {@link #maxContentBytes}.
+	 */
+	protected @Nonnull byte[] readContent(@Nonnull InputStream content, long contentLength) throws IOException {
+		if(contentLength > maxContentBytes) {
+			throw createContentTooLargeException();
+		}
+
+		ByteArrayOutputStream result = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : 8192);
+		byte[] buffer = new byte[8192];
+		long remaining = maxContentBytes;
+		int read;
+		while((read = content.read(buffer, 0, (int) Math.min(buffer.length, remaining + 1))) != -1) {
+			if(read > remaining) {
+				throw createContentTooLargeException();
+			}
+			result.write(buffer, 0, read);
+			remaining -= read;
+		}
+		return result.toByteArray();
+	}
+
+	protected @Nonnull IOException createContentTooLargeException() {
+		return new IOException(String.format("Content is larger than %d bytes. Failed loading '%s'.", maxContentBytes, url));
+	}
+
+	/**
+	 * Decode the given response content using the charset evaluated by the {@link CharsetResolver}.
+	 */
+	protected @Nonnull String getResponseAsString(@Nonnull HttpResponse response, @Nonnull byte[] content) {
+		return getResponseAsString(getHeaderValue(response, HttpHeaders.CONTENT_TYPE), content);
+	}
+
+	/**
+	 * Decode the given response content using the charset evaluated by the {@link CharsetResolver}.
+	 *
+	 * @param contentType The Content-Type header of the response or <code>null</code>.
+	 * @param content The response body.
+	 */
+	protected @Nonnull String getResponseAsString(@Nullable String contentType, @Nonnull byte[] content) {
+		Charset charset = charsetResolver.resolve(url, contentType, content);
+		return StringUtils.removeStart(new String(content, charset), BYTE_ORDER_MARK);
+	}
+
+}
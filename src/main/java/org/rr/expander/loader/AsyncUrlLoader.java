@@ -0,0 +1,51 @@
+package org.rr.expander.loader;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Specifies common methods to access some content from a URL without blocking the calling thread
+ * while the content is loaded.
+ */
+public interface AsyncUrlLoader {
+
+	/**
+	 * Get the content of the url as it was sent by the server.
+	 * 
+	 * @return a future which completes with the content or exceptionally with an
+	 *         {@link java.io.IOException} if the content could not be loaded.
+	 */
+	@Nonnull CompletableFuture<byte[]> getContentAsBytes();
+
+	/**
+	 * Get the content of the url as {@link String}.
+	 * 
+	 * @return a future which completes with the content or exceptionally with an
+	 *         {@link java.io.IOException} if the content could not be loaded.
+	 */
+	@Nonnull CompletableFuture<String> getContentAsString();
+
+	/**
+	 * Get the raw content of the url together with the content type declared by the server.
+	 * 
+	 * @return a future which completes with the content stream or exceptionally with an
+	 *         {@link java.io.IOException} if the content could not be loaded.
+	 * @see UrlLoader#getContentAsRawStream()
+	 */
+	@Nonnull CompletableFuture<UrlContentStream> getContentAsRawStream();
+
+	/**
+	 * Get the content of the url only if it has been modified since it was loaded with the given
+	 * validators.
+	 * 
+	 * @param eTag The ETag of the previously loaded content or <code>null</code>.
+	 * @param lastModified The Last-Modified value of the previously loaded content or <code>null</code>.
+	 * @return a future which completes with the content or with <code>null</code> if the content was
+	 *         not modified.
+	 * @see UrlLoader#getContentIfModified(String, String)
+	 */
+	@Nonnull CompletableFuture<UrlContent> getContentIfModified(@Nullable String eTag, @Nullable String lastModified);
+
+}
@@ -0,0 +1,157 @@
+package org.rr.expander.loader;
+
+import javax.annotation.Nonnull;
+
+import org.apache.http.nio.client.HttpAsyncClient;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A factory which allows to create specific {@link AsyncUrlLoader} instances for different types of URL.
+ */
+public abstract class AsyncUrlLoaderFactory {
+
+	/**
+	 * Get a {@link AsyncUrlLoaderFactory} instance which creates {@link AsyncUrlLoader} instances.
+	 * 
+	 * @param httpAsyncClient The started, non blocking http client which is shared by all created
+	 *        {@link AsyncUrlLoader} instances.
+	 * @return The desired {@link AsyncUrlLoaderFactory} instance.
+	 */
+	public static @Nonnull AsyncUrlLoaderFactory createAsyncUrlLoaderFactory(@Nonnull HttpAsyncClient httpAsyncClient) {
+		return createAsyncUrlLoaderFactory(httpAsyncClient, AbstractHttpLoader.DEFAULT_MAX_CONTENT_BYTES);
+	}
+
+	/**
+	 * Get a {@link AsyncUrlLoaderFactory} instance which creates {@link AsyncUrlLoader} instances.
+	 * 
+	 * @param httpAsyncClient The started, non blocking http client which is shared by all created
+	 *        {@link AsyncUrlLoader} instances.
+	 * @param maxContentBytes The max number of bytes a {@link AsyncUrlLoader} reads from a response if
+	 *        no other value is requested.
+	 * @return The desired {@link AsyncUrlLoaderFactory} instance.
+	 */
+	public static @Nonnull AsyncUrlLoaderFactory createAsyncUrlLoaderFactory(@Nonnull HttpAsyncClient httpAsyncClient,
+			long maxContentBytes) {
+		Preconditions.checkNotNull(httpAsyncClient);
+		CharsetResolver charsetResolver = new CharsetResolver();
+		return new AsyncUrlLoaderFactory() {
+			@Override
+			public @Nonnull AsyncUrlLoader getAsyncUrlLoader(@Nonnull String url) {
+				return getAsyncUrlLoader(url, maxContentBytes);
+			}
+
+			@Override
+			public @Nonnull AsyncUrlLoader getAsyncUrlLoader(@Nonnull String url, long maxContentBytes) {
+				if(url.matches("http(s)?://.*")) {
+					return new HttpAsyncUrlLoader(url, httpAsyncClient, maxContentBytes, charsetResolver);
+				}
+				throw new IllegalArgumentException(String.format("No AsyncUrlLoader instance for the url %s available.", url));
+			}
+		};
+	}
+
+	/**
+	 * Get a {@link AsyncUrlLoaderFactory} instance which creates {@link AsyncUrlLoader} instances that
+	 * wait for their turn at the given {@link HostRequestScheduler} before a request is sent.
+	 * 
+	 * @param asyncUrlLoaderFactory The factory which creates the {@link AsyncUrlLoader} instances to be
+	 *        scheduled.
+	 * @param scheduler The scheduler which coordinates the requests to the same host.
+	 * @return The desired {@link AsyncUrlLoaderFactory} instance.
+	 */
+	public static @Nonnull AsyncUrlLoaderFactory createScheduledAsyncUrlLoaderFactory(
+			@Nonnull AsyncUrlLoaderFactory asyncUrlLoaderFactory, @Nonnull HostRequestScheduler scheduler) {
+		Preconditions.checkNotNull(asyncUrlLoaderFactory);
+		Preconditions.checkNotNull(scheduler);
+		return new AsyncUrlLoaderFactory() {
+			@Override
+			public @Nonnull AsyncUrlLoader getAsyncUrlLoader(@Nonnull String url) {
+				return new ScheduledAsyncUrlLoader(url, asyncUrlLoaderFactory.getAsyncUrlLoader(url), scheduler);
+			}
+
+			@Override
+			public @Nonnull AsyncUrlLoader getAsyncUrlLoader(@Nonnull String url, long maxContentBytes) {
+				return new ScheduledAsyncUrlLoader(url, asyncUrlLoaderFactory.getAsyncUrlLoader(url, maxContentBytes), scheduler);
+			}
+		};
+	}
+	
+	/**
+	 * Get a {@link AsyncUrlLoaderFactory} instance which creates {@link AsyncUrlLoader} instances that
+	 * fail fast if the circuit of the host is open and retry requests which failed with a transient
+	 * error.
+	 * 
+	 * @param asyncUrlLoaderFactory The factory which creates the {@link AsyncUrlLoader} instances to
+	 *        be guarded.
+	 * @param circuitBreaker The circuit breaker which keeps the state of the hosts.
+	 * @return The desired {@link AsyncUrlLoaderFactory} instance.
+	 */
+	public static @Nonnull AsyncUrlLoaderFactory createCircuitBreakerAsyncUrlLoaderFactory(
+			@Nonnull AsyncUrlLoaderFactory asyncUrlLoaderFactory, @Nonnull HostCircuitBreaker circuitBreaker) {
+		Preconditions.checkNotNull(asyncUrlLoaderFactory);
+		Preconditions.checkNotNull(circuitBreaker);
+		return new AsyncUrlLoaderFactory() {
+			@Override
+			public @Nonnull AsyncUrlLoader getAsyncUrlLoader(@Nonnull String url) {
+				return new CircuitBreakerAsyncUrlLoader(url, asyncUrlLoaderFactory.getAsyncUrlLoader(url), circuitBreaker);
+			}
+
+			@Override
+			public @Nonnull AsyncUrlLoader getAsyncUrlLoader(@Nonnull String url, long maxContentBytes) {
+				return new CircuitBreakerAsyncUrlLoader(url, asyncUrlLoaderFactory.getAsyncUrlLoader(url, maxContentBytes),
+						circuitBreaker);
+			}
+		};
+	}
+
+	/**
+	 * Get a {@link AsyncUrlLoaderFactory} instance which creates {@link AsyncUrlLoader} instances that
+	 * share concurrent, identical requests using the given {@link RequestCoalescer}.
+	 * 
+	 * @param asyncUrlLoaderFactory The factory which creates the {@link AsyncUrlLoader} instances which
+	 *        sends the shared requests.
+	 * @param coalescer The coalescer which keeps the in-flight requests.
+	 * @return The desired {@link AsyncUrlLoaderFactory} instance.
+	 */
+	public static @Nonnull AsyncUrlLoaderFactory createCoalescingAsyncUrlLoaderFactory(
+			@Nonnull AsyncUrlLoaderFactory asyncUrlLoaderFactory, @Nonnull RequestCoalescer coalescer) {
+		Preconditions.checkNotNull(asyncUrlLoaderFactory);
+		Preconditions.checkNotNull(coalescer);
+		return new AsyncUrlLoaderFactory() {
+			@Override
+			public @Nonnull AsyncUrlLoader getAsyncUrlLoader(@Nonnull String url) {
+				return new CoalescingAsyncUrlLoader(url, asyncUrlLoaderFactory.getAsyncUrlLoader(url), coalescer, null);
+			}
+
+			@Override
+			public @Nonnull AsyncUrlLoader getAsyncUrlLoader(@Nonnull String url, long maxContentBytes) {
+				return new CoalescingAsyncUrlLoader(url, asyncUrlLoaderFactory.getAsyncUrlLoader(url, maxContentBytes),
+						coalescer, maxContentBytes);
+			}
+		};
+	}
+
+	/**
+	 * Get the {@link AsyncUrlLoader} implementation.
+	 * 
+	 * @param url The url to be used from the result {@link AsyncUrlLoader} instance.
+	 * @return The desired {@link AsyncUrlLoader} instance.
+	 * @throws IllegalArgumentException if the given url did not match to the desired {@link AsyncUrlLoader}.
+	 */
+	public abstract @Nonnull AsyncUrlLoader getAsyncUrlLoader(@Nonnull String url);
+
+	/**
+	 * Get the {@link AsyncUrlLoader} implementation which reads not more than the given number of
+	 * bytes from the response. Implementations which did not support a limit return the same as
+	 * {@link #getAsyncUrlLoader(String)}.
+	 * 
+	 * @param url The url to be used from the result {@link AsyncUrlLoader} instance.
+	 * @param maxContentBytes The max number of bytes to be read.
+	 * @return The desired {@link AsyncUrlLoader} instance.
+	 * @throws IllegalArgumentException if the given url did not match to the desired {@link AsyncUrlLoader}.
+	 */
+	public @Nonnull AsyncUrlLoader getAsyncUrlLoader(@Nonnull String url, long maxContentBytes) {
+		return getAsyncUrlLoader(url);
+	}
+}
@@ -0,0 +1,67 @@
+package org.rr.expander.loader;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Keeps the resolved addresses of the hosts for a fixed time, independent of the dns caching of the
+ * jvm. Failed lookups are never cached.
+ */
+public class CachingDnsResolver implements DnsResolver {
+
+	private static final int MAX_CACHED_HOSTS = 10000;
+
+	@Nonnull
+	private final DnsResolver delegate;
+
+	@Nonnull
+	private final Cache<String, InetAddress[]> addresses;
+
+	/**
+	 * @param ttlSeconds Time in seconds a resolved address is used.
+	 */
+	public CachingDnsResolver(int ttlSeconds) {
+		this(SystemDefaultDnsResolver.INSTANCE, ttlSeconds);
+	}
+
+	@VisibleForTesting
+	CachingDnsResolver(@Nonnull DnsResolver delegate, int ttlSeconds) {
+		this.delegate = Preconditions.checkNotNull(delegate);
+		this.addresses = CacheBuilder.newBuilder()
+				.maximumSize(MAX_CACHED_HOSTS)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.build();
+	}
+
+	@Override
+	public InetAddress[] resolve(String host) throws UnknownHostException {
+		try {
+			return addresses.get(host.toLowerCase(), () -> delegate.resolve(host)).clone();
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			if(e.getCause() instanceof UnknownHostException) {
+				throw (UnknownHostException) e.getCause();
+			}
+			throw new IllegalStateException(String.format("Failed to resolve '%s'.", host), e.getCause());
+		}
+	}
+
+	/**
+	 * @return The number of hosts which are currently cached.
+	 */
+	public long size() {
+		return addresses.size();
+	}
+}
@@ -0,0 +1,156 @@
+package org.rr.expander.loader;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.apache.commons.lang3.StringUtils.upperCase;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.mozilla.universalchardet.UniversalDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Evaluates the charset of a loaded response. The cheap sources are tried first: the Content-Type
+ * header, a byte order mark, the xml prolog or html meta tag at the beginning of the content and
+ * the charset which was evaluated for another page from the same host before. The statistical
+ * detection is only used if nothing else is known and only looks at the beginning of the content.
+ */
+class CharsetResolver {
+
+	@Nonnull
+	private final static Logger logger = LoggerFactory.getLogger(CharsetResolver.class);
+
+	private static final Pattern CONTENT_TYPE_CHARSET_PATTERN = Pattern.compile(".*charset=([\\w-]*).*");
+
+	private static final Pattern DECLARED_CHARSET_PATTERN = Pattern.compile(
+			"<\\?xml[^>]*encoding\\s*=\\s*[\"']([\\w.:-]+)[\"']|<meta[^>]*charset\\s*=\\s*[\"']?([\\w.:-]+)",
+			Pattern.CASE_INSENSITIVE);
+
+	/** number of bytes searched for a xml prolog or meta tag. */
+	private static final int DECLARED_CHARSET_SEARCH_BYTES = 4096;
+
+	/** max number of bytes passed to the statistical detector. */
+	private static final int DETECTOR_MAX_BYTES = 64 * 1024;
+
+	private static final int MAX_REMEMBERED_HOSTS = 1000;
+
+	/** the charset which was found for the pages of a host without a declared charset. */
+	@Nonnull
+	private final Cache<String, Charset> hostCharsets = CacheBuilder.newBuilder()
+			.maximumSize(MAX_REMEMBERED_HOSTS)
+			.build();
+
+	/**
+	 * Evaluate the charset of the given response content.
+	 *
+	 * @param url The url of the response.
+	 * @param contentType The Content-Type header of the response or <code>null</code>.
+	 * @param content The response body.
+	 * @return The charset of the content or the default charset if it could not be evaluated.
+	 */
+	@Nonnull
+	Charset resolve(@Nonnull String url, @Nullable String contentType, @Nonnull byte[] content) {
+		Charset charset = getContentTypeCharset(url, contentType);
+		if(charset != null) {
+			return charset;
+		}
+
+		charset = Optional.ofNullable(getByteOrderMarkCharset(content))
+				.orElseGet(() -> getDeclaredCharset(url, content));
+		String host = getHost(url);
+		if(charset != null) {
+			hostCharsets.put(host, charset);
+			return charset;
+		}
+
+		charset = hostCharsets.getIfPresent(host);
+		if(charset != null) {
+			return charset;
+		}
+		return Optional.ofNullable(detectCharset(url, host, content)).orElse(Charset.defaultCharset());
+	}
+
+	private @Nullable Charset getContentTypeCharset(@Nonnull String url, @Nullable String contentType) {
+		return Optional.ofNullable(contentType)
+				.map(value -> CONTENT_TYPE_CHARSET_PATTERN.matcher(value))
+				.filter(matcher -> matcher.matches())
+				.map(matcher -> toCharset(url, matcher.group(1)))
+				.orElse(null);
+	}
+
+	private @Nullable Charset getByteOrderMarkCharset(@Nonnull byte[] content) {
+		if(content.length >= 3 && (content[0] & 0xFF) == 0xEF && (content[1] & 0xFF) == 0xBB && (content[2] & 0xFF) == 0xBF) {
+			return UTF_8;
+		} else if(content.length >= 2 && (content[0] & 0xFF) == 0xFE && (content[1] & 0xFF) == 0xFF) {
+			return StandardCharsets.UTF_16BE;
+		} else if(content.length >= 2 && (content[0] & 0xFF) == 0xFF && (content[1] & 0xFF) == 0xFE) {
+			return StandardCharsets.UTF_16LE;
+		}
+		return null;
+	}
+
+	/**
+	 * Search the xml prolog or html meta tag in the beginning of the content. The declaration itself
+	 * is always ascii, so the bytes can be searched as iso-8859-1 text.
+	 */
+	private @Nullable Charset getDeclaredCharset(@Nonnull String url, @Nonnull byte[] content) {
+		Matcher matcher = DECLARED_CHARSET_PATTERN.matcher(
+				new String(content, 0, Math.min(content.length, DECLARED_CHARSET_SEARCH_BYTES), ISO_8859_1));
+		while(matcher.find()) {
+			Charset charset = toCharset(url, matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+			if(charset != null) {
+				return charset;
+			}
+		}
+		return null;
+	}
+
+	private @Nullable Charset detectCharset(@Nonnull String url, @Nonnull String host, @Nonnull byte[] content) {
+		UniversalDetector detector = new UniversalDetector(null);
+		try {
+			detector.handleData(content, 0, Math.min(content.length, DETECTOR_MAX_BYTES));
+			detector.dataEnd();
+			Charset charset = toCharset(url, upperCase(detector.getDetectedCharset()));
+			if(charset != null && detector.isDone()) {
+				hostCharsets.put(host, charset);
+			}
+			return charset;
+		} finally {
+			detector.reset();
+		}
+	}
+
+	private @Nullable Charset toCharset(@Nonnull String url, @Nullable String charset) {
+		try {
+			if(isNotBlank(charset) && Charset.isSupported(charset)) {
+				return Charset.forName(charset);
+			}
+		} catch(IllegalCharsetNameException e) {
+			logger.warn(String.format("response from '%s' with unknown character encoding '%s' detected.", url, charset));
+		}
+		return null;
+	}
+
+	private @Nonnull String getHost(@Nonnull String url) {
+		try {
+			return new URL(url).getHost().toLowerCase();
+		} catch (MalformedURLException e) {
+			return url;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package org.rr.expander.loader;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Delegates to another {@link AsyncUrlLoader} but fails fast if the circuit of the host is open and
+ * retries requests which failed with a transient error after a random delay.
+ */
+class CircuitBreakerAsyncUrlLoader implements AsyncUrlLoader {
+
+	@Nonnull
+	private final String url;
+
+	@Nonnull
+	private final AsyncUrlLoader delegate;
+
+	@Nonnull
+	private final HostCircuitBreaker circuitBreaker;
+
+	CircuitBreakerAsyncUrlLoader(@Nonnull String url, @Nonnull AsyncUrlLoader delegate,
+			@Nonnull HostCircuitBreaker circuitBreaker) {
+		this.url = url;
+		this.delegate = delegate;
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<byte[]> getContentAsBytes() {
+		return execute(() -> delegate.getContentAsBytes(), 0);
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<String> getContentAsString() {
+		return execute(() -> delegate.getContentAsString(), 0);
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<UrlContentStream> getContentAsRawStream() {
+		return execute(() -> delegate.getContentAsRawStream(), 0);
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<UrlContent> getContentIfModified(@Nullable String eTag, @Nullable String lastModified) {
+		return execute(() -> delegate.getContentIfModified(eTag, lastModified), 0);
+	}
+
+	private @Nonnull <T> CompletableFuture<T> execute(@Nonnull Supplier<CompletableFuture<T>> request, int retry) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		try {
+			circuitBreaker.acquirePermission(url);
+		} catch (CircuitOpenException e) {
+			result.completeExceptionally(e);
+			return result;
+		}
+
+		CompletableFuture<T> attempt;
+		try {
+			attempt = request.get();
+		} catch (RuntimeException e) {
+			attempt = new CompletableFuture<>();
+			attempt.completeExceptionally(e);
+		}
+		attempt.whenComplete((value, e) -> {
+			if(e == null) {
+				circuitBreaker.onSuccess(url);
+				result.complete(value);
+				return;
+			}
+
+			Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+			circuitBreaker.onError(url, cause);
+			if(!circuitBreaker.shouldRetry(retry, cause)) {
+				result.completeExceptionally(cause);
+				return;
+			}
+			try {
+				circuitBreaker.getRetryScheduler().schedule(() -> execute(request, retry + 1).whenComplete((retried, retryError) -> {
+					if(retryError != null) {
+						result.completeExceptionally(retryError);
+					} else {
+						result.complete(retried);
+					}
+				}), circuitBreaker.getRetryDelayMillis(retry), TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException rejected) {
+				result.completeExceptionally(cause);
+			}
+		});
+		return result;
+	}
+}
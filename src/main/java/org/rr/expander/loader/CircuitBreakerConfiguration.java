@@ -0,0 +1,127 @@
+package org.rr.expander.loader;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the {@link HostCircuitBreaker} and the retries of failed requests.
+ */
+public class CircuitBreakerConfiguration {
+
+	/** the circuit of a host opens if at least this percentage of the recent requests failed. */
+	private int failureRateThreshold = 50;
+
+	/** number of recent requests to a host which are used to calculate the failure rate. */
+	private int windowSize = 20;
+
+	/** min number of recorded requests before the circuit of a host can open. */
+	private int minimumRequests = 5;
+
+	/** time in seconds all requests to a host fail fast after its circuit was opened. */
+	private int openSeconds = 30;
+
+	/** number of requests which are sent to probe a host after the open time. */
+	private int halfOpenProbes = 1;
+
+	/** max number of retries of a request which failed with a transient error. */
+	private int maxRetries = 2;
+
+	/** the upper bound of the random delay before the first retry. Doubled with each retry. */
+	private int retryBaseDelayMillis = 250;
+
+	/** the max random delay in milliseconds before a retry. */
+	private int retryMaxDelayMillis = 2000;
+
+	/** time in seconds the closed circuit of a host is kept after its last request. */
+	private int idleHostSeconds = 3600;
+
+	@JsonProperty
+	public int getFailureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	@JsonProperty
+	public void setFailureRateThreshold(int failureRateThreshold) {
+		this.failureRateThreshold = failureRateThreshold;
+	}
+
+	@JsonProperty
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	@JsonProperty
+	public void setWindowSize(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	@JsonProperty
+	public int getMinimumRequests() {
+		return minimumRequests;
+	}
+
+	@JsonProperty
+	public void setMinimumRequests(int minimumRequests) {
+		this.minimumRequests = minimumRequests;
+	}
+
+	@JsonProperty
+	public int getOpenSeconds() {
+		return openSeconds;
+	}
+
+	@JsonProperty
+	public void setOpenSeconds(int openSeconds) {
+		this.openSeconds = openSeconds;
+	}
+
+	@JsonProperty
+	public int getHalfOpenProbes() {
+		return halfOpenProbes;
+	}
+
+	@JsonProperty
+	public void setHalfOpenProbes(int halfOpenProbes) {
+		this.halfOpenProbes = halfOpenProbes;
+	}
+
+	@JsonProperty
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	@JsonProperty
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	@JsonProperty
+	public int getRetryBaseDelayMillis() {
+		return retryBaseDelayMillis;
+	}
+
+	@JsonProperty
+	public void setRetryBaseDelayMillis(int retryBaseDelayMillis) {
+		this.retryBaseDelayMillis = retryBaseDelayMillis;
+	}
+
+	@JsonProperty
+	public int getRetryMaxDelayMillis() {
+		return retryMaxDelayMillis;
+	}
+
+	@JsonProperty
+	public void setRetryMaxDelayMillis(int retryMaxDelayMillis) {
+		this.retryMaxDelayMillis = retryMaxDelayMillis;
+	}
+
+	@JsonProperty
+	public int getIdleHostSeconds() {
+		return idleHostSeconds;
+	}
+
+	@JsonProperty
+	public void setIdleHostSeconds(int idleHostSeconds) {
+		this.idleHostSeconds = idleHostSeconds;
+	}
+
+}
@@ -0,0 +1,84 @@
+package org.rr.expander.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Delegates to another {@link UrlLoader} but fails fast if the circuit of the host is open and
+ * retries requests which failed with a transient error after a random delay.
+ */
+class CircuitBreakerUrlLoader implements UrlLoader {
+
+	@Nonnull
+	private final String url;
+
+	@Nonnull
+	private final UrlLoader delegate;
+
+	@Nonnull
+	private final HostCircuitBreaker circuitBreaker;
+
+	CircuitBreakerUrlLoader(@Nonnull String url, @Nonnull UrlLoader delegate, @Nonnull HostCircuitBreaker circuitBreaker) {
+		this.url = url;
+		this.delegate = delegate;
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	@Override
+	public @Nonnull InputStream getContentAsStream(@Nonnull Charset charset) throws IOException {
+		return execute(() -> delegate.getContentAsStream(charset));
+	}
+
+	@Override
+	public @Nonnull String getContentAsString() throws IOException {
+		return execute(() -> delegate.getContentAsString());
+	}
+
+	@Override
+	public @Nullable UrlContent getContentIfModified(@Nullable String eTag, @Nullable String lastModified)
+			throws IOException {
+		return execute(() -> delegate.getContentIfModified(eTag, lastModified));
+	}
+
+	/**
+	 * Only opening the stream is retried. Errors while the stream is consumed are up to the reader.
+	 */
+	@Override
+	public @Nonnull UrlContentStream getContentAsRawStream() throws IOException {
+		return execute(() -> delegate.getContentAsRawStream());
+	}
+
+	private <T> T execute(@Nonnull IOSupplier<T> request) throws IOException {
+		for (int retry = 0;; retry++) {
+			circuitBreaker.acquirePermission(url);
+			try {
+				T result = request.get();
+				circuitBreaker.onSuccess(url);
+				return result;
+			} catch (IOException | RuntimeException e) {
+				circuitBreaker.onError(url, e);
+				if(!circuitBreaker.shouldRetry(retry, e)) {
+					throw e;
+				}
+				sleep(circuitBreaker.getRetryDelayMillis(retry), e);
+			}
+		}
+	}
+
+	private void sleep(long delayMillis, @Nonnull Exception cause) throws IOException {
+		try {
+			Thread.sleep(delayMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			InterruptedIOException interrupted = new InterruptedIOException(
+					String.format("Interrupted while waiting to retry '%s'.", url));
+			interrupted.addSuppressed(cause);
+			throw interrupted;
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package org.rr.expander.loader;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request to a host whose circuit was opened by the
+ * {@link HostCircuitBreaker} because the recent requests to the host have failed.
+ */
+public class CircuitOpenException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CircuitOpenException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,64 @@
+package org.rr.expander.loader;
+
+import static org.rr.expander.loader.RequestCoalescer.createKey;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Delegates to another {@link AsyncUrlLoader} but lets concurrent, identical requests share one
+ * request using the {@link RequestCoalescer}.
+ */
+class CoalescingAsyncUrlLoader implements AsyncUrlLoader {
+
+	@Nonnull
+	private final String url;
+
+	@Nonnull
+	private final AsyncUrlLoader delegate;
+
+	@Nonnull
+	private final RequestCoalescer coalescer;
+
+	/** the max content bytes of the delegate which is part of the request key or <code>null</code> for the default. */
+	@Nullable
+	private final Long maxContentBytes;
+
+	CoalescingAsyncUrlLoader(@Nonnull String url, @Nonnull AsyncUrlLoader delegate,
+			@Nonnull RequestCoalescer coalescer,
+			@Nullable Long maxContentBytes) {
+		this.url = url;
+		this.delegate = delegate;
+		this.coalescer = coalescer;
+		this.maxContentBytes = maxContentBytes;
+	}
+
+	/**
+	 * The returned array is shared with all other requests, so it must not be modified.
+	 */
+	@Override
+	public @Nonnull CompletableFuture<byte[]> getContentAsBytes() {
+		return coalescer.executeAsync(createKey("bytes", url, String.valueOf(maxContentBytes)), () -> delegate.getContentAsBytes());
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<String> getContentAsString() {
+		return coalescer.executeAsync(createKey("string", url, String.valueOf(maxContentBytes)), () -> delegate.getContentAsString());
+	}
+
+	/**
+	 * @see CoalescingUrlLoader#getContentAsRawStream()
+	 */
+	@Override
+	public @Nonnull CompletableFuture<UrlContentStream> getContentAsRawStream() {
+		return delegate.getContentAsRawStream();
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<UrlContent> getContentIfModified(@Nullable String eTag, @Nullable String lastModified) {
+		return coalescer.executeAsync(createKey("content", url, String.valueOf(maxContentBytes), eTag, lastModified),
+				() -> delegate.getContentIfModified(eTag, lastModified));
+	}
+}
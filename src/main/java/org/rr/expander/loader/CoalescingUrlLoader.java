@@ -0,0 +1,65 @@
+package org.rr.expander.loader;
+
+import static org.rr.expander.loader.RequestCoalescer.createKey;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Delegates to another {@link UrlLoader} but lets concurrent, identical requests share one request
+ * using the {@link RequestCoalescer}.
+ */
+class CoalescingUrlLoader implements UrlLoader {
+
+	@Nonnull
+	private final String url;
+
+	@Nonnull
+	private final UrlLoader delegate;
+
+	@Nonnull
+	private final RequestCoalescer coalescer;
+
+	/** the max content bytes of the delegate which is part of the request key or <code>null</code> for the default. */
+	@Nullable
+	private final Long maxContentBytes;
+
+	CoalescingUrlLoader(@Nonnull String url, @Nonnull UrlLoader delegate, @Nonnull RequestCoalescer coalescer,
+			@Nullable Long maxContentBytes) {
+		this.url = url;
+		this.delegate = delegate;
+		this.coalescer = coalescer;
+		this.maxContentBytes = maxContentBytes;
+	}
+
+	@Override
+	public @Nonnull InputStream getContentAsStream(@Nonnull Charset charset) throws IOException {
+		return new ByteArrayInputStream(getContentAsString().getBytes(charset));
+	}
+
+	@Override
+	public @Nonnull String getContentAsString() throws IOException {
+		return coalescer.execute(createKey("string", url, String.valueOf(maxContentBytes)), () -> delegate.getContentAsString());
+	}
+
+	/**
+	 * A stream can't be shared and buffering it would defeat streaming the content, so raw streams
+	 * are not coalesced.
+	 */
+	@Override
+	public @Nonnull UrlContentStream getContentAsRawStream() throws IOException {
+		return delegate.getContentAsRawStream();
+	}
+
+	@Override
+	public @Nullable UrlContent getContentIfModified(@Nullable String eTag, @Nullable String lastModified)
+			throws IOException {
+		return coalescer.execute(createKey("content", url, String.valueOf(maxContentBytes), eTag, lastModified),
+				() -> delegate.getContentIfModified(eTag, lastModified));
+	}
+}
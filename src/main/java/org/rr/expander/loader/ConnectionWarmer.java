@@ -0,0 +1,200 @@
+package org.rr.expander.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.nio.NHttpClientConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Resolves hosts and opens pooled connections to them before the first page gets loaded, so the
+ * first request to a host did not have to wait for the dns lookup and the tcp and tls handshake.
+ * The connection pools of the http clients are registered by the {@link PooledHttpClientFactory}.
+ */
+public class ConnectionWarmer implements Closeable {
+
+	@Nonnull
+	private final static Logger logger = LoggerFactory.getLogger(ConnectionWarmer.class);
+
+	private static final int MAX_WARM_UP_THREADS = 8;
+
+	@FunctionalInterface
+	private interface HostConnector {
+		void connect(@Nonnull HttpRoute route) throws IOException, InterruptedException, ExecutionException, TimeoutException;
+	}
+
+	@Nonnull
+	private final WarmUpConfiguration config;
+
+	@Nonnull
+	private final CachingDnsResolver dnsResolver;
+
+	@Nonnull
+	private final List<HostConnector> connectors = new CopyOnWriteArrayList<>();
+
+	@Nonnull
+	private final ExecutorService executor;
+
+	public ConnectionWarmer(@Nonnull WarmUpConfiguration config) {
+		this.config = Preconditions.checkNotNull(config);
+		this.dnsResolver = new CachingDnsResolver(config.getDnsCacheSeconds());
+		this.executor = Executors.newFixedThreadPool(MAX_WARM_UP_THREADS,
+				new ThreadFactoryBuilder().setNameFormat("connection-warmer-%d").setDaemon(true).build());
+	}
+
+	/**
+	 * @return The resolver which must be used by the warmed up connection pools. All resolved hosts
+	 *         are cached for the configured time.
+	 */
+	public @Nonnull DnsResolver getDnsResolver() {
+		return dnsResolver;
+	}
+
+	/**
+	 * Resolve the hosts of the given urls and open the configured number of connections to each of
+	 * them in all registered connection pools.
+	 *
+	 * @param urls The urls of the hosts to be warmed up. Invalid urls are ignored.
+	 * @param timeout Max time to wait for the warm-up. Hosts which are not warmed up until then
+	 *        are skipped.
+	 * @param unit The unit of the <code>timeout</code>.
+	 * @return The number of hosts which have been warmed up successfully.
+	 */
+	public int warmUp(@Nonnull Collection<String> urls, long timeout, @Nonnull TimeUnit unit) {
+		Set<HttpRoute> routes = urls.stream()
+				.map(url -> createRoute(url))
+				.filter(route -> route != null)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+		try {
+			int warmedUp = 0;
+			for (Future<Boolean> result : executor.invokeAll(
+					routes.stream().map(route -> (Callable<Boolean>) () -> warmUp(route))
+							.collect(Collectors.toList()), timeout, unit)) {
+				if(!result.isCancelled() && result.get()) {
+					warmedUp++;
+				}
+			}
+			return warmedUp;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			logger.warn("Warm-up failed.", e.getCause());
+		}
+		return 0;
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	void register(@Nonnull PoolingHttpClientConnectionManager connectionManager, int keepAliveSeconds) {
+		connectors.add(route -> {
+			List<HttpClientConnection> opened = new ArrayList<>();
+			try {
+				for (int i = 0; i < config.getConnectionsPerHost(); i++) {
+					HttpClientConnection connection = connectionManager.requestConnection(route, null)
+							.get(config.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS);
+					opened.add(connection);
+					if(!connection.isOpen()) {
+						HttpClientContext context = HttpClientContext.create();
+						connectionManager.connect(connection, route, config.getConnectTimeoutMillis(), context);
+						connectionManager.routeComplete(connection, route, context);
+					}
+				}
+			} finally {
+				opened.forEach(connection -> connectionManager.releaseConnection(connection, null, keepAliveSeconds, TimeUnit.SECONDS));
+			}
+		});
+	}
+
+	void register(@Nonnull PoolingNHttpClientConnectionManager connectionManager, int keepAliveSeconds) {
+		connectors.add(route -> {
+			List<NHttpClientConnection> opened = new ArrayList<>();
+			try {
+				for (int i = 0; i < config.getConnectionsPerHost(); i++) {
+					Future<NHttpClientConnection> request = connectionManager.requestConnection(route, null,
+							config.getConnectTimeoutMillis(), config.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS, null);
+					NHttpClientConnection connection;
+					try {
+						connection = request.get(config.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS);
+					} catch (TimeoutException e) {
+						request.cancel(true);
+						throw e;
+					}
+					opened.add(connection);
+					if(!connectionManager.isRouteComplete(connection)) {
+						HttpClientContext context = HttpClientContext.create();
+						connectionManager.startRoute(connection, route, context);
+						connectionManager.routeComplete(connection, route, context);
+					}
+				}
+			} finally {
+				opened.forEach(connection -> connectionManager.releaseConnection(connection, null, keepAliveSeconds, TimeUnit.SECONDS));
+			}
+		});
+	}
+
+	private boolean warmUp(@Nonnull HttpRoute route) {
+		try {
+			dnsResolver.resolve(route.getTargetHost().getHostName());
+			for (HostConnector connector : connectors) {
+				connector.connect(route);
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException | ExecutionException | TimeoutException | RuntimeException e) {
+			logger.info(String.format("Warm-up of '%s' failed. %s", route.getTargetHost(), e.getMessage()));
+		}
+		return false;
+	}
+
+	/**
+	 * Create the same route for the given url as the http client does, so the opened connections
+	 * are found in the pool.
+	 */
+	static @Nullable HttpRoute createRoute(@Nullable String url) {
+		try {
+			URL parsedUrl = new URL(url);
+			String scheme = parsedUrl.getProtocol().toLowerCase();
+			if(!"http".equals(scheme) && !"https".equals(scheme)) {
+				return null;
+			}
+			int port = parsedUrl.getPort() != -1 ? parsedUrl.getPort() : parsedUrl.getDefaultPort();
+			return new HttpRoute(new HttpHost(parsedUrl.getHost(), port, scheme), null, "https".equals(scheme));
+		} catch (MalformedURLException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package org.rr.expander.loader;
+
+import static java.util.stream.Collectors.joining;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.compress.compressors.brotli.BrotliCompressorInputStream;
+import org.apache.commons.compress.compressors.brotli.BrotliUtils;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.client.entity.InputStreamFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.util.Native;
+
+/**
+ * The content encodings which are advertised to the servers and decoded by the http client. Brotli
+ * and zstd are only used if their decoder is available on the platform.
+ * <p>
+ * All decoders are streaming. The size of a decoded body is limited by the max content bytes of the
+ * loader which reads it, so a small, highly compressed response can not exhaust the memory.
+ */
+class ContentDecoders {
+
+	@Nonnull
+	private final static Logger logger = LoggerFactory.getLogger(ContentDecoders.class);
+
+	/** zstd frames with a larger window are rejected. 8 MB is the limit recommended for http by RFC 8878. */
+	static final int ZSTD_MAX_WINDOW_LOG = 23;
+
+	private static final boolean BROTLI_AVAILABLE = BrotliUtils.isBrotliCompressionAvailable();
+
+	private static final boolean ZSTD_AVAILABLE = loadZstd();
+
+	private static final String IDENTITY = "identity";
+
+	private ContentDecoders() {
+	}
+
+	/**
+	 * The http client sorts the Accept-Encoding header alphabetically, so the order of the registry
+	 * does not express a preference. The server chooses the encoding.
+	 *
+	 * @return The decoders by their content encoding.
+	 */
+	static @Nonnull Map<String, InputStreamFactory> createDecoderRegistry() {
+		Map<String, InputStreamFactory> decoders = new LinkedHashMap<>();
+		if(BROTLI_AVAILABLE) {
+			decoders.put("br", content -> new BrotliCompressorInputStream(content));
+		}
+		if(ZSTD_AVAILABLE) {
+			decoders.put("zstd", content -> new ZstdInputStream(content).setLongMax(ZSTD_MAX_WINDOW_LOG));
+		}
+		decoders.put("gzip", content -> new GZIPInputStream(content));
+		decoders.put("x-gzip", content -> new GZIPInputStream(content));
+		decoders.put("deflate", content -> new DeflateInputStream(content));
+		return Collections.unmodifiableMap(decoders);
+	}
+
+	/**
+	 * @return The value of the Accept-Encoding header for the available decoders, in the same order
+	 *         the blocking http client sends them.
+	 */
+	static @Nonnull String getAcceptEncoding() {
+		return createDecoderRegistry().keySet().stream().sorted().collect(joining(","));
+	}
+
+	/**
+	 * Decode the given response body of a client which did not decode it on its own.
+	 *
+	 * @param contentEncoding The Content-Encoding header of the response or <code>null</code>.
+	 * @param content The encoded response body.
+	 * @return The decoded response body.
+	 * @throws IOException if the content encoding is not supported.
+	 */
+	static @Nonnull InputStream decode(@Nullable String contentEncoding, @Nonnull InputStream content)
+			throws IOException {
+		String encoding = StringUtils.lowerCase(StringUtils.trim(contentEncoding), Locale.ROOT);
+		if(StringUtils.isEmpty(encoding) || IDENTITY.equals(encoding)) {
+			return content;
+		}
+		InputStreamFactory decoder = createDecoderRegistry().get(encoding);
+		if(decoder == null) {
+			throw new IOException(String.format("Unsupported content encoding '%s'.", contentEncoding));
+		}
+		return decoder.create(content);
+	}
+
+	static boolean isBrotliAvailable() {
+		return BROTLI_AVAILABLE;
+	}
+
+	static boolean isZstdAvailable() {
+		return ZSTD_AVAILABLE;
+	}
+
+	/**
+	 * The zstd decoder is a native library which is not available for every platform.
+	 */
+	private static boolean loadZstd() {
+		if(!ZstdUtils.isZstdCompressionAvailable()) {
+			return false;
+		}
+		try {
+			Native.load();
+			return true;
+		} catch (RuntimeException | LinkageError e) {
+			logger.warn("The zstd content encoding is not available on this platform.", e);
+			return false;
+		}
+	}
+
+}
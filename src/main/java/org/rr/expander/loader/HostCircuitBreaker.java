@@ -0,0 +1,371 @@
+package org.rr.expander.loader;
+
+import java.io.Closeable;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps a circuit for each host which opens if too many of the recent requests to the host have
+ * failed with a connection error, a timeout or a server error. All requests to a host with an open
+ * circuit fail fast with a {@link CircuitOpenException} instead of waiting for the timeout. After
+ * the open time a few probe requests are allowed which close the circuit again if they succeed.
+ * <p>
+ * A request must {@link #acquirePermission(String)} before it is sent and report its outcome with
+ * {@link #onSuccess(String)} or {@link #onError(String, Throwable)}.
+ */
+public class HostCircuitBreaker implements Closeable {
+
+	@Nonnull
+	private final static Logger logger = LoggerFactory.getLogger(HostCircuitBreaker.class);
+
+	public static enum STATE {
+		/** all requests are sent. */
+		CLOSED,
+		/** all requests fail fast. */
+		OPEN,
+		/** only a limited number of probe requests are sent. */
+		HALF_OPEN
+	}
+
+	@Nonnull
+	private final CircuitBreakerConfiguration config;
+
+	@Nonnull
+	private final ConcurrentMap<String, HostCircuit> circuits = new ConcurrentHashMap<>();
+
+	/** delays the retries of the asynchronous requests. */
+	@Nonnull
+	private final ScheduledThreadPoolExecutor retryScheduler;
+
+	@Nullable
+	private final Meter rejected;
+
+	@Nullable
+	private final Meter retries;
+
+	/**
+	 * @param config The circuit breaker and retry configuration.
+	 * @param metrics The registry where the circuit states, rejected requests and retries should be
+	 *        published. Nothing will be published if <code>null</code>.
+	 */
+	public HostCircuitBreaker(@Nonnull CircuitBreakerConfiguration config, @Nullable MetricRegistry metrics) {
+		this.config = Preconditions.checkNotNull(config);
+		this.retryScheduler = new ScheduledThreadPoolExecutor(1,
+				new ThreadFactoryBuilder().setNameFormat("host-circuit-breaker").setDaemon(true).build());
+		this.retryScheduler.setRemoveOnCancelPolicy(true);
+		long evictionIntervalSeconds = Math.max(1, config.getIdleHostSeconds());
+		this.retryScheduler.scheduleWithFixedDelay(() -> evictIdleCircuits(), evictionIntervalSeconds,
+				evictionIntervalSeconds, TimeUnit.SECONDS);
+		if(metrics != null) {
+			this.rejected = metrics.meter(MetricRegistry.name(HostCircuitBreaker.class, "rejected"));
+			this.retries = metrics.meter(MetricRegistry.name(HostCircuitBreaker.class, "retries"));
+			metrics.register(MetricRegistry.name(HostCircuitBreaker.class, "open"),
+					(Gauge<Long>) () -> countCircuits(STATE.OPEN));
+			metrics.register(MetricRegistry.name(HostCircuitBreaker.class, "half-open"),
+					(Gauge<Long>) () -> countCircuits(STATE.HALF_OPEN));
+			metrics.register(MetricRegistry.name(HostCircuitBreaker.class, "hosts"),
+					(Gauge<Integer>) () -> getHostCount());
+		} else {
+			this.rejected = null;
+			this.retries = null;
+		}
+	}
+
+	/**
+	 * Check if a request to the host of the given <code>url</code> can be sent.
+	 *
+	 * @param url The url which should be loaded.
+	 * @throws CircuitOpenException if the circuit of the host is open.
+	 */
+	void acquirePermission(@Nonnull String url) throws CircuitOpenException {
+		HostCircuit circuit = getHostCircuit(url);
+		if(!circuit.tryAcquire()) {
+			if(rejected != null) {
+				rejected.mark();
+			}
+			throw new CircuitOpenException(String.format("Circuit for '%s' is open. Failed loading '%s'.",
+					circuit.origin, url));
+		}
+	}
+
+	/**
+	 * Report a successful request to the host of the given <code>url</code>.
+	 */
+	void onSuccess(@Nonnull String url) {
+		getHostCircuit(url).record(false);
+	}
+
+	/**
+	 * Report a failed request to the host of the given <code>url</code>. Only errors which indicate a
+	 * broken or overloaded host count as failure. A status code like 404 shows that the host is
+	 * working and errors which are not caused by the host are ignored.
+	 */
+	void onError(@Nonnull String url, @Nonnull Throwable e) {
+		Throwable cause = unwrap(e);
+		if(isHostFailure(cause)) {
+			getHostCircuit(url).record(true);
+		} else if(cause instanceof HttpStatusException) {
+			getHostCircuit(url).record(false);
+		} else {
+			getHostCircuit(url).release();
+		}
+	}
+
+	/**
+	 * @param retry The number of retries which have already been done.
+	 * @param e The error of the last attempt.
+	 * @return <code>true</code> if the failed request should be retried.
+	 */
+	boolean shouldRetry(int retry, @Nonnull Throwable e) {
+		boolean retryable = retry < config.getMaxRetries() && isTransient(unwrap(e));
+		if(retryable && retries != null) {
+			retries.mark();
+		}
+		return retryable;
+	}
+
+	/**
+	 * The retries are spread with a random delay, so the requests of all feeds which failed at the
+	 * same time did not hit the recovering host at the same time again.
+	 *
+	 * @param retry The number of retries which have already been done.
+	 * @return The delay in milliseconds before the next retry.
+	 */
+	long getRetryDelayMillis(int retry) {
+		long maxDelay = Math.min(config.getRetryMaxDelayMillis(), (long) config.getRetryBaseDelayMillis() << Math.min(retry, 20));
+		return maxDelay > 0 ? ThreadLocalRandom.current().nextLong(maxDelay + 1) : 0;
+	}
+
+	@Nonnull
+	ScheduledThreadPoolExecutor getRetryScheduler() {
+		return retryScheduler;
+	}
+
+	/**
+	 * @return The state of the circuit for the host of the given <code>url</code>.
+	 */
+	public @Nonnull STATE getState(@Nonnull String url) {
+		HostCircuit circuit = circuits.get(HostRequestScheduler.getOrigin(url));
+		return circuit != null ? circuit.getState() : STATE.CLOSED;
+	}
+
+	/**
+	 * @return The states of all hosts which have been requested.
+	 */
+	public @Nonnull Map<String, STATE> getStates() {
+		return circuits.values().stream().collect(Collectors.toMap(circuit -> circuit.origin, circuit -> circuit.getState()));
+	}
+
+	/**
+	 * @return The number of hosts whose circuit is currently kept.
+	 */
+	public int getHostCount() {
+		return circuits.size();
+	}
+
+	@Override
+	public void close() {
+		retryScheduler.shutdownNow();
+	}
+
+	void evictIdleCircuits() {
+		circuits.values().removeIf(circuit -> circuit.retireIfIdle());
+	}
+
+	/**
+	 * Connection errors, timeouts and server errors may disappear if the request is repeated.
+	 * Waiting for a pooled connection is not caused by the host.
+	 */
+	public static boolean isTransient(@Nullable Throwable e) {
+		if(e instanceof HttpStatusException) {
+			return ((HttpStatusException) e).isServerError();
+		}
+		return e instanceof SocketTimeoutException || e instanceof SocketException || e instanceof NoHttpResponseException
+				|| (e instanceof ConnectTimeoutException && !(e instanceof ConnectionPoolTimeoutException));
+	}
+
+	static boolean isHostFailure(@Nullable Throwable e) {
+		return isTransient(e) || e instanceof UnknownHostException || e instanceof SSLException;
+	}
+
+	private static @Nullable Throwable unwrap(@Nullable Throwable e) {
+		while((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+			e = e.getCause();
+		}
+		return e;
+	}
+
+	private long countCircuits(@Nonnull STATE state) {
+		return circuits.values().stream().filter(circuit -> circuit.getState() == state).count();
+	}
+
+	private @Nonnull HostCircuit getHostCircuit(@Nonnull String url) {
+		String origin = HostRequestScheduler.getOrigin(url);
+		HostCircuit circuit;
+		do {
+			circuit = circuits.computeIfAbsent(origin, key -> new HostCircuit(key));
+		} while(!circuit.touch()); // the circuit was evicted in the meantime
+		return circuit;
+	}
+
+	private static long currentTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+	}
+
+	private class HostCircuit {
+
+		@Nonnull
+		private final String origin;
+
+		/** the outcomes of the recent requests, <code>true</code> for a failure. */
+		@Nonnull
+		private final boolean[] outcomes = new boolean[Math.max(1, config.getWindowSize())];
+
+		private int recorded;
+
+		private int next;
+
+		private int failures;
+
+		@Nonnull
+		private STATE state = STATE.CLOSED;
+
+		private long openedAtMillis;
+
+		private int probes;
+
+		/** the circuit was removed from the circuit breaker and must not record new requests. */
+		private boolean retired;
+
+		private long lastUsedMillis = currentTimeMillis();
+
+		HostCircuit(@Nonnull String origin) {
+			this.origin = origin;
+		}
+
+		/**
+		 * Mark this circuit as used.
+		 *
+		 * @return <code>false</code> if this circuit has been retired.
+		 */
+		synchronized boolean touch() {
+			if(retired) {
+				return false;
+			}
+			lastUsedMillis = currentTimeMillis();
+			return true;
+		}
+
+		/**
+		 * Retire this circuit if it is closed and the host was not requested for the configured idle
+		 * time, so no failure of the host has been recorded for that time either. A retired circuit
+		 * stays retired.
+		 *
+		 * @return <code>true</code> if this circuit is retired.
+		 */
+		synchronized boolean retireIfIdle() {
+			if(!retired && state == STATE.CLOSED
+					&& currentTimeMillis() - lastUsedMillis >= TimeUnit.SECONDS.toMillis(config.getIdleHostSeconds())) {
+				retired = true;
+			}
+			return retired;
+		}
+
+		synchronized STATE getState() {
+			return state;
+		}
+
+		synchronized boolean tryAcquire() {
+			if(state == STATE.CLOSED) {
+				return true;
+			} else if(state == STATE.OPEN) {
+				if(currentTimeMillis() - openedAtMillis < TimeUnit.SECONDS.toMillis(config.getOpenSeconds())) {
+					return false;
+				}
+				state = STATE.HALF_OPEN;
+				probes = 0;
+			}
+			if(probes < Math.max(1, config.getHalfOpenProbes())) {
+				probes++;
+				return true;
+			}
+			return false;
+		}
+
+		synchronized void record(boolean failure) {
+			if(state == STATE.HALF_OPEN) {
+				release();
+				if(failure) {
+					logger.warn(String.format("Circuit for '%s' opened again. The probe request failed.", origin));
+					open();
+				} else {
+					logger.info(String.format("Circuit for '%s' closed.", origin));
+					reset(STATE.CLOSED);
+				}
+			} else if(state == STATE.CLOSED) {
+				if(recorded == outcomes.length) {
+					failures -= outcomes[next] ? 1 : 0;
+				} else {
+					recorded++;
+				}
+				outcomes[next] = failure;
+				failures += failure ? 1 : 0;
+				next = (next + 1) % outcomes.length;
+
+				if(recorded >= config.getMinimumRequests() && failures * 100 >= config.getFailureRateThreshold() * recorded) {
+					logger.warn(String.format("Circuit for '%s' opened. %d of the last %d requests failed.", origin,
+							failures, recorded));
+					open();
+				}
+			}
+		}
+
+		/**
+		 * Give back a probe permit of a request without a meaningful outcome.
+		 */
+		synchronized void release() {
+			if(state == STATE.HALF_OPEN && probes > 0) {
+				probes--;
+			}
+		}
+
+		private void open() {
+			reset(STATE.OPEN);
+			openedAtMillis = currentTimeMillis();
+		}
+
+		private void reset(@Nonnull STATE newState) {
+			state = newState;
+			recorded = 0;
+			next = 0;
+			failures = 0;
+			probes = 0;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package org.rr.expander.loader;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the {@link HostRequestScheduler} which limits the requests sent to a single host.
+ */
+public class HostPolitenessConfiguration {
+
+	/** max number of requests which are sent to a single host at the same time. */
+	private int maxConcurrentRequestsPerHost = 4;
+
+	/** min time in milliseconds between the start of two requests to the same host. */
+	private int minRequestIntervalMillis = 0;
+
+	/** use the Crawl-delay from the robots.txt of a host as min request interval. */
+	private boolean robotsTxtCrawlDelay = true;
+
+	/** a longer Crawl-delay from the robots.txt will be cut to this value in seconds. */
+	private int maxCrawlDelaySeconds = 10;
+
+	/** time in seconds a loaded robots.txt is used before it gets loaded again. */
+	private int robotsTxtCacheSeconds = 86400;
+
+	/** max time in seconds a request waits for its turn before it fails. */
+	private int maxQueueWaitSeconds = 30;
+
+	/** time in seconds the state of a host is kept after its last request. */
+	private int idleHostSeconds = 3600;
+
+	@JsonProperty
+	public int getMaxConcurrentRequestsPerHost() {
+		return maxConcurrentRequestsPerHost;
+	}
+
+	@JsonProperty
+	public void setMaxConcurrentRequestsPerHost(int maxConcurrentRequestsPerHost) {
+		this.maxConcurrentRequestsPerHost = maxConcurrentRequestsPerHost;
+	}
+
+	@JsonProperty
+	public int getMinRequestIntervalMillis() {
+		return minRequestIntervalMillis;
+	}
+
+	@JsonProperty
+	public void setMinRequestIntervalMillis(int minRequestIntervalMillis) {
+		this.minRequestIntervalMillis = minRequestIntervalMillis;
+	}
+
+	@JsonProperty
+	public boolean isRobotsTxtCrawlDelay() {
+		return robotsTxtCrawlDelay;
+	}
+
+	@JsonProperty
+	public void setRobotsTxtCrawlDelay(boolean robotsTxtCrawlDelay) {
+		this.robotsTxtCrawlDelay = robotsTxtCrawlDelay;
+	}
+
+	@JsonProperty
+	public int getMaxCrawlDelaySeconds() {
+		return maxCrawlDelaySeconds;
+	}
+
+	@JsonProperty
+	public void setMaxCrawlDelaySeconds(int maxCrawlDelaySeconds) {
+		this.maxCrawlDelaySeconds = maxCrawlDelaySeconds;
+	}
+
+	@JsonProperty
+	public int getRobotsTxtCacheSeconds() {
+		return robotsTxtCacheSeconds;
+	}
+
+	@JsonProperty
+	public void setRobotsTxtCacheSeconds(int robotsTxtCacheSeconds) {
+		this.robotsTxtCacheSeconds = robotsTxtCacheSeconds;
+	}
+
+	@JsonProperty
+	public int getMaxQueueWaitSeconds() {
+		return maxQueueWaitSeconds;
+	}
+
+	@JsonProperty
+	public void setMaxQueueWaitSeconds(int maxQueueWaitSeconds) {
+		this.maxQueueWaitSeconds = maxQueueWaitSeconds;
+	}
+
+	@JsonProperty
+	public int getIdleHostSeconds() {
+		return idleHostSeconds;
+	}
+
+	@JsonProperty
+	public void setIdleHostSeconds(int idleHostSeconds) {
+		this.idleHostSeconds = idleHostSeconds;
+	}
+
+}
@@ -0,0 +1,315 @@
+package org.rr.expander.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Coordinates the requests which are sent to the same host. Only a limited number of requests can
+ * be sent to a host at the same time and the start of two requests is spaced by the configured min
+ * interval or the Crawl-delay from the robots.txt of the host. All other requests are queued in the
+ * order they arrive, so all feeds which are hosted on the same site gets served fairly.
+ * <p>
+ * A request must {@link #acquire(String)} a permit before it is sent and {@link #release(String)} it
+ * after the response was read. The state of a host is dropped after it was idle for the configured
+ * time, so the hosts of removed feeds and linked pages did not pile up.
+ */
+public class HostRequestScheduler implements Closeable {
+
+	@Nonnull
+	private final static Logger logger = LoggerFactory.getLogger(HostRequestScheduler.class);
+
+	/** number of robots.txt files which are loaded at the same time. */
+	private static final int ROBOTS_TXT_THREADS = 4;
+
+	@Nonnull
+	private final HostPolitenessConfiguration config;
+
+	/** used to load the robots.txt files. Must not be scheduled by this instance. */
+	@Nullable
+	private final UrlLoaderFactory robotsTxtLoaderFactory;
+
+	@Nonnull
+	private final ConcurrentMap<String, HostQueue> hostQueues = new ConcurrentHashMap<>();
+
+	/** delays the queued requests and fails those which are waiting too long. */
+	@Nonnull
+	private final ScheduledThreadPoolExecutor dispatcher;
+
+	/** loads the robots.txt files, so the blocking loads did not delay the dispatcher. */
+	@Nonnull
+	private final ExecutorService robotsTxtExecutor;
+
+	/**
+	 * @param config The politeness configuration.
+	 * @param robotsTxtLoaderFactory The factory used to load the robots.txt of each host or
+	 *        <code>null</code> if no robots.txt should be loaded.
+	 */
+	public HostRequestScheduler(@Nonnull HostPolitenessConfiguration config,
+			@Nullable UrlLoaderFactory robotsTxtLoaderFactory) {
+		this.config = Preconditions.checkNotNull(config);
+		this.robotsTxtLoaderFactory = robotsTxtLoaderFactory;
+		this.dispatcher = new ScheduledThreadPoolExecutor(1,
+				new ThreadFactoryBuilder().setNameFormat("host-request-scheduler").setDaemon(true).build());
+		this.dispatcher.setRemoveOnCancelPolicy(true);
+		this.robotsTxtExecutor = Executors.newFixedThreadPool(ROBOTS_TXT_THREADS,
+				new ThreadFactoryBuilder().setNameFormat("robots-txt-loader-%d").setDaemon(true).build());
+		long evictionIntervalSeconds = Math.max(1, config.getIdleHostSeconds());
+		this.dispatcher.scheduleWithFixedDelay(() -> evictIdleHostQueues(), evictionIntervalSeconds,
+				evictionIntervalSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Request a permit to send a request to the host of the given <code>url</code>.
+	 *
+	 * @param url The url which should be loaded.
+	 * @return A future which completes if the request can be sent or exceptionally with an
+	 *         {@link QueueTimeoutException} if the request has waited too long. Cancel the future if the
+	 *         permit is no longer needed.
+	 */
+	public @Nonnull CompletableFuture<Void> acquire(@Nonnull String url) {
+		CompletableFuture<Void> permit;
+		do {
+			permit = getHostQueue(url).acquire();
+		} while(permit == null); // the queue was evicted in the meantime
+		return permit;
+	}
+
+	/**
+	 * Give back the permit which was acquired for the given <code>url</code>.
+	 *
+	 * @param url The url which was loaded.
+	 */
+	public void release(@Nonnull String url) {
+		getHostQueue(url).release();
+	}
+
+	@Override
+	public void close() {
+		dispatcher.shutdownNow();
+		robotsTxtExecutor.shutdownNow();
+	}
+
+	/**
+	 * @return The number of hosts whose state is currently kept.
+	 */
+	public int getHostCount() {
+		return hostQueues.size();
+	}
+
+	void evictIdleHostQueues() {
+		hostQueues.values().removeIf(hostQueue -> hostQueue.retireIfIdle());
+	}
+
+	private @Nonnull HostQueue getHostQueue(@Nonnull String url) {
+		String origin = getOrigin(url);
+		return hostQueues.computeIfAbsent(origin, key -> new HostQueue(key));
+	}
+
+	/**
+	 * @return The scheme, host and port of the given url which identifies the queue.
+	 */
+	static @Nonnull String getOrigin(@Nonnull String url) {
+		try {
+			URL parsedUrl = new URL(url);
+			return parsedUrl.getProtocol() + "://" + parsedUrl.getHost().toLowerCase()
+					+ (parsedUrl.getPort() != -1 ? ":" + parsedUrl.getPort() : "");
+		} catch (MalformedURLException e) {
+			return url;
+		}
+	}
+
+	private static long currentTimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+	}
+
+	private class HostQueue {
+
+		@Nonnull
+		private final String origin;
+
+		@Nonnull
+		private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+
+		private int active;
+
+		private long nextStartMillis;
+
+		private boolean dispatchScheduled;
+
+		private long crawlDelayMillis;
+
+		/** no request gets sent before the robots.txt was loaded for the first time. */
+		private boolean crawlDelayLoaded;
+
+		/** the queue was removed from the scheduler and must not accept new requests. */
+		private boolean retired;
+
+		private long lastUsedMillis = currentTimeMillis();
+
+		private boolean crawlDelayLoading;
+
+		private long crawlDelayExpiresAtMillis;
+
+		HostQueue(@Nonnull String origin) {
+			this.origin = origin;
+		}
+
+		/**
+		 * @return The permit or <code>null</code> if this queue has been retired.
+		 */
+		@Nullable
+		CompletableFuture<Void> acquire() {
+			CompletableFuture<Void> permit = new CompletableFuture<>();
+			synchronized (this) {
+				if(retired) {
+					return null;
+				}
+				lastUsedMillis = currentTimeMillis();
+				waiting.add(permit);
+				refreshCrawlDelay();
+			}
+			ScheduledFuture<?> timeout = dispatcher.schedule(() -> permit.completeExceptionally(new QueueTimeoutException(
+					String.format("Waited too long for a request to '%s'.", origin))),
+					config.getMaxQueueWaitSeconds(), TimeUnit.SECONDS);
+			permit.whenComplete((result, e) -> timeout.cancel(false));
+			dispatch();
+			return permit;
+		}
+
+		void release() {
+			synchronized (this) {
+				active--;
+				lastUsedMillis = currentTimeMillis();
+			}
+			dispatch();
+		}
+
+		/**
+		 * Retire this queue if no request is active or waiting and it was not used for the configured
+		 * idle time. A retired queue stays retired.
+		 *
+		 * @return <code>true</code> if this queue is retired.
+		 */
+		synchronized boolean retireIfIdle() {
+			long now = currentTimeMillis();
+			if(!retired && active == 0 && waiting.isEmpty() && !dispatchScheduled && !crawlDelayLoading
+					&& now >= nextStartMillis && now - lastUsedMillis >= TimeUnit.SECONDS.toMillis(config.getIdleHostSeconds())) {
+				retired = true;
+			}
+			return retired;
+		}
+
+		/**
+		 * Grant permits to the waiting requests as long as the concurrency limit and the min interval
+		 * allows it. The permits are completed outside of the lock because the completion directly
+		 * executes the dependent request.
+		 */
+		private void dispatch() {
+			List<CompletableFuture<Void>> granted = new ArrayList<>();
+			synchronized (this) {
+				while(crawlDelayLoaded && active < config.getMaxConcurrentRequestsPerHost() && !waiting.isEmpty()) {
+					if(waiting.peek().isDone()) { // timed out or cancelled
+						waiting.poll();
+						continue;
+					}
+					long now = currentTimeMillis();
+					if(now < nextStartMillis) {
+						scheduleDispatch(nextStartMillis - now);
+						break;
+					}
+					active++;
+					nextStartMillis = now + getRequestIntervalMillis();
+					granted.add(waiting.poll());
+				}
+			}
+			granted.forEach(permit -> {
+				if(!permit.complete(null)) {
+					release(); // nobody is waiting anymore for this permit
+				}
+			});
+		}
+
+		private void scheduleDispatch(long delayMillis) {
+			if(!dispatchScheduled && !dispatcher.isShutdown()) {
+				dispatchScheduled = true;
+				dispatcher.schedule(() -> {
+					synchronized (this) {
+						dispatchScheduled = false;
+					}
+					dispatch();
+				}, delayMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		private long getRequestIntervalMillis() {
+			return Math.max(config.getMinRequestIntervalMillis(),
+					Math.min(crawlDelayMillis, TimeUnit.SECONDS.toMillis(config.getMaxCrawlDelaySeconds())));
+		}
+
+		/**
+		 * Loads the robots.txt of the host if it was never loaded or the loaded one is expired. An
+		 * expired Crawl-delay is still used while the new one is loaded.
+		 */
+		private void refreshCrawlDelay() {
+			if(crawlDelayLoading || (crawlDelayLoaded && currentTimeMillis() < crawlDelayExpiresAtMillis)) {
+				return;
+			}
+			if(robotsTxtLoaderFactory == null || !config.isRobotsTxtCrawlDelay()) {
+				crawlDelayLoaded = true;
+				crawlDelayExpiresAtMillis = Long.MAX_VALUE;
+				return;
+			}
+
+			crawlDelayLoading = true;
+			try {
+				robotsTxtExecutor.execute(() -> {
+					long loadedCrawlDelayMillis = loadCrawlDelayMillis();
+					synchronized (this) {
+						crawlDelayMillis = loadedCrawlDelayMillis;
+						crawlDelayLoaded = true;
+						crawlDelayLoading = false;
+						crawlDelayExpiresAtMillis = currentTimeMillis() + TimeUnit.SECONDS.toMillis(config.getRobotsTxtCacheSeconds());
+					}
+					dispatch();
+				});
+			} catch (RejectedExecutionException e) { // closed
+				crawlDelayLoaded = true;
+				crawlDelayLoading = false;
+			}
+		}
+
+		private long loadCrawlDelayMillis() {
+			try {
+				return RobotsTxt.parseCrawlDelayMillis(
+						robotsTxtLoaderFactory.getUrlLoader(origin + "/robots.txt").getContentAsString());
+			} catch (IOException | RuntimeException e) {
+				logger.debug(String.format("No robots.txt for '%s' available.", origin), e);
+			}
+			return 0;
+		}
+	}
+}
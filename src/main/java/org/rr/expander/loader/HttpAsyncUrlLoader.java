@@ -0,0 +1,223 @@
+package org.rr.expander.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.entity.ContentBufferEntity;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SimpleInputBuffer;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Fetch the content of a specified http or https url using the non blocking apache http async
+ * client. No thread is parked while waiting for the response.
+ */
+class HttpAsyncUrlLoader extends AbstractHttpLoader implements AsyncUrlLoader {
+
+	/** the shared, started client which is used to execute the request. */
+	@Nonnull
+	private HttpAsyncClient httpAsyncClient;
+
+	public HttpAsyncUrlLoader(@Nonnull String url, @Nonnull HttpAsyncClient httpAsyncClient) {
+		this(url, httpAsyncClient, DEFAULT_MAX_CONTENT_BYTES);
+	}
+
+	public HttpAsyncUrlLoader(@Nonnull String url, @Nonnull HttpAsyncClient httpAsyncClient, long maxContentBytes) {
+		this(url, httpAsyncClient, maxContentBytes, new CharsetResolver());
+	}
+
+	/**
+	 * @param url The url to be loaded.
+	 * @param httpAsyncClient The shared, started client which is used to execute the request.
+	 * @param maxContentBytes The max number of bytes which are read from the response body.
+	 * @param charsetResolver The shared resolver which remembers the charsets of the hosts.
+	 */
+	HttpAsyncUrlLoader(@Nonnull String url, @Nonnull HttpAsyncClient httpAsyncClient, long maxContentBytes,
+			@Nonnull CharsetResolver charsetResolver) {
+		super(url, maxContentBytes, charsetResolver);
+		this.httpAsyncClient = httpAsyncClient;
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<byte[]> getContentAsBytes() {
+		return getHttpResponse(createHttpGet()).thenApply(response -> readContent(validate(response)));
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<String> getContentAsString() {
+		return getHttpResponse(createHttpGet()).thenApply(response -> toString(validate(response)));
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<UrlContentStream> getContentAsRawStream() {
+		return getHttpResponse(createHttpGet()).thenApply(response -> new UrlContentStream(
+				new ByteArrayInputStream(readContent(validate(response))),
+				getHeaderValue(response, HttpHeaders.CONTENT_TYPE)));
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<UrlContent> getContentIfModified(@Nullable String eTag, @Nullable String lastModified) {
+		return getHttpResponse(createConditionalHttpGet(eTag, lastModified)).thenApply(response -> {
+			if(response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+				EntityUtils.consumeQuietly(response.getEntity());
+				return null;
+			}
+			return createUrlContent(response, toString(validate(response)));
+		});
+	}
+
+	/**
+	 * The async client does not decode compressed responses on its own, so the encodings are
+	 * advertised here and decoded by {@link #readContent(HttpResponse)}.
+	 */
+	@Override
+	protected @Nonnull HttpRequestBase createHttpGet() {
+		HttpRequestBase httpGet = super.createHttpGet();
+		httpGet.setHeader(HttpHeaders.ACCEPT_ENCODING, ContentDecoders.getAcceptEncoding());
+		return httpGet;
+	}
+
+	/**
+	 * Executes the given request. The returned future is completed by the i/o dispatcher thread of
+	 * the http client, so any work which is chained to it should be lightweight or moved to another
+	 * executor.
+	 */
+	@VisibleForTesting
+	protected @Nonnull CompletableFuture<HttpResponse> getHttpResponse(@Nonnull HttpRequestBase httpGet) {
+		httpGet.setConfig(createRequestConfig(DEFAULT_TIMEOUT));
+
+		CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+		httpAsyncClient.execute(HttpAsyncMethods.create(httpGet), new BoundedResponseConsumer(), new FutureCallback<HttpResponse>() {
+
+			@Override
+			public void completed(HttpResponse response) {
+				result.complete(response);
+			}
+
+			@Override
+			public void failed(Exception e) {
+				result.completeExceptionally(e);
+			}
+
+			@Override
+			public void cancelled() {
+				result.cancel(false);
+			}
+		});
+		return result;
+	}
+
+	private @Nonnull HttpResponse validate(@Nonnull HttpResponse response) {
+		try {
+			return validateContentType(validateStatusCode(response));
+		} catch (IOException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	/**
+	 * The async client buffers the whole response before the future gets completed, so the content
+	 * is already in memory here. The {@link BoundedResponseConsumer} has already taken care of the
+	 * max content bytes of the encoded body, the decoded body is limited while it is read.
+	 */
+	private @Nonnull byte[] readContent(@Nonnull HttpResponse response) {
+		try {
+			if(response.getEntity() == null) {
+				return new byte[0];
+			}
+			String contentEncoding = getHeaderValue(response, HttpHeaders.CONTENT_ENCODING);
+			return contentEncoding != null
+					? readContent(ContentDecoders.decode(contentEncoding, response.getEntity().getContent()), -1)
+					: readContent(response.getEntity().getContent(), response.getEntity().getContentLength());
+		} catch (IOException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	private @Nonnull String toString(@Nonnull HttpResponse response) {
+		return getResponseAsString(response, readContent(response));
+	}
+
+	private @Nonnull RequestConfig createRequestConfig(int timeout) {
+		return RequestConfig.custom()
+				.setConnectTimeout(timeout)
+				.setConnectionRequestTimeout(timeout)
+				.setSocketTimeout(timeout)
+				.setRedirectsEnabled(true)
+				.setRelativeRedirectsAllowed(true)
+				.build();
+	}
+
+	/**
+	 * Buffers the response body like the default consumer of the async client but fails as soon as
+	 * the body gets larger than the max content bytes or has an unsupported content type. Failing
+	 * closes the connection, so the rest of the body is not downloaded.
+	 */
+	private class BoundedResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+		@Nullable
+		private HttpResponse response;
+
+		@Nullable
+		private SimpleInputBuffer buffer;
+
+		@Override
+		protected void onResponseReceived(HttpResponse response) {
+			this.response = response;
+		}
+
+		@Override
+		protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+			if(response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+				validateContentType(response);
+			}
+			long contentLength = entity.getContentLength();
+			if(contentLength > maxContentBytes) {
+				throw createContentTooLargeException();
+			}
+			buffer = new SimpleInputBuffer(contentLength > 0 ? (int) contentLength : 4096, HeapByteBufferAllocator.INSTANCE);
+			response.setEntity(new ContentBufferEntity(entity, buffer));
+		}
+
+		@Override
+		protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+			buffer.consumeContent(decoder);
+			if(buffer.length() > maxContentBytes) {
+				throw createContentTooLargeException();
+			}
+		}
+
+		@Override
+		protected HttpResponse buildResult(HttpContext context) {
+			return response;
+		}
+
+		@Override
+		protected void releaseResources() {
+			response = null;
+			buffer = null;
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.rr.expander.loader;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the http client which is shared by all {@link UrlLoader} instances.
+ */
+public class HttpClientConfiguration {
+
+	/** the http client implementation, see {@link UrlLoaderFactory.LOADER_TYPE}. */
+	private String loaderType = UrlLoaderFactory.LOADER_TYPE.HTTP_CLIENT.name();
+
+	/** max number of pooled connections over all hosts. */
+	private int maxConnectionsTotal = 50;
+
+	/** max number of pooled connections to a single host. */
+	private int maxConnectionsPerRoute = 10;
+
+	/** max time in seconds a connection is kept alive if the server did not send a keep alive header. */
+	private int keepAliveSeconds = 30;
+
+	/** pooled connections which are idle for a longer time than this value in seconds will be closed. */
+	private int idleConnectionEvictionSeconds = 60;
+
+	/** pooled connections which were inactive for longer than this value in milliseconds gets validated before reuse. */
+	private int validateAfterInactivityMillis = 2000;
+
+	/** number of tls sessions which are cached for a session resumption. */
+	private int tlsSessionCacheSize = 1000;
+
+	/** max time in seconds a cached tls session can be resumed. */
+	private int tlsSessionTimeoutSeconds = 3600;
+
+	/** max number of bytes which are read from a single response. */
+	private long maxResponseBytes = AbstractHttpLoader.DEFAULT_MAX_CONTENT_BYTES;
+
+	/** use the non blocking http client to load feeds and pages. */
+	private boolean asynchronous = false;
+
+	@JsonProperty
+	public String getLoaderType() {
+		return loaderType;
+	}
+
+	@JsonProperty
+	public void setLoaderType(String loaderType) {
+		this.loaderType = loaderType;
+	}
+
+	@JsonProperty
+	public int getMaxConnectionsTotal() {
+		return maxConnectionsTotal;
+	}
+
+	@JsonProperty
+	public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+		this.maxConnectionsTotal = maxConnectionsTotal;
+	}
+
+	@JsonProperty
+	public int getMaxConnectionsPerRoute() {
+		return maxConnectionsPerRoute;
+	}
+
+	@JsonProperty
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+	}
+
+	@JsonProperty
+	public int getKeepAliveSeconds() {
+		return keepAliveSeconds;
+	}
+
+	@JsonProperty
+	public void setKeepAliveSeconds(int keepAliveSeconds) {
+		this.keepAliveSeconds = keepAliveSeconds;
+	}
+
+	@JsonProperty
+	public int getIdleConnectionEvictionSeconds() {
+		return idleConnectionEvictionSeconds;
+	}
+
+	@JsonProperty
+	public void setIdleConnectionEvictionSeconds(int idleConnectionEvictionSeconds) {
+		this.idleConnectionEvictionSeconds = idleConnectionEvictionSeconds;
+	}
+
+	@JsonProperty
+	public int getValidateAfterInactivityMillis() {
+		return validateAfterInactivityMillis;
+	}
+
+	@JsonProperty
+	public void setValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+		this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+	}
+
+	@JsonProperty
+	public int getTlsSessionCacheSize() {
+		return tlsSessionCacheSize;
+	}
+
+	@JsonProperty
+	public void setTlsSessionCacheSize(int tlsSessionCacheSize) {
+		this.tlsSessionCacheSize = tlsSessionCacheSize;
+	}
+
+	@JsonProperty
+	public int getTlsSessionTimeoutSeconds() {
+		return tlsSessionTimeoutSeconds;
+	}
+
+	@JsonProperty
+	public void setTlsSessionTimeoutSeconds(int tlsSessionTimeoutSeconds) {
+		this.tlsSessionTimeoutSeconds = tlsSessionTimeoutSeconds;
+	}
+
+	@JsonProperty
+	public boolean isAsynchronous() {
+		return asynchronous;
+	}
+
+	@JsonProperty
+	public void setAsynchronous(boolean asynchronous) {
+		this.asynchronous = asynchronous;
+	}
+
+	@JsonProperty
+	public long getMaxResponseBytes() {
+		return maxResponseBytes;
+	}
+
+	@JsonProperty
+	public void setMaxResponseBytes(long maxResponseBytes) {
+		this.maxResponseBytes = maxResponseBytes;
+	}
+
+}
@@ -0,0 +1,33 @@
+package org.rr.expander.loader;
+
+import java.io.IOException;
+
+/**
+ * Thrown by the http loaders if the server answers with an unexpected status code.
+ */
+public class HttpStatusException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int statusCode;
+
+	public HttpStatusException(int statusCode, String message) {
+		super(message);
+		this.statusCode = statusCode;
+	}
+
+	/**
+	 * @return The status code sent by the server.
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * @return <code>true</code> if the server or a proxy failed and the same request may succeed if
+	 *         it gets repeated later.
+	 */
+	public boolean isServerError() {
+		return statusCode >= 500 || statusCode == 429 || statusCode == 408;
+	}
+}
@@ -1,52 +1,63 @@
 package org.rr.expander.loader;
 
-import static org.apache.commons.lang3.StringUtils.isNotBlank;
-import static org.apache.commons.lang3.StringUtils.upperCase;
-
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
+import java.net.URI;
 import java.nio.charset.Charset;
-import java.nio.charset.IllegalCharsetNameException;
-import java.util.Optional;
-import java.util.regex.Pattern;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.util.EntityUtils;
-import org.mozilla.universalchardet.UniversalDetector;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 
 /**
  * Fetch the content of a specified http or https url using the apache http client.
  */
-class HttpUrlLoader implements UrlLoader {
+class HttpUrlLoader extends AbstractHttpLoader implements UrlLoader {
 
-	private static final int DEFAULT_TIMEOUT = 10000;
-	
-	private static final Pattern CHARSET_PATTERN = Pattern.compile(".*charset=([\\w-]*).*");
-	
+	/** the shared, pooled client which is used to execute the request. */
 	@Nonnull
-	private final static Logger logger = LoggerFactory.getLogger(HttpUrlLoader.class);
+	private HttpClient httpClient;
 
-	@Nonnull
-	private String url;
+	/** the url of the last response if the last request was redirected. */
+	@Nullable
+	private String location;
+
+	/** the status code of the redirect to the location of the last response. */
+	private int redirectStatusCode;
+
+	public HttpUrlLoader(@Nonnull String url, @Nonnull HttpClient httpClient) {
+		this(url, httpClient, DEFAULT_MAX_CONTENT_BYTES);
+	}
 
-	public HttpUrlLoader(@Nonnull String url) {
-		this.url = url;
+	public HttpUrlLoader(@Nonnull String url, @Nonnull HttpClient httpClient, long maxContentBytes) {
+		this(url, httpClient, maxContentBytes, new CharsetResolver());
+	}
+
+	/**
+	 * @param url The url to be loaded.
+	 * @param httpClient The shared client which is used to execute the request.
+	 * @param maxContentBytes The max number of bytes which are read from the response body.
+	 * @param charsetResolver The shared resolver which remembers the charsets of the hosts.
+	 */
+	HttpUrlLoader(@Nonnull String url, @Nonnull HttpClient httpClient, long maxContentBytes,
+			@Nonnull CharsetResolver charsetResolver) {
+		super(url, maxContentBytes, charsetResolver);
+		this.httpClient = httpClient;
 	}
 
 	@Override
@@ -54,82 +65,77 @@ class HttpUrlLoader implements UrlLoader {
 		return new ByteArrayInputStream(getContentAsString().getBytes(charset));
 	}
 
+	/**
+	 * The returned stream fails with an {@link IOException} as soon as more than the max content
+	 * bytes are read.
+	 */
 	@Override
-	public @Nonnull String getContentAsString() throws IOException {
-		HttpResponse httpResponse = validateStatusCode(getHttpResponse());
-		HttpEntity entity = httpResponse.getEntity();
-		byte[] responseBytes = EntityUtils.toByteArray(entity);
-		IOUtils.closeQuietly(entity.getContent()); // ensure it is fully consumed	
-		return getResponseAsString(httpResponse, responseBytes);
-	}
-
-	@VisibleForTesting
-	protected @Nonnull HttpResponse getHttpResponse() throws IOException {
-		RequestConfig.Builder requestBuilder = createRequestBuilder(DEFAULT_TIMEOUT);
-		HttpClient client = createHttpClient(requestBuilder);
-		HttpRequestBase httpGet = createHttpGet(url);
-
-		return client.execute(httpGet);
+	public @Nonnull UrlContentStream getContentAsRawStream() throws IOException {
+		HttpResponse httpResponse = validateStatusCode(getHttpResponse(createHttpGet()));
+		try {
+			validateContentType(httpResponse);
+			if(httpResponse.getEntity().getContentLength() > maxContentBytes) {
+				throw createContentTooLargeException();
+			}
+			return new UrlContentStream(new SizeLimitedInputStream(httpResponse.getEntity().getContent(), maxContentBytes,
+					() -> createContentTooLargeException()),
+					getHeaderValue(httpResponse, HttpHeaders.CONTENT_TYPE), getCloseable(httpResponse));
+		} catch (IOException e) {
+			closeQuietly(httpResponse);
+			throw e;
+		}
 	}
 
-	private HttpResponse validateStatusCode(HttpResponse response) throws IOException {
-		if (response.getStatusLine().getStatusCode() != 200) {
-			throw new IOException(String.format("%s. Failed loading '%s'.", response.getStatusLine().toString(), url));
-		}
-		return response;
+	@Override
+	public @Nonnull String getContentAsString() throws IOException {
+		return readContent(validateStatusCode(getHttpResponse(createHttpGet())));
 	}
 
-	private String getResponseAsString(HttpResponse response, byte[] content) throws UnsupportedEncodingException {
-		String charset = getResponseCharset(response);
-		if(isValidCharset(charset)) {
-			return new String(content, charset);
+	@Override
+	public @Nullable UrlContent getContentIfModified(@Nullable String eTag, @Nullable String lastModified)
+			throws IOException {
+		HttpResponse httpResponse = getHttpResponse(createConditionalHttpGet(eTag, lastModified));
+		if(httpResponse.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+			EntityUtils.consumeQuietly(httpResponse.getEntity());
+			return null;
 		}
-		return new String(content, detectOrGetDefaultEncoding(content));
+		return createUrlContent(httpResponse, readContent(validateStatusCode(httpResponse)), location,
+				redirectStatusCode);
 	}
 
-	private @Nonnull String detectOrGetDefaultEncoding(@Nonnull byte[] content) {
-		return Optional.ofNullable(detectEncoding(content)).orElse(Charset.defaultCharset().name());
-	}
-	
-	private @Nullable String detectEncoding(@Nonnull byte[] content) {
-    UniversalDetector detector = new UniversalDetector(null);
-    try {
-	    detector.handleData(content, 0, content.length);
-	    detector.dataEnd();
-	    String encoding = upperCase(detector.getDetectedCharset());
-	    return isValidCharset(encoding) ? encoding : null;
-    } finally {
-    	detector.reset();
-    }
-  }
-	
-	private boolean isValidCharset(@Nullable String charset) {
+	/**
+	 * Reads the response body but not more than the max content bytes. The response is closed
+	 * afterwards which aborts the connection if the body was not read completely, so the rest of a
+	 * too large body is not downloaded.
+	 */
+	private @Nonnull String readContent(@Nonnull HttpResponse httpResponse) throws IOException {
 		try {
-			return isNotBlank(charset) && Charset.isSupported(charset);
-		} catch(IllegalCharsetNameException e) {
-			logger.warn(String.format("response from '%s' with unknown character encoding '%s' detected.", url, charset));
+			validateContentType(httpResponse);
+			HttpEntity entity = httpResponse.getEntity();
+			return getResponseAsString(httpResponse, readContent(entity.getContent(), entity.getContentLength()));
+		} finally {
+			closeQuietly(httpResponse);
 		}
-		return false;
 	}
 
-	private @Nullable String getResponseCharset(@Nonnull HttpResponse response) {
-		return Optional.ofNullable(response.getFirstHeader("Content-Type").getValue())
-				.map(contentType -> CHARSET_PATTERN.matcher(contentType))
-				.filter(matcher -> matcher.matches())
-				.map(matcher -> matcher.group(1))
-				.orElse(null);
+	private @Nullable Closeable getCloseable(@Nonnull HttpResponse httpResponse) {
+		return httpResponse instanceof Closeable ? (Closeable) httpResponse : null;
 	}
 
-	private @Nonnull HttpRequestBase createHttpGet(String url) {
-		HttpGet httpGet = new HttpGet(url);
-		httpGet.setHeader("Accept", "text/html,application/rss+xml,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
-		return httpGet;
+	private void closeQuietly(@Nonnull HttpResponse httpResponse) {
+		IOUtils.closeQuietly(getCloseable(httpResponse));
 	}
 
-	private @Nonnull HttpClient createHttpClient(@Nonnull RequestConfig.Builder requestBuilder) {
-		return HttpClientBuilder.create()
-				.setDefaultRequestConfig(requestBuilder.build())
-				.build();
+	@VisibleForTesting
+	protected @Nonnull HttpResponse getHttpResponse(@Nonnull HttpRequestBase httpGet) throws IOException {
+		httpGet.setConfig(createRequestBuilder(DEFAULT_TIMEOUT).build());
+		HttpClientContext context = HttpClientContext.create();
+		HttpResponse httpResponse = httpClient.execute(httpGet, context);
+		List<URI> redirectLocations = context.getRedirectLocations();
+		location = redirectLocations != null && !redirectLocations.isEmpty()
+				? redirectLocations.get(redirectLocations.size() - 1).toString() : null;
+		redirectStatusCode = RedirectStatusStrategy.getRedirectStatusCode(context);
+		return httpResponse;
 	}
 
 	private @Nonnull RequestConfig.Builder createRequestBuilder(int timeout) {
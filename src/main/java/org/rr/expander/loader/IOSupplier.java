@@ -0,0 +1,13 @@
+package org.rr.expander.loader;
+
+import java.io.IOException;
+
+/**
+ * A supplier for the result of a blocking request which may fail with an {@link IOException}.
+ */
+@FunctionalInterface
+interface IOSupplier<T> {
+
+	T get() throws IOException;
+
+}
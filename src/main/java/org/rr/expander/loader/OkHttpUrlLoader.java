@@ -0,0 +1,162 @@
+package org.rr.expander.loader;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.http.HttpHeaders;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Fetch the content of a specified http or https url using the OkHttp client. The client
+ * negotiates HTTP/2 if the server supports it, so all requests to the same origin are multiplexed
+ * over a single connection.
+ */
+class OkHttpUrlLoader extends AbstractHttpLoader implements UrlLoader {
+
+	/** the shared client which is used to execute the request. */
+	@Nonnull
+	private final OkHttpClient okHttpClient;
+
+	public OkHttpUrlLoader(@Nonnull String url, @Nonnull OkHttpClient okHttpClient) {
+		this(url, okHttpClient, DEFAULT_MAX_CONTENT_BYTES);
+	}
+
+	public OkHttpUrlLoader(@Nonnull String url, @Nonnull OkHttpClient okHttpClient, long maxContentBytes) {
+		this(url, okHttpClient, maxContentBytes, new CharsetResolver());
+	}
+
+	/**
+	 * @param url The url to be loaded.
+	 * @param okHttpClient The shared client which is used to execute the request.
+	 * @param maxContentBytes The max number of bytes which are read from the response body.
+	 * @param charsetResolver The shared resolver which remembers the charsets of the hosts.
+	 */
+	OkHttpUrlLoader(@Nonnull String url, @Nonnull OkHttpClient okHttpClient, long maxContentBytes,
+			@Nonnull CharsetResolver charsetResolver) {
+		super(url, maxContentBytes, charsetResolver);
+		this.okHttpClient = okHttpClient;
+	}
+
+	@Override
+	public @Nonnull InputStream getContentAsStream(@Nonnull Charset charset) throws IOException {
+		return new ByteArrayInputStream(getContentAsString().getBytes(charset));
+	}
+
+	/**
+	 * The returned stream fails with an {@link IOException} as soon as more than the max content
+	 * bytes are read.
+	 */
+	@Override
+	public @Nonnull UrlContentStream getContentAsRawStream() throws IOException {
+		Response response = validateStatusCode(getResponse(createRequest().build()));
+		try {
+			ResponseBody body = getBody(response);
+			validateContentType(response.header(HttpHeaders.CONTENT_TYPE));
+			if(body.contentLength() > maxContentBytes) {
+				throw createContentTooLargeException();
+			}
+			return new UrlContentStream(new SizeLimitedInputStream(body.byteStream(), maxContentBytes,
+					() -> createContentTooLargeException()), response.header(HttpHeaders.CONTENT_TYPE), response);
+		} catch (IOException e) {
+			response.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public @Nonnull String getContentAsString() throws IOException {
+		return readContent(validateStatusCode(getResponse(createRequest().build())));
+	}
+
+	@Override
+	public @Nullable UrlContent getContentIfModified(@Nullable String eTag, @Nullable String lastModified)
+			throws IOException {
+		Request.Builder request = createRequest();
+		if(isNotBlank(eTag)) {
+			request.header(HttpHeaders.IF_NONE_MATCH, eTag);
+		}
+		if(isNotBlank(lastModified)) {
+			request.header(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+		}
+		Response response = getResponse(request.build());
+		if(response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			response.close();
+			return null;
+		}
+		String content = readContent(validateStatusCode(response));
+		return new UrlContent(content, response.header(HttpHeaders.ETAG), response.header(HttpHeaders.LAST_MODIFIED),
+				response.priorResponse() != null ? response.request().url().toString() : null,
+				getRedirectStatusCode(response));
+	}
+
+	/**
+	 * @return The status code of a temporary redirect if there was one, otherwise of a permanent
+	 *         redirect or 0 if the request was not redirected.
+	 */
+	private static int getRedirectStatusCode(@Nonnull Response response) {
+		int statusCode = 0;
+		for (Response prior = response.priorResponse(); prior != null; prior = prior.priorResponse()) {
+			if(statusCode == 0 || UrlContent.isPermanentRedirect(statusCode)) {
+				statusCode = prior.code();
+			}
+		}
+		return statusCode;
+	}
+
+	private @Nonnull Request.Builder createRequest() {
+		return new Request.Builder().url(url).header(HttpHeaders.ACCEPT, ACCEPT);
+	}
+
+	/**
+	 * Reads the response body but not more than the max content bytes. Closing the response cancels
+	 * the stream if the body was not read completely, so the rest of a too large body is not
+	 * downloaded.
+	 */
+	private @Nonnull String readContent(@Nonnull Response response) throws IOException {
+		try {
+			ResponseBody body = getBody(response);
+			validateContentType(response.header(HttpHeaders.CONTENT_TYPE));
+			return getResponseAsString(response.header(HttpHeaders.CONTENT_TYPE),
+					readContent(body.byteStream(), body.contentLength()));
+		} finally {
+			response.close();
+		}
+	}
+
+	private @Nonnull Response validateStatusCode(@Nonnull Response response) throws IOException {
+		if(response.code() != HttpURLConnection.HTTP_OK) {
+			response.close();
+			throw new HttpStatusException(response.code(), String.format("%s %d %s. Failed loading '%s'.",
+					response.protocol(), response.code(), response.message(), url));
+		}
+		return response;
+	}
+
+	private @Nonnull ResponseBody getBody(@Nonnull Response response) throws IOException {
+		ResponseBody body = response.body();
+		if(body == null) {
+			throw new IOException(String.format("No content. Failed loading '%s'.", url));
+		}
+		return body;
+	}
+
+	@VisibleForTesting
+	protected @Nonnull Response getResponse(@Nonnull Request request) throws IOException {
+		return okHttpClient.newCall(request).execute();
+	}
+
+}
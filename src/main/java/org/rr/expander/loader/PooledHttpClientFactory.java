@@ -0,0 +1,337 @@
+package org.rr.expander.loader;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NHttpClientConnectionManager;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.ssl.SSLContexts;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+
+/**
+ * Creates the pooled http clients which are shared by all {@link HttpUrlLoader},
+ * {@link OkHttpUrlLoader} and {@link HttpAsyncUrlLoader} instances. Sharing the client allows to
+ * reuse kept alive connections and resume tls sessions instead of doing a new handshake for each
+ * loaded page.
+ */
+public class PooledHttpClientFactory {
+
+	/**
+	 * Create a new pooled http client using the given configuration.
+	 *
+	 * @param config The pool configuration.
+	 * @param metrics The registry where the pool statistics should be published. Nothing will be
+	 *        published if <code>null</code>.
+	 * @return The new http client which must be closed if no longer needed.
+	 */
+	public static @Nonnull CloseableHttpClient createHttpClient(@Nonnull HttpClientConfiguration config,
+			@Nullable MetricRegistry metrics) {
+		return createHttpClient(config, metrics, null);
+	}
+
+	/**
+	 * Create a new pooled http client using the given configuration.
+	 *
+	 * @param config The pool configuration.
+	 * @param metrics The registry where the pool statistics should be published. Nothing will be
+	 *        published if <code>null</code>.
+	 * @param connectionWarmer The warmer which resolves the hosts and opens the connections of the
+	 *        new client in advance or <code>null</code> if no warm-up should be done.
+	 * @return The new http client which must be closed if no longer needed.
+	 */
+	public static @Nonnull CloseableHttpClient createHttpClient(@Nonnull HttpClientConfiguration config,
+			@Nullable MetricRegistry metrics, @Nullable ConnectionWarmer connectionWarmer) {
+		Preconditions.checkNotNull(config);
+		PoolingHttpClientConnectionManager connectionManager = createConnectionManager(config, connectionWarmer);
+		if(connectionWarmer != null) {
+			connectionWarmer.register(connectionManager, config.getKeepAliveSeconds());
+		}
+		if(metrics != null) {
+			registerPoolMetrics(connectionManager, metrics);
+		}
+
+		return HttpClientBuilder.create()
+				.setConnectionManager(connectionManager)
+				.setKeepAliveStrategy(createKeepAliveStrategy(config.getKeepAliveSeconds()))
+				.evictExpiredConnections()
+				.evictIdleConnections(config.getIdleConnectionEvictionSeconds(), TimeUnit.SECONDS)
+				.disableConnectionState() // allow to reuse pooled tls connections
+				.setContentDecoderRegistry(ContentDecoders.createDecoderRegistry())
+				.setRedirectStrategy(new RedirectStatusStrategy())
+				.build();
+	}
+
+	/**
+	 * Create and start a new pooled, non blocking http client using the given configuration.
+	 *
+	 * @param config The pool configuration.
+	 * @param metrics The registry where the pool statistics should be published. Nothing will be
+	 *        published if <code>null</code>.
+	 * @return The new, started http client which must be closed if no longer needed.
+	 * @throws IOException if the i/o reactor of the client could not be created.
+	 */
+	public static @Nonnull CloseableHttpAsyncClient createHttpAsyncClient(@Nonnull HttpClientConfiguration config,
+			@Nullable MetricRegistry metrics) throws IOException {
+		return createHttpAsyncClient(config, metrics, null);
+	}
+
+	/**
+	 * Create and start a new pooled, non blocking http client using the given configuration.
+	 *
+	 * @param config The pool configuration.
+	 * @param metrics The registry where the pool statistics should be published. Nothing will be
+	 *        published if <code>null</code>.
+	 * @param connectionWarmer The warmer which resolves the hosts and opens the connections of the
+	 *        new client in advance or <code>null</code> if no warm-up should be done.
+	 * @return The new, started http client which must be closed if no longer needed.
+	 * @throws IOException if the i/o reactor of the client could not be created.
+	 */
+	public static @Nonnull CloseableHttpAsyncClient createHttpAsyncClient(@Nonnull HttpClientConfiguration config,
+			@Nullable MetricRegistry metrics, @Nullable ConnectionWarmer connectionWarmer) throws IOException {
+		Preconditions.checkNotNull(config);
+		PoolingNHttpClientConnectionManager connectionManager = createAsyncConnectionManager(config, connectionWarmer);
+		if(connectionWarmer != null) {
+			connectionWarmer.register(connectionManager, config.getKeepAliveSeconds());
+		}
+		if(metrics != null) {
+			registerPoolMetrics(NHttpClientConnectionManager.class, () -> connectionManager.getTotalStats(),
+					() -> connectionManager.getRoutes().size(), metrics);
+		}
+
+		CloseableHttpAsyncClient httpAsyncClient = HttpAsyncClients.custom()
+				.setConnectionManager(connectionManager)
+				.setKeepAliveStrategy(createKeepAliveStrategy(config.getKeepAliveSeconds()))
+				.disableConnectionState() // allow to reuse pooled tls connections
+				.build();
+		httpAsyncClient.start();
+		startIdleConnectionEvictor(httpAsyncClient, connectionManager, config.getIdleConnectionEvictionSeconds());
+		return httpAsyncClient;
+	}
+
+	/**
+	 * Create a new OkHttp client using the given configuration. The client uses HTTP/2 for all hosts
+	 * which support it, which needs a jvm with ALPN support (java 8u252 or newer). Otherwise HTTP/1.1
+	 * is used with pooled connections like the other clients.
+	 *
+	 * @param config The pool configuration.
+	 * @param metrics The registry where the pool statistics should be published. Nothing will be
+	 *        published if <code>null</code>.
+	 * @param connectionWarmer The warmer whose cached dns results should be used or <code>null</code>.
+	 * @return The new client. Use {@link #close(OkHttpClient)} if no longer needed.
+	 */
+	public static @Nonnull OkHttpClient createOkHttpClient(@Nonnull HttpClientConfiguration config,
+			@Nullable MetricRegistry metrics, @Nullable ConnectionWarmer connectionWarmer) {
+		Preconditions.checkNotNull(config);
+		ConnectionPool connectionPool = new ConnectionPool(config.getMaxConnectionsTotal(),
+				config.getIdleConnectionEvictionSeconds(), TimeUnit.SECONDS);
+		if(metrics != null) {
+			metrics.register(getPoolMetricName(OkHttpClient.class, "connections"),
+					(Gauge<Integer>) () -> connectionPool.connectionCount());
+			metrics.register(getPoolMetricName(OkHttpClient.class, "idle"),
+					(Gauge<Integer>) () -> connectionPool.idleConnectionCount());
+		}
+
+		X509TrustManager trustManager = getDefaultTrustManager();
+		OkHttpClient.Builder builder = new OkHttpClient.Builder()
+				.connectionPool(connectionPool)
+				.sslSocketFactory(createSslContext(config, trustManager).getSocketFactory(), trustManager)
+				.connectTimeout(AbstractHttpLoader.DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS)
+				.readTimeout(AbstractHttpLoader.DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS)
+				.writeTimeout(AbstractHttpLoader.DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS)
+				.followRedirects(true)
+				.followSslRedirects(true);
+		if(connectionWarmer != null) {
+			DnsResolver dnsResolver = connectionWarmer.getDnsResolver();
+			builder.dns(hostname -> Arrays.asList(dnsResolver.resolve(hostname)));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Shut down the threads and close the pooled connections of the given OkHttp client.
+	 */
+	public static void close(@Nonnull OkHttpClient okHttpClient) {
+		okHttpClient.dispatcher().executorService().shutdown();
+		okHttpClient.connectionPool().evictAll();
+	}
+
+	private static @Nonnull PoolingNHttpClientConnectionManager createAsyncConnectionManager(
+			@Nonnull HttpClientConfiguration config, @Nullable ConnectionWarmer connectionWarmer) throws IOReactorException {
+		SSLContext sslContext = createSslContext(config);
+		Registry<SchemeIOSessionStrategy> sessionStrategyRegistry = RegistryBuilder.<SchemeIOSessionStrategy> create()
+				.register("http", NoopIOSessionStrategy.INSTANCE)
+				.register("https", new SSLIOSessionStrategy(sslContext))
+				.build();
+		PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+				new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT), null, sessionStrategyRegistry,
+				getDnsResolver(connectionWarmer));
+		connectionManager.setMaxTotal(config.getMaxConnectionsTotal());
+		connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+		return connectionManager;
+	}
+
+	/**
+	 * The async client did not evict idle connections on its own, so a daemon thread does the job
+	 * until the client gets closed.
+	 */
+	private static void startIdleConnectionEvictor(@Nonnull CloseableHttpAsyncClient httpAsyncClient,
+			@Nonnull PoolingNHttpClientConnectionManager connectionManager, int idleConnectionEvictionSeconds) {
+		ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactoryBuilder().setNameFormat("async-connection-evictor").setDaemon(true).build());
+		evictor.scheduleWithFixedDelay(() -> {
+			if(httpAsyncClient.isRunning()) {
+				connectionManager.closeExpiredConnections();
+				connectionManager.closeIdleConnections(idleConnectionEvictionSeconds, TimeUnit.SECONDS);
+			} else {
+				evictor.shutdown();
+			}
+		}, idleConnectionEvictionSeconds, idleConnectionEvictionSeconds, TimeUnit.SECONDS);
+	}
+
+	private static @Nonnull PoolingHttpClientConnectionManager createConnectionManager(
+			@Nonnull HttpClientConfiguration config, @Nullable ConnectionWarmer connectionWarmer) {
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+				createSocketFactoryRegistry(config), getDnsResolver(connectionWarmer));
+		connectionManager.setMaxTotal(config.getMaxConnectionsTotal());
+		connectionManager.setDefaultMaxPerRoute(config.getMaxConnectionsPerRoute());
+		connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivityMillis());
+		return connectionManager;
+	}
+
+	/**
+	 * @return The caching resolver of the warmer or <code>null</code> to use the system resolver.
+	 */
+	private static @Nullable DnsResolver getDnsResolver(@Nullable ConnectionWarmer connectionWarmer) {
+		return connectionWarmer != null ? connectionWarmer.getDnsResolver() : null;
+	}
+
+	/**
+	 * All https connections are created with the same {@link SSLContext} which is necessary that
+	 * cached tls sessions can be resumed.
+	 */
+	private static @Nonnull Registry<ConnectionSocketFactory> createSocketFactoryRegistry(
+			@Nonnull HttpClientConfiguration config) {
+		return RegistryBuilder.<ConnectionSocketFactory> create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", new SSLConnectionSocketFactory(createSslContext(config)))
+				.build();
+	}
+
+	private static @Nonnull SSLContext createSslContext(@Nonnull HttpClientConfiguration config) {
+		return configureSessionCache(SSLContexts.createSystemDefault(), config);
+	}
+
+	/**
+	 * OkHttp needs to know the trust manager of the {@link SSLContext}, so the context is created
+	 * with the given one instead of the system default.
+	 */
+	private static @Nonnull SSLContext createSslContext(@Nonnull HttpClientConfiguration config,
+			@Nonnull X509TrustManager trustManager) {
+		try {
+			SSLContext sslContext = SSLContext.getInstance("TLS");
+			sslContext.init(null, new TrustManager[] { trustManager }, null);
+			return configureSessionCache(sslContext, config);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Failed to create the ssl context.", e);
+		}
+	}
+
+	private static @Nonnull SSLContext configureSessionCache(@Nonnull SSLContext sslContext,
+			@Nonnull HttpClientConfiguration config) {
+		sslContext.getClientSessionContext().setSessionCacheSize(config.getTlsSessionCacheSize());
+		sslContext.getClientSessionContext().setSessionTimeout(config.getTlsSessionTimeoutSeconds());
+		return sslContext;
+	}
+
+	private static @Nonnull X509TrustManager getDefaultTrustManager() {
+		try {
+			TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+			trustManagerFactory.init((KeyStore) null);
+			return Stream.of(trustManagerFactory.getTrustManagers())
+					.filter(trustManager -> trustManager instanceof X509TrustManager)
+					.map(trustManager -> (X509TrustManager) trustManager)
+					.findFirst()
+					.orElseThrow(() -> new IllegalStateException("No default X509TrustManager available."));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Failed to get the default trust manager.", e);
+		}
+	}
+
+	/**
+	 * Use the keep alive duration sent by the server but never keep a connection longer alive than
+	 * the configured <code>keepAliveSeconds</code>.
+	 */
+	private static @Nonnull ConnectionKeepAliveStrategy createKeepAliveStrategy(int keepAliveSeconds) {
+		long maxKeepAlive = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+		return (response, context) -> {
+			long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return keepAlive > 0 ? Math.min(keepAlive, maxKeepAlive) : maxKeepAlive;
+		};
+	}
+
+	private static void registerPoolMetrics(@Nonnull PoolingHttpClientConnectionManager connectionManager,
+			@Nonnull MetricRegistry metrics) {
+		registerPoolMetrics(HttpClientConnectionManager.class, () -> connectionManager.getTotalStats(),
+				() -> connectionManager.getRoutes().size(), metrics);
+	}
+
+	private static void registerPoolMetrics(@Nonnull Class<?> connectionManagerType,
+			@Nonnull Supplier<PoolStats> totalStats, @Nonnull Supplier<Integer> routes, @Nonnull MetricRegistry metrics) {
+		metrics.register(getPoolMetricName(connectionManagerType, "leased"),
+				(Gauge<Integer>) () -> totalStats.get().getLeased());
+		metrics.register(getPoolMetricName(connectionManagerType, "available"),
+				(Gauge<Integer>) () -> totalStats.get().getAvailable());
+		metrics.register(getPoolMetricName(connectionManagerType, "pending"),
+				(Gauge<Integer>) () -> totalStats.get().getPending());
+		metrics.register(getPoolMetricName(connectionManagerType, "max"),
+				(Gauge<Integer>) () -> totalStats.get().getMax());
+		metrics.register(getPoolMetricName(connectionManagerType, "routes"),
+				(Gauge<Integer>) () -> routes.get());
+	}
+
+	private static @Nonnull String getPoolMetricName(@Nonnull Class<?> connectionManagerType, @Nonnull String name) {
+		return MetricRegistry.name(connectionManagerType, "pool", name);
+	}
+}
@@ -0,0 +1,17 @@
+package org.rr.expander.loader;
+
+import java.io.IOException;
+
+/**
+ * Thrown by the {@link HostRequestScheduler} if a request has waited too long for a permit to be
+ * sent to its host. The request was never sent, so the failure says nothing about the requested
+ * page.
+ */
+public class QueueTimeoutException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public QueueTimeoutException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,164 @@
+package org.rr.expander.loader;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A response which has been stored in the {@link ResponseArchive}. Either the body or the error of
+ * the request is available.
+ */
+public class RecordedResponse {
+
+	private String url;
+
+	/** the status code of the response or 0 if the request failed without a response. */
+	private int statusCode;
+
+	/** the Content-Type header or <code>null</code> if not known. */
+	@Nullable
+	private String contentType;
+
+	/** the charset of the body if it has already been decoded before it was recorded. */
+	@Nullable
+	private String charset;
+
+	@Nullable
+	private String eTag;
+
+	@Nullable
+	private String lastModified;
+
+	@Nullable
+	private byte[] body;
+
+	/** the class name of the error which has been thrown by the loader. */
+	@Nullable
+	private String errorType;
+
+	@Nullable
+	private String errorMessage;
+
+	/** time in milliseconds from sending the request until the body was read or the request failed. */
+	private long elapsedMillis;
+
+	/** the time the response has been recorded in milliseconds since the epoch. */
+	private long recordedAt;
+
+	@JsonProperty
+	public String getUrl() {
+		return url;
+	}
+
+	@JsonProperty
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	@JsonProperty
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	@JsonProperty
+	public void setStatusCode(int statusCode) {
+		this.statusCode = statusCode;
+	}
+
+	@JsonProperty
+	public @Nullable String getContentType() {
+		return contentType;
+	}
+
+	@JsonProperty
+	public void setContentType(@Nullable String contentType) {
+		this.contentType = contentType;
+	}
+
+	@JsonProperty
+	public @Nullable String getCharset() {
+		return charset;
+	}
+
+	@JsonProperty
+	public void setCharset(@Nullable String charset) {
+		this.charset = charset;
+	}
+
+	@JsonProperty("eTag")
+	public @Nullable String getETag() {
+		return eTag;
+	}
+
+	@JsonProperty("eTag")
+	public void setETag(@Nullable String eTag) {
+		this.eTag = eTag;
+	}
+
+	@JsonProperty
+	public @Nullable String getLastModified() {
+		return lastModified;
+	}
+
+	@JsonProperty
+	public void setLastModified(@Nullable String lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	@JsonProperty
+	public @Nullable byte[] getBody() {
+		return body;
+	}
+
+	@JsonProperty
+	public void setBody(@Nullable byte[] body) {
+		this.body = body;
+	}
+
+	@JsonProperty
+	public @Nullable String getErrorType() {
+		return errorType;
+	}
+
+	@JsonProperty
+	public void setErrorType(@Nullable String errorType) {
+		this.errorType = errorType;
+	}
+
+	@JsonProperty
+	public @Nullable String getErrorMessage() {
+		return errorMessage;
+	}
+
+	@JsonProperty
+	public void setErrorMessage(@Nullable String errorMessage) {
+		this.errorMessage = errorMessage;
+	}
+
+	@JsonProperty
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	@JsonProperty
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	@JsonProperty
+	public long getRecordedAt() {
+		return recordedAt;
+	}
+
+	@JsonProperty
+	public void setRecordedAt(long recordedAt) {
+		this.recordedAt = recordedAt;
+	}
+
+	@JsonIgnore
+	public boolean isFailed() {
+		return body == null;
+	}
+
+}
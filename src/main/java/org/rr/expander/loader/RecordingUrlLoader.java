@@ -0,0 +1,133 @@
+package org.rr.expander.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delegates to another {@link UrlLoader} and stores each response or error together with the time
+ * it took in the {@link ResponseArchive}. A failure to write the archive did not fail the request.
+ */
+class RecordingUrlLoader implements UrlLoader {
+
+	@Nonnull
+	private final static Logger logger = LoggerFactory.getLogger(RecordingUrlLoader.class);
+
+	@Nonnull
+	private final String url;
+
+	@Nonnull
+	private final UrlLoader delegate;
+
+	@Nonnull
+	private final ResponseArchive archive;
+
+	RecordingUrlLoader(@Nonnull String url, @Nonnull UrlLoader delegate, @Nonnull ResponseArchive archive) {
+		this.url = url;
+		this.delegate = delegate;
+		this.archive = archive;
+	}
+
+	@Override
+	public @Nonnull InputStream getContentAsStream(@Nonnull Charset charset) throws IOException {
+		return new ByteArrayInputStream(getContentAsString().getBytes(charset));
+	}
+
+	@Override
+	public @Nonnull String getContentAsString() throws IOException {
+		long start = System.nanoTime();
+		try {
+			String content = delegate.getContentAsString();
+			record(createResponse(start, content.getBytes(StandardCharsets.UTF_8), null, StandardCharsets.UTF_8));
+			return content;
+		} catch (IOException e) {
+			record(createResponse(start, e));
+			throw e;
+		}
+	}
+
+	/**
+	 * A not modified response is not recorded, so the archive keeps the previously recorded content.
+	 */
+	@Override
+	public @Nullable UrlContent getContentIfModified(@Nullable String eTag, @Nullable String lastModified)
+			throws IOException {
+		long start = System.nanoTime();
+		try {
+			UrlContent content = delegate.getContentIfModified(eTag, lastModified);
+			if(content != null) {
+				RecordedResponse response = createResponse(start, content.getContent().getBytes(StandardCharsets.UTF_8), null,
+						StandardCharsets.UTF_8);
+				response.setETag(content.getETag());
+				response.setLastModified(content.getLastModified());
+				record(response);
+			}
+			return content;
+		} catch (IOException e) {
+			record(createResponse(start, e));
+			throw e;
+		}
+	}
+
+	/**
+	 * The raw stream is read completely before it is returned, so the recorded time contains the
+	 * download of the body. The size of the stream is limited by the delegate.
+	 */
+	@Override
+	public @Nonnull UrlContentStream getContentAsRawStream() throws IOException {
+		long start = System.nanoTime();
+		try (UrlContentStream contentStream = delegate.getContentAsRawStream()) {
+			byte[] content = IOUtils.toByteArray(contentStream.getInputStream());
+			record(createResponse(start, content, contentStream.getContentType(), null));
+			return new UrlContentStream(new ByteArrayInputStream(content), contentStream.getContentType());
+		} catch (IOException e) {
+			record(createResponse(start, e));
+			throw e;
+		}
+	}
+
+	private @Nonnull RecordedResponse createResponse(long start, @Nonnull byte[] body, @Nullable String contentType,
+			@Nullable Charset charset) {
+		RecordedResponse response = createResponse(start);
+		response.setStatusCode(200);
+		response.setBody(body);
+		response.setContentType(contentType);
+		response.setCharset(charset != null ? charset.name() : null);
+		return response;
+	}
+
+	private @Nonnull RecordedResponse createResponse(long start, @Nonnull IOException e) {
+		RecordedResponse response = createResponse(start);
+		response.setStatusCode(e instanceof HttpStatusException ? ((HttpStatusException) e).getStatusCode() : 0);
+		response.setErrorType(e.getClass().getName());
+		response.setErrorMessage(e.getMessage());
+		return response;
+	}
+
+	private @Nonnull RecordedResponse createResponse(long start) {
+		RecordedResponse response = new RecordedResponse();
+		response.setUrl(url);
+		response.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		response.setRecordedAt(System.currentTimeMillis());
+		return response;
+	}
+
+	private void record(@Nonnull RecordedResponse response) {
+		try {
+			archive.put(response);
+		} catch (IOException e) {
+			logger.warn(String.format("Failed to record the response of '%s'.", url), e);
+		}
+	}
+
+}
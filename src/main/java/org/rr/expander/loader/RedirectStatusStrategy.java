@@ -0,0 +1,42 @@
+package org.rr.expander.loader;
+
+import javax.annotation.Nonnull;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolException;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.DefaultRedirectStrategy;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Follows the redirects like the {@link DefaultRedirectStrategy} and keeps the status code of the
+ * redirects in the request context, so the loader can tell if the location of the content is
+ * permanent. The apache http client only keeps the redirect locations on its own.
+ */
+class RedirectStatusStrategy extends DefaultRedirectStrategy {
+
+	private static final String REDIRECT_STATUS_CODE = "expander.redirect-status-code";
+
+	@Override
+	public HttpUriRequest getRedirect(HttpRequest request, HttpResponse response, HttpContext context)
+			throws ProtocolException {
+		HttpUriRequest redirect = super.getRedirect(request, response, context);
+		int statusCode = getRedirectStatusCode(context);
+		if(statusCode == 0 || UrlContent.isPermanentRedirect(statusCode)) {
+			context.setAttribute(REDIRECT_STATUS_CODE, response.getStatusLine().getStatusCode());
+		}
+		return redirect;
+	}
+
+	/**
+	 * @param context The context of the executed request.
+	 * @return The status code of a temporary redirect if there was one, otherwise of a permanent
+	 *         redirect or 0 if the request was not redirected or not executed by a client using this
+	 *         strategy.
+	 */
+	static int getRedirectStatusCode(@Nonnull HttpContext context) {
+		Object statusCode = context.getAttribute(REDIRECT_STATUS_CODE);
+		return statusCode instanceof Integer ? (Integer) statusCode : 0;
+	}
+}
@@ -0,0 +1,143 @@
+package org.rr.expander.loader;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Serves the response which has been recorded for the url in the {@link ResponseArchive} instead of
+ * loading it. The recorded errors are thrown again and the recorded latency is reproduced, so a
+ * replay puts the same load on the application as the recorded traffic.
+ */
+class ReplayUrlLoader extends AbstractHttpLoader implements UrlLoader {
+
+	@Nonnull
+	private final ResponseArchive archive;
+
+	/** the recorded latencies are multiplied with this factor. */
+	private final double latencyFactor;
+
+	/**
+	 * @param url The url to be replayed.
+	 * @param archive The archive which contains the recorded responses.
+	 * @param maxContentBytes The max number of bytes of a replayed response body.
+	 * @param latencyFactor The factor the recorded latencies are multiplied with. 0 replays without
+	 *        delay.
+	 * @param charsetResolver The shared resolver which remembers the charsets of the hosts.
+	 */
+	ReplayUrlLoader(@Nonnull String url, @Nonnull ResponseArchive archive, long maxContentBytes, double latencyFactor,
+			@Nonnull CharsetResolver charsetResolver) {
+		super(url, maxContentBytes, charsetResolver);
+		this.archive = archive;
+		this.latencyFactor = latencyFactor;
+	}
+
+	@Override
+	public @Nonnull InputStream getContentAsStream(@Nonnull Charset charset) throws IOException {
+		return new ByteArrayInputStream(getContentAsString().getBytes(charset));
+	}
+
+	@Override
+	public @Nonnull String getContentAsString() throws IOException {
+		return getContent(replay());
+	}
+
+	/**
+	 * The recorded response is not modified if one of the given validators matches the recorded one.
+	 */
+	@Override
+	public @Nullable UrlContent getContentIfModified(@Nullable String eTag, @Nullable String lastModified)
+			throws IOException {
+		RecordedResponse response = replay();
+		if((isNotBlank(eTag) && Objects.equals(eTag, response.getETag()))
+				|| (isNotBlank(lastModified) && Objects.equals(lastModified, response.getLastModified()))) {
+			return null;
+		}
+		return new UrlContent(getContent(response), response.getETag(), response.getLastModified());
+	}
+
+	@Override
+	public @Nonnull UrlContentStream getContentAsRawStream() throws IOException {
+		RecordedResponse response = replay();
+		return new UrlContentStream(new ByteArrayInputStream(response.getBody()), getContentType(response));
+	}
+
+	/**
+	 * Wait for the recorded latency and check the recorded response like a loaded one.
+	 *
+	 * @return The recorded response which has a body.
+	 * @throws IOException if no response has been recorded for the url or the recorded request failed.
+	 */
+	private @Nonnull RecordedResponse replay() throws IOException {
+		RecordedResponse response = archive.get(url);
+		if(response == null) {
+			throw new IOException(String.format("No response has been recorded. Failed loading '%s'.", url));
+		}
+		sleep((long) (response.getElapsedMillis() * latencyFactor));
+		if(response.isFailed()) {
+			throw createException(response);
+		}
+		validateContentType(response.getContentType());
+		if(response.getBody().length > maxContentBytes) {
+			throw createContentTooLargeException();
+		}
+		return response;
+	}
+
+	private @Nonnull String getContent(@Nonnull RecordedResponse response) {
+		if(response.getCharset() != null) {
+			return new String(response.getBody(), Charset.forName(response.getCharset()));
+		}
+		return getResponseAsString(response.getContentType(), response.getBody());
+	}
+
+	/**
+	 * Bodies which have been decoded before they were recorded get a content type with their charset.
+	 */
+	private @Nullable String getContentType(@Nonnull RecordedResponse response) {
+		if(response.getContentType() == null && response.getCharset() != null) {
+			return "text/html; charset=" + response.getCharset();
+		}
+		return response.getContentType();
+	}
+
+	/**
+	 * Recreate the recorded error, so the error handling, for example the retries, behave like they
+	 * did while the responses were recorded.
+	 */
+	private @Nonnull IOException createException(@Nonnull RecordedResponse response) {
+		String message = StringUtils.defaultString(response.getErrorMessage(), String.format("Failed loading '%s'.", url));
+		if(response.getStatusCode() > 0) {
+			return new HttpStatusException(response.getStatusCode(), message);
+		}
+		try {
+			return Class.forName(response.getErrorType()).asSubclass(IOException.class).getConstructor(String.class)
+					.newInstance(message);
+		} catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			return new IOException(message);
+		}
+	}
+
+	private void sleep(long delayMillis) throws IOException {
+		if(delayMillis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(delayMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(String.format("Interrupted while replaying '%s'.", url));
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+package org.rr.expander.loader;
+
+import static org.apache.commons.lang3.StringUtils.substringBefore;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Lets concurrent requests for the same url share a single in-flight request and its result. The
+ * first request is sent, all other requests for the same key which arrive before it has finished
+ * just wait for its result. Nothing is kept after the request has finished, so caching is still up
+ * to the page cache.
+ * <p>
+ * A blocking request which was abandoned by its caller, because the thread got interrupted, did not
+ * fail the waiting requests. One of them takes over and sends the request again.
+ */
+public class RequestCoalescer {
+
+	/** the in-flight requests. The key contains the kind of result so the unchecked casts are safe. */
+	@Nonnull
+	private final ConcurrentMap<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Execute the given blocking <code>request</code> or wait for the result of an in-flight request
+	 * with the same key.
+	 *
+	 * @param key The key which identifies identical requests. Use {@link #createKey(String, String...)}.
+	 * @param request The request to be executed if there is no in-flight request for the key.
+	 * @return The result of the request.
+	 * @throws IOException if the shared request has failed.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T execute(@Nonnull String key, @Nonnull IOSupplier<T> request) throws IOException {
+		while(true) {
+			CompletableFuture<T> created = new CompletableFuture<>();
+			CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, created);
+			if(existing == null) {
+				return lead(key, created, request);
+			}
+			try {
+				return await(existing);
+			} catch (AbandonedRequestException e) {
+				// the leader was interrupted, try to take over the request.
+			}
+		}
+	}
+
+	/**
+	 * Send the request and share its result. The key is removed before the result is published, so
+	 * the waiting requests which take over an abandoned request did not find it again.
+	 */
+	private <T> T lead(@Nonnull String key, @Nonnull CompletableFuture<T> created, @Nonnull IOSupplier<T> request)
+			throws IOException {
+		try {
+			T result = request.get();
+			inFlight.remove(key, created);
+			created.complete(result);
+			return result;
+		} catch (IOException | RuntimeException e) {
+			inFlight.remove(key, created);
+			created.completeExceptionally(isAbandoned(e) ? new AbandonedRequestException(e) : e);
+			throw e;
+		} catch (Error e) {
+			inFlight.remove(key, created);
+			created.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * The loaders restore the interrupt flag if they are interrupted while waiting for a permit or a
+	 * retry, so the flag tells apart an abandoned request from a timeout of the host.
+	 */
+	private static boolean isAbandoned(@Nonnull Exception e) {
+		return Thread.currentThread().isInterrupted() || e instanceof ClosedByInterruptException
+				|| e instanceof CancellationException;
+	}
+
+	/**
+	 * Execute the given non blocking <code>request</code> or join an in-flight request with the same
+	 * key.
+	 *
+	 * @param key The key which identifies identical requests. Use {@link #createKey(String, String...)}.
+	 * @param request The request to be executed if there is no in-flight request for the key.
+	 * @return The future result of the request.
+	 */
+	@SuppressWarnings("unchecked")
+	@Nonnull
+	<T> CompletableFuture<T> executeAsync(@Nonnull String key, @Nonnull Supplier<CompletableFuture<T>> request) {
+		CompletableFuture<T> created = new CompletableFuture<>();
+		CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, created);
+		if(existing != null) {
+			return existing;
+		}
+
+		try {
+			request.get().whenComplete((result, e) -> {
+				inFlight.remove(key, created);
+				if(e != null) {
+					created.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+				} else {
+					created.complete(result);
+				}
+			});
+		} catch (RuntimeException e) {
+			inFlight.remove(key, created);
+			created.completeExceptionally(e);
+		}
+		return created;
+	}
+
+	/**
+	 * @return The number of requests which are currently in-flight.
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	/**
+	 * Create the key for a request. The fragment of the url is never sent to the server, so urls which
+	 * differ only in the fragment are identical requests.
+	 *
+	 * @param kind The kind of the result, for example the name of the loader method.
+	 * @param url The requested url.
+	 * @param parameters Additional request parameters like the validators of a conditional request.
+	 * @return The key for the request.
+	 */
+	static @Nonnull String createKey(@Nonnull String kind, @Nonnull String url, @Nonnull String... parameters) {
+		StringBuilder key = new StringBuilder(kind).append(' ').append(substringBefore(url.trim(), "#"));
+		for (String parameter : parameters) {
+			key.append(' ').append(parameter);
+		}
+		return key.toString();
+	}
+
+	private <T> T await(@Nonnull CompletableFuture<T> existing) throws IOException {
+		try {
+			return existing.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for an in-flight request.");
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Passed to the waiting requests instead of the failure of a leader which has been interrupted.
+	 */
+	private static class AbandonedRequestException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		AbandonedRequestException(@Nonnull Throwable cause) {
+			super("The in-flight request was abandoned.", cause);
+		}
+	}
+}
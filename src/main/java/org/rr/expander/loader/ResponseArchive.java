@@ -0,0 +1,109 @@
+package org.rr.expander.loader;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+
+/**
+ * An on-disk archive of loaded responses. Each url is stored in its own json file which is named
+ * by the hash of the url, so an archive can be recorded, copied and replayed later without network
+ * access. A response recorded again for the same url replaces the previous one.
+ */
+public class ResponseArchive {
+
+	/**
+	 * The modes the {@link UrlLoaderFactory} can use the archive with.
+	 */
+	public static enum MODE {
+		/** the archive is not used. */
+		OFF,
+		/** all loaded responses are stored in the archive. */
+		RECORD,
+		/** all responses are served from the archive. Nothing is loaded from the network. */
+		REPLAY
+	}
+
+	private static final String FILE_EXTENSION = ".json";
+
+	@Nonnull
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Nonnull
+	private final Path directory;
+
+	/**
+	 * the responses which have been read from the archive. Recorded responses are not kept, a
+	 * recording run would hold every loaded body in memory otherwise.
+	 */
+	@Nonnull
+	private final ConcurrentMap<String, RecordedResponse> responses = new ConcurrentHashMap<>();
+
+	/**
+	 * @param directory The directory of the archive. It is created if it did not exist.
+	 * @throws IOException if the directory could not be created.
+	 */
+	public ResponseArchive(@Nonnull Path directory) throws IOException {
+		this.directory = Files.createDirectories(Preconditions.checkNotNull(directory));
+	}
+
+	/**
+	 * @param url The url of the desired response.
+	 * @return The recorded response for the given url or <code>null</code> if the url has not been
+	 *         recorded.
+	 * @throws IOException if the recorded response could not be read.
+	 */
+	public @Nullable RecordedResponse get(@Nonnull String url) throws IOException {
+		RecordedResponse response = responses.get(url);
+		if(response == null) {
+			try {
+				response = objectMapper.readValue(getFile(url).toFile(), RecordedResponse.class);
+			} catch (FileNotFoundException | NoSuchFileException e) {
+				return null;
+			}
+			RecordedResponse previous = responses.putIfAbsent(url, response);
+			return previous != null ? previous : response;
+		}
+		return response;
+	}
+
+	/**
+	 * Store the given response. The file gets replaced atomically, so a concurrent replay never
+	 * reads a partially written response.
+	 *
+	 * @param response The response to be stored.
+	 * @throws IOException if the response could not be written.
+	 */
+	public void put(@Nonnull RecordedResponse response) throws IOException {
+		Path file = getFile(response.getUrl());
+		Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			objectMapper.writeValue(tempFile.toFile(), response);
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+		responses.remove(response.getUrl());
+	}
+
+	public @Nonnull Path getDirectory() {
+		return directory;
+	}
+
+	private @Nonnull Path getFile(@Nonnull String url) {
+		return directory.resolve(Hashing.sha256().hashString(url, StandardCharsets.UTF_8).toString() + FILE_EXTENSION);
+	}
+
+}
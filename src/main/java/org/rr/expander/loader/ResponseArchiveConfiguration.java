@@ -0,0 +1,50 @@
+package org.rr.expander.loader;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the {@link ResponseArchive} which records the loaded responses or replays them
+ * without network access.
+ */
+public class ResponseArchiveConfiguration {
+
+	/** one of {@link ResponseArchive.MODE}. */
+	private String mode = ResponseArchive.MODE.OFF.name();
+
+	/** the directory where the responses are stored. */
+	private String directory = "response-archive";
+
+	/** the recorded latencies are multiplied with this factor on replay. 0 replays without delay. */
+	private double latencyFactor = 1.0;
+
+	@JsonProperty
+	public String getMode() {
+		return mode;
+	}
+
+	@JsonProperty
+	public void setMode(String mode) {
+		this.mode = mode;
+	}
+
+	@JsonProperty
+	public String getDirectory() {
+		return directory;
+	}
+
+	@JsonProperty
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	@JsonProperty
+	public double getLatencyFactor() {
+		return latencyFactor;
+	}
+
+	@JsonProperty
+	public void setLatencyFactor(double latencyFactor) {
+		this.latencyFactor = latencyFactor;
+	}
+
+}
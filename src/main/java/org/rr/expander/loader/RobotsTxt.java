@@ -0,0 +1,56 @@
+package org.rr.expander.loader;
+
+import static org.apache.commons.lang3.StringUtils.substringAfter;
+import static org.apache.commons.lang3.StringUtils.substringBefore;
+import static org.apache.commons.lang3.StringUtils.trim;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Reads the values which are relevant for the {@link HostRequestScheduler} from a robots.txt file.
+ */
+final class RobotsTxt {
+
+	private static final String ANY_USER_AGENT = "*";
+
+	private RobotsTxt() {
+	}
+
+	/**
+	 * Get the Crawl-delay which is declared for all user agents in the given robots.txt.
+	 *
+	 * @param robotsTxt The content of the robots.txt file.
+	 * @return The Crawl-delay in milliseconds or <code>0</code> if there is no Crawl-delay declared.
+	 */
+	static long parseCrawlDelayMillis(@Nullable String robotsTxt) {
+		if(robotsTxt == null) {
+			return 0;
+		}
+
+		Set<String> groupUserAgents = new HashSet<>();
+		boolean groupStarted = false;
+		for (String line : robotsTxt.split("\r\n|\r|\n")) {
+			String record = trim(substringBefore(line, "#"));
+			String field = trim(substringBefore(record, ":")).toLowerCase();
+			String value = trim(substringAfter(record, ":"));
+			if(field.equals("user-agent")) {
+				if(groupStarted) { // a new group begins
+					groupUserAgents.clear();
+					groupStarted = false;
+				}
+				groupUserAgents.add(value);
+			} else if(!field.isEmpty()) {
+				groupStarted = true;
+				if(field.equals("crawl-delay") && groupUserAgents.contains(ANY_USER_AGENT)) {
+					return Math.max(0, Math.round(NumberUtils.toDouble(value) * 1000));
+				}
+			}
+		}
+		return 0;
+	}
+}
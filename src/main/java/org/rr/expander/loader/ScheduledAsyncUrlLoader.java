@@ -0,0 +1,65 @@
+package org.rr.expander.loader;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Delegates to another {@link AsyncUrlLoader} but sends the request not before a permit of the
+ * {@link HostRequestScheduler} was granted. No thread is blocked while waiting for the permit.
+ */
+class ScheduledAsyncUrlLoader implements AsyncUrlLoader {
+
+	@Nonnull
+	private final String url;
+
+	@Nonnull
+	private final AsyncUrlLoader delegate;
+
+	@Nonnull
+	private final HostRequestScheduler scheduler;
+
+	ScheduledAsyncUrlLoader(@Nonnull String url, @Nonnull AsyncUrlLoader delegate,
+			@Nonnull HostRequestScheduler scheduler) {
+		this.url = url;
+		this.delegate = delegate;
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<byte[]> getContentAsBytes() {
+		return execute(() -> delegate.getContentAsBytes());
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<String> getContentAsString() {
+		return execute(() -> delegate.getContentAsString());
+	}
+
+	/**
+	 * The async loader has already buffered the whole content if the stream is available, so the
+	 * permit can be released before the stream is consumed.
+	 */
+	@Override
+	public @Nonnull CompletableFuture<UrlContentStream> getContentAsRawStream() {
+		return execute(() -> delegate.getContentAsRawStream());
+	}
+
+	@Override
+	public @Nonnull CompletableFuture<UrlContent> getContentIfModified(@Nullable String eTag, @Nullable String lastModified) {
+		return execute(() -> delegate.getContentIfModified(eTag, lastModified));
+	}
+
+	private @Nonnull <T> CompletableFuture<T> execute(@Nonnull Supplier<CompletableFuture<T>> request) {
+		return scheduler.acquire(url).thenCompose(permit -> {
+			try {
+				return request.get().whenComplete((result, e) -> scheduler.release(url));
+			} catch (RuntimeException e) {
+				scheduler.release(url);
+				throw e;
+			}
+		});
+	}
+}
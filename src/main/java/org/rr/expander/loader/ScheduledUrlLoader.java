@@ -0,0 +1,95 @@
+package org.rr.expander.loader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Delegates to another {@link UrlLoader} but waits for a permit of the {@link HostRequestScheduler}
+ * before the request is sent.
+ */
+class ScheduledUrlLoader implements UrlLoader {
+
+	@Nonnull
+	private final String url;
+
+	@Nonnull
+	private final UrlLoader delegate;
+
+	@Nonnull
+	private final HostRequestScheduler scheduler;
+
+	ScheduledUrlLoader(@Nonnull String url, @Nonnull UrlLoader delegate, @Nonnull HostRequestScheduler scheduler) {
+		this.url = url;
+		this.delegate = delegate;
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	public @Nonnull InputStream getContentAsStream(@Nonnull Charset charset) throws IOException {
+		return execute(() -> delegate.getContentAsStream(charset));
+	}
+
+	@Override
+	public @Nonnull String getContentAsString() throws IOException {
+		return execute(() -> delegate.getContentAsString());
+	}
+
+	@Override
+	public @Nullable UrlContent getContentIfModified(@Nullable String eTag, @Nullable String lastModified)
+			throws IOException {
+		return execute(() -> delegate.getContentIfModified(eTag, lastModified));
+	}
+
+	/**
+	 * The permit is held until the returned stream gets closed because the content is read from the
+	 * connection while the stream is consumed.
+	 */
+	@Override
+	public @Nonnull UrlContentStream getContentAsRawStream() throws IOException {
+		acquire();
+		try {
+			UrlContentStream contentStream = delegate.getContentAsRawStream();
+			return new UrlContentStream(contentStream.getInputStream(), contentStream.getContentType(), () -> {
+				try {
+					contentStream.close();
+				} finally {
+					scheduler.release(url);
+				}
+			});
+		} catch (IOException | RuntimeException e) {
+			scheduler.release(url);
+			throw e;
+		}
+	}
+
+	private <T> T execute(@Nonnull IOSupplier<T> request) throws IOException {
+		acquire();
+		try {
+			return request.get();
+		} finally {
+			scheduler.release(url);
+		}
+	}
+
+	private void acquire() throws IOException {
+		CompletableFuture<Void> permit = scheduler.acquire(url);
+		try {
+			permit.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			if(!permit.cancel(false) && !permit.isCompletedExceptionally()) {
+				scheduler.release(url); // the permit was granted in the meantime
+			}
+			throw new InterruptedIOException(String.format("Interrupted while waiting to load '%s'.", url));
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+		}
+	}
+}
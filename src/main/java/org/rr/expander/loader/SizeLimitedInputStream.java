@@ -0,0 +1,65 @@
+package org.rr.expander.loader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An {@link InputStream} which fails as soon as more than the given number of bytes are read from
+ * the underlying stream. A truncated feed can't be parsed anyway, so it's better to fail early.
+ */
+class SizeLimitedInputStream extends FilterInputStream {
+
+	private final long maxBytes;
+
+	@Nonnull
+	private final Supplier<IOException> exceptionSupplier;
+
+	private long count;
+
+	SizeLimitedInputStream(@Nonnull InputStream in, long maxBytes, @Nonnull Supplier<IOException> exceptionSupplier) {
+		super(in);
+		this.maxBytes = maxBytes;
+		this.exceptionSupplier = exceptionSupplier;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int result = super.read();
+		if(result != -1) {
+			count(1);
+		}
+		return result;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int result = super.read(b, off, len);
+		if(result != -1) {
+			count(result);
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long result = super.skip(n);
+		count(result);
+		return result;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	private void count(long read) throws IOException {
+		count += read;
+		if(count > maxBytes) {
+			throw exceptionSupplier.get();
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package org.rr.expander.loader;
+
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Preconditions;
+
+/**
+ * Rewrites the links of the feed entries to a canonical form before they are cached and loaded,
+ * so links which only differ in tracking parameters, session ids, the fragment, the case of the
+ * host or the scheme share one cache entry and one request. Redirect targets can be remembered, so
+ * the next load of a redirecting link goes directly to the target and shares its cache entry.
+ */
+public class UrlCanonicalizer {
+
+	private static final String SCHEME_SEPARATOR = "://";
+
+	private static final String HTTP = "http";
+
+	private static final String HTTPS = "https";
+
+	@Nonnull
+	private final UrlCanonicalizerConfiguration config;
+
+	/** the lower case parameter names which are removed from all links. */
+	@Nonnull
+	private final List<String> stripParameters;
+
+	/** the canonical redirect targets of the canonical links or <code>null</code> if disabled. */
+	@Nullable
+	private final Cache<String, String> redirects;
+
+	public UrlCanonicalizer(@Nonnull UrlCanonicalizerConfiguration config) {
+		this.config = Preconditions.checkNotNull(config);
+		this.stripParameters = toLowerCase(config.getStripParameters());
+		this.redirects = config.getMaxRedirects() > 0 ? Caffeine.newBuilder()
+				.maximumSize(config.getMaxRedirects())
+				.expireAfterWrite(config.getRedirectSeconds(), TimeUnit.SECONDS)
+				.recordStats()
+				.build() : null;
+	}
+
+	/**
+	 * Same as {@link #canonicalize(String, Collection)} without additional parameters.
+	 */
+	public @Nonnull String canonicalize(@Nonnull String link) {
+		return canonicalize(link, Collections.emptyList());
+	}
+
+	/**
+	 * Create the canonical form of the given link. The scheme and the host are lower cased, the
+	 * default port is removed, the configured and the given parameters are stripped and the
+	 * fragment is removed if configured. A remembered redirect target of the link is returned
+	 * instead of the link. Links which are not absolute are returned unchanged.
+	 *
+	 * @param link The link of a feed entry.
+	 * @param additionalStripParameters Further parameters to be stripped, for example those
+	 *        configured for the alias of the feed.
+	 * @return The canonical link which should be loaded.
+	 */
+	public @Nonnull String canonicalize(@Nonnull String link, @Nonnull Collection<String> additionalStripParameters) {
+		String url = normalize(link, getStripParameters(additionalStripParameters));
+		String target = redirects != null ? redirects.getIfPresent(url) : null;
+		return target != null ? target : url;
+	}
+
+	/**
+	 * Get the key of the page cache for the given canonical link. The http and the https link of a
+	 * page share the same key if the scheme should be ignored.
+	 *
+	 * @param url The link which was returned by {@link #canonicalize(String, Collection)}.
+	 * @return The cache key.
+	 */
+	public @Nonnull String getCacheKey(@Nonnull String url) {
+		if(config.isIgnoreScheme() && url.startsWith(HTTP + SCHEME_SEPARATOR)) {
+			return HTTPS + url.substring(HTTP.length());
+		}
+		return url;
+	}
+
+	/**
+	 * Remember the location the given canonical link was permanently redirected to. Temporary
+	 * redirects are not remembered because the link may point to another page later on.
+	 *
+	 * @param url The canonical link which was loaded.
+	 * @param urlContent The content loaded for the link.
+	 * @param additionalStripParameters The further parameters which were stripped from the link.
+	 */
+	public void rememberRedirect(@Nonnull String url, @Nonnull UrlContent urlContent,
+			@Nonnull Collection<String> additionalStripParameters) {
+		String location = urlContent.getLocation();
+		if(redirects != null && location != null && urlContent.isPermanentRedirect()) {
+			String target = normalize(location, getStripParameters(additionalStripParameters));
+			if(!target.equals(url)) {
+				redirects.put(url, target);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of links which have been canonicalized to a remembered redirect target.
+	 */
+	public long getRedirectHitCount() {
+		return redirects != null ? redirects.stats().hitCount() : 0;
+	}
+
+	/**
+	 * @return The estimated number of remembered redirect targets.
+	 */
+	public long getRedirectCount() {
+		return redirects != null ? redirects.estimatedSize() : 0;
+	}
+
+	private @Nonnull List<String> getStripParameters(@Nonnull Collection<String> additionalStripParameters) {
+		return additionalStripParameters.isEmpty() ? stripParameters
+				: Stream.concat(stripParameters.stream(), toLowerCase(additionalStripParameters).stream()).collect(toList());
+	}
+
+	private @Nonnull String normalize(@Nonnull String link, @Nonnull List<String> stripParameters) {
+		String url = link.trim();
+		String fragment = StringUtils.EMPTY;
+		int fragmentStart = url.indexOf('#');
+		if(fragmentStart >= 0) {
+			fragment = config.isRemoveFragment() ? StringUtils.EMPTY : url.substring(fragmentStart);
+			url = url.substring(0, fragmentStart);
+		}
+		String query = null;
+		int queryStart = url.indexOf('?');
+		if(queryStart >= 0) {
+			query = url.substring(queryStart + 1);
+			url = url.substring(0, queryStart);
+		}
+		int schemeEnd = url.indexOf(SCHEME_SEPARATOR);
+		if(schemeEnd <= 0) {
+			return link;
+		}
+
+		String scheme = url.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+		int authorityStart = schemeEnd + SCHEME_SEPARATOR.length();
+		int pathStart = url.indexOf('/', authorityStart);
+		String authority = pathStart >= 0 ? url.substring(authorityStart, pathStart) : url.substring(authorityStart);
+		String path = pathStart >= 0 ? url.substring(pathStart) : StringUtils.EMPTY;
+		if(path.isEmpty() && (HTTP.equals(scheme) || HTTPS.equals(scheme))) {
+			path = "/";
+		}
+
+		StringBuilder result = new StringBuilder(link.length())
+				.append(scheme)
+				.append(SCHEME_SEPARATOR)
+				.append(normalizeAuthority(scheme, authority))
+				.append(stripPathParameters(path, stripParameters));
+		String strippedQuery = stripQueryParameters(query, stripParameters);
+		if(strippedQuery != null) {
+			result.append('?').append(strippedQuery);
+		}
+		return result.append(fragment).toString();
+	}
+
+	/**
+	 * The user info is kept as it is, the host is lower cased and the default port of http and
+	 * https is removed.
+	 */
+	private static @Nonnull String normalizeAuthority(@Nonnull String scheme, @Nonnull String authority) {
+		int hostStart = authority.lastIndexOf('@') + 1;
+		String host = authority.substring(hostStart).toLowerCase(Locale.ROOT);
+		if(HTTP.equals(scheme)) {
+			host = StringUtils.removeEnd(host, ":80");
+		} else if(HTTPS.equals(scheme)) {
+			host = StringUtils.removeEnd(host, ":443");
+		}
+		return authority.substring(0, hostStart) + host;
+	}
+
+	/**
+	 * Remove the matching path parameters like <code>;jsessionid=...</code> from the segments of
+	 * the given path.
+	 */
+	private static @Nonnull String stripPathParameters(@Nonnull String path, @Nonnull List<String> stripParameters) {
+		if(path.indexOf(';') < 0) {
+			return path;
+		}
+		StringBuilder result = new StringBuilder(path.length());
+		String[] segments = path.split("/", -1);
+		for (int segment = 0; segment < segments.length; segment++) {
+			if(segment > 0) {
+				result.append('/');
+			}
+			String[] parameters = segments[segment].split(";", -1);
+			result.append(parameters[0]);
+			for (int i = 1; i < parameters.length; i++) {
+				if(!isStripParameter(parameters[i], stripParameters)) {
+					result.append(';').append(parameters[i]);
+				}
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @return The query without the matching and empty parameters or <code>null</code> if no
+	 *         parameter is left.
+	 */
+	private static @Nullable String stripQueryParameters(@Nullable String query,
+			@Nonnull List<String> stripParameters) {
+		if(StringUtils.isEmpty(query)) {
+			return null;
+		}
+		String result = Stream.of(StringUtils.split(query, '&'))
+				.filter(parameter -> !isStripParameter(parameter, stripParameters))
+				.collect(joining("&"));
+		return result.isEmpty() ? null : result;
+	}
+
+	private static boolean isStripParameter(@Nonnull String parameter, @Nonnull List<String> stripParameters) {
+		String name = StringUtils.substringBefore(parameter, "=").toLowerCase(Locale.ROOT);
+		for (String stripParameter : stripParameters) {
+			if(stripParameter.endsWith("*") ? name.startsWith(stripParameter.substring(0, stripParameter.length() - 1))
+					: name.equals(stripParameter)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static @Nonnull List<String> toLowerCase(@Nullable Collection<String> parameters) {
+		return parameters == null ? Collections.emptyList() : parameters.stream()
+				.filter(parameter -> StringUtils.isNotBlank(parameter))
+				.map(parameter -> parameter.trim().toLowerCase(Locale.ROOT))
+				.collect(toList());
+	}
+}
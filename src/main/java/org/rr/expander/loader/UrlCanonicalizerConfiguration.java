@@ -0,0 +1,94 @@
+package org.rr.expander.loader;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the {@link UrlCanonicalizer}.
+ */
+public class UrlCanonicalizerConfiguration {
+
+	/** canonicalize the links of the feeds before they are cached and loaded. */
+	private boolean enabled = true;
+
+	/**
+	 * the query and path parameters which are removed from all links. A name which ends with
+	 * <code>*</code> removes all parameters starting with the name. Names are not case sensitive.
+	 */
+	private List<String> stripParameters = Arrays.asList("utm_*", "fbclid", "gclid", "dclid", "msclkid", "yclid",
+			"mc_cid", "mc_eid", "_hsenc", "_hsmi", "igshid", "jsessionid", "phpsessid");
+
+	/** remove the fragment, the part after the <code>#</code>, from the links. */
+	private boolean removeFragment = true;
+
+	/** use the same cache entry for the http and the https link of a page. */
+	private boolean ignoreScheme = true;
+
+	/** max number of redirect targets which are remembered, so the redirect is skipped. 0 disables it. */
+	private long maxRedirects = 10000;
+
+	/** time in seconds a redirect target is remembered. */
+	private long redirectSeconds = 86400;
+
+	@JsonProperty
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@JsonProperty
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@JsonProperty
+	public List<String> getStripParameters() {
+		return stripParameters;
+	}
+
+	@JsonProperty
+	public void setStripParameters(List<String> stripParameters) {
+		this.stripParameters = stripParameters;
+	}
+
+	@JsonProperty
+	public boolean isRemoveFragment() {
+		return removeFragment;
+	}
+
+	@JsonProperty
+	public void setRemoveFragment(boolean removeFragment) {
+		this.removeFragment = removeFragment;
+	}
+
+	@JsonProperty
+	public boolean isIgnoreScheme() {
+		return ignoreScheme;
+	}
+
+	@JsonProperty
+	public void setIgnoreScheme(boolean ignoreScheme) {
+		this.ignoreScheme = ignoreScheme;
+	}
+
+	@JsonProperty
+	public long getMaxRedirects() {
+		return maxRedirects;
+	}
+
+	@JsonProperty
+	public void setMaxRedirects(long maxRedirects) {
+		this.maxRedirects = maxRedirects;
+	}
+
+	@JsonProperty
+	public long getRedirectSeconds() {
+		return redirectSeconds;
+	}
+
+	@JsonProperty
+	public void setRedirectSeconds(long redirectSeconds) {
+		this.redirectSeconds = redirectSeconds;
+	}
+}
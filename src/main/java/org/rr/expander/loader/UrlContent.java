@@ -0,0 +1,95 @@
+package org.rr.expander.loader;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.http.HttpStatus;
+
+/**
+ * The content loaded by an {@link UrlLoader} together with the validators sent by the server.
+ */
+public class UrlContent {
+
+	/** the status code 308 is not known by the apache http client. */
+	private static final int SC_PERMANENT_REDIRECT = 308;
+
+	@Nonnull
+	private final String content;
+
+	@Nullable
+	private final String eTag;
+
+	@Nullable
+	private final String lastModified;
+
+	/** the url the content was loaded from if the request was redirected. */
+	@Nullable
+	private final String location;
+
+	/** the status code of the redirect to the location or 0 if unknown. */
+	private final int redirectStatusCode;
+
+	public UrlContent(@Nonnull String content, @Nullable String eTag, @Nullable String lastModified) {
+		this(content, eTag, lastModified, null, 0);
+	}
+
+	public UrlContent(@Nonnull String content, @Nullable String eTag, @Nullable String lastModified,
+			@Nullable String location, int redirectStatusCode) {
+		this.content = content;
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+		this.location = location;
+		this.redirectStatusCode = location != null ? redirectStatusCode : 0;
+	}
+
+	public @Nonnull String getContent() {
+		return content;
+	}
+
+	/**
+	 * @return The value of the ETag response header or <code>null</code> if not available.
+	 */
+	public @Nullable String getETag() {
+		return eTag;
+	}
+
+	/**
+	 * @return The value of the Last-Modified response header or <code>null</code> if not available.
+	 */
+	public @Nullable String getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * @return The url the content was finally loaded from or <code>null</code> if the request was
+	 *         not redirected or the loader did not tell.
+	 */
+	public @Nullable String getLocation() {
+		return location;
+	}
+
+	/**
+	 * @return The status code of the redirect to the location or 0 if the request was not redirected
+	 *         or the loader did not tell. If the request was redirected several times, it's the
+	 *         status code of a temporary redirect if there was one.
+	 */
+	public int getRedirectStatusCode() {
+		return redirectStatusCode;
+	}
+
+	/**
+	 * @return <code>true</code> if the content was loaded from a location which permanently replaces
+	 *         the requested url.
+	 */
+	public boolean isPermanentRedirect() {
+		return isPermanentRedirect(redirectStatusCode);
+	}
+
+	/**
+	 * @return <code>true</code> for the status codes 301 and 308.
+	 */
+	static boolean isPermanentRedirect(int statusCode) {
+		return statusCode == HttpStatus.SC_MOVED_PERMANENTLY || statusCode == SC_PERMANENT_REDIRECT;
+	}
+
+}
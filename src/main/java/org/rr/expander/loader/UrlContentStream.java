@@ -0,0 +1,73 @@
+package org.rr.expander.loader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The raw, not decoded content stream of an url together with the content type declared by the
+ * server. The stream must be closed after it was read to release the underlying connection.
+ */
+public class UrlContentStream implements Closeable {
+
+	@Nonnull
+	private final InputStream inputStream;
+
+	@Nullable
+	private final String contentType;
+
+	@Nullable
+	private final Closeable resource;
+
+	public UrlContentStream(@Nonnull InputStream inputStream, @Nullable String contentType) {
+		this(inputStream, contentType, null);
+	}
+
+	/**
+	 * @param inputStream The raw content stream.
+	 * @param contentType The value of the Content-Type header or <code>null</code> if not known.
+	 * @param resource An additional resource, for example the http response, which should be closed
+	 *        together with the stream.
+	 */
+	public UrlContentStream(@Nonnull InputStream inputStream, @Nullable String contentType,
+			@Nullable Closeable resource) {
+		this.inputStream = inputStream;
+		this.contentType = contentType;
+		this.resource = resource;
+	}
+
+	public @Nonnull InputStream getInputStream() {
+		return inputStream;
+	}
+
+	/**
+	 * @return The Content-Type including the declared charset or <code>null</code> if not known.
+	 */
+	public @Nullable String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * The resource is closed before the stream, so a http connection gets aborted instead of reading
+	 * the rest of a partially read body. The stream belongs to the resource in this case and may fail
+	 * to close afterwards, which is ignored.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(resource != null) {
+			try {
+				resource.close();
+			} finally {
+				IOUtils.closeQuietly(inputStream);
+			}
+		} else {
+			inputStream.close();
+		}
+	}
+
+}
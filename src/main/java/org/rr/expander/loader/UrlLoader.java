@@ -3,8 +3,10 @@ package org.rr.expander.loader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * Specifies common methods to access some content from a URL. 
@@ -20,6 +22,19 @@ public interface UrlLoader {
 	 */
 	@Nonnull InputStream getContentAsStream(@Nonnull Charset charset) throws IOException;
 
+	/**
+	 * Get the raw, not decoded content of the url together with the content type declared by the
+	 * server. Use this method instead of {@link #getContentAsStream(Charset)} if the content is
+	 * passed to a parser which is able to evaluate the encoding on its own, because it did not
+	 * need to hold the whole content in memory. The returned stream must be closed.
+	 * 
+	 * @return the raw content stream.
+	 * @throws IOException
+	 */
+	default @Nonnull UrlContentStream getContentAsRawStream() throws IOException {
+		return new UrlContentStream(getContentAsStream(StandardCharsets.UTF_8), null);
+	}
+
 	/**
 	 * Get the content of the url as {@link String}.
 	 * 
@@ -28,4 +43,19 @@ public interface UrlLoader {
 	 */
 	@Nonnull String getContentAsString() throws IOException;
 
+	/**
+	 * Get the content of the url only if it has been modified since it was loaded with the given
+	 * validators. Implementations which did not support conditional requests always return the
+	 * content.
+	 * 
+	 * @param eTag The ETag of the previously loaded content or <code>null</code>.
+	 * @param lastModified The Last-Modified value of the previously loaded content or <code>null</code>.
+	 * @return the content with its validators or <code>null</code> if the content was not modified.
+	 * @throws IOException
+	 */
+	default @Nullable UrlContent getContentIfModified(@Nullable String eTag, @Nullable String lastModified)
+			throws IOException {
+		return new UrlContent(getContentAsString(), null, null);
+	}
+
 }
@@ -2,21 +2,58 @@ package org.rr.expander.loader;
 
 import javax.annotation.Nonnull;
 
+import org.apache.http.client.HttpClient;
+
+import com.google.common.base.Preconditions;
+
+import okhttp3.OkHttpClient;
+
 /**
  * A factory which allows to create specific {@link UrlLoader} instances for different types of URL.
  */
 public abstract class UrlLoaderFactory {
+
+	/**
+	 * The http client implementations which can be used to load the urls.
+	 */
+	public static enum LOADER_TYPE {
+		/** the apache http client which speaks HTTP/1.1 only. */
+		HTTP_CLIENT,
+		/** the OkHttp client which multiplexes the requests to a host over HTTP/2 if possible. */
+		OK_HTTP
+	}
 	
 	/**
 	 * Get a {@link UrlLoaderFactory} instance which creates {@link UrlLoader} instances.
+	 * 
+	 * @param httpClient The http client which is shared by all created {@link UrlLoader} instances.
+	 * @return The desired {@link UrlLoader} instance.
+	 */
+	public static @Nonnull UrlLoaderFactory createURLLoaderFactory(@Nonnull HttpClient httpClient) {
+		return createURLLoaderFactory(httpClient, AbstractHttpLoader.DEFAULT_MAX_CONTENT_BYTES);
+	}
+
+	/**
+	 * Get a {@link UrlLoaderFactory} instance which creates {@link UrlLoader} instances.
+	 * 
+	 * @param httpClient The http client which is shared by all created {@link UrlLoader} instances.
+	 * @param maxContentBytes The max number of bytes a {@link UrlLoader} reads from a response if no
+	 *        other value is requested.
 	 * @return The desired {@link UrlLoader} instance.
 	 */
-	public static @Nonnull UrlLoaderFactory createURLLoaderFactory() {
+	public static @Nonnull UrlLoaderFactory createURLLoaderFactory(@Nonnull HttpClient httpClient, long maxContentBytes) {
+		Preconditions.checkNotNull(httpClient);
+		CharsetResolver charsetResolver = new CharsetResolver();
 		return new UrlLoaderFactory() {
 			@Override
 			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url) {
+				return getUrlLoader(url, maxContentBytes);
+			}
+
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url, long maxContentBytes) {
 				if(url.matches("http(s)?://.*")) {
-					return new HttpUrlLoader(url);
+					return new HttpUrlLoader(url, httpClient, maxContentBytes, charsetResolver);
 				}
 				throw new IllegalArgumentException(String.format("No UrlLoader instance for the url %s available.", url));
 			}
@@ -24,11 +61,187 @@ public abstract class UrlLoaderFactory {
 	}
 	
 	/**
-	 * Get the {@link UrlLoader} implementation.
+	 * Get a {@link UrlLoaderFactory} instance which creates {@link UrlLoader} instances using the
+	 * OkHttp client.
+	 * 
+	 * @param okHttpClient The OkHttp client which is shared by all created {@link UrlLoader} instances.
+	 * @param maxContentBytes The max number of bytes a {@link UrlLoader} reads from a response if no
+	 *        other value is requested.
+	 * @return The desired {@link UrlLoader} instance.
+	 */
+	public static @Nonnull UrlLoaderFactory createOkHttpUrlLoaderFactory(@Nonnull OkHttpClient okHttpClient,
+			long maxContentBytes) {
+		Preconditions.checkNotNull(okHttpClient);
+		CharsetResolver charsetResolver = new CharsetResolver();
+		return new UrlLoaderFactory() {
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url) {
+				return getUrlLoader(url, maxContentBytes);
+			}
+
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url, long maxContentBytes) {
+				if(url.matches("http(s)?://.*")) {
+					return new OkHttpUrlLoader(url, okHttpClient, maxContentBytes, charsetResolver);
+				}
+				throw new IllegalArgumentException(String.format("No UrlLoader instance for the url %s available.", url));
+			}
+		};
+	}
+	
+	/**
+	 * Get a {@link UrlLoaderFactory} instance which creates {@link UrlLoader} instances that wait for
+	 * their turn at the given {@link HostRequestScheduler} before a request is sent.
 	 * 
+	 * @param urlLoaderFactory The factory which creates the {@link UrlLoader} instances to be scheduled.
+	 * @param scheduler The scheduler which coordinates the requests to the same host.
+	 * @return The desired {@link UrlLoader} instance.
+	 */
+	public static @Nonnull UrlLoaderFactory createScheduledUrlLoaderFactory(@Nonnull UrlLoaderFactory urlLoaderFactory,
+			@Nonnull HostRequestScheduler scheduler) {
+		Preconditions.checkNotNull(urlLoaderFactory);
+		Preconditions.checkNotNull(scheduler);
+		return new UrlLoaderFactory() {
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url) {
+				return new ScheduledUrlLoader(url, urlLoaderFactory.getUrlLoader(url), scheduler);
+			}
+
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url, long maxContentBytes) {
+				return new ScheduledUrlLoader(url, urlLoaderFactory.getUrlLoader(url, maxContentBytes), scheduler);
+			}
+		};
+	}
+	
+	/**
+	 * Get a {@link UrlLoaderFactory} instance which creates {@link UrlLoader} instances that fail fast
+	 * if the circuit of the host is open and retry requests which failed with a transient error.
+	 * 
+	 * @param urlLoaderFactory The factory which creates the {@link UrlLoader} instances to be guarded.
+	 * @param circuitBreaker The circuit breaker which keeps the state of the hosts.
+	 * @return The desired {@link UrlLoader} instance.
+	 */
+	public static @Nonnull UrlLoaderFactory createCircuitBreakerUrlLoaderFactory(@Nonnull UrlLoaderFactory urlLoaderFactory,
+			@Nonnull HostCircuitBreaker circuitBreaker) {
+		Preconditions.checkNotNull(urlLoaderFactory);
+		Preconditions.checkNotNull(circuitBreaker);
+		return new UrlLoaderFactory() {
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url) {
+				return new CircuitBreakerUrlLoader(url, urlLoaderFactory.getUrlLoader(url), circuitBreaker);
+			}
+
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url, long maxContentBytes) {
+				return new CircuitBreakerUrlLoader(url, urlLoaderFactory.getUrlLoader(url, maxContentBytes), circuitBreaker);
+			}
+		};
+	}
+	
+	/**
+	 * Get a {@link UrlLoaderFactory} instance which creates {@link UrlLoader} instances that share
+	 * concurrent, identical requests using the given {@link RequestCoalescer}.
+	 * 
+	 * @param urlLoaderFactory The factory which creates the {@link UrlLoader} instances which sends the
+	 *        shared requests.
+	 * @param coalescer The coalescer which keeps the in-flight requests.
+	 * @return The desired {@link UrlLoader} instance.
+	 */
+	public static @Nonnull UrlLoaderFactory createCoalescingUrlLoaderFactory(@Nonnull UrlLoaderFactory urlLoaderFactory,
+			@Nonnull RequestCoalescer coalescer) {
+		Preconditions.checkNotNull(urlLoaderFactory);
+		Preconditions.checkNotNull(coalescer);
+		return new UrlLoaderFactory() {
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url) {
+				return new CoalescingUrlLoader(url, urlLoaderFactory.getUrlLoader(url), coalescer, null);
+			}
+
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url, long maxContentBytes) {
+				return new CoalescingUrlLoader(url, urlLoaderFactory.getUrlLoader(url, maxContentBytes), coalescer,
+						maxContentBytes);
+			}
+		};
+	}
+	
+	/**
+	 * Get a {@link UrlLoaderFactory} instance which creates {@link UrlLoader} instances that store
+	 * each loaded response in the given {@link ResponseArchive}.
+	 *
+	 * @param urlLoaderFactory The factory which creates the {@link UrlLoader} instances to be recorded.
+	 * @param archive The archive where the responses are stored.
+	 * @return The desired {@link UrlLoader} instance.
+	 */
+	public static @Nonnull UrlLoaderFactory createRecordingUrlLoaderFactory(@Nonnull UrlLoaderFactory urlLoaderFactory,
+			@Nonnull ResponseArchive archive) {
+		Preconditions.checkNotNull(urlLoaderFactory);
+		Preconditions.checkNotNull(archive);
+		return new UrlLoaderFactory() {
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url) {
+				return new RecordingUrlLoader(url, urlLoaderFactory.getUrlLoader(url), archive);
+			}
+
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url, long maxContentBytes) {
+				return new RecordingUrlLoader(url, urlLoaderFactory.getUrlLoader(url, maxContentBytes), archive);
+			}
+		};
+	}
+
+	/**
+	 * Get a {@link UrlLoaderFactory} instance which creates {@link UrlLoader} instances that serve the
+	 * responses recorded in the given {@link ResponseArchive} without network access.
+	 *
+	 * @param archive The archive which contains the recorded responses.
+	 * @param maxContentBytes The max number of bytes of a replayed response if no other value is
+	 *        requested.
+	 * @param latencyFactor The factor the recorded latencies are multiplied with. 0 replays without
+	 *        delay.
+	 * @return The desired {@link UrlLoader} instance.
+	 */
+	public static @Nonnull UrlLoaderFactory createReplayUrlLoaderFactory(@Nonnull ResponseArchive archive,
+			long maxContentBytes, double latencyFactor) {
+		Preconditions.checkNotNull(archive);
+		CharsetResolver charsetResolver = new CharsetResolver();
+		return new UrlLoaderFactory() {
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url) {
+				return getUrlLoader(url, maxContentBytes);
+			}
+
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url, long maxContentBytes) {
+				if(url.matches("http(s)?://.*")) {
+					return new ReplayUrlLoader(url, archive, maxContentBytes, latencyFactor, charsetResolver);
+				}
+				throw new IllegalArgumentException(String.format("No UrlLoader instance for the url %s available.", url));
+			}
+		};
+	}
+
+	/**
+	 * Get the {@link UrlLoader} implementation.
+	 *
 	 * @param url The url to be used from the result {@link UrlLoader} instance.
 	 * @return The desired {@link UrlLoader} instance.
 	 * @throws IllegalArgumentException if the given url did not match to the desired {@link UrlLoader}.
 	 */
 	public abstract @Nonnull UrlLoader getUrlLoader(@Nonnull String url);
+
+	/**
+	 * Get the {@link UrlLoader} implementation which reads not more than the given number of bytes
+	 * from the response. Implementations which did not support a limit return the same as
+	 * {@link #getUrlLoader(String)}.
+	 * 
+	 * @param url The url to be used from the result {@link UrlLoader} instance.
+	 * @param maxContentBytes The max number of bytes to be read.
+	 * @return The desired {@link UrlLoader} instance.
+	 * @throws IllegalArgumentException if the given url did not match to the desired {@link UrlLoader}.
+	 */
+	public @Nonnull UrlLoader getUrlLoader(@Nonnull String url, long maxContentBytes) {
+		return getUrlLoader(url);
+	}
 }
@@ -0,0 +1,89 @@
+package org.rr.expander.loader;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Configuration of the {@link ConnectionWarmer} which resolves the configured hosts and opens
+ * connections to them before the first request is served.
+ */
+public class WarmUpConfiguration {
+
+	/** resolve the configured hosts and open connections to them on start and after a config change. */
+	private boolean enabled = false;
+
+	/** time in seconds a resolved host address is used before the host gets resolved again. */
+	private int dnsCacheSeconds = 300;
+
+	/** number of connections which are opened to each host. */
+	private int connectionsPerHost = 1;
+
+	/** max time in milliseconds to open a single connection. */
+	private int connectTimeoutMillis = 5000;
+
+	/** max time in seconds the start of the server is delayed by the warm-up. */
+	private int startupTimeoutSeconds = 15;
+
+	/** interval in seconds the site config files are checked for new hosts. */
+	private int configCheckSeconds = 60;
+
+	@JsonProperty
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@JsonProperty
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@JsonProperty
+	public int getDnsCacheSeconds() {
+		return dnsCacheSeconds;
+	}
+
+	@JsonProperty
+	public void setDnsCacheSeconds(int dnsCacheSeconds) {
+		this.dnsCacheSeconds = dnsCacheSeconds;
+	}
+
+	@JsonProperty
+	public int getConnectionsPerHost() {
+		return connectionsPerHost;
+	}
+
+	@JsonProperty
+	public void setConnectionsPerHost(int connectionsPerHost) {
+		this.connectionsPerHost = connectionsPerHost;
+	}
+
+	@JsonProperty
+	public int getConnectTimeoutMillis() {
+		return connectTimeoutMillis;
+	}
+
+	@JsonProperty
+	public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+		this.connectTimeoutMillis = connectTimeoutMillis;
+	}
+
+	@JsonProperty
+	public int getStartupTimeoutSeconds() {
+		return startupTimeoutSeconds;
+	}
+
+	@JsonProperty
+	public void setStartupTimeoutSeconds(int startupTimeoutSeconds) {
+		this.startupTimeoutSeconds = startupTimeoutSeconds;
+	}
+
+	@JsonProperty
+	public int getConfigCheckSeconds() {
+		return configCheckSeconds;
+	}
+
+	@JsonProperty
+	public void setConfigCheckSeconds(int configCheckSeconds) {
+		this.configCheckSeconds = configCheckSeconds;
+	}
+
+}
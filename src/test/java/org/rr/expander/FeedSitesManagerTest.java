@@ -3,11 +3,15 @@ package org.rr.expander;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 
 import javax.annotation.Nonnull;
@@ -92,6 +96,25 @@ public class FeedSitesManagerTest {
 		assertTrue(!includeFilter.isEmpty());
 		assertEquals(includeFilter.get(0), "qwertz");
 	}
+	
+	@Test
+	public void testFeedUrls() throws IOException {
+		ExpanderFeedSitesManager feedSitesManager = getFeedSitesManager(TWO_ENTRIES_CONFIG);
+		assertEquals(new HashSet<>(Arrays.asList("http://www.test.de/newsticker/rss.xml", "http://www.dummy.de/newsticker/rss.xml")),
+				feedSitesManager.getFeedUrls());
+	}
+
+	@Test
+	public void testFingerprint() throws IOException {
+		ExpanderFeedSitesManager feedSitesManager = getFeedSitesManager(TWO_ENTRIES_CONFIG);
+		assertEquals(feedSitesManager.getFingerprint("test"), getFeedSitesManager(TWO_ENTRIES_CONFIG).getFingerprint("test"));
+		assertNotEquals(feedSitesManager.getFingerprint("test"), feedSitesManager.getFingerprint("dummy"));
+		assertNull(feedSitesManager.getFingerprint("not_exists"));
+
+		ExpanderFeedSitesManager changedSitesManager = getFeedSitesManager(TWO_ENTRIES_CONFIG.replace("'ztrewq'", "'other'"));
+		assertNotEquals(feedSitesManager.getFingerprint("test"), changedSitesManager.getFingerprint("test"));
+		assertEquals(feedSitesManager.getFingerprint("dummy"), changedSitesManager.getFingerprint("dummy"));
+	}
 
 	
 }
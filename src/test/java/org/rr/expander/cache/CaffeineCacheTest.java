@@ -0,0 +1,97 @@
+package org.rr.expander.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CaffeineCacheTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path/%s";
+
+	private static final String PAGE_CONTENT = "<html><div id=\"main\">content</div></html>";
+
+	@Test
+	public void testStoredEntryIsRestored() {
+		CaffeineCache cache = new CaffeineCache(1024 * 1024, 60, PageCacheCodec.LZ4);
+		cache.store(String.format(EXAMPLE_PAGE_URL, 1), new PageCacheEntry(PAGE_CONTENT, "\"etag\"", null));
+
+		PageCacheEntry entry = cache.restore(String.format(EXAMPLE_PAGE_URL, 1));
+		assertEquals(PAGE_CONTENT, entry.getContent());
+		assertEquals("\"etag\"", entry.getETag());
+		assertFalse(entry.isStale());
+		assertNull(cache.restore(String.format(EXAMPLE_PAGE_URL, 2)));
+		assertEquals(1, cache.getCacheHitCount(), 0);
+		assertEquals(1, cache.getCacheMissCount(), 0);
+	}
+
+	@Test
+	public void testDigestIsKept() {
+		CaffeineCache cache = new CaffeineCache(1024 * 1024, 60, PageCacheCodec.LZ4);
+		PageCacheEntry entry = new PageCacheEntry(PAGE_CONTENT, null, null);
+		cache.store(String.format(EXAMPLE_PAGE_URL, 1), entry);
+		cache.store(String.format(EXAMPLE_PAGE_URL, 2), new PageCacheEntry(PAGE_CONTENT.replace("content", "other"), null, null));
+
+		assertEquals(entry.getDigest(), cache.restore(String.format(EXAMPLE_PAGE_URL, 1)).getDigest());
+		assertEquals(new PageCacheEntry(PAGE_CONTENT, null, null).getDigest(), entry.getDigest());
+		assertTrue(entry.getDigest() != cache.restore(String.format(EXAMPLE_PAGE_URL, 2)).getDigest());
+	}
+
+	@Test
+	public void testCacheIsBoundByBytes() {
+		long maxBytes = 256 * 1024;
+		CaffeineCache cache = new CaffeineCache(maxBytes, 60, PageCacheCodec.NONE);
+		for (int i = 0; i < 20; i++) {
+			cache.store(String.format(EXAMPLE_PAGE_URL, i), new PageCacheEntry(createRandomContent(32 * 1024), null, null));
+		}
+		cache.cleanUp();
+
+		assertTrue(cache.getWeightedSize() <= maxBytes);
+		assertTrue(cache.getWeightedSize() > 0);
+		assertTrue(cache.getCacheEvictionCount() >= 12);
+	}
+
+	@Test
+	public void testCompressedPagesTakeLessBytes() {
+		String content = createRepeatedContent(64 * 1024);
+		CaffeineCache plainCache = new CaffeineCache(1024 * 1024, 60, PageCacheCodec.NONE);
+		CaffeineCache compressedCache = new CaffeineCache(1024 * 1024, 60, PageCacheCodec.LZ4);
+		plainCache.store(String.format(EXAMPLE_PAGE_URL, 1), new PageCacheEntry(content, null, null));
+		compressedCache.store(String.format(EXAMPLE_PAGE_URL, 1), new PageCacheEntry(content, null, null));
+		plainCache.cleanUp();
+		compressedCache.cleanUp();
+
+		assertTrue(compressedCache.getWeightedSize() * 5 < plainCache.getWeightedSize());
+		assertEquals(content, compressedCache.restore(String.format(EXAMPLE_PAGE_URL, 1)).getContent());
+	}
+
+	@Test
+	public void testCreatedByFactory() {
+		PageCache pageCache = PageCacheFactory.createPageCacheFactory(PageCacheFactory.CACHE_TYPE.CAFFEINE)
+				.getPageCache(null, 60, PageCacheCodec.DEFLATE, 1024 * 1024);
+		assertTrue(pageCache instanceof CaffeineCache);
+		pageCache.store(String.format(EXAMPLE_PAGE_URL, 1), new PageCacheEntry(PAGE_CONTENT, null, null));
+		assertEquals(PAGE_CONTENT, pageCache.restore(String.format(EXAMPLE_PAGE_URL, 1)).getContent());
+	}
+
+	private String createRandomContent(int length) {
+		Random random = new Random(length);
+		StringBuilder content = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			content.append((char) ('a' + random.nextInt(26)));
+		}
+		return content.toString();
+	}
+
+	private String createRepeatedContent(int length) {
+		StringBuilder content = new StringBuilder(length);
+		while (content.length() < length) {
+			content.append("<div class=\"entry\"><p>some article text</p></div>");
+		}
+		return content.toString();
+	}
+}
@@ -0,0 +1,87 @@
+package org.rr.expander.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+public class ExtractedContentCacheTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path";
+
+	private static final String PAGE_CONTENT = "<html><div id=\"main\">content</div></html>";
+
+	@Test
+	public void testContentIsExtractedOnce() {
+		ExtractedContentCache cache = new ExtractedContentCache(1024 * 1024);
+		AtomicInteger extractions = new AtomicInteger();
+		for (int i = 0; i < 3; i++) {
+			assertEquals("content", cache.get(EXAMPLE_PAGE_URL, "#main", PAGE_CONTENT, () -> {
+				extractions.incrementAndGet();
+				return "content";
+			}));
+		}
+		assertEquals(1, extractions.get());
+		assertEquals(2, cache.getCacheHitCount());
+		assertEquals(1, cache.getCacheMissCount());
+	}
+
+	@Test
+	public void testChangedPageIsExtractedAgain() {
+		ExtractedContentCache cache = new ExtractedContentCache(1024 * 1024);
+		cache.get(EXAMPLE_PAGE_URL, "#main", PAGE_CONTENT, () -> "content");
+		assertEquals("changed", cache.get(EXAMPLE_PAGE_URL, "#main", PAGE_CONTENT.replace("content", "changed"),
+				() -> "changed"));
+		// the previous version is kept until it gets evicted.
+		assertEquals(2, cache.size());
+		assertEquals(0, cache.getCacheHitCount());
+	}
+
+	@Test
+	public void testSamePageOfOtherUrlIsExtractedOnce() {
+		ExtractedContentCache cache = new ExtractedContentCache(1024 * 1024);
+		cache.get(EXAMPLE_PAGE_URL + "/1", "#main", PAGE_CONTENT, () -> "content");
+		assertEquals("content", cache.get(EXAMPLE_PAGE_URL + "/2?id=2", "#main", PAGE_CONTENT, () -> "wrong"));
+		assertEquals(1, cache.getCacheHitCount());
+		assertEquals(1, cache.getDuplicateHitCount());
+		assertEquals(1, cache.size());
+
+		// image urls of pages in another directory are made absolute against another base.
+		assertEquals("other", cache.get("http://some.page.de/other/1", "#main", PAGE_CONTENT, () -> "other"));
+		assertEquals("other", cache.get("http://other.page.de/path/1", "#main", PAGE_CONTENT, () -> "other"));
+		assertEquals(3, cache.getCacheMissCount());
+	}
+
+	@Test
+	public void testPageOfManyUrlsIsReportedAsShared() {
+		ExtractedContentCache cache = new ExtractedContentCache(1024 * 1024);
+		for (int i = 0; i < ExtractedContentCache.SHARED_PAGE_URLS * 2; i++) {
+			cache.get(EXAMPLE_PAGE_URL + "/" + i, "#main", PAGE_CONTENT, () -> "consent");
+			cache.get(EXAMPLE_PAGE_URL + "/" + i, "#main", PAGE_CONTENT, () -> "consent");
+		}
+		assertEquals(1, cache.getSharedPageCount());
+		assertEquals(1, cache.getCacheMissCount());
+	}
+
+	@Test
+	public void testChangedSelectorIsExtractedAgain() {
+		ExtractedContentCache cache = new ExtractedContentCache(1024 * 1024);
+		cache.get(EXAMPLE_PAGE_URL, "#main", PAGE_CONTENT, () -> "content");
+		assertEquals("other", cache.get(EXAMPLE_PAGE_URL, "#other", PAGE_CONTENT, () -> "other"));
+		assertEquals("content", cache.get(EXAMPLE_PAGE_URL, "#main", PAGE_CONTENT, () -> "wrong"));
+		assertEquals(1, cache.getCacheHitCount());
+	}
+
+	@Test
+	public void testCacheIsLimited() {
+		ExtractedContentCache cache = new ExtractedContentCache(64 * 1024);
+		String content = StringUtils.repeat('x', 4096);
+		for (int i = 0; i < 100; i++) {
+			cache.get(EXAMPLE_PAGE_URL + i, "#main", PAGE_CONTENT, () -> content);
+		}
+		assertTrue(String.valueOf(cache.size()), cache.size() < 10);
+	}
+}
@@ -0,0 +1,96 @@
+package org.rr.expander.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.rr.expander.loader.CircuitOpenException;
+import org.rr.expander.loader.HttpStatusException;
+import org.rr.expander.loader.QueueTimeoutException;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class FailedLinkCacheTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path/%s";
+
+	@Test
+	public void testFailureExpires() {
+		AtomicLong time = new AtomicLong();
+		FailedLinkCache cache = new FailedLinkCache(createConfig(), () -> time.get());
+		cache.recordFailure(String.format(EXAMPLE_PAGE_URL, 1), new HttpStatusException(404, "Not Found"));
+		cache.recordFailure(String.format(EXAMPLE_PAGE_URL, 2), new SocketTimeoutException());
+		assertTrue(cache.isFailed(String.format(EXAMPLE_PAGE_URL, 1)));
+		assertTrue(cache.isFailed(String.format(EXAMPLE_PAGE_URL, 2)));
+		assertFalse(cache.isFailed(String.format(EXAMPLE_PAGE_URL, 3)));
+
+		// the timeout expires before the missing page.
+		time.addAndGet(TimeUnit.SECONDS.toNanos(301));
+		assertTrue(cache.isFailed(String.format(EXAMPLE_PAGE_URL, 1)));
+		assertFalse(cache.isFailed(String.format(EXAMPLE_PAGE_URL, 2)));
+
+		time.addAndGet(TimeUnit.SECONDS.toNanos(21600));
+		assertFalse(cache.isFailed(String.format(EXAMPLE_PAGE_URL, 1)));
+		assertEquals(3, cache.getCacheHitCount());
+		assertEquals(3, cache.getCacheMissCount());
+	}
+
+	@Test
+	public void testDisabledFailureIsNotRecorded() {
+		FailedLinkCacheConfiguration config = createConfig();
+		config.setTransientErrorSeconds(0);
+		FailedLinkCache cache = new FailedLinkCache(config);
+		cache.recordFailure(String.format(EXAMPLE_PAGE_URL, 1), new ConnectException());
+		assertFalse(cache.isFailed(String.format(EXAMPLE_PAGE_URL, 1)));
+	}
+
+	@Parameters(method = "getFailures")
+	@Test
+	public void testTimeToLiveDependsOnFailure(Throwable e, long expectedSeconds) {
+		assertEquals(expectedSeconds, new FailedLinkCache(createConfig()).getTimeToLiveSeconds(e));
+	}
+
+	@SuppressWarnings("unused")
+	private Object[] getFailures() {
+		return new Object[] {
+			new Object[] { new HttpStatusException(404, "Not Found"), 21600 },
+			new Object[] { new HttpStatusException(410, "Gone"), 21600 },
+			new Object[] { new CompletionException(new HttpStatusException(404, "Not Found")), 21600 },
+			new Object[] { new HttpStatusException(403, "Forbidden"), 3600 },
+			new Object[] { new IOException("Unsupported content type"), 3600 },
+			new Object[] { new IllegalStateException("Failed to parse"), 3600 },
+			new Object[] { new HttpStatusException(503, "Service Unavailable"), 300 },
+			new Object[] { new SocketTimeoutException(), 300 },
+			new Object[] { new ConnectException(), 300 },
+			new Object[] { new ConnectTimeoutException(), 300 },
+			new Object[] { new CircuitOpenException("open"), 0 },
+			new Object[] { new QueueTimeoutException("Waited too long"), 0 },
+			new Object[] { new CompletionException(new QueueTimeoutException("Waited too long")), 0 },
+			new Object[] { new ConnectionPoolTimeoutException(), 0 },
+			new Object[] { new InterruptedIOException(), 0 },
+			new Object[] { new ClosedByInterruptException(), 0 },
+			new Object[] { new CancellationException(), 0 },
+			new Object[] { new CompletionException(new CancellationException()), 0 }
+		};
+	}
+
+	private FailedLinkCacheConfiguration createConfig() {
+		return new FailedLinkCacheConfiguration();
+	}
+}
@@ -0,0 +1,63 @@
+package org.rr.expander.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class PageCacheCodecTest {
+
+	private static final String PAGE_CONTENT = "<html><body>"
+			+ StringUtils.repeat("<div class=\"entry\"><p>Grüße aus dem Feed — 日本語</p></div>", 200) + "</body></html>";
+
+	@Parameters({ "NONE", "LZ4", "DEFLATE" })
+	@Test
+	public void testEncodedContentIsDecoded(PageCacheCodec codec) {
+		assertEquals(PAGE_CONTENT, PageCacheCodec.decode(codec.encode(PAGE_CONTENT)));
+		assertEquals("<p>small</p>", PageCacheCodec.decode(codec.encode("<p>small</p>")));
+		assertEquals("", PageCacheCodec.decode(codec.encode("")));
+	}
+
+	@Parameters({ "LZ4", "DEFLATE" })
+	@Test
+	public void testContentIsCompressed(PageCacheCodec codec) {
+		int plainLength = PAGE_CONTENT.getBytes(StandardCharsets.UTF_8).length;
+		assertTrue(codec.encode(PAGE_CONTENT).length * 5 < plainLength);
+	}
+
+	@Parameters({ "LZ4", "DEFLATE" })
+	@Test
+	public void testSmallContentIsNotCompressed(PageCacheCodec codec) {
+		String content = StringUtils.repeat("a", PageCacheCodec.MIN_COMPRESS_BYTES - 1);
+		assertEquals(PageCacheCodec.NONE.encode(content).length, codec.encode(content).length);
+	}
+
+	@Test
+	public void testEntryIsEncoded() {
+		PageCacheEntry entry = new PageCacheEntry(PAGE_CONTENT, "\"etag\"", "Mon, 01 Jan 2018 00:00:00 GMT")
+				.withMaxAge(60);
+		EncodedPageCacheEntry encoded = EncodedPageCacheEntry.encode(entry, PageCacheCodec.LZ4);
+		assertTrue(encoded.getEncodedLength() < PAGE_CONTENT.length());
+
+		PageCacheEntry decoded = encoded.decode();
+		assertEquals(PAGE_CONTENT, decoded.getContent());
+		assertEquals(entry.getETag(), decoded.getETag());
+		assertEquals(entry.getLastModified(), decoded.getLastModified());
+		assertEquals(entry.getStaleAt(), decoded.getStaleAt());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBrokenContentIsRejected() {
+		byte[] encoded = PageCacheCodec.DEFLATE.encode(PAGE_CONTENT);
+		PageCacheCodec.decode(Arrays.copyOf(encoded, encoded.length / 2));
+	}
+}
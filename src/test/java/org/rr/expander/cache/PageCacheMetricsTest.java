@@ -0,0 +1,56 @@
+package org.rr.expander.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+public class PageCacheMetricsTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path/%s";
+
+	private static final String PAGE_CONTENT = "<html><div id=\"main\">content</div></html>";
+
+	@Test
+	public void testStatisticsArePublished() {
+		MetricRegistry registry = new MetricRegistry();
+		CaffeineCache pageCache = new CaffeineCache(1024 * 1024, 60, PageCacheCodec.NONE);
+		new PageCacheMetrics(registry).register(pageCache);
+		pageCache.store(String.format(EXAMPLE_PAGE_URL, 1), new PageCacheEntry(PAGE_CONTENT, null, null));
+		pageCache.restore(String.format(EXAMPLE_PAGE_URL, 1));
+		pageCache.restore(String.format(EXAMPLE_PAGE_URL, 1));
+		pageCache.restore(String.format(EXAMPLE_PAGE_URL, 2));
+		pageCache.cleanUp();
+
+		assertEquals(2L, getGauge(registry, "hit-count").getValue());
+		assertEquals(1L, getGauge(registry, "miss-count").getValue());
+		assertEquals(1L, getGauge(registry, "entries").getValue());
+		assertEquals(pageCache.getWeightedSize(), getGauge(registry, "heap-bytes").getValue());
+		assertEquals(0L, getGauge(registry, "disk-bytes").getValue());
+		assertEquals(2.0 / 3, (Double) getGauge(registry, "hit-ratio").getValue(), 0.001);
+	}
+
+	@Test
+	public void testMetersArePublishedForEachAlias() {
+		MetricRegistry registry = new MetricRegistry();
+		PageCacheMetrics metrics = new PageCacheMetrics(registry);
+		metrics.markHit("alias1");
+		metrics.markHit("alias2");
+		metrics.markMiss("alias1");
+		metrics.markRevalidation(null);
+		metrics.updateLoadTime("alias1", 1000000);
+
+		assertEquals(2, registry.meter(MetricRegistry.name(PageCache.class, "hits")).getCount());
+		assertEquals(1, registry.meter(MetricRegistry.name(PageCache.class, "alias", "alias1", "hits")).getCount());
+		assertEquals(1, registry.meter(MetricRegistry.name(PageCache.class, "alias", "alias1", "misses")).getCount());
+		assertEquals(1, registry.meter(MetricRegistry.name(PageCache.class, "revalidations")).getCount());
+		assertEquals(1, registry.timer(MetricRegistry.name(PageCache.class, "alias", "alias1", "load")).getCount());
+		assertEquals(1000000, registry.timer(MetricRegistry.name(PageCache.class, "load")).getSnapshot().getMax());
+	}
+
+	private Gauge<?> getGauge(MetricRegistry registry, String name) {
+		return registry.getGauges().get(MetricRegistry.name(PageCache.class, name));
+	}
+}
@@ -0,0 +1,87 @@
+package org.rr.expander.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class PageRefreshSchedulerTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path/%s";
+
+	@Test
+	public void testStaleEntryIsServedUntilExpired() {
+		try (PageRefreshScheduler scheduler = new PageRefreshScheduler(60)) {
+			assertFalse(scheduler.canServeStale(null));
+			assertFalse(scheduler.canServeStale(createEntry(10)));
+			assertTrue(scheduler.canServeStale(createEntry(-10)));
+			assertFalse(scheduler.canServeStale(createEntry(-61)));
+		}
+	}
+
+	@Test
+	public void testPendingRefreshIsNotRepeated() throws InterruptedException {
+		try (PageRefreshScheduler scheduler = new PageRefreshScheduler(60)) {
+			CountDownLatch release = new CountDownLatch(1);
+			AtomicInteger runs = new AtomicInteger();
+			Runnable refresh = () -> {
+				runs.incrementAndGet();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			};
+			scheduler.refresh(String.format(EXAMPLE_PAGE_URL, 1), refresh);
+			scheduler.refresh(String.format(EXAMPLE_PAGE_URL, 1), refresh);
+			scheduler.refresh(String.format(EXAMPLE_PAGE_URL, 2), refresh);
+			assertEquals(2, scheduler.getPendingCount());
+
+			release.countDown();
+			awaitRefreshes(scheduler, 2);
+			assertEquals(2, runs.get());
+			assertEquals(0, scheduler.getPendingCount());
+
+			// the url can be refreshed again once the previous refresh is done.
+			scheduler.refresh(String.format(EXAMPLE_PAGE_URL, 1), refresh);
+			awaitRefreshes(scheduler, 3);
+			assertEquals(3, runs.get());
+		}
+	}
+
+	@Test
+	public void testFailedRefreshIsNotPending() throws InterruptedException {
+		try (PageRefreshScheduler scheduler = new PageRefreshScheduler(60)) {
+			CountDownLatch done = new CountDownLatch(1);
+			scheduler.refresh(String.format(EXAMPLE_PAGE_URL, 1), () -> {
+				done.countDown();
+				throw new IllegalStateException("refresh failed");
+			});
+			assertTrue(done.await(10, TimeUnit.SECONDS));
+			long deadline = System.currentTimeMillis() + 10000;
+			while(scheduler.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(0, scheduler.getPendingCount());
+			assertEquals(0, scheduler.getRefreshCount());
+		}
+	}
+
+	private PageCacheEntry createEntry(long staleInSeconds) {
+		return new PageCacheEntry("content", null, null,
+				System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(staleInSeconds));
+	}
+
+	private void awaitRefreshes(PageRefreshScheduler scheduler, long count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while(scheduler.getRefreshCount() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, scheduler.getRefreshCount());
+	}
+}
@@ -0,0 +1,89 @@
+package org.rr.expander.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.MediaType;
+
+import org.junit.Test;
+import org.rr.expander.cache.RenderedFeedCache.RenderedFeed;
+
+public class RenderedFeedCacheTest {
+
+	private static final String RESOURCE = "expand";
+
+	private static final String ALIAS = "test";
+
+	@Test
+	public void testFeedIsRenderedOnce() {
+		RenderedFeedCache cache = new RenderedFeedCache(60);
+		AtomicInteger renderings = new AtomicInteger();
+		for (int i = 0; i < 3; i++) {
+			RenderedFeed feed = cache.get(RESOURCE, ALIAS, "1", () -> render(renderings, "feed")).join();
+			assertArrayEquals("feed".getBytes(StandardCharsets.UTF_8), feed.getContent());
+			assertEquals(MediaType.APPLICATION_XML_TYPE, feed.getMediaType());
+		}
+		assertEquals(1, renderings.get());
+		assertEquals(2, cache.getCacheHitCount());
+		assertEquals(1, cache.getCacheMissCount());
+	}
+
+	@Test
+	public void testConcurrentRequestsShareRendering() {
+		RenderedFeedCache cache = new RenderedFeedCache(60);
+		CompletableFuture<RenderedFeed> rendering = new CompletableFuture<>();
+		CompletableFuture<RenderedFeed> first = cache.get(RESOURCE, ALIAS, "1", () -> rendering);
+		CompletableFuture<RenderedFeed> second = cache.get(RESOURCE, ALIAS, "1", () -> {
+			throw new IllegalStateException("The feed must not be rendered twice.");
+		});
+		rendering.complete(new RenderedFeed(new byte[0], MediaType.APPLICATION_XML_TYPE));
+		assertSame(first.join(), second.join());
+	}
+
+	@Test
+	public void testChangedConfigurationIsRenderedAgain() {
+		RenderedFeedCache cache = new RenderedFeedCache(60);
+		AtomicInteger renderings = new AtomicInteger();
+		cache.get(RESOURCE, ALIAS, "1", () -> render(renderings, "feed")).join();
+		RenderedFeed feed = cache.get(RESOURCE, ALIAS, "2", () -> render(renderings, "changed")).join();
+		assertArrayEquals("changed".getBytes(StandardCharsets.UTF_8), feed.getContent());
+
+		// the same alias of another resource is another feed.
+		cache.get("create", ALIAS, "2", () -> render(renderings, "created")).join();
+		assertEquals(3, renderings.get());
+	}
+
+	@Test
+	public void testExpiredFeedIsRenderedAgain() {
+		RenderedFeedCache cache = new RenderedFeedCache(0);
+		AtomicInteger renderings = new AtomicInteger();
+		cache.get(RESOURCE, ALIAS, "1", () -> render(renderings, "feed")).join();
+		cache.get(RESOURCE, ALIAS, "1", () -> render(renderings, "feed")).join();
+		assertEquals(2, renderings.get());
+	}
+
+	@Test
+	public void testFailedRenderingIsNotCached() {
+		RenderedFeedCache cache = new RenderedFeedCache(60);
+		CompletableFuture<RenderedFeed> failed = new CompletableFuture<>();
+		failed.completeExceptionally(new IOException("Failed loading feed"));
+		assertTrue(cache.get(RESOURCE, ALIAS, "1", () -> failed).isCompletedExceptionally());
+
+		AtomicInteger renderings = new AtomicInteger();
+		cache.get(RESOURCE, ALIAS, "1", () -> render(renderings, "feed")).join();
+		assertEquals(1, renderings.get());
+	}
+
+	private CompletableFuture<RenderedFeed> render(AtomicInteger renderings, String content) {
+		renderings.incrementAndGet();
+		return CompletableFuture.completedFuture(
+				new RenderedFeed(content.getBytes(StandardCharsets.UTF_8), MediaType.APPLICATION_XML_TYPE));
+	}
+}
@@ -0,0 +1,179 @@
+package org.rr.expander.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentPageCacheTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path/%s";
+
+	private static final String PAGE_CONTENT = "<html><div id=\"main\">content %s</div></html>";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testStoredEntryIsRestored() throws IOException {
+		try (SegmentPageCache cache = createCache(1024 * 1024, 64 * 1024)) {
+			cache.store(String.format(EXAMPLE_PAGE_URL, 1), new PageCacheEntry(String.format(PAGE_CONTENT, 1), "\"etag\"",
+					"Mon, 01 Jan 2018 00:00:00 GMT"));
+
+			PageCacheEntry entry = cache.restore(String.format(EXAMPLE_PAGE_URL, 1));
+			assertEquals(String.format(PAGE_CONTENT, 1), entry.getContent());
+			assertEquals("\"etag\"", entry.getETag());
+			assertEquals("Mon, 01 Jan 2018 00:00:00 GMT", entry.getLastModified());
+			assertFalse(entry.isStale());
+			assertNull(cache.restore(String.format(EXAMPLE_PAGE_URL, 2)));
+			assertEquals(1, cache.getCacheHitCount(), 0);
+			assertEquals(1, cache.getCacheMissCount(), 0);
+		}
+	}
+
+	@Test
+	public void testEntriesSurviveRestart() throws IOException {
+		try (SegmentPageCache cache = createCache(1024 * 1024, 4 * 1024)) {
+			storePages(cache, 0, 50);
+		}
+		try (SegmentPageCache cache = createCache(1024 * 1024, 4 * 1024)) {
+			assertTrue(cache.getSegmentCount() > 1);
+			assertPagesRestored(cache, 0, 50);
+
+			// pages stored after the restart are appended to the loaded segments.
+			storePages(cache, 50, 60);
+			assertPagesRestored(cache, 0, 60);
+		}
+	}
+
+	@Test
+	public void testBrokenTailIsCutOffAfterCrash() throws IOException {
+		try (SegmentPageCache cache = createCache(1024 * 1024, 1024 * 1024)) {
+			storePages(cache, 0, 10);
+		}
+		// a crash while a record was written leaves the index without the last record and a partial record.
+		Files.delete(folder.getRoot().toPath().resolve("index"));
+		Path segment = getSegmentFiles().get(0);
+		long length = Files.size(segment);
+		Files.write(segment, new byte[] { 0, 0, 1, 0, 42, 42 }, StandardOpenOption.APPEND);
+
+		try (SegmentPageCache cache = createCache(1024 * 1024, 1024 * 1024)) {
+			assertPagesRestored(cache, 0, 10);
+			assertEquals(length, Files.size(segment));
+		}
+	}
+
+	@Test
+	public void testBrokenIndexIsIgnored() throws IOException {
+		try (SegmentPageCache cache = createCache(1024 * 1024, 4 * 1024)) {
+			storePages(cache, 0, 20);
+		}
+		Files.write(folder.getRoot().toPath().resolve("index"), new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+
+		try (SegmentPageCache cache = createCache(1024 * 1024, 4 * 1024)) {
+			assertPagesRestored(cache, 0, 20);
+		}
+	}
+
+	@Test
+	public void testOldestSegmentsAreEvicted() throws IOException {
+		long maxBytes = 64 * 1024;
+		try (SegmentPageCache cache = createCache(maxBytes, 8 * 1024)) {
+			for (int i = 0; i < 40; i++) {
+				cache.store(String.format(EXAMPLE_PAGE_URL, i), new PageCacheEntry(createRandomContent(i, 4 * 1024), null, null));
+			}
+			cache.maintain();
+
+			assertTrue(cache.getSize() <= maxBytes);
+			assertTrue(cache.getCacheEvictionCount() > 0);
+			assertNull(cache.restore(String.format(EXAMPLE_PAGE_URL, 0)));
+			assertEquals(createRandomContent(39, 4 * 1024), cache.restore(String.format(EXAMPLE_PAGE_URL, 39)).getContent());
+		}
+	}
+
+	@Test
+	public void testReplacedEntriesAreCompacted() throws IOException {
+		try (SegmentPageCache cache = createCache(1024 * 1024, 4 * 1024)) {
+			for (int i = 0; i < 100; i++) {
+				cache.store(String.format(EXAMPLE_PAGE_URL, i % 5), new PageCacheEntry(createRandomContent(i, 512), null, null));
+			}
+			int segmentCount = cache.getSegmentCount();
+			cache.maintain();
+
+			assertTrue(cache.getSegmentCount() < segmentCount);
+			for (int i = 95; i < 100; i++) {
+				assertEquals(createRandomContent(i, 512), cache.restore(String.format(EXAMPLE_PAGE_URL, i % 5)).getContent());
+			}
+		}
+	}
+
+	@Test
+	public void testInterruptedStoreDidNotBreakSegment() throws IOException {
+		try (SegmentPageCache cache = createCache(1024 * 1024, 1024 * 1024)) {
+			storePages(cache, 0, 5);
+			// an interrupted thread closes the file channel of the active segment for all threads.
+			Thread.currentThread().interrupt();
+			try {
+				storePages(cache, 5, 10);
+				assertPagesRestored(cache, 0, 10);
+				assertTrue(Thread.currentThread().isInterrupted());
+			} finally {
+				Thread.interrupted();
+			}
+			storePages(cache, 10, 15);
+			assertPagesRestored(cache, 0, 15);
+		}
+		try (SegmentPageCache cache = createCache(1024 * 1024, 1024 * 1024)) {
+			assertPagesRestored(cache, 0, 15);
+		}
+	}
+
+	private SegmentPageCache createCache(long maxBytes, long segmentBytes) throws IOException {
+		return new SegmentPageCache(folder.getRoot().toPath(), maxBytes, 60, PageCacheCodec.LZ4, segmentBytes);
+	}
+
+	private void storePages(PageCache cache, int from, int to) {
+		for (int i = from; i < to; i++) {
+			cache.store(String.format(EXAMPLE_PAGE_URL, i), new PageCacheEntry(String.format(PAGE_CONTENT, i), null, null));
+		}
+	}
+
+	private void assertPagesRestored(PageCache cache, int from, int to) {
+		for (int i = from; i < to; i++) {
+			PageCacheEntry entry = cache.restore(String.format(EXAMPLE_PAGE_URL, i));
+			assertNotNull(String.format(EXAMPLE_PAGE_URL, i), entry);
+			assertEquals(String.format(PAGE_CONTENT, i), entry.getContent());
+		}
+	}
+
+	private List<Path> getSegmentFiles() throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(folder.getRoot().toPath(), "*.segment")) {
+			List<Path> result = new ArrayList<>();
+			files.forEach(result::add);
+			return result;
+		}
+	}
+
+	private String createRandomContent(int seed, int length) {
+		Random random = new Random(seed);
+		StringBuilder content = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			content.append((char) ('a' + random.nextInt(26)));
+		}
+		return content.toString();
+	}
+}
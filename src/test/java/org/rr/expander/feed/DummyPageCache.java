@@ -1,6 +1,8 @@
 package org.rr.expander.feed;
 
 import org.rr.expander.cache.PageCache;
+import org.rr.expander.cache.PageCacheEntry;
+import org.rr.expander.cache.PageCacheStatistics;
 
 /**
  * {@link PageCache} implementation which never stores or restores any page content. 
@@ -8,12 +10,12 @@ import org.rr.expander.cache.PageCache;
 public class DummyPageCache implements PageCache {
 
 	@Override
-	public String store(String url, String pageContent) {
-		return pageContent;
+	public PageCacheEntry store(String url, PageCacheEntry entry) {
+		return entry;
 	}
 
 	@Override
-	public String restore(String url) {
+	public PageCacheEntry restore(String url) {
 		return null;
 	}
 
@@ -27,4 +29,14 @@ public class DummyPageCache implements PageCache {
 		return 0;
 	}
 
+	@Override
+	public double getCacheEvictionCount() {
+		return 0;
+	}
+
+	@Override
+	public PageCacheStatistics getStatistics() {
+		return new PageCacheStatistics(0, 0, 0, 0, 0, 0);
+	}
+
 }
@@ -77,6 +77,20 @@ public class FeedBuilderTest {
 		assertTrue(contains(expandedFeed, extractedPageContent2));
 	}
 
+	/**
+	 * The settings of the request are handed on to the expand step, so the pages of an abandoned
+	 * request are not loaded.
+	 */
+	@Test
+	public void testExpandUsesRequestContext() throws Exception {
+		TaskScope taskScope = TaskScope.inCallingThread();
+		taskScope.cancel();
+		FeedBuilder feedBuilder = createInjector(createUrlLoaderFactory()).getInstance(FeedBuilderFactory.class)
+				.createFeedBuilder("test://feeds/valid_feed/feed.xml", new FeedRequestContext("alias", null, null, taskScope));
+		String feed = new String(feedBuilder.loadFeed().expand(CONTENT_CSS_SELECTOR).build(), StandardCharsets.UTF_8);
+		assertTrue(contains(feed, "Lorem ipsum"));
+	}
+
 	/**
 	 * Test for unexpected xml instead of some valid feed data. This will cause an empty feed.
 	 */
@@ -111,6 +125,17 @@ public class FeedBuilderTest {
 		assertEquals(EMPTY, extractedFeedContent);
 	}
 	
+	/**
+	 * A feed served as <code>text/xml</code> without a charset must be decoded by its BOM and xml
+	 * prolog, which default to UTF-8, instead of the US-ASCII default of RFC 3023.
+	 */
+	@Test
+	public void testLoadFeedWithoutDeclaredCharset() throws Exception {
+		String feed = new String(createFeedBuilder("feeds/undeclared_encoding_feed/feed.xml",
+				new TestUrlLoaderFactory("text/xml")).loadFeed().build(), StandardCharsets.UTF_8);
+		assertTrue(feed, contains(feed, "Grüße aus Köln"));
+	}
+
 	/**
 	 * Test for a a feed which could not be loaded for some reason which must cause an {@link IOException}..
 	 */	
@@ -142,14 +167,18 @@ public class FeedBuilderTest {
 	}
 	
 	private FeedBuilder createFeedBuilder(String feed) {
-		return createInjector().getInstance(FeedBuilderFactory.class).createFeedBuilder("test://" + feed);
+		return createFeedBuilder(feed, createUrlLoaderFactory());
+	}
+
+	private FeedBuilder createFeedBuilder(String feed, UrlLoaderFactory urlLoaderFactory) {
+		return createInjector(urlLoaderFactory).getInstance(FeedBuilderFactory.class).createFeedBuilder("test://" + feed);
 	}
 
 	private TestUrlLoaderFactory createUrlLoaderFactory() {
 		return new TestUrlLoaderFactory();
 	}
 	
-	private Injector createInjector() {
+	private Injector createInjector(UrlLoaderFactory urlLoaderFactory) {
     return Guice.createInjector(new AbstractModule() {
         @Override
         protected void configure() {
@@ -162,7 +191,7 @@ public class FeedBuilderTest {
         }
 
 				private void bindUrlLoaderFactory() {
-					bind(UrlLoaderFactory.class).toInstance(createUrlLoaderFactory());
+					bind(UrlLoaderFactory.class).toInstance(urlLoaderFactory);
 				}
 
 				private void bindPageCache() {
@@ -4,15 +4,42 @@ import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.IOUtils;
 
 import org.junit.Test;
+import org.rr.expander.cache.ExtractedContentCache;
+import org.rr.expander.cache.FailedLinkCache;
+import org.rr.expander.cache.FailedLinkCacheConfiguration;
 import org.rr.expander.cache.PageCache;
+import org.rr.expander.cache.PageCacheEntry;
+import org.rr.expander.cache.PageCacheMetrics;
+import org.rr.expander.cache.PageRefreshScheduler;
+import org.rr.expander.loader.AsyncUrlLoader;
+import org.rr.expander.loader.AsyncUrlLoaderFactory;
+import org.rr.expander.loader.UrlCanonicalizer;
+import org.rr.expander.loader.UrlCanonicalizerConfiguration;
+import org.rr.expander.loader.UrlContent;
+import org.rr.expander.loader.UrlContentStream;
+import org.rr.expander.loader.UrlLoader;
 import org.rr.expander.loader.UrlLoaderFactory;
 
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -53,6 +80,169 @@ public class FeedContentExchangerTest {
 		}
 	}
 	
+	@Test
+	public void testFeedContentExchangerWithExtractedContentCache() {
+		ExtractedContentCache extractedContentCache = new ExtractedContentCache(1024 * 1024);
+		List<SyndEntry> entries = createValidLinkedEntriesWithEmptyDescription(EMPTY);
+		createFeedContentExchanger("#main", extractedContentCache).exchangeAll(entries);
+		assertEquals(0, extractedContentCache.getCacheHitCount());
+		assertEquals(2, extractedContentCache.getCacheMissCount());
+
+		List<SyndEntry> cachedEntries = createValidLinkedEntriesWithEmptyDescription(EMPTY);
+		createFeedContentExchanger("#main", extractedContentCache).exchangeAll(cachedEntries);
+		assertEquals(2, extractedContentCache.getCacheHitCount());
+		for (int i = 0; i < entries.size(); i++) {
+			assertEquals(entries.get(i).getDescription().getValue(), cachedEntries.get(i).getDescription().getValue());
+		}
+
+		// a changed selector must not use the entries of the previous one.
+		createFeedContentExchanger("#not_exists", extractedContentCache)
+				.exchangeAll(createValidLinkedEntriesWithEmptyDescription(EMPTY));
+		assertEquals(2, extractedContentCache.getCacheHitCount());
+		assertEquals(4, extractedContentCache.getCacheMissCount());
+	}
+
+	@Test
+	public void testFeedContentExchangerWithFailedLinkCache() {
+		FailedLinkCache failedLinkCache = new FailedLinkCache(new FailedLinkCacheConfiguration());
+		createFeedContentExchanger("#main", null, failedLinkCache).exchangeAll(createInvalidLinkedEntriesWithTestDescription());
+		assertEquals(2, failedLinkCache.size());
+		assertEquals(0, failedLinkCache.getCacheHitCount());
+
+		// the failed links are skipped and keep their description.
+		List<SyndEntry> entries = createInvalidLinkedEntriesWithTestDescription();
+		createFeedContentExchanger("#main", null, failedLinkCache).exchangeAll(entries);
+		assertEquals(2, failedLinkCache.getCacheHitCount());
+		for (SyndEntry entry : entries) {
+			assertEquals("Test", entry.getDescription().getValue());
+		}
+
+		createFeedContentExchanger("#main", null, failedLinkCache).exchangeAll(createValidLinkedEntriesWithEmptyDescription(EMPTY));
+		assertEquals(2, failedLinkCache.size());
+	}
+
+	@Test
+	public void testFeedContentExchangerWithPageCacheMetrics() {
+		MetricRegistry registry = new MetricRegistry();
+		createInjector(null, null, new PageCacheMetrics(registry)).getInstance(FeedContentExchangerFactory.class)
+				.createFeedContentExchanger("#main", new FeedRequestContext("alias", null, null, null))
+				.exchangeAll(createValidLinkedEntriesWithEmptyDescription(EMPTY));
+		assertEquals(2, registry.meter(MetricRegistry.name(PageCache.class, "alias", "alias", "misses")).getCount());
+		assertEquals(2, registry.timer(MetricRegistry.name(PageCache.class, "alias", "alias", "load")).getCount());
+	}
+
+	@Test
+	public void testFeedContentExchangerWithStalePages() throws InterruptedException {
+		Map<String, PageCacheEntry> storedEntries = new ConcurrentHashMap<>();
+		PageCache pageCache = new DummyPageCache() {
+			@Override
+			public PageCacheEntry store(String url, PageCacheEntry entry) {
+				storedEntries.put(url, entry);
+				return entry;
+			}
+
+			@Override
+			public PageCacheEntry restore(String url) {
+				return new PageCacheEntry("<html><div id=\"main\">stale</div></html>", null, null).withMaxAge(-60);
+			}
+		};
+		MetricRegistry registry = new MetricRegistry();
+		try (PageRefreshScheduler pageRefreshScheduler = new PageRefreshScheduler(3600)) {
+			List<SyndEntry> entries = createValidLinkedEntriesWithEmptyDescription(EMPTY);
+			createInjector(null, null, new PageCacheMetrics(registry), pageCache, pageRefreshScheduler)
+					.getInstance(FeedContentExchangerFactory.class)
+					.createFeedContentExchanger("#main")
+					.exchangeAll(entries);
+			// the stale pages are served at once and refreshed in the background.
+			for (SyndEntry entry : entries) {
+				assertTrue(entry.getDescription().getValue().contains("stale"));
+			}
+			assertEquals(2, registry.meter(MetricRegistry.name(PageCache.class, "stale-hits")).getCount());
+
+			long deadline = System.currentTimeMillis() + 10000;
+			while(pageRefreshScheduler.getRefreshCount() < 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(2, storedEntries.size());
+			for (PageCacheEntry storedEntry : storedEntries.values()) {
+				assertFalse(storedEntry.getContent().contains("stale"));
+			}
+		}
+	}
+
+	@Test
+	public void testFeedContentExchangerWithUrlCanonicalizer() {
+		Map<String, PageCacheEntry> storedEntries = new ConcurrentHashMap<>();
+		PageCache pageCache = new DummyPageCache() {
+			@Override
+			public PageCacheEntry store(String url, PageCacheEntry entry) {
+				storedEntries.put(url, entry);
+				return entry;
+			}
+		};
+		List<SyndEntry> entries = createValidLinkedEntriesWithEmptyDescription(EMPTY);
+		entries.get(0).setLink(entries.get(0).getLink() + "?utm_source=feedburner&utm_medium=feed#comments");
+		entries.get(1).setLink(entries.get(1).getLink() + "?ref=rss");
+		createInjector(null, null, null, pageCache, null, new UrlCanonicalizer(new UrlCanonicalizerConfiguration()))
+				.getInstance(FeedContentExchangerFactory.class)
+				.createFeedContentExchanger("#main", new FeedRequestContext(null, null, Arrays.asList("ref"), null))
+				.exchangeAll(entries);
+		// the pages are loaded and cached with the canonical links.
+		for (SyndEntry entry : entries) {
+			assertTrue(isNotBlank(entry.getDescription().getValue()));
+		}
+		assertTrue(storedEntries.containsKey("test://feeds/valid_feed/content_1.html"));
+		assertTrue(storedEntries.containsKey("test://feeds/valid_feed/content_2.html"));
+	}
+
+	@Test
+	public void testAsyncLoadedPagesAreStoredInTaskScope() {
+		Set<String> storeThreads = ConcurrentHashMap.newKeySet();
+		PageCache pageCache = new DummyPageCache() {
+			@Override
+			public PageCacheEntry store(String url, PageCacheEntry entry) {
+				storeThreads.add(Thread.currentThread().getName());
+				return entry;
+			}
+		};
+		ExecutorService ioDispatcher = Executors.newSingleThreadExecutor(
+				new ThreadFactoryBuilder().setNameFormat("io-dispatcher").build());
+		try (FeedExchangeExecutor executor = new FeedExchangeExecutor(new FeedExchangeConfiguration())) {
+			List<SyndEntry> entries = createValidLinkedEntriesWithEmptyDescription(EMPTY);
+			createInjector(null, null, null, pageCache, null, null, createTestAsyncUrlLoaderFactory(ioDispatcher))
+					.getInstance(FeedContentExchangerFactory.class)
+					.createFeedContentExchanger("#main", new FeedRequestContext(null, null, null, executor.newTaskScope()))
+					.exchangeAllAsync(entries)
+					.join();
+			for (SyndEntry entry : entries) {
+				assertTrue(isNotBlank(entry.getDescription().getValue()));
+			}
+			// neither the i/o thread of the loader nor the common pool must write the page cache.
+			assertFalse(storeThreads.isEmpty());
+			assertTrue(storeThreads.toString(), storeThreads.stream().allMatch(name -> name.startsWith("feed-exchange-")));
+		} finally {
+			ioDispatcher.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFeedContentExchangerWithCancelledTaskScope() {
+		try (FeedExchangeExecutor executor = new FeedExchangeExecutor(new FeedExchangeConfiguration())) {
+			TaskScope taskScope = executor.newTaskScope();
+			List<SyndEntry> entries = createValidLinkedEntriesWithEmptyDescription(EMPTY);
+			FeedContentExchanger feedContentExchanger = createInjector(null, null, null)
+					.getInstance(FeedContentExchangerFactory.class)
+					.createFeedContentExchanger("#main", new FeedRequestContext(null, null, null, taskScope));
+			taskScope.cancel();
+			feedContentExchanger.exchangeAll(entries);
+			// the entries of an abandoned request keep their original content.
+			for (SyndEntry entry : entries) {
+				assertTrue(isBlank(entry.getDescription().getValue()));
+			}
+			assertTrue(feedContentExchanger.exchangeAllAsync(entries).isCancelled());
+		}
+	}
+
 	@Test
 	public void testFeedContentExchangerWithNullEntries() {
 		// do nothing but log a NullPointerException
@@ -92,7 +282,18 @@ public class FeedContentExchangerTest {
 	}
 
 	private FeedContentExchanger createFeedContentExchanger(String includeCssSelector) {
-		return createInjector().getInstance(FeedContentExchangerFactory.class).createFeedContentExchanger(includeCssSelector);
+		return createFeedContentExchanger(includeCssSelector, null);
+	}
+
+	private FeedContentExchanger createFeedContentExchanger(String includeCssSelector,
+			ExtractedContentCache extractedContentCache) {
+		return createFeedContentExchanger(includeCssSelector, extractedContentCache, null);
+	}
+
+	private FeedContentExchanger createFeedContentExchanger(String includeCssSelector,
+			ExtractedContentCache extractedContentCache, FailedLinkCache failedLinkCache) {
+		return createInjector(extractedContentCache, failedLinkCache, null).getInstance(FeedContentExchangerFactory.class)
+				.createFeedContentExchanger(includeCssSelector);
 	}
 	
 	private DummyPageCache createDummyPageCache() {
@@ -102,13 +303,95 @@ public class FeedContentExchangerTest {
 	private TestUrlLoaderFactory createTestUrlLoaderFactory() {
 		return new TestUrlLoaderFactory();
 	}
+
+	/**
+	 * Serves the pages of the {@link TestUrlLoaderFactory} from the given executor, like the i/o
+	 * thread of the async http client.
+	 */
+	private AsyncUrlLoaderFactory createTestAsyncUrlLoaderFactory(ExecutorService ioDispatcher) {
+		return new AsyncUrlLoaderFactory() {
+			@Override
+			public AsyncUrlLoader getAsyncUrlLoader(String url) {
+				UrlLoader urlLoader = createTestUrlLoaderFactory().getUrlLoader(url);
+				return new AsyncUrlLoader() {
+					@Override
+					public CompletableFuture<byte[]> getContentAsBytes() {
+						return load(() -> IOUtils.toByteArray(urlLoader.getContentAsStream(StandardCharsets.UTF_8)));
+					}
+
+					@Override
+					public CompletableFuture<String> getContentAsString() {
+						return load(() -> urlLoader.getContentAsString());
+					}
+
+					@Override
+					public CompletableFuture<UrlContentStream> getContentAsRawStream() {
+						return load(() -> urlLoader.getContentAsRawStream());
+					}
+
+					@Override
+					public CompletableFuture<UrlContent> getContentIfModified(String eTag, String lastModified) {
+						return load(() -> urlLoader.getContentIfModified(eTag, lastModified));
+					}
+
+					private <T> CompletableFuture<T> load(Callable<T> load) {
+						return CompletableFuture.supplyAsync(() -> {
+							try {
+								return load.call();
+							} catch (Exception e) {
+								throw new CompletionException(e);
+							}
+						}, ioDispatcher);
+					}
+				};
+			}
+		};
+	}
 	
-	private Injector createInjector() {
+	private Injector createInjector(ExtractedContentCache extractedContentCache, FailedLinkCache failedLinkCache,
+			PageCacheMetrics pageCacheMetrics) {
+		return createInjector(extractedContentCache, failedLinkCache, pageCacheMetrics, createDummyPageCache(), null);
+	}
+
+	private Injector createInjector(ExtractedContentCache extractedContentCache, FailedLinkCache failedLinkCache,
+			PageCacheMetrics pageCacheMetrics, PageCache pageCache, PageRefreshScheduler pageRefreshScheduler) {
+		return createInjector(extractedContentCache, failedLinkCache, pageCacheMetrics, pageCache, pageRefreshScheduler,
+				null);
+	}
+
+	private Injector createInjector(ExtractedContentCache extractedContentCache, FailedLinkCache failedLinkCache,
+			PageCacheMetrics pageCacheMetrics, PageCache pageCache, PageRefreshScheduler pageRefreshScheduler,
+			UrlCanonicalizer urlCanonicalizer) {
+		return createInjector(extractedContentCache, failedLinkCache, pageCacheMetrics, pageCache, pageRefreshScheduler,
+				urlCanonicalizer, null);
+	}
+
+	private Injector createInjector(ExtractedContentCache extractedContentCache, FailedLinkCache failedLinkCache,
+			PageCacheMetrics pageCacheMetrics, PageCache pageCache, PageRefreshScheduler pageRefreshScheduler,
+			UrlCanonicalizer urlCanonicalizer, AsyncUrlLoaderFactory asyncUrlLoaderFactory) {
     return Guice.createInjector(new AbstractModule() {
         @Override
         protected void configure() {
         	bindUrlLoaderFactory();
         	bindPageCache();
+        	if(extractedContentCache != null) {
+        		bind(ExtractedContentCache.class).toInstance(extractedContentCache);
+        	}
+        	if(failedLinkCache != null) {
+        		bind(FailedLinkCache.class).toInstance(failedLinkCache);
+        	}
+        	if(pageCacheMetrics != null) {
+        		bind(PageCacheMetrics.class).toInstance(pageCacheMetrics);
+        	}
+        	if(pageRefreshScheduler != null) {
+        		bind(PageRefreshScheduler.class).toInstance(pageRefreshScheduler);
+        	}
+        	if(urlCanonicalizer != null) {
+        		bind(UrlCanonicalizer.class).toInstance(urlCanonicalizer);
+        	}
+        	if(asyncUrlLoaderFactory != null) {
+        		bind(AsyncUrlLoaderFactory.class).toInstance(asyncUrlLoaderFactory);
+        	}
         	bindFeedBuilder();
         	bindFeedContentExchanger();
         	bindFeedContentFilter();
@@ -120,7 +403,7 @@ public class FeedContentExchangerTest {
 				}
 
 				private void bindPageCache() {
-					bind(PageCache.class).toInstance(createDummyPageCache());
+					bind(PageCache.class).toInstance(pageCache);
 				}
 
 				private void bindFeedBuilder() {
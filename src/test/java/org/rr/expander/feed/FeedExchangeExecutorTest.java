@@ -0,0 +1,159 @@
+package org.rr.expander.feed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.rr.expander.feed.FeedExchangeExecutor.THREAD_MODE;
+
+public class FeedExchangeExecutorTest {
+
+	@Test
+	public void testItemsRunInParallel() throws InterruptedException {
+		try (FeedExchangeExecutor executor = new FeedExchangeExecutor(createConfig(10, 100, 10))) {
+			CountDownLatch started = new CountDownLatch(10);
+			Set<Integer> done = ConcurrentHashMap.newKeySet();
+			long start = System.nanoTime();
+			executor.invokeAll(createItems(10), item -> {
+				started.countDown();
+				try {
+					// each item waits for all others, which only finishes if all items run at the same time.
+					assertTrue(started.await(10, TimeUnit.SECONDS));
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				done.add(item);
+			});
+			assertEquals(10, done.size());
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+		}
+	}
+
+	@Test
+	public void testParallelItemsAreLimited() throws InterruptedException {
+		try (FeedExchangeExecutor executor = new FeedExchangeExecutor(createConfig(10, 100, 3))) {
+			AtomicInteger running = new AtomicInteger();
+			AtomicInteger maxRunning = new AtomicInteger();
+			executor.invokeAll(createItems(30), item -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				sleep(5);
+				running.decrementAndGet();
+			});
+			assertTrue(String.valueOf(maxRunning.get()), maxRunning.get() <= 3);
+			assertTrue(String.valueOf(maxRunning.get()), maxRunning.get() > 1);
+		}
+	}
+
+	@Test
+	public void testItemsRunInCallerIfRejected() throws InterruptedException {
+		FeedExchangeExecutor executor = new FeedExchangeExecutor(createConfig(1, 1, 10));
+		executor.close();
+		Set<Integer> done = ConcurrentHashMap.newKeySet();
+		executor.invokeAll(createItems(5), item -> done.add(item));
+		assertEquals(5, done.size());
+		assertEquals(1, executor.getRejectedCount());
+	}
+
+	@Test
+	public void testFailedItemDidNotStopOthers() throws InterruptedException {
+		try (FeedExchangeExecutor executor = new FeedExchangeExecutor(createConfig(4, 100, 4))) {
+			Set<Integer> done = ConcurrentHashMap.newKeySet();
+			try {
+				executor.invokeAll(createItems(20), item -> {
+					if(item == 3) {
+						throw new IllegalArgumentException("failed");
+					}
+					done.add(item);
+				});
+				fail("The failure is expected to be rethrown.");
+			} catch (IllegalArgumentException e) {
+				assertEquals("failed", e.getMessage());
+			}
+			assertEquals(19, done.size());
+		}
+	}
+
+	@Test
+	public void testItemsOfPoolThreadDidNotWaitForQueuedLanes() throws Exception {
+		try (FeedExchangeExecutor executor = new FeedExchangeExecutor(createConfig(1, 100, 4))) {
+			// the only thread of the pool exchanges a feed whose other lanes are queued behind it.
+			Set<Integer> done = ConcurrentHashMap.newKeySet();
+			CompletableFuture<Integer> result = executor.newTaskScope().fork(() -> {
+				try {
+					executor.invokeAll(createItems(10), item -> done.add(item));
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return done.size();
+			});
+			assertEquals(10, result.get(10, TimeUnit.SECONDS).intValue());
+		}
+	}
+
+	@Test
+	public void testCancelledTaskScopeInterruptsTasks() throws InterruptedException {
+		try (FeedExchangeExecutor executor = new FeedExchangeExecutor(createConfig(2, 100, 2))) {
+			TaskScope taskScope = executor.newTaskScope();
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch interrupted = new CountDownLatch(1);
+			CompletableFuture<Void> future = taskScope.fork(() -> {
+				started.countDown();
+				try {
+					Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+				}
+				return null;
+			});
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			taskScope.cancel();
+			assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+			assertTrue(future.isCancelled());
+		}
+	}
+
+	@Test
+	public void testVirtualThreadModeFallsBackToPlatform() throws InterruptedException {
+		FeedExchangeConfiguration config = createConfig(4, 100, 4);
+		config.setThreadMode(THREAD_MODE.VIRTUAL.name());
+		try (FeedExchangeExecutor executor = new FeedExchangeExecutor(config)) {
+			assertEquals(VirtualThreads.isAvailable() ? THREAD_MODE.VIRTUAL : THREAD_MODE.PLATFORM, executor.getThreadMode());
+			Set<Integer> done = ConcurrentHashMap.newKeySet();
+			executor.invokeAll(createItems(20), item -> done.add(item));
+			assertEquals(20, done.size());
+			assertEquals(0, executor.getActiveCount());
+		}
+	}
+
+	private FeedExchangeConfiguration createConfig(int threads, int queueSize, int maxParallelEntries) {
+		FeedExchangeConfiguration config = new FeedExchangeConfiguration();
+		config.setThreads(threads);
+		config.setQueueSize(queueSize);
+		config.setMaxParallelEntries(maxParallelEntries);
+		return config;
+	}
+
+	private List<Integer> createItems(int count) {
+		return new ArrayList<>(IntStream.range(0, count).boxed().collect(Collectors.toList()));
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package org.rr.expander.feed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class TaskScopeTest {
+
+	@Test
+	public void testForkedTaskCompletes() throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			TaskScope taskScope = new TaskScope(executor);
+			assertEquals("done", taskScope.fork(() -> "done").get());
+			assertFalse(taskScope.isCancelled());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(expected = CancellationException.class)
+	public void testCancelInterruptsRunningTasks() throws InterruptedException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			TaskScope taskScope = new TaskScope(executor);
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch interrupted = new CountDownLatch(1);
+			CompletableFuture<String> future = taskScope.fork(() -> {
+				started.countDown();
+				try {
+					Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+				}
+				return "done";
+			});
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			taskScope.cancel();
+			assertTrue(taskScope.isCancelled());
+			assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+			future.join();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testTaskForkedAfterCancelIsNotRun() throws InterruptedException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			TaskScope taskScope = new TaskScope(executor);
+			taskScope.cancel();
+			AtomicBoolean run = new AtomicBoolean();
+			CompletableFuture<Boolean> future = taskScope.fork(() -> run.getAndSet(true));
+			assertTrue(future.isCancelled());
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+			assertFalse(run.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testRejectedTaskRunsInCaller() {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		executor.shutdown();
+		TaskScope taskScope = new TaskScope(executor);
+		assertEquals(Thread.currentThread().getName(), taskScope.fork(() -> Thread.currentThread().getName()).join());
+	}
+}
@@ -9,6 +9,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import org.apache.commons.io.IOUtils;
+import org.rr.expander.loader.UrlContentStream;
 import org.rr.expander.loader.UrlLoader;
 import org.rr.expander.loader.UrlLoaderFactory;
 
@@ -19,10 +20,26 @@ public class TestUrlLoaderFactory extends UrlLoaderFactory {
 
 	private static final String TEST_URL_PREFIX = "test://";
 
+	/** the Content-Type the raw streams are served with or <code>null</code> for none. */
+	private final String contentType;
+
+	public TestUrlLoaderFactory() {
+		this(null);
+	}
+
+	public TestUrlLoaderFactory(String contentType) {
+		this.contentType = contentType;
+	}
+
 	@Override
 	public UrlLoader getUrlLoader(String url) {
 		return new UrlLoader() {
 			
+			@Override
+			public UrlContentStream getContentAsRawStream() throws IOException {
+				return new UrlContentStream(getContentAsStream(StandardCharsets.UTF_8), contentType);
+			}
+			
 			@Override
 			public String getContentAsString() throws IOException {
 				return IOUtils.toString(getContentAsStream(StandardCharsets.UTF_8));
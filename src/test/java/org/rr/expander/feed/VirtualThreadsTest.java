@@ -0,0 +1,53 @@
+package org.rr.expander.feed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.rr.expander.feed.FeedExchangeExecutor.THREAD_MODE;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class VirtualThreadsTest {
+
+	@Test
+	public void testVirtualThreadPerTaskExecutor() throws InterruptedException, ExecutionException {
+		ExecutorService executor;
+		try {
+			executor = VirtualThreads.newVirtualThreadPerTaskExecutor("test-");
+		} catch (UnsupportedOperationException e) {
+			// the JDK which runs the tests did not support virtual threads.
+			assertFalse(VirtualThreads.isAvailable());
+			return;
+		}
+		try {
+			assertTrue(VirtualThreads.isAvailable());
+			assertEquals("test-0", executor.submit(() -> Thread.currentThread().getName()).get());
+			assertEquals("test-1", executor.submit(() -> Thread.currentThread().getName()).get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Parameters({ "1.8, 8", "17, 17", "19, 19", "21, 21", "25.0.1, 25", "invalid, 0" })
+	@Test
+	public void testParseFeatureVersion(String specificationVersion, int expectedFeatureVersion) {
+		assertEquals(expectedFeatureVersion, VirtualThreads.parseFeatureVersion(specificationVersion));
+	}
+
+	@Test
+	public void testExecutorFallsBackToPlatformThreads() {
+		FeedExchangeConfiguration config = new FeedExchangeConfiguration();
+		config.setThreadMode(THREAD_MODE.VIRTUAL.name());
+		try (FeedExchangeExecutor executor = new FeedExchangeExecutor(config)) {
+			assertEquals(VirtualThreads.isAvailable() ? THREAD_MODE.VIRTUAL : THREAD_MODE.PLATFORM, executor.getThreadMode());
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package org.rr.expander.loader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class CharsetResolverTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path/%s";
+
+	private static final String SOME_SPECIAL_CHARACTERS = "äöüÄÖÜß";
+
+	@Parameters({
+		"<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><rss></rss>, ISO-8859-1",
+		"<html><head><meta charset=\"iso-8859-1\"></head></html>, ISO-8859-1",
+		"<html><head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=windows-1252\"></head></html>, windows-1252",
+		"<html><head><META CHARSET=utf-8></head></html>, UTF-8",
+		"<html><head><meta charset=\"unknown\"><meta charset=\"utf-8\"></head></html>, UTF-8"
+	})
+	@Test
+	public void testDeclaredCharset(String content, String expectedCharset) {
+		assertEquals(Charset.forName(expectedCharset), new CharsetResolver().resolve(String.format(EXAMPLE_PAGE_URL, 1),
+				null, content.getBytes(StandardCharsets.ISO_8859_1)));
+	}
+
+	@Test
+	public void testContentTypeCharsetWins() {
+		byte[] content = "<html><head><meta charset=\"iso-8859-1\"></head></html>".getBytes(StandardCharsets.ISO_8859_1);
+		assertEquals(StandardCharsets.UTF_8, new CharsetResolver().resolve(String.format(EXAMPLE_PAGE_URL, 1),
+				"text/html; charset=utf-8", content));
+	}
+
+	@Test
+	public void testByteOrderMark() {
+		byte[] content = ArrayUtils.addAll(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF },
+				"<html><head><meta charset=\"iso-8859-1\"></head></html>".getBytes(StandardCharsets.UTF_8));
+		assertEquals(StandardCharsets.UTF_8, new CharsetResolver().resolve(String.format(EXAMPLE_PAGE_URL, 1), null, content));
+	}
+
+	@Test
+	public void testCharsetIsRememberedForHost() {
+		CharsetResolver charsetResolver = new CharsetResolver();
+		charsetResolver.resolve(String.format(EXAMPLE_PAGE_URL, 1), null,
+				"<html><head><meta charset=\"windows-1252\"></head></html>".getBytes(StandardCharsets.ISO_8859_1));
+
+		// the second page without declaration is utf-8 encoded but the host charset must be used.
+		byte[] content = ("<html><body>" + SOME_SPECIAL_CHARACTERS + "</body></html>").getBytes(StandardCharsets.UTF_8);
+		assertEquals(Charset.forName("windows-1252"), charsetResolver.resolve(String.format(EXAMPLE_PAGE_URL, 2), null, content));
+		assertEquals(Charset.defaultCharset(), charsetResolver.resolve("http://other.page.de", null, new byte[0]));
+	}
+}
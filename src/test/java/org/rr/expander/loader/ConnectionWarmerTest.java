@@ -0,0 +1,100 @@
+package org.rr.expander.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class ConnectionWarmerTest {
+
+	@Parameters({
+		"http://some.page.de/path, http://some.page.de:80",
+		"https://Some.Page.de/path?query, https://some.page.de:443",
+		"http://some.page.de:8080, http://some.page.de:8080"
+	})
+	@Test
+	public void testCreateRoute(String url, String expectedTarget) {
+		HttpRoute route = ConnectionWarmer.createRoute(url);
+		assertEquals(HttpHost.create(expectedTarget), route.getTargetHost());
+		assertEquals(url.startsWith("https"), route.isSecure());
+	}
+
+	@Parameters({
+		"ftp://some.page.de/path",
+		"invalid"
+	})
+	@Test
+	public void testCreateRouteForUnsupportedUrl(String url) {
+		assertNull(ConnectionWarmer.createRoute(url));
+	}
+
+	@Test
+	public void testConnectionsAreOpenedInPool() throws Exception {
+		WarmUpConfiguration config = new WarmUpConfiguration();
+		config.setConnectionsPerHost(2);
+		try (ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+				ConnectionWarmer connectionWarmer = new ConnectionWarmer(config)) {
+			PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+			connectionWarmer.register(connectionManager, 30);
+
+			String url = "http://127.0.0.1:" + server.getLocalPort() + "/feed.xml";
+			assertEquals(1, connectionWarmer.warmUp(Arrays.asList(url, url + "?other"), 5, TimeUnit.SECONDS));
+			try (Socket first = server.accept(); Socket second = server.accept()) {
+				assertEquals(2, connectionManager.getTotalStats().getAvailable());
+				assertEquals(0, connectionManager.getTotalStats().getLeased());
+			}
+			connectionManager.shutdown();
+		}
+	}
+
+	@Test
+	public void testUnresolvableHostIsSkipped() {
+		try (ConnectionWarmer connectionWarmer = new ConnectionWarmer(new WarmUpConfiguration())) {
+			assertEquals(0, connectionWarmer.warmUp(Collections.singleton("http://unknown.invalid/"), 5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void testResolvedHostsAreCached() throws Exception {
+		AtomicInteger lookups = new AtomicInteger();
+		CachingDnsResolver dnsResolver = new CachingDnsResolver(host -> {
+			lookups.incrementAndGet();
+			if("unknown.invalid".equals(host)) {
+				throw new UnknownHostException(host);
+			}
+			return new InetAddress[] { InetAddress.getLoopbackAddress() };
+		}, 60);
+
+		dnsResolver.resolve("some.page.de");
+		dnsResolver.resolve("Some.Page.de");
+		assertEquals(1, lookups.get());
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				dnsResolver.resolve("unknown.invalid");
+			} catch (UnknownHostException e) {
+				// expected
+			}
+		}
+		// failed lookups are not cached.
+		assertEquals(3, lookups.get());
+		assertEquals(1, dnsResolver.size());
+	}
+}
@@ -0,0 +1,144 @@
+package org.rr.expander.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.github.luben.zstd.Zstd;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class ContentDecodersTest {
+
+	private static final String CONTENT = "<html>€Ä encoded content</html>";
+
+	@Test
+	public void testDecodersAvailable() {
+		assumeTrue("brotli is not available on this platform", ContentDecoders.isBrotliAvailable());
+		assumeTrue("zstd is not available on this platform", ContentDecoders.isZstdAvailable());
+		assertEquals("[br, zstd, gzip, x-gzip, deflate]", ContentDecoders.createDecoderRegistry().keySet().toString());
+		// the same order the http client sends.
+		assertEquals("br,deflate,gzip,x-gzip,zstd", ContentDecoders.getAcceptEncoding());
+	}
+
+	@Parameters({ "br", "zstd", "gzip" })
+	@Test
+	public void testDecodeContentEncoding(String contentEncoding) throws Exception {
+		assumeTrue(contentEncoding + " is not available on this platform",
+				ContentDecoders.createDecoderRegistry().containsKey(contentEncoding));
+		byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+		try (ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+				CloseableHttpClient httpClient = PooledHttpClientFactory.createHttpClient(new HttpClientConfiguration(), null)) {
+			CompletableFuture<String> request = serve(server, contentEncoding, encode(contentEncoding, content));
+			UrlLoader urlLoader = UrlLoaderFactory.createURLLoaderFactory(httpClient)
+					.getUrlLoader("http://127.0.0.1:" + server.getLocalPort() + "/page.html");
+
+			assertEquals(CONTENT, urlLoader.getContentAsString());
+			assertTrue(request.get(5, TimeUnit.SECONDS).contains("Accept-Encoding: " + ContentDecoders.getAcceptEncoding()));
+		}
+	}
+
+	@Test
+	public void testDecodedContentIsLimited() throws Exception {
+		assumeTrue("zstd is not available on this platform", ContentDecoders.isZstdAvailable());
+		byte[] bomb = Zstd.compress(new byte[10 * 1024 * 1024]);
+		try (ServerSocket server = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+				CloseableHttpClient httpClient = PooledHttpClientFactory.createHttpClient(new HttpClientConfiguration(), null)) {
+			serve(server, "zstd", bomb);
+			UrlLoader urlLoader = UrlLoaderFactory.createURLLoaderFactory(httpClient, 1024 * 1024)
+					.getUrlLoader("http://127.0.0.1:" + server.getLocalPort() + "/page.html");
+			try {
+				urlLoader.getContentAsString();
+				fail("The decoded content must exceed the limit.");
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("larger than 1048576 bytes"));
+			}
+		}
+	}
+
+	private byte[] encode(String contentEncoding, byte[] content) throws IOException {
+		switch (contentEncoding) {
+		case "br":
+			return createUncompressedBrotli(content);
+		case "zstd":
+			return Zstd.compress(content);
+		default:
+			ByteArrayOutputStream result = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzip = new GZIPOutputStream(result)) {
+				gzip.write(content);
+			}
+			return result.toByteArray();
+		}
+	}
+
+	/**
+	 * There is no brotli encoder for java, so the content is stored in a single uncompressed
+	 * meta-block which is followed by an empty, last meta-block.
+	 */
+	private byte[] createUncompressedBrotli(byte[] content) {
+		// WBITS=16 (1 bit), ISLAST=0 (1 bit), MNIBBLES=4 (2 bits), MLEN-1 (16 bits), ISUNCOMPRESSED=1 (1 bit)
+		int header = ((content.length - 1) << 4) | (1 << 20);
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		result.write(header);
+		result.write(header >> 8);
+		result.write(header >> 16);
+		result.write(content, 0, content.length);
+		result.write(0x03); // ISLAST=1, ISLASTEMPTY=1
+		return result.toByteArray();
+	}
+
+	/**
+	 * Answer a single request with the given encoded body.
+	 *
+	 * @return The future request header.
+	 */
+	private CompletableFuture<String> serve(ServerSocket server, String contentEncoding, byte[] body) {
+		return CompletableFuture.supplyAsync(() -> {
+			try (Socket socket = server.accept()) {
+				String request = readRequestHeader(socket.getInputStream());
+				OutputStream out = socket.getOutputStream();
+				out.write(("HTTP/1.1 200 OK\r\n"
+						+ "Content-Type: text/html; charset=utf-8\r\n"
+						+ "Content-Encoding: " + contentEncoding + "\r\n"
+						+ "Content-Length: " + body.length + "\r\n"
+						+ "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+				out.write(body);
+				out.flush();
+				return request;
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	private String readRequestHeader(InputStream in) throws IOException {
+		StringBuilder header = new StringBuilder();
+		int read;
+		while((read = in.read()) != -1) {
+			header.append((char) read);
+			if(header.toString().endsWith("\r\n\r\n")) {
+				break;
+			}
+		}
+		return header.toString();
+	}
+}
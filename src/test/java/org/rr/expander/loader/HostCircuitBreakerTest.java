@@ -0,0 +1,256 @@
+package org.rr.expander.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.rr.expander.loader.HostCircuitBreaker.STATE;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class HostCircuitBreakerTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path/%s";
+
+	private static final String OTHER_HOST_PAGE_URL = "http://other.page.de/path";
+
+	private static final String CONTENT = "<html></html>";
+
+	@Test
+	public void testCircuitOpensAfterFailures() throws Exception {
+		try (HostCircuitBreaker circuitBreaker = new HostCircuitBreaker(createConfig(0, 60), null)) {
+			UrlLoader urlLoader = new CircuitBreakerUrlLoader(String.format(EXAMPLE_PAGE_URL, 1),
+					new FailingUrlLoader(Integer.MAX_VALUE, new ConnectException()), circuitBreaker);
+			for (int i = 0; i < 4; i++) {
+				assertLoadFails(urlLoader, ConnectException.class);
+			}
+			assertEquals(STATE.OPEN, circuitBreaker.getState(String.format(EXAMPLE_PAGE_URL, 2)));
+
+			// all requests to the host must fail fast now, other hosts are not affected.
+			assertLoadFails(new CircuitBreakerUrlLoader(String.format(EXAMPLE_PAGE_URL, 2),
+					new FailingUrlLoader(0, null), circuitBreaker), CircuitOpenException.class);
+			assertEquals(CONTENT, new CircuitBreakerUrlLoader(OTHER_HOST_PAGE_URL, new FailingUrlLoader(0, null),
+					circuitBreaker).getContentAsString());
+		}
+	}
+
+	@Test
+	public void testProbeClosesCircuit() throws Exception {
+		try (HostCircuitBreaker circuitBreaker = new HostCircuitBreaker(createConfig(0, 0), null)) {
+			UrlLoader failingLoader = new CircuitBreakerUrlLoader(String.format(EXAMPLE_PAGE_URL, 1),
+					new FailingUrlLoader(Integer.MAX_VALUE, new SocketTimeoutException()), circuitBreaker);
+			for (int i = 0; i < 4; i++) {
+				assertLoadFails(failingLoader, SocketTimeoutException.class);
+			}
+			assertEquals(STATE.OPEN, circuitBreaker.getState(String.format(EXAMPLE_PAGE_URL, 1)));
+
+			// the open time is over, so the next request is sent as probe.
+			assertEquals(CONTENT, new CircuitBreakerUrlLoader(String.format(EXAMPLE_PAGE_URL, 2),
+					new FailingUrlLoader(0, null), circuitBreaker).getContentAsString());
+			assertEquals(STATE.CLOSED, circuitBreaker.getState(String.format(EXAMPLE_PAGE_URL, 1)));
+		}
+	}
+
+	@Test
+	public void testClientErrorsDoNotOpenCircuit() throws Exception {
+		try (HostCircuitBreaker circuitBreaker = new HostCircuitBreaker(createConfig(2, 60), null)) {
+			FailingUrlLoader delegate = new FailingUrlLoader(Integer.MAX_VALUE, new HttpStatusException(404, "Not Found"));
+			UrlLoader urlLoader = new CircuitBreakerUrlLoader(String.format(EXAMPLE_PAGE_URL, 1), delegate, circuitBreaker);
+			for (int i = 0; i < 10; i++) {
+				assertLoadFails(urlLoader, HttpStatusException.class);
+			}
+			assertEquals(STATE.CLOSED, circuitBreaker.getState(String.format(EXAMPLE_PAGE_URL, 1)));
+
+			// a 404 must not be retried.
+			assertEquals(10, delegate.attempts.get());
+		}
+	}
+
+	@Test
+	public void testTransientErrorIsRetried() throws Exception {
+		try (HostCircuitBreaker circuitBreaker = new HostCircuitBreaker(createConfig(2, 60), null)) {
+			FailingUrlLoader delegate = new FailingUrlLoader(2, new HttpStatusException(503, "Service Unavailable"));
+			assertEquals(CONTENT, new CircuitBreakerUrlLoader(String.format(EXAMPLE_PAGE_URL, 1), delegate,
+					circuitBreaker).getContentAsString());
+			assertEquals(3, delegate.attempts.get());
+		}
+	}
+
+	@Test
+	public void testRetriesAreLimited() throws Exception {
+		try (HostCircuitBreaker circuitBreaker = new HostCircuitBreaker(createConfig(2, 60), null)) {
+			FailingUrlLoader delegate = new FailingUrlLoader(3, new SocketTimeoutException());
+			assertLoadFails(new CircuitBreakerUrlLoader(String.format(EXAMPLE_PAGE_URL, 1), delegate, circuitBreaker),
+					SocketTimeoutException.class);
+			assertEquals(3, delegate.attempts.get());
+		}
+	}
+
+	@Test
+	public void testAsyncTransientErrorIsRetried() throws Exception {
+		try (HostCircuitBreaker circuitBreaker = new HostCircuitBreaker(createConfig(2, 60), null)) {
+			FailingUrlLoader delegate = new FailingUrlLoader(2, new ConnectException());
+			AsyncUrlLoader asyncUrlLoader = new CircuitBreakerAsyncUrlLoader(String.format(EXAMPLE_PAGE_URL, 1),
+					createAsyncUrlLoader(delegate), circuitBreaker);
+			assertEquals(CONTENT, asyncUrlLoader.getContentAsString().get(5, TimeUnit.SECONDS));
+			assertEquals(3, delegate.attempts.get());
+		}
+	}
+
+	@Parameters(method = "getErrors")
+	@Test
+	public void testErrorClassification(Exception e, boolean expectedTransient, boolean expectedHostFailure) {
+		assertEquals(expectedTransient, HostCircuitBreaker.isTransient(e));
+		assertEquals(expectedHostFailure, HostCircuitBreaker.isHostFailure(e));
+	}
+
+	@SuppressWarnings("unused")
+	private Object[] getErrors() {
+		return new Object[] {
+			new Object[] { new SocketTimeoutException(), true, true },
+			new Object[] { new ConnectException(), true, true },
+			new Object[] { new HttpStatusException(503, "Service Unavailable"), true, true },
+			new Object[] { new HttpStatusException(429, "Too Many Requests"), true, true },
+			new Object[] { new UnknownHostException(), false, true },
+			new Object[] { new HttpStatusException(404, "Not Found"), false, false },
+			new Object[] { new ConnectionPoolTimeoutException(), false, false },
+			new Object[] { new IOException("Unsupported content type"), false, false }
+		};
+	}
+
+	@Test
+	public void testRetryDelayIsBounded() {
+		CircuitBreakerConfiguration config = createConfig(5, 60);
+		config.setRetryBaseDelayMillis(100);
+		config.setRetryMaxDelayMillis(300);
+		try (HostCircuitBreaker circuitBreaker = new HostCircuitBreaker(config, null)) {
+			for (int retry = 0; retry < 5; retry++) {
+				long delay = circuitBreaker.getRetryDelayMillis(retry);
+				assertTrue(delay >= 0 && delay <= Math.min(300, 100 << retry));
+			}
+		}
+	}
+
+	@Test
+	public void testIdleClosedCircuitIsEvicted() throws Exception {
+		CircuitBreakerConfiguration config = createConfig(0, 60);
+		config.setIdleHostSeconds(0);
+		try (HostCircuitBreaker circuitBreaker = new HostCircuitBreaker(config, null)) {
+			UrlLoader failingLoader = new CircuitBreakerUrlLoader(String.format(EXAMPLE_PAGE_URL, 1),
+					new FailingUrlLoader(Integer.MAX_VALUE, new ConnectException()), circuitBreaker);
+			for (int i = 0; i < 4; i++) {
+				assertLoadFails(failingLoader, ConnectException.class);
+			}
+			assertEquals(CONTENT, new CircuitBreakerUrlLoader(OTHER_HOST_PAGE_URL, new FailingUrlLoader(0, null),
+					circuitBreaker).getContentAsString());
+			assertEquals(2, circuitBreaker.getHostCount());
+
+			// the open circuit must be kept until a probe request closes it.
+			circuitBreaker.evictIdleCircuits();
+			assertEquals(1, circuitBreaker.getHostCount());
+			assertEquals(STATE.OPEN, circuitBreaker.getState(String.format(EXAMPLE_PAGE_URL, 2)));
+
+			assertEquals(CONTENT, new CircuitBreakerUrlLoader(OTHER_HOST_PAGE_URL, new FailingUrlLoader(0, null),
+					circuitBreaker).getContentAsString());
+			assertEquals(2, circuitBreaker.getHostCount());
+		}
+	}
+
+	private void assertLoadFails(UrlLoader urlLoader, Class<? extends Exception> expected) {
+		try {
+			urlLoader.getContentAsString();
+			fail("Load must fail with " + expected.getSimpleName());
+		} catch (IOException e) {
+			assertTrue(e.getClass().getName(), expected.isInstance(e));
+		}
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+	private CircuitBreakerConfiguration createConfig(int maxRetries, int openSeconds) {
+		CircuitBreakerConfiguration config = new CircuitBreakerConfiguration();
+		config.setMaxRetries(maxRetries);
+		config.setOpenSeconds(openSeconds);
+		config.setMinimumRequests(4);
+		config.setRetryBaseDelayMillis(1);
+		return config;
+	}
+
+	private AsyncUrlLoader createAsyncUrlLoader(UrlLoader urlLoader) {
+		return new AsyncUrlLoader() {
+			@Override
+			public @Nonnull CompletableFuture<byte[]> getContentAsBytes() {
+				return getContentAsString().thenApply(content -> content.getBytes());
+			}
+
+			@Override
+			public @Nonnull CompletableFuture<String> getContentAsString() {
+				CompletableFuture<String> result = new CompletableFuture<>();
+				try {
+					result.complete(urlLoader.getContentAsString());
+				} catch (IOException e) {
+					result.completeExceptionally(e);
+				}
+				return result;
+			}
+
+			@Override
+			public @Nonnull CompletableFuture<UrlContentStream> getContentAsRawStream() {
+				return getContentAsBytes().thenApply(content -> new UrlContentStream(new ByteArrayInputStream(content), null));
+			}
+
+			@Override
+			public @Nonnull CompletableFuture<UrlContent> getContentIfModified(String eTag, String lastModified) {
+				return getContentAsString().thenApply(content -> new UrlContent(content, null, null));
+			}
+		};
+	}
+
+	/**
+	 * Fails with the given error for the given number of attempts and succeeds afterwards.
+	 */
+	private static class FailingUrlLoader implements UrlLoader {
+
+		private final AtomicInteger attempts = new AtomicInteger();
+
+		private final int failures;
+
+		private final IOException error;
+
+		FailingUrlLoader(int failures, IOException error) {
+			this.failures = failures;
+			this.error = error;
+		}
+
+		@Override
+		public @Nonnull InputStream getContentAsStream(@Nonnull Charset charset) throws IOException {
+			return new ByteArrayInputStream(getContentAsString().getBytes(charset));
+		}
+
+		@Override
+		public @Nonnull String getContentAsString() throws IOException {
+			if(attempts.incrementAndGet() <= failures) {
+				throw error;
+			}
+			return CONTENT;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package org.rr.expander.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class HostRequestSchedulerTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path/%s";
+
+	private static final String OTHER_HOST_PAGE_URL = "http://other.page.de/path";
+
+	@Test
+	public void testConcurrentRequestsPerHostAreLimited() throws Exception {
+		try (HostRequestScheduler scheduler = new HostRequestScheduler(createConfig(2, 0), null)) {
+			CompletableFuture<Void> first = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 1));
+			CompletableFuture<Void> second = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 2));
+			CompletableFuture<Void> third = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 3));
+			CompletableFuture<Void> otherHost = scheduler.acquire(OTHER_HOST_PAGE_URL);
+
+			assertTrue(first.isDone());
+			assertTrue(second.isDone());
+			assertFalse(third.isDone());
+
+			// other hosts are not affected by the limit.
+			assertTrue(otherHost.isDone());
+
+			scheduler.release(String.format(EXAMPLE_PAGE_URL, 1));
+			assertTrue(third.isDone());
+		}
+	}
+
+	@Test
+	public void testRequestsPerHostAreSpaced() throws Exception {
+		try (HostRequestScheduler scheduler = new HostRequestScheduler(createConfig(2, 200), null)) {
+			CompletableFuture<Void> first = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 1));
+			CompletableFuture<Void> second = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 2));
+
+			assertTrue(first.isDone());
+			assertFalse(second.isDone());
+
+			second.get(5, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void testCancelledPermitIsReleased() throws Exception {
+		try (HostRequestScheduler scheduler = new HostRequestScheduler(createConfig(1, 0), null)) {
+			CompletableFuture<Void> first = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 1));
+			CompletableFuture<Void> cancelled = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 2));
+			CompletableFuture<Void> third = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 3));
+			cancelled.cancel(false);
+
+			assertTrue(first.isDone());
+			scheduler.release(String.format(EXAMPLE_PAGE_URL, 1));
+
+			// the cancelled request must be skipped.
+			assertTrue(third.isDone());
+		}
+	}
+
+	@Test
+	public void testQueuedPermitTimesOut() throws Exception {
+		HostPolitenessConfiguration config = createConfig(1, 0);
+		config.setMaxQueueWaitSeconds(1);
+		try (HostRequestScheduler scheduler = new HostRequestScheduler(config, null)) {
+			scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 1));
+			CompletableFuture<Void> queued = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 2));
+			try {
+				queued.get(5, TimeUnit.SECONDS);
+				fail("The queued request must time out.");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof QueueTimeoutException);
+			}
+		}
+	}
+
+	@Test
+	public void testIdleHostIsEvicted() throws Exception {
+		HostPolitenessConfiguration config = createConfig(1, 0);
+		config.setIdleHostSeconds(0);
+		try (HostRequestScheduler scheduler = new HostRequestScheduler(config, null)) {
+			assertTrue(scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 1)).isDone());
+			assertTrue(scheduler.acquire(OTHER_HOST_PAGE_URL).isDone());
+			scheduler.release(String.format(EXAMPLE_PAGE_URL, 1));
+			assertEquals(2, scheduler.getHostCount());
+
+			// the other host has still an active request.
+			scheduler.evictIdleHostQueues();
+			assertEquals(1, scheduler.getHostCount());
+
+			assertTrue(scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 2)).isDone());
+			assertEquals(2, scheduler.getHostCount());
+		}
+	}
+
+	@Test
+	public void testRobotsTxtCrawlDelayIsUsed() throws Exception {
+		HostPolitenessConfiguration config = createConfig(2, 0);
+		config.setRobotsTxtCrawlDelay(true);
+		try (HostRequestScheduler scheduler = new HostRequestScheduler(config,
+				createRobotsTxtLoaderFactory("User-agent: *\nCrawl-delay: 0.3\n"))) {
+			CompletableFuture<Void> first = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 1));
+			CompletableFuture<Void> second = scheduler.acquire(String.format(EXAMPLE_PAGE_URL, 2));
+
+			first.get(5, TimeUnit.SECONDS);
+			assertFalse(second.isDone());
+			second.get(5, TimeUnit.SECONDS);
+		}
+	}
+
+	@Parameters({
+		"User-agent: *;Crawl-delay: 5, 5000",
+		"User-agent: *;Crawl-delay: 1.5 # comment, 1500",
+		"user-agent: googlebot;user-agent: *;disallow: /private;crawl-delay: 2, 2000",
+		"User-agent: googlebot;Crawl-delay: 5, 0",
+		"User-agent: *;Disallow: /;User-agent: bingbot;Crawl-delay: 5, 0",
+		"User-agent: *;Crawl-delay: invalid, 0",
+		"<html></html>, 0"
+	})
+	@Test
+	public void testParseCrawlDelay(String robotsTxt, long expectedCrawlDelayMillis) {
+		assertEquals(expectedCrawlDelayMillis, RobotsTxt.parseCrawlDelayMillis(robotsTxt.replace(';', '\n')));
+	}
+
+	private HostPolitenessConfiguration createConfig(int maxConcurrentRequestsPerHost, int minRequestIntervalMillis) {
+		HostPolitenessConfiguration config = new HostPolitenessConfiguration();
+		config.setMaxConcurrentRequestsPerHost(maxConcurrentRequestsPerHost);
+		config.setMinRequestIntervalMillis(minRequestIntervalMillis);
+		config.setRobotsTxtCrawlDelay(false);
+		return config;
+	}
+
+	private UrlLoaderFactory createRobotsTxtLoaderFactory(String robotsTxt) {
+		return new UrlLoaderFactory() {
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url) {
+				return new UrlLoader() {
+					@Override
+					public @Nonnull InputStream getContentAsStream(@Nonnull Charset charset) throws IOException {
+						return new ByteArrayInputStream(robotsTxt.getBytes(charset));
+					}
+
+					@Override
+					public @Nonnull String getContentAsString() throws IOException {
+						return robotsTxt;
+					}
+				};
+			}
+		};
+	}
+}
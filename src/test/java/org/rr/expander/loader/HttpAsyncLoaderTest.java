@@ -0,0 +1,212 @@
+package org.rr.expander.loader;
+
+import static org.apache.commons.lang3.math.NumberUtils.toInt;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class HttpAsyncLoaderTest {
+
+	private static final String SOME_SPECIAL_CHARACTERS = "\u20ac\u00c4";
+
+	private static final String EXAMPLE_FEED_URL = "http://some.feed.de/path";
+
+	private static final String UTF8_HTML_CONTENT_TYPE = "text/html;charset=utf-8";
+
+	private static final String ISO_HTML_CONTENT_TYPE = "text/html;charset=iso-8859-1";
+
+	@Test
+	public void testSuccessHttpAsyncLoaderWithIso() {
+		byte[] exampleContent = createExampleContent(StandardCharsets.ISO_8859_1);
+		HttpAsyncLoaderTestImpl httpLoaderTestImpl = new HttpAsyncLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(exampleContent)
+				.setContentType(ISO_HTML_CONTENT_TYPE);
+		assertEquals(new String(exampleContent, StandardCharsets.ISO_8859_1), httpLoaderTestImpl.getContentAsString().join());
+	}
+
+	@Test
+	public void testHttpAsyncLoaderBytes() {
+		byte[] exampleContent = createExampleContent(StandardCharsets.UTF_8);
+		HttpAsyncLoaderTestImpl httpLoaderTestImpl = new HttpAsyncLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(exampleContent)
+				.setContentType(ISO_HTML_CONTENT_TYPE);
+
+		// the bytes must not be decoded or converted.
+		assertArrayEquals(exampleContent, httpLoaderTestImpl.getContentAsBytes().join());
+	}
+
+	@Test
+	@Parameters({
+		"500", "404", "302", "204"
+	})
+	public void testHttpAsyncLoaderWithStatusCodeOtherThan200(String statusCode) {
+		HttpAsyncLoaderTestImpl httpLoaderTestImpl = new HttpAsyncLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(new byte[0])
+				.setStatusCode(toInt(statusCode));
+		try {
+			httpLoaderTestImpl.getContentAsString().join();
+			fail("The future must complete exceptionally.");
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	@Test
+	public void testHttpAsyncLoaderConditionalRequest() {
+		byte[] exampleContent = createExampleContent(StandardCharsets.UTF_8);
+		HttpAsyncLoaderTestImpl httpLoaderTestImpl = new HttpAsyncLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(exampleContent)
+				.setContentType(UTF8_HTML_CONTENT_TYPE)
+				.setETag("\"v2\"");
+		UrlContent response = httpLoaderTestImpl.getContentIfModified("\"v1\"", null).join();
+		assertEquals(new String(exampleContent, StandardCharsets.UTF_8), response.getContent());
+		assertEquals("\"v2\"", response.getETag());
+
+		// no content must be returned if the server answers with 304.
+		assertNull(httpLoaderTestImpl.getContentIfModified("\"v2\"", null).join());
+	}
+
+	@Test
+	public void testHttpAsyncLoaderDecodesContentEncoding() throws IOException {
+		byte[] exampleContent = createExampleContent(StandardCharsets.UTF_8);
+		HttpAsyncLoaderTestImpl httpLoaderTestImpl = new HttpAsyncLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(gzip(exampleContent))
+				.setContentEncoding("gzip")
+				.setContentType(UTF8_HTML_CONTENT_TYPE);
+		assertEquals(new String(exampleContent, StandardCharsets.UTF_8), httpLoaderTestImpl.getContentAsString().join());
+		assertEquals(ContentDecoders.getAcceptEncoding(),
+				httpLoaderTestImpl.request.getFirstHeader("Accept-Encoding").getValue());
+	}
+
+	@Test
+	public void testHttpAsyncLoaderLimitsDecodedContent() throws IOException {
+		HttpAsyncLoaderTestImpl httpLoaderTestImpl = new HttpAsyncLoaderTestImpl(EXAMPLE_FEED_URL, 1024)
+				.setContent(gzip(new byte[10 * 1024]))
+				.setContentEncoding("gzip")
+				.setContentType(UTF8_HTML_CONTENT_TYPE);
+		try {
+			httpLoaderTestImpl.getContentAsString().join();
+			fail("The decoded content must exceed the limit.");
+		} catch (CompletionException e) {
+			assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("larger than 1024 bytes"));
+		}
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(result)) {
+			gzip.write(content);
+		}
+		return result.toByteArray();
+	}
+
+	private static byte[] createExampleContent(Charset charset) {
+		return ("<html><head></head><body><p>" + SOME_SPECIAL_CHARACTERS + "</p></body></html>").getBytes(charset);
+	}
+
+	private class HttpAsyncLoaderTestImpl extends HttpAsyncUrlLoader {
+
+		private byte[] content;
+
+		private String contentType;
+
+		private int statusCode = 200;
+
+		private String eTag;
+
+		private String contentEncoding;
+
+		/** the last request which has been executed. */
+		private HttpRequestBase request;
+
+		public HttpAsyncLoaderTestImpl(String url) {
+			super(url, HttpAsyncClients.createMinimal());
+		}
+
+		public HttpAsyncLoaderTestImpl(String url, long maxContentBytes) {
+			super(url, HttpAsyncClients.createMinimal(), maxContentBytes);
+		}
+
+		public HttpAsyncLoaderTestImpl setContent(byte[] content) {
+			this.content = content;
+			return this;
+		}
+
+		public HttpAsyncLoaderTestImpl setContentType(String contentType) {
+			this.contentType = contentType;
+			return this;
+		}
+
+		public HttpAsyncLoaderTestImpl setStatusCode(int statusCode) {
+			this.statusCode = statusCode;
+			return this;
+		}
+
+		public HttpAsyncLoaderTestImpl setETag(String eTag) {
+			this.eTag = eTag;
+			return this;
+		}
+
+		public HttpAsyncLoaderTestImpl setContentEncoding(String contentEncoding) {
+			this.contentEncoding = contentEncoding;
+			return this;
+		}
+
+		@Override
+		protected CompletableFuture<HttpResponse> getHttpResponse(HttpRequestBase httpGet) {
+			request = httpGet;
+			ProtocolVersion protocol = new ProtocolVersion("HTTP", 1, 1);
+			BasicStatusLine statusLine = new BasicStatusLine(protocol, getStatusCode(httpGet), "test reason");
+			BasicHttpResponse response = new BasicHttpResponse(statusLine);
+			if(contentType != null) {
+				response.addHeader("Content-Type", contentType);
+			}
+			if(eTag != null) {
+				response.addHeader("ETag", eTag);
+			}
+			if(contentEncoding != null) {
+				response.addHeader("Content-Encoding", contentEncoding);
+			}
+
+			BasicHttpEntity entity = new BasicHttpEntity();
+			entity.setContent(new ByteArrayInputStream(content));
+			response.setEntity(entity);
+			return CompletableFuture.completedFuture(response);
+		}
+
+		private int getStatusCode(HttpRequestBase httpGet) {
+			Header ifNoneMatch = httpGet.getFirstHeader("If-None-Match");
+			if(ifNoneMatch != null && ifNoneMatch.getValue().equals(eTag)) {
+				return 304;
+			}
+			return statusCode;
+		}
+	}
+
+}
@@ -1,7 +1,10 @@
 package org.rr.expander.loader;
 
 import static org.apache.commons.lang3.math.NumberUtils.toInt;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -10,9 +13,12 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolVersion;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
 import org.junit.Test;
@@ -180,6 +186,95 @@ public class HttpLoaderTest {
 		httpLoaderTestImpl.getContentAsString();
 	}
 
+	@Test
+	public void testHttpLoaderRawStream() throws IOException {
+		byte[] exampleContent = createExampleContent(StandardCharsets.ISO_8859_1);
+		HttpLoaderTestImpl httpLoaderTestImpl = new HttpLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(exampleContent)
+				.setContentType(ISO_HTML_CONTENT_TYPE_WITH_MIME_PREFIX);
+		try (UrlContentStream response = httpLoaderTestImpl.getContentAsRawStream()) {
+			// the raw stream must not be decoded or converted.
+			assertArrayEquals(exampleContent, IOUtils.toByteArray(response.getInputStream()));
+			assertEquals(ISO_HTML_CONTENT_TYPE_WITH_MIME_PREFIX, response.getContentType());
+		}
+	}
+	
+	@Test
+	public void testHttpLoaderConditionalRequestModified() throws IOException {
+		byte[] exampleContent = createExampleContent(StandardCharsets.UTF_8);
+		HttpLoaderTestImpl httpLoaderTestImpl = new HttpLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(exampleContent)
+				.setContentType(UTF8_HTML_CONTENT_TYPE)
+				.setETag("\"v2\"");
+		UrlContent response = httpLoaderTestImpl.getContentIfModified("\"v1\"", null);
+		
+		// the changed content must be returned with the new validator.
+		assertEquals(new String(exampleContent, StandardCharsets.UTF_8), response.getContent());
+		assertEquals("\"v2\"", response.getETag());
+	}
+	
+	@Test
+	public void testHttpLoaderConditionalRequestNotModified() throws IOException {
+		HttpLoaderTestImpl httpLoaderTestImpl = new HttpLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(createExampleContent(StandardCharsets.UTF_8))
+				.setContentType(UTF8_HTML_CONTENT_TYPE)
+				.setETag("\"v1\"");
+		
+		// no content must be returned if the server answers with 304.
+		assertNull(httpLoaderTestImpl.getContentIfModified("\"v1\"", null));
+	}
+
+	@Test(expected = IOException.class)
+	@Parameters({ 
+		"application/pdf", "video/mp4", "application/octet-stream", "image/svg+xml",
+		"application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+		"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "application/xml-dtd"
+	})
+	public void testHttpLoaderWithUnsupportedContentType(String contentType) throws IOException {
+		HttpLoaderTestImpl httpLoaderTestImpl = new HttpLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(createExampleContent(StandardCharsets.UTF_8))
+				.setContentType(contentType);
+		httpLoaderTestImpl.getContentAsString();
+	}
+	
+	@Parameters({ 
+		"text/html", "application/xhtml+xml", "application/rss+xml;charset=utf-8", "text/plain", "TEXT/XML",
+		"application/xml", "application/atom+xml", "application/rdf+xml", "charset=utf-8", "charset=utf-8;text/html"
+	})
+	@Test
+	public void testSupportedContentType(String contentType) {
+		assertTrue(AbstractHttpLoader.isSupportedContentType(contentType));
+	}
+	
+	@Test(expected = IOException.class)
+	public void testHttpLoaderWithTooLargeContent() throws IOException {
+		byte[] exampleContent = createExampleContent(StandardCharsets.UTF_8);
+		HttpLoaderTestImpl httpLoaderTestImpl = new HttpLoaderTestImpl(EXAMPLE_FEED_URL, exampleContent.length - 1)
+				.setContent(exampleContent)
+				.setContentType(UTF8_HTML_CONTENT_TYPE);
+		httpLoaderTestImpl.getContentAsString();
+	}
+	
+	@Test
+	public void testHttpLoaderWithContentAtTheLimit() throws IOException {
+		byte[] exampleContent = createExampleContent(StandardCharsets.UTF_8);
+		HttpLoaderTestImpl httpLoaderTestImpl = new HttpLoaderTestImpl(EXAMPLE_FEED_URL, exampleContent.length)
+				.setContent(exampleContent)
+				.setContentType(UTF8_HTML_CONTENT_TYPE);
+		assertEquals(new String(exampleContent, StandardCharsets.UTF_8), httpLoaderTestImpl.getContentAsString());
+	}
+	
+	@Test(expected = IOException.class)
+	public void testHttpLoaderRawStreamWithTooLargeContent() throws IOException {
+		byte[] exampleContent = createExampleContent(StandardCharsets.UTF_8);
+		HttpLoaderTestImpl httpLoaderTestImpl = new HttpLoaderTestImpl(EXAMPLE_FEED_URL, exampleContent.length - 1)
+				.setContent(exampleContent)
+				.setContentType(UTF8_HTML_CONTENT_TYPE);
+		try (UrlContentStream response = httpLoaderTestImpl.getContentAsRawStream()) {
+			IOUtils.toByteArray(response.getInputStream());
+		}
+	}
+
 	private static byte[] createExampleContent(Charset charset) {
 		return ("<html><head></head><body><p>" + SOME_SPECIAL_CHARACTERS + "</p></body></html>").getBytes(charset);
 	}
@@ -191,9 +286,15 @@ public class HttpLoaderTest {
 		private String contentType;
 		
 		private int statusCode = 200;
+		
+		private String eTag;
 
 		public HttpLoaderTestImpl(String url) {
-			super(url);
+			super(url, HttpClients.createMinimal());
+		}
+
+		public HttpLoaderTestImpl(String url, long maxContentBytes) {
+			super(url, HttpClients.createMinimal(), maxContentBytes);
 		}
 
 		public HttpLoaderTestImpl setContent(byte[] content) {
@@ -211,12 +312,20 @@ public class HttpLoaderTest {
 			return this;
 		}
 
+		public HttpLoaderTestImpl setETag(String eTag) {
+			this.eTag = eTag;
+			return this;
+		}
+
 		@Override
-		protected HttpResponse getHttpResponse() throws IOException {
+		protected HttpResponse getHttpResponse(HttpRequestBase httpGet) throws IOException {
 			ProtocolVersion protocol = new ProtocolVersion("HTTP", 1, 1);
-			BasicStatusLine statusLine = new BasicStatusLine(protocol, statusCode, "test reason");
+			BasicStatusLine statusLine = new BasicStatusLine(protocol, getStatusCode(httpGet), "test reason");
 			BasicHttpResponse response = new BasicHttpResponse(statusLine);
 			response.addHeader("Content-Type", contentType);
+			if(eTag != null) {
+				response.addHeader("ETag", eTag);
+			}
 			response.addHeader("Allow", "POST");
 			response.addHeader("Allow", "GET");
 
@@ -225,6 +334,14 @@ public class HttpLoaderTest {
 			response.setEntity(entity);
 			return response;
 		}
+
+		private int getStatusCode(HttpRequestBase httpGet) {
+			Header ifNoneMatch = httpGet.getFirstHeader("If-None-Match");
+			if(ifNoneMatch != null && ifNoneMatch.getValue().equals(eTag)) {
+				return 304;
+			}
+			return statusCode;
+		}
 	}
 
 }
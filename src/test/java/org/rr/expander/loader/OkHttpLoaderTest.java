@@ -0,0 +1,229 @@
+package org.rr.expander.loader;
+
+import static org.apache.commons.lang3.math.NumberUtils.toInt;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+@RunWith(JUnitParamsRunner.class)
+public class OkHttpLoaderTest {
+
+	private static final String SOME_SPECIAL_CHARACTERS = "€Ä";
+
+	private static final String EXAMPLE_FEED_URL = "https://some.feed.de/path";
+
+	private static final String UTF8_HTML_CONTENT_TYPE = "text/html;charset=utf-8";
+
+	private static final String ISO_HTML_CONTENT_TYPE = "charset=iso-8859-1;text/html";
+
+	private static final OkHttpClient OK_HTTP_CLIENT = new OkHttpClient();
+
+	@Parameters({
+		UTF8_HTML_CONTENT_TYPE + "|UTF-8",
+		ISO_HTML_CONTENT_TYPE + "|ISO-8859-1"
+	})
+	@Test
+	public void testSuccessOkHttpLoader(String contentType, String charset) throws IOException {
+		byte[] exampleContent = createExampleContent(Charset.forName(charset));
+		OkHttpLoaderTestImpl okHttpLoaderTestImpl = new OkHttpLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(exampleContent)
+				.setContentType(contentType);
+		assertEquals(new String(exampleContent, Charset.forName(charset)), okHttpLoaderTestImpl.getContentAsString());
+	}
+
+	@Test(expected = IOException.class)
+	@Parameters({
+		"500", "404", "302", "204"
+	})
+	public void testOkHttpLoaderWithStatusCodeOtherThan200(String statusCode) throws IOException {
+		OkHttpLoaderTestImpl okHttpLoaderTestImpl = new OkHttpLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(new byte[0])
+				.setStatusCode(toInt(statusCode));
+		okHttpLoaderTestImpl.getContentAsString();
+	}
+
+	@Test
+	public void testOkHttpLoaderRawStream() throws IOException {
+		byte[] exampleContent = createExampleContent(StandardCharsets.ISO_8859_1);
+		OkHttpLoaderTestImpl okHttpLoaderTestImpl = new OkHttpLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(exampleContent)
+				.setContentType(ISO_HTML_CONTENT_TYPE);
+		try (UrlContentStream response = okHttpLoaderTestImpl.getContentAsRawStream()) {
+			// the raw stream must not be decoded or converted.
+			assertArrayEquals(exampleContent, IOUtils.toByteArray(response.getInputStream()));
+			assertEquals(ISO_HTML_CONTENT_TYPE, response.getContentType());
+		}
+	}
+
+	@Test
+	public void testOkHttpLoaderConditionalRequest() throws IOException {
+		byte[] exampleContent = createExampleContent(StandardCharsets.UTF_8);
+		OkHttpLoaderTestImpl okHttpLoaderTestImpl = new OkHttpLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(exampleContent)
+				.setContentType(UTF8_HTML_CONTENT_TYPE)
+				.setETag("\"v2\"");
+		UrlContent response = okHttpLoaderTestImpl.getContentIfModified("\"v1\"", null);
+
+		// the changed content must be returned with the new validator.
+		assertEquals(new String(exampleContent, StandardCharsets.UTF_8), response.getContent());
+		assertEquals("\"v2\"", response.getETag());
+
+		// no content must be returned if the server answers with 304.
+		assertNull(okHttpLoaderTestImpl.getContentIfModified("\"v2\"", null));
+	}
+
+	@Parameters({
+		"301|301|true",
+		"308 301|308|true",
+		"302|302|false",
+		"301 302|302|false",
+		"302 308|302|false"
+	})
+	@Test
+	public void testOkHttpLoaderRedirectStatusCode(String redirectStatusCodes, int expectedStatusCode,
+			boolean expectedPermanent) throws IOException {
+		OkHttpLoaderTestImpl okHttpLoaderTestImpl = new OkHttpLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(createExampleContent(StandardCharsets.UTF_8))
+				.setContentType(UTF8_HTML_CONTENT_TYPE)
+				.setRedirectStatusCodes(redirectStatusCodes.split(" "));
+		UrlContent response = okHttpLoaderTestImpl.getContentIfModified(null, null);
+		assertEquals(EXAMPLE_FEED_URL, response.getLocation());
+		assertEquals(expectedStatusCode, response.getRedirectStatusCode());
+		assertEquals(expectedPermanent, response.isPermanentRedirect());
+	}
+
+	@Test(expected = IOException.class)
+	public void testOkHttpLoaderWithUnsupportedContentType() throws IOException {
+		OkHttpLoaderTestImpl okHttpLoaderTestImpl = new OkHttpLoaderTestImpl(EXAMPLE_FEED_URL)
+				.setContent(createExampleContent(StandardCharsets.UTF_8))
+				.setContentType("application/pdf");
+		okHttpLoaderTestImpl.getContentAsString();
+	}
+
+	@Parameters({
+		"-1", "0"
+	})
+	@Test
+	public void testOkHttpLoaderContentLimit(String exceedBytes) throws IOException {
+		byte[] exampleContent = createExampleContent(StandardCharsets.UTF_8);
+		OkHttpLoaderTestImpl okHttpLoaderTestImpl = new OkHttpLoaderTestImpl(EXAMPLE_FEED_URL,
+				exampleContent.length + toInt(exceedBytes))
+				.setContent(exampleContent)
+				.setContentType(UTF8_HTML_CONTENT_TYPE);
+		try {
+			assertEquals(new String(exampleContent, StandardCharsets.UTF_8), okHttpLoaderTestImpl.getContentAsString());
+			assertEquals(0, toInt(exceedBytes));
+		} catch (IOException e) {
+			assertTrue(toInt(exceedBytes) < 0);
+		}
+	}
+
+	@Test
+	public void testCreateOkHttpLoader() {
+		UrlLoaderFactory urlLoaderFactory = UrlLoaderFactory.createOkHttpUrlLoaderFactory(OK_HTTP_CLIENT, 1024);
+		assertTrue(urlLoaderFactory.getUrlLoader(EXAMPLE_FEED_URL) instanceof OkHttpUrlLoader);
+	}
+
+	private static byte[] createExampleContent(Charset charset) {
+		return ("<html><head></head><body><p>" + SOME_SPECIAL_CHARACTERS + "</p></body></html>").getBytes(charset);
+	}
+
+	private class OkHttpLoaderTestImpl extends OkHttpUrlLoader {
+
+		private byte[] content;
+
+		private String contentType;
+
+		private int statusCode = 200;
+
+		private String eTag;
+
+		/** the status codes of the redirects in the order they were followed. */
+		private String[] redirectStatusCodes = new String[0];
+
+		public OkHttpLoaderTestImpl(String url) {
+			super(url, OK_HTTP_CLIENT);
+		}
+
+		public OkHttpLoaderTestImpl(String url, long maxContentBytes) {
+			super(url, OK_HTTP_CLIENT, maxContentBytes);
+		}
+
+		public OkHttpLoaderTestImpl setContent(byte[] content) {
+			this.content = content;
+			return this;
+		}
+
+		public OkHttpLoaderTestImpl setContentType(String contentType) {
+			this.contentType = contentType;
+			return this;
+		}
+
+		public OkHttpLoaderTestImpl setStatusCode(int statusCode) {
+			this.statusCode = statusCode;
+			return this;
+		}
+
+		public OkHttpLoaderTestImpl setETag(String eTag) {
+			this.eTag = eTag;
+			return this;
+		}
+
+		public OkHttpLoaderTestImpl setRedirectStatusCodes(String... redirectStatusCodes) {
+			this.redirectStatusCodes = redirectStatusCodes;
+			return this;
+		}
+
+		@Override
+		protected Response getResponse(Request request) throws IOException {
+			Response.Builder response = new Response.Builder()
+					.request(request)
+					.protocol(Protocol.HTTP_2)
+					.code(getStatusCode(request))
+					.message("test reason")
+					.body(ResponseBody.create(null, content));
+			if(contentType != null) {
+				response.header("Content-Type", contentType);
+			}
+			if(eTag != null) {
+				response.header("ETag", eTag);
+			}
+			Response priorResponse = null;
+			for (String redirectStatusCode : redirectStatusCodes) {
+				priorResponse = new Response.Builder()
+						.request(request)
+						.protocol(Protocol.HTTP_2)
+						.code(toInt(redirectStatusCode))
+						.message("test redirect")
+						.priorResponse(priorResponse)
+						.build();
+			}
+			return response.priorResponse(priorResponse).build();
+		}
+
+		private int getStatusCode(Request request) {
+			if(eTag != null && eTag.equals(request.header("If-None-Match"))) {
+				return 304;
+			}
+			return statusCode;
+		}
+	}
+
+}
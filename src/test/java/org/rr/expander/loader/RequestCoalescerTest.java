@@ -0,0 +1,172 @@
+package org.rr.expander.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path";
+
+	@Test
+	public void testConcurrentRequestsAreShared() throws Exception {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		AtomicInteger requestCount = new AtomicInteger();
+		CountDownLatch requestStarted = new CountDownLatch(1);
+		CountDownLatch finishRequest = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = executor.submit(() -> coalescer.execute(RequestCoalescer.createKey("string", EXAMPLE_PAGE_URL), () -> {
+				requestCount.incrementAndGet();
+				requestStarted.countDown();
+				awaitQuietly(finishRequest);
+				return "content";
+			}));
+			requestStarted.await(5, TimeUnit.SECONDS);
+			Future<String> second = executor.submit(() -> coalescer.execute(RequestCoalescer.createKey("string", EXAMPLE_PAGE_URL + "#anchor"), () -> {
+				requestCount.incrementAndGet();
+				return "other content";
+			}));
+			Thread.sleep(100); // give the second request the time to join the in-flight one
+			finishRequest.countDown();
+
+			assertEquals("content", first.get(5, TimeUnit.SECONDS));
+			assertEquals("content", second.get(5, TimeUnit.SECONDS));
+			assertEquals(1, requestCount.get());
+			assertEquals(0, coalescer.getInFlightCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testInterruptedRequestIsTakenOver() throws Exception {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		String key = RequestCoalescer.createKey("string", EXAMPLE_PAGE_URL);
+		CountDownLatch requestStarted = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = executor.submit(() -> coalescer.execute(key, () -> {
+				requestStarted.countDown();
+				try {
+					Thread.sleep(TimeUnit.SECONDS.toMillis(5)); // waits for a host permit
+					return "content";
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting");
+				}
+			}));
+			requestStarted.await(5, TimeUnit.SECONDS);
+			Future<String> second = executor.submit(() -> coalescer.execute(key, () -> "content"));
+			Thread.sleep(100); // give the second request the time to join the in-flight one
+			first.cancel(true);
+
+			// the waiting request must not fail because another client has gone.
+			assertEquals("content", second.get(5, TimeUnit.SECONDS));
+			assertEquals(0, coalescer.getInFlightCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFailedRequestIsShared() throws Exception {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		String key = RequestCoalescer.createKey("string", EXAMPLE_PAGE_URL);
+		CountDownLatch requestStarted = new CountDownLatch(1);
+		CountDownLatch finishRequest = new CountDownLatch(1);
+		AtomicInteger requestCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = executor.submit(() -> coalescer.execute(key, () -> {
+				requestCount.incrementAndGet();
+				requestStarted.countDown();
+				awaitQuietly(finishRequest);
+				throw new SocketTimeoutException("Read timed out");
+			}));
+			requestStarted.await(5, TimeUnit.SECONDS);
+			Future<String> second = executor.submit(() -> coalescer.execute(key, () -> {
+				requestCount.incrementAndGet();
+				return "content";
+			}));
+			Thread.sleep(100); // give the second request the time to join the in-flight one
+			finishRequest.countDown();
+
+			assertFails(first, SocketTimeoutException.class);
+			assertFails(second, SocketTimeoutException.class);
+			assertEquals(1, requestCount.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFinishedRequestsAreNotShared() throws IOException {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		AtomicInteger requestCount = new AtomicInteger();
+		String key = RequestCoalescer.createKey("string", EXAMPLE_PAGE_URL);
+		coalescer.execute(key, () -> String.valueOf(requestCount.incrementAndGet()));
+
+		assertEquals("2", coalescer.execute(key, () -> String.valueOf(requestCount.incrementAndGet())));
+	}
+
+	@Test(expected = IOException.class)
+	public void testFailedRequestIsThrown() throws IOException {
+		new RequestCoalescer().execute(RequestCoalescer.createKey("string", EXAMPLE_PAGE_URL), () -> {
+			throw new IOException("failed");
+		});
+	}
+
+	@Test
+	public void testConcurrentAsyncRequestsAreShared() {
+		RequestCoalescer coalescer = new RequestCoalescer();
+		CompletableFuture<String> response = new CompletableFuture<>();
+		String key = RequestCoalescer.createKey("string", EXAMPLE_PAGE_URL);
+		CompletableFuture<String> first = coalescer.executeAsync(key, () -> response);
+		CompletableFuture<String> second = coalescer.executeAsync(key, () -> CompletableFuture.completedFuture("other content"));
+		assertSame(first, second);
+
+		response.complete("content");
+		assertEquals("content", second.join());
+		assertEquals(0, coalescer.getInFlightCount());
+	}
+
+	@Test
+	public void testValidatorsArePartOfTheKey() {
+		assertNotEquals(RequestCoalescer.createKey("content", EXAMPLE_PAGE_URL, "\"v1\"", null),
+				RequestCoalescer.createKey("content", EXAMPLE_PAGE_URL, "\"v2\"", null));
+	}
+
+	private void assertFails(Future<String> request, Class<? extends IOException> expected) throws Exception {
+		try {
+			request.get(5, TimeUnit.SECONDS);
+			fail("The request must fail with " + expected.getSimpleName());
+		} catch (ExecutionException e) {
+			assertTrue(String.valueOf(e.getCause()), expected.isInstance(e.getCause()));
+		}
+	}
+
+	private void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package org.rr.expander.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResponseArchiveTest {
+
+	private static final String EXAMPLE_PAGE_URL = "http://some.page.de/path";
+
+	private static final String CONTENT = "<html>äöü</html>";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ResponseArchive archive;
+
+	@Before
+	public void setUp() throws IOException {
+		archive = new ResponseArchive(folder.getRoot().toPath().resolve("archive"));
+	}
+
+	@Test
+	public void testReplayRecordedContent() throws IOException {
+		createRecordingLoader(new StaticUrlLoader(null)).getContentIfModified(null, null);
+
+		UrlLoader replayLoader = createReplayLoader(new ResponseArchive(archive.getDirectory()), 0);
+		assertEquals(CONTENT, replayLoader.getContentAsString());
+		UrlContent content = replayLoader.getContentIfModified(null, null);
+		assertEquals(CONTENT, content.getContent());
+		assertEquals("\"etag\"", content.getETag());
+		assertNull(replayLoader.getContentIfModified("\"etag\"", null));
+	}
+
+	@Test
+	public void testReplayRecordedRawStream() throws IOException {
+		try (UrlContentStream recorded = createRecordingLoader(new StaticUrlLoader(null)).getContentAsRawStream()) {
+			assertEquals(CONTENT, IOUtils.toString(recorded.getInputStream(), StandardCharsets.ISO_8859_1));
+		}
+
+		UrlLoader replayLoader = createReplayLoader(new ResponseArchive(archive.getDirectory()), 0);
+		try (UrlContentStream replayed = replayLoader.getContentAsRawStream()) {
+			assertEquals("text/html; charset=ISO-8859-1", replayed.getContentType());
+			assertEquals(CONTENT, IOUtils.toString(replayed.getInputStream(), StandardCharsets.ISO_8859_1));
+		}
+		assertEquals(CONTENT, replayLoader.getContentAsString());
+	}
+
+	@Test
+	public void testReplayRecordedErrors() throws IOException {
+		assertLoadFails(createRecordingLoader(new StaticUrlLoader(new HttpStatusException(503, "Service Unavailable"))),
+				HttpStatusException.class);
+		try {
+			createReplayLoader(archive, 0).getContentAsString();
+			fail("Replay must fail");
+		} catch (HttpStatusException e) {
+			assertEquals(503, e.getStatusCode());
+		}
+
+		assertLoadFails(createRecordingLoader(new StaticUrlLoader(new SocketTimeoutException("Read timed out"))),
+				SocketTimeoutException.class);
+		assertLoadFails(createReplayLoader(new ResponseArchive(archive.getDirectory()), 0), SocketTimeoutException.class);
+	}
+
+	@Test
+	public void testReplayUnknownUrl() {
+		assertLoadFails(createReplayLoader(archive, 0), IOException.class);
+	}
+
+	@Test
+	public void testReplayLatency() throws IOException {
+		RecordedResponse response = new RecordedResponse();
+		response.setUrl(EXAMPLE_PAGE_URL);
+		response.setStatusCode(200);
+		response.setBody(CONTENT.getBytes(StandardCharsets.UTF_8));
+		response.setCharset(StandardCharsets.UTF_8.name());
+		response.setElapsedMillis(100);
+		archive.put(response);
+
+		long start = System.nanoTime();
+		assertEquals(CONTENT, createReplayLoader(archive, 2).getContentAsString());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+	}
+
+	@Test
+	public void testRecordingReplacesReplayedResponse() throws IOException {
+		RecordedResponse response = new RecordedResponse();
+		response.setUrl(EXAMPLE_PAGE_URL);
+		response.setStatusCode(200);
+		response.setBody(CONTENT.getBytes(StandardCharsets.UTF_8));
+		archive.put(response);
+		assertEquals(CONTENT, new String(archive.get(EXAMPLE_PAGE_URL).getBody(), StandardCharsets.UTF_8));
+
+		// the replayed response must not hide the new recording.
+		response.setBody("<html>new</html>".getBytes(StandardCharsets.UTF_8));
+		archive.put(response);
+		assertEquals("<html>new</html>", new String(archive.get(EXAMPLE_PAGE_URL).getBody(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testReplayRespectsMaxContentBytes() throws IOException {
+		createRecordingLoader(new StaticUrlLoader(null)).getContentAsString();
+		UrlLoader replayLoader = UrlLoaderFactory.createReplayUrlLoaderFactory(archive, 1024, 0)
+				.getUrlLoader(EXAMPLE_PAGE_URL, 4);
+		assertLoadFails(replayLoader, IOException.class);
+	}
+
+	private UrlLoader createRecordingLoader(UrlLoader urlLoader) {
+		return UrlLoaderFactory.createRecordingUrlLoaderFactory(new UrlLoaderFactory() {
+			@Override
+			public @Nonnull UrlLoader getUrlLoader(@Nonnull String url) {
+				return urlLoader;
+			}
+		}, archive).getUrlLoader(EXAMPLE_PAGE_URL);
+	}
+
+	private UrlLoader createReplayLoader(ResponseArchive archive, double latencyFactor) {
+		return UrlLoaderFactory.createReplayUrlLoaderFactory(archive, AbstractHttpLoader.DEFAULT_MAX_CONTENT_BYTES,
+				latencyFactor).getUrlLoader(EXAMPLE_PAGE_URL);
+	}
+
+	private void assertLoadFails(UrlLoader urlLoader, Class<? extends IOException> expected) {
+		try {
+			urlLoader.getContentAsString();
+			fail("Load must fail with " + expected.getSimpleName());
+		} catch (IOException e) {
+			assertTrue(e.getClass().getName(), expected.isInstance(e));
+		}
+	}
+
+	/**
+	 * Serves {@link #CONTENT} as ISO-8859-1 encoded html or fails with the given error.
+	 */
+	private static class StaticUrlLoader implements UrlLoader {
+
+		@Nullable
+		private final IOException error;
+
+		StaticUrlLoader(@Nullable IOException error) {
+			this.error = error;
+		}
+
+		@Override
+		public @Nonnull InputStream getContentAsStream(@Nonnull Charset charset) throws IOException {
+			return new ByteArrayInputStream(getContentAsString().getBytes(charset));
+		}
+
+		@Override
+		public @Nonnull UrlContentStream getContentAsRawStream() throws IOException {
+			return new UrlContentStream(getContentAsStream(StandardCharsets.ISO_8859_1), "text/html; charset=ISO-8859-1");
+		}
+
+		@Override
+		public @Nonnull String getContentAsString() throws IOException {
+			if(error != null) {
+				throw error;
+			}
+			return CONTENT;
+		}
+
+		@Override
+		public @Nullable UrlContent getContentIfModified(@Nullable String eTag, @Nullable String lastModified)
+				throws IOException {
+			return new UrlContent(getContentAsString(), "\"etag\"", null);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package org.rr.expander.loader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+
+@RunWith(JUnitParamsRunner.class)
+public class UrlCanonicalizerTest {
+
+	@Test
+	@Parameters(method = "getLinks")
+	public void testCanonicalize(String link, String expected) {
+		assertEquals(expected, new UrlCanonicalizer(new UrlCanonicalizerConfiguration()).canonicalize(link));
+	}
+
+	private Object[] getLinks() {
+		return new Object[] {
+			new Object[] { "http://some.page.de/path/1", "http://some.page.de/path/1" },
+			new Object[] { "HTTP://Some.Page.DE/Path/1", "http://some.page.de/Path/1" },
+			new Object[] { "http://some.page.de:80/path/1", "http://some.page.de/path/1" },
+			new Object[] { "https://some.page.de:443/path/1", "https://some.page.de/path/1" },
+			new Object[] { "https://some.page.de:8443/path/1", "https://some.page.de:8443/path/1" },
+			new Object[] { "http://some.page.de", "http://some.page.de/" },
+			new Object[] { "http://some.page.de/path/1#comments", "http://some.page.de/path/1" },
+			new Object[] { "http://some.page.de/path/1?utm_source=feedburner&utm_medium=feed&utm_campaign=Feed%3A+x",
+					"http://some.page.de/path/1" },
+			new Object[] { "http://some.page.de/path/1?id=42&UTM_SOURCE=rss&fbclid=abc#top", "http://some.page.de/path/1?id=42" },
+			new Object[] { "http://some.page.de/path/1?&id=42&&page=2", "http://some.page.de/path/1?id=42&page=2" },
+			new Object[] { "http://some.page.de/path;jsessionid=0815/1?PHPSESSID=4711", "http://some.page.de/path/1" },
+			new Object[] { "http://some.page.de/path;v=2/1", "http://some.page.de/path;v=2/1" },
+			new Object[] { "http://User@Some.Page.de/path/1", "http://User@some.page.de/path/1" },
+			new Object[] { " http://some.page.de/path/1 ", "http://some.page.de/path/1" },
+			new Object[] { "/path/1?utm_source=rss", "/path/1?utm_source=rss" },
+			new Object[] { "test://feeds/valid_feed/content_1.html?utm_source=rss", "test://feeds/valid_feed/content_1.html" },
+		};
+	}
+
+	@Test
+	public void testCanonicalizeWithAdditionalParameters() {
+		UrlCanonicalizer canonicalizer = new UrlCanonicalizer(new UrlCanonicalizerConfiguration());
+		assertEquals("http://some.page.de/path/1?id=42",
+				canonicalizer.canonicalize("http://some.page.de/path/1?id=42&ref=rss&from_Feed=1", Arrays.asList("REF", "from_*")));
+		assertEquals("http://some.page.de/path/1?id=42&ref=rss",
+				canonicalizer.canonicalize("http://some.page.de/path/1?id=42&ref=rss"));
+	}
+
+	@Test
+	public void testKeepFragment() {
+		UrlCanonicalizerConfiguration config = new UrlCanonicalizerConfiguration();
+		config.setRemoveFragment(false);
+		assertEquals("http://some.page.de/path/1?id=42#comments",
+				new UrlCanonicalizer(config).canonicalize("http://some.page.de/path/1?id=42&utm_source=rss#comments"));
+	}
+
+	@Test
+	public void testCacheKey() {
+		UrlCanonicalizerConfiguration config = new UrlCanonicalizerConfiguration();
+		UrlCanonicalizer canonicalizer = new UrlCanonicalizer(config);
+		assertEquals("https://some.page.de/path/1", canonicalizer.getCacheKey(canonicalizer.canonicalize("http://some.page.de/path/1")));
+		assertEquals("https://some.page.de/path/1", canonicalizer.getCacheKey(canonicalizer.canonicalize("https://some.page.de/path/1")));
+
+		config.setIgnoreScheme(false);
+		canonicalizer = new UrlCanonicalizer(config);
+		assertEquals("http://some.page.de/path/1", canonicalizer.getCacheKey(canonicalizer.canonicalize("http://some.page.de/path/1")));
+	}
+
+	@Test
+	public void testRememberRedirect() {
+		UrlCanonicalizer canonicalizer = new UrlCanonicalizer(new UrlCanonicalizerConfiguration());
+		String link = canonicalizer.canonicalize("http://feeds.feedburner.com/~r/some/~3/abc/?utm_source=feedburner");
+		canonicalizer.rememberRedirect(link, createUrlContent("https://Some.Page.de/path/1?utm_source=feedburner&utm_medium=feed", 301),
+				Collections.emptyList());
+		canonicalizer.rememberRedirect("http://some.page.de/path/2", createUrlContent("http://some.page.de/path/2#top", 308),
+				Collections.emptyList());
+
+		assertEquals("https://some.page.de/path/1", canonicalizer.canonicalize("http://feeds.feedburner.com/~r/some/~3/abc/"));
+		assertEquals("http://some.page.de/path/2", canonicalizer.canonicalize("http://some.page.de/path/2"));
+		assertEquals(1, canonicalizer.getRedirectCount());
+		assertEquals(1, canonicalizer.getRedirectHitCount());
+	}
+
+	@Test
+	public void testRedirectsDisabled() {
+		UrlCanonicalizerConfiguration config = new UrlCanonicalizerConfiguration();
+		config.setMaxRedirects(0);
+		UrlCanonicalizer canonicalizer = new UrlCanonicalizer(config);
+		canonicalizer.rememberRedirect("http://some.page.de/path/1", createUrlContent("http://some.page.de/path/2", 301),
+				Collections.emptyList());
+		assertEquals("http://some.page.de/path/1", canonicalizer.canonicalize("http://some.page.de/path/1"));
+		assertEquals(0, canonicalizer.getRedirectCount());
+	}
+
+	@Parameters({ "301, true", "308, true", "302, false", "303, false", "307, false", "0, false" })
+	@Test
+	public void testOnlyPermanentRedirectIsRemembered(int statusCode, boolean expectedRemembered) {
+		UrlCanonicalizer canonicalizer = new UrlCanonicalizer(new UrlCanonicalizerConfiguration());
+		canonicalizer.rememberRedirect("http://some.page.de/path/1", createUrlContent("http://some.page.de/path/2", statusCode),
+				Collections.emptyList());
+		assertEquals(expectedRemembered ? "http://some.page.de/path/2" : "http://some.page.de/path/1",
+				canonicalizer.canonicalize("http://some.page.de/path/1"));
+	}
+
+	@Test
+	public void testRedirectTargetIsStrippedLikeLink() {
+		UrlCanonicalizer canonicalizer = new UrlCanonicalizer(new UrlCanonicalizerConfiguration());
+		List<String> aliasStripParameters = Arrays.asList("ref");
+		String link = canonicalizer.canonicalize("http://some.page.de/path/1?ref=feed", aliasStripParameters);
+		canonicalizer.rememberRedirect(link, createUrlContent("http://some.page.de/path/2?ref=feed&utm_source=feed", 301),
+				aliasStripParameters);
+		assertEquals("http://some.page.de/path/2", canonicalizer.canonicalize("http://some.page.de/path/1?ref=other",
+				aliasStripParameters));
+	}
+
+	private static UrlContent createUrlContent(String location, int redirectStatusCode) {
+		return new UrlContent("<html></html>", null, null, location, redirectStatusCode);
+	}
+}
@@ -2,33 +2,49 @@ package org.rr.expander.loader;
 
 import static org.junit.Assert.assertNotNull;
 
+import java.io.IOException;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 public class UrlLoaderFactoryTest {
 
+	private CloseableHttpClient httpClient;
+
+	private UrlLoaderFactory urlLoaderFactory;
+
+	@Before
+	public void setUp() {
+		httpClient = PooledHttpClientFactory.createHttpClient(new HttpClientConfiguration(), null);
+		urlLoaderFactory = UrlLoaderFactory.createURLLoaderFactory(httpClient);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		httpClient.close();
+	}
+
 	@Test
 	public void testCreateHttpLoader() {
-		UrlLoaderFactory urlLoaderFactory = UrlLoaderFactory.createURLLoaderFactory();
 		UrlLoader urlLoader = urlLoaderFactory.getUrlLoader("http://test.de");
 		assertNotNull(urlLoader);
 	}
 	
 	@Test
 	public void testCreateHttpsLoader() {
-		UrlLoaderFactory urlLoaderFactory = UrlLoaderFactory.createURLLoaderFactory();
 		UrlLoader urlLoader = urlLoaderFactory.getUrlLoader("https://test.de");
 		assertNotNull(urlLoader);
 	}
 	
 	@Test(expected=IllegalArgumentException.class)
 	public void testCreateNotExistingLoader() {
-		UrlLoaderFactory urlLoaderFactory = UrlLoaderFactory.createURLLoaderFactory();
 		urlLoaderFactory.getUrlLoader("abcd://test.de");
 	}
 	
 	@Test(expected=NullPointerException.class)
 	public void testNullLoader() {
-		UrlLoaderFactory urlLoaderFactory = UrlLoaderFactory.createURLLoaderFactory();
 		urlLoaderFactory.getUrlLoader(null);
 	}
 }